@@ -0,0 +1,199 @@
+package com.programacao_web.rpg_market.benchmark;
+
+import com.programacao_web.rpg_market.RpgMarketApplication;
+import com.programacao_web.rpg_market.dto.BidResult;
+import com.programacao_web.rpg_market.model.*;
+import com.programacao_web.rpg_market.service.BidService;
+import com.programacao_web.rpg_market.service.ProductService;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caminho quente dos lances: {@link BidService#placeBid}, {@link BidService#getCurrentWinningBid}
+ * e {@link ProductService#makeBid}, com um licitante por thread.
+ *
+ * Cada trial sobe a aplicação contra o banco escolhido em {@code backend} ({@link Auction}).
+ * Cada iteração começa num leilão novo com exatamente {@code bidsPerAuction} lances, para que
+ * o tamanho do leilão medido não cresça com os lances das iterações anteriores (a 1000 lances
+ * por milissegundo, dez segundos de medição somariam milhões). Os modos Throughput e
+ * SampleTime dão vazão e percentis de latência no mesmo relatório.
+ * {@link ContendedBiddingBenchmark} repete os mesmos cenários com vários licitantes
+ * disputando o leilão; {@code -t} sobrescreve o número de threads de ambos.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(1)
+public class BiddingBenchmark {
+
+    private static final int MAX_BIDDERS = 64;
+    private static final BigDecimal STARTING_PRICE = new BigDecimal("100");
+    private static final BigDecimal INCREMENT = BigDecimal.ONE;
+    private static final BigDecimal BIDDER_GOLD = new BigDecimal("1000000000000");
+
+    @Benchmark
+    public BidResult placeBid(Auction auction, Bidder bidder) {
+        return auction.bidService.placeBid(auction.product, bidder.user, auction.nextAmount());
+    }
+
+    @Benchmark
+    public Bid getCurrentWinningBid(Auction auction) {
+        return auction.bidService.getCurrentWinningBid(auction.product);
+    }
+
+    @Benchmark
+    public BidResult makeBid(Auction auction, Bidder bidder) {
+        return auction.productService.makeBid(auction.product, bidder.user, auction.nextAmount());
+    }
+
+    /**
+     * Licitante da thread atual
+     */
+    @State(Scope.Thread)
+    public static class Bidder {
+        User user;
+
+        @Setup(Level.Trial)
+        public void assign(Auction auction) {
+            user = auction.bidders.get(Math.floorMod(auction.nextBidder.getAndIncrement(), MAX_BIDDERS));
+        }
+    }
+
+    /**
+     * Aplicação, banco e leilão compartilhados por todas as threads de um trial
+     */
+    @State(Scope.Benchmark)
+    public static class Auction {
+
+        @Param({"MEMORY", "EMBEDDED"})
+        public MongoBackend backend;
+
+        @Param({"10", "1000"})
+        public int bidsPerAuction;
+
+        private MongoBackend.Running mongo;
+        private Path journalDir;
+        private ConfigurableApplicationContext context;
+        private MongoTemplate mongoTemplate;
+        private User seller;
+
+        BidService bidService;
+        ProductService productService;
+
+        Product product;
+        private final List<User> bidders = new ArrayList<>();
+        private final AtomicInteger nextBidder = new AtomicInteger();
+        private final AtomicLong nextStep = new AtomicLong();
+
+        @Setup(Level.Trial)
+        public void start() throws IOException {
+            mongo = backend.start();
+            journalDir = Files.createTempDirectory("bid-journal-bench");
+
+            context = new SpringApplicationBuilder(RpgMarketApplication.class)
+                .properties(
+                    "server.port=0",
+                    "spring.data.mongodb.uri=" + mongo.uri,
+                    "spring.data.mongodb.database=" + MongoBackend.DATABASE,
+                    "app.auction.journal.dir=" + journalDir,
+                    "spring.devtools.restart.enabled=false",
+                    // O limite por licitante recusaria quase todos os lances medidos
+                    "app.auction.admission.enabled=false",
+                    // O log por lance dominaria a medição
+                    "logging.level.root=WARN",
+                    "logging.level.com.programacao_web.rpg_market=WARN",
+                    "logging.level.org.springframework=WARN")
+                .run();
+
+            bidService = context.getBean(BidService.class);
+            productService = context.getBean(ProductService.class);
+            mongoTemplate = context.getBean(MongoTemplate.class);
+
+            seller = mongoTemplate.insert(user("bench_seller"));
+            for (int i = 0; i < MAX_BIDDERS; i++) {
+                bidders.add(mongoTemplate.insert(user("bench_bidder_" + i)));
+            }
+        }
+
+        /**
+         * Leilão novo com {@code bidsPerAuction} lances antes de cada iteração (aquecimento e
+         * medição); o leilão da iteração anterior e os seus lances são removidos
+         */
+        @Setup(Level.Iteration)
+        public void freshAuction() {
+            if (product != null) {
+                productService.deleteProduct(product, seller);
+            }
+            nextStep.set(0);
+
+            Product product = new Product();
+            product.setName("Espada de Benchmark");
+            product.setDescription("Leilão criado pelo benchmark de lances");
+            product.setCategory(ProductCategory.ARMAS);
+            product.setType(ProductType.AUCTION);
+            product.setStatus(ProductStatus.AUCTION_ACTIVE);
+            product.setPrice(STARTING_PRICE);
+            product.setMinBidIncrement(INCREMENT);
+            product.setSeller(seller);
+            product.setCreatedAt(LocalDateTime.now());
+            product.setAuctionEndDate(LocalDateTime.now().plusDays(30));
+            product.setBidCount(0L);
+            this.product = mongoTemplate.insert(product);
+
+            for (int i = 0; i < bidsPerAuction; i++) {
+                bidService.placeBid(this.product, bidders.get(i % MAX_BIDDERS), nextAmount());
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws IOException {
+            if (context != null) {
+                context.close();
+            }
+            if (mongo != null) {
+                mongo.close();
+            }
+            if (journalDir != null) {
+                try (var files = Files.walk(journalDir)) {
+                    files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+                }
+            }
+        }
+
+        /**
+         * Próximo valor da sequência compartilhada. Sob disputa, um valor que chega depois de
+         * um maior volta como lance superado, como aconteceria em produção.
+         */
+        BigDecimal nextAmount() {
+            return STARTING_PRICE.add(INCREMENT.multiply(BigDecimal.valueOf(nextStep.incrementAndGet())));
+        }
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@bench.local");
+        user.setPassword("bench");
+        user.setRole(UserRole.ROLE_AVENTUREIRO);
+        user.setLevel(1);
+        user.setExperience(0);
+        user.setGoldCoins(BIDDER_GOLD);
+        return user;
+    }
+}
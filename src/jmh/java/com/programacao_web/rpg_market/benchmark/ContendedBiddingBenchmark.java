@@ -0,0 +1,11 @@
+package com.programacao_web.rpg_market.benchmark;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Os mesmos cenários de {@link BiddingBenchmark} com oito licitantes disputando o
+ * mesmo leilão ao mesmo tempo
+ */
+@Threads(8)
+public class ContendedBiddingBenchmark extends BiddingBenchmark {
+}
@@ -0,0 +1,65 @@
+package com.programacao_web.rpg_market.benchmark;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Bancos usados pelos benchmarks.
+ *
+ * MEMORY é um servidor MongoDB em memória no próprio processo: mede o custo do código
+ * da aplicação com o banco quase fora da conta. EMBEDDED sobe um mongod real, então
+ * inclui o custo do servidor e do disco.
+ */
+public enum MongoBackend {
+
+    MEMORY {
+        @Override
+        Running start() {
+            MongoServer server = new MongoServer(new MemoryBackend());
+            InetSocketAddress address = server.bind();
+            return new Running(uri(address.getHostString(), address.getPort()), server::shutdownNow);
+        }
+    },
+
+    EMBEDDED {
+        @Override
+        Running start() {
+            TransitionWalker.ReachedState<RunningMongodProcess> mongod = Mongod.instance().start(Version.Main.V7_0);
+            ServerAddress address = mongod.current().getServerAddress();
+            return new Running(uri(address.getHost(), address.getPort()), mongod::close);
+        }
+    };
+
+    static final String DATABASE = "rpg_market_bench";
+
+    abstract Running start();
+
+    private static String uri(String host, int port) {
+        return "mongodb://" + host + ":" + port + "/" + DATABASE;
+    }
+
+    /**
+     * Banco em execução durante um trial
+     */
+    static final class Running implements AutoCloseable {
+        final String uri;
+        private final Runnable shutdown;
+
+        Running(String uri, Runnable shutdown) {
+            this.uri = uri;
+            this.shutdown = shutdown;
+        }
+
+        @Override
+        public void close() {
+            shutdown.run();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.programacao_web.rpg_market.config;
+
+import com.programacao_web.rpg_market.model.Bid;
+import com.programacao_web.rpg_market.model.Product;
+import com.programacao_web.rpg_market.model.ProductType;
+import com.programacao_web.rpg_market.model.RecentBid;
+import com.programacao_web.rpg_market.repository.BidRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Preenche o resumo do leilão (líder, lance vencedor, contagem, último lance e lances
+ * recentes) nos produtos gravados antes desses campos existirem, e remove a antiga lista
+ * de referências a lances. Só toca produtos que ainda não têm os campos, então é seguro
+ * rodar a cada inicialização.
+ */
+@Component
+public class AuctionSummaryBackfill implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(AuctionSummaryBackfill.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BidRepository bidRepository;
+
+    @Override
+    public void run(String... args) {
+        try {
+            // Produtos de venda direta não têm lances
+            long directSales = mongoTemplate.updateMulti(
+                Query.query(Criteria.where("bidCount").exists(false).and("type").ne(ProductType.AUCTION)),
+                new Update().set("bidCount", 0L),
+                Product.class).getModifiedCount();
+
+            Query auctionsQuery = Query.query(Criteria.where("bidCount").exists(false).and("type").is(ProductType.AUCTION));
+            auctionsQuery.fields().include("_id");
+            List<Product> auctions = mongoTemplate.find(auctionsQuery, Product.class);
+
+            for (Product auction : auctions) {
+                backfill(auction);
+            }
+
+            if (directSales > 0 || !auctions.isEmpty()) {
+                log.info("Resumo de leilão preenchido em {} leilões e {} vendas diretas", auctions.size(), directSales);
+            }
+
+            backfillRecentBids();
+
+            // A lista de DBRefs crescia a cada lance; o histórico agora é lido da coleção de lances
+            long legacyLists = mongoTemplate.updateMulti(
+                Query.query(Criteria.where("bids").exists(true)),
+                new Update().unset("bids"),
+                Product.class).getModifiedCount();
+            if (legacyLists > 0) {
+                log.info("Lista antiga de lances removida de {} produtos", legacyLists);
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Erro ao preencher o resumo dos leilões: {}", e.getMessage());
+        }
+    }
+
+    private void backfillRecentBids() {
+        mongoTemplate.updateMulti(
+            Query.query(Criteria.where("recentBids").exists(false).and("type").ne(ProductType.AUCTION)),
+            new Update().set("recentBids", List.of()),
+            Product.class);
+
+        Query auctionsQuery = Query.query(Criteria.where("recentBids").exists(false).and("type").is(ProductType.AUCTION));
+        auctionsQuery.fields().include("_id");
+        List<Product> auctions = mongoTemplate.find(auctionsQuery, Product.class);
+
+        for (Product auction : auctions) {
+            List<RecentBid> recentBids = bidRepository.findTop10ByProductIdOrderByBidTimeDesc(auction.getId()).stream()
+                .map(RecentBid::new)
+                .toList();
+            mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(auction.getId()).and("recentBids").exists(false)),
+                new Update().set("recentBids", recentBids),
+                Product.class);
+        }
+        if (!auctions.isEmpty()) {
+            log.info("Lances recentes preenchidos em {} leilões", auctions.size());
+        }
+    }
+
+    private void backfill(Product auction) {
+        Update update = new Update().set("bidCount", bidRepository.countByProductId(auction.getId()));
+
+        Optional<Bid> winning = bidRepository.findFirstByProductIdAndWinningTrue(auction.getId());
+        winning.ifPresent(bid -> update
+            .set("leaderId", bid.getBidder() != null ? bid.getBidder().getId() : null)
+            .set("leaderBidId", bid.getId()));
+
+        bidRepository.findFirstByProductIdOrderByBidTimeDesc(auction.getId())
+            .ifPresent(bid -> update.set("lastBidTime", bid.getBidTime()));
+
+        // Não sobrescreve um resumo gravado por um lance enquanto o preenchimento rodava
+        mongoTemplate.updateFirst(
+            Query.query(Criteria.where("_id").is(auction.getId()).and("bidCount").exists(false)),
+            update,
+            Product.class);
+    }
+}
@@ -3,6 +3,8 @@ package com.programacao_web.rpg_market.config;
 import com.programacao_web.rpg_market.model.Product;
 import com.programacao_web.rpg_market.model.User;
 import com.programacao_web.rpg_market.model.Transaction;
+import com.programacao_web.rpg_market.model.ProductRef;
+import com.programacao_web.rpg_market.model.UserRef;
 import com.programacao_web.rpg_market.model.UserRole;
 import com.programacao_web.rpg_market.model.ProductCategory;
 import com.programacao_web.rpg_market.model.ProductType;
@@ -104,6 +106,7 @@ public class DataInitializer {
                     espada.setRarity(ItemRarity.MUITO_RARO); // Raridade: Épico
                     espada.setImageUrl("/img/items/espada_valiriana.png"); // Caminho da imagem
                     espada.setSeller(admin); // Vendedor
+                    espada.setCreatedAt(LocalDateTime.now());
                     productRepository.save(espada);
 
                     // Anúncio 2: Arco Élfico de Lunária (Leilão)
@@ -120,6 +123,7 @@ public class DataInitializer {
                     arco.setRarity(ItemRarity.RARO); // Raridade: Raro
                     arco.setImageUrl("/img/items/arco_elfico.png");
                     arco.setSeller(admin);
+                    arco.setCreatedAt(LocalDateTime.now());
                     productRepository.save(arco);
 
                     // Anúncio 3: Poção de Cura Maior (Venda Direta)
@@ -133,6 +137,7 @@ public class DataInitializer {
                     pocao.setRarity(ItemRarity.INCOMUM); // Raridade: Incomum
                     pocao.setImageUrl("/img/items/pocao_cura.png");
                     pocao.setSeller(admin);
+                    pocao.setCreatedAt(LocalDateTime.now());
                     productRepository.save(pocao);
                     
                     // Anúncio 4: Mochila de Couro de Ogro Encantada (Venda Direta)
@@ -146,6 +151,7 @@ public class DataInitializer {
                     mochila.setRarity(ItemRarity.INCOMUM); // Raridade: Incomum
                     mochila.setImageUrl("/img/items/mochila_ogro.png");
                     mochila.setSeller(admin);
+                    mochila.setCreatedAt(LocalDateTime.now());
                     productRepository.save(mochila);
 
                     // Anúncio 5: Amuleto da Proteção Menor (Venda Direta)
@@ -159,6 +165,7 @@ public class DataInitializer {
                     amuleto.setRarity(ItemRarity.COMUM); // Raridade: Comum
                     amuleto.setImageUrl("/img/items/amuleto_protecao.png");
                     amuleto.setSeller(admin);
+                    amuleto.setCreatedAt(LocalDateTime.now());
                     productRepository.save(amuleto);
                       System.out.println("✅ Produtos de exemplo criados com sucesso!");                    // Criar algumas transações de exemplo se não existirem
                     if (transactionRepository.count() == 0) {
@@ -174,8 +181,8 @@ public class DataInitializer {
                         if (aventureiro1 != null && !produtos.isEmpty()) {
                             Product produto1 = produtos.get(0);
                             Transaction t1 = new Transaction();
-                            t1.setBuyer(aventureiro1);
-                            t1.setProduct(produto1);
+                            t1.setBuyer(UserRef.of(aventureiro1));
+                            t1.setProduct(ProductRef.of(produto1));
                             t1.setAmount(produto1.getPrice());
                             t1.setStatus(TransactionStatus.COMPLETED);
                             t1.setCreatedAt(LocalDateTime.now().minusDays(1));
@@ -185,8 +192,8 @@ public class DataInitializer {
                         if (aventureiro2 != null && produtos.size() > 1) {
                             Product produto2 = produtos.get(1);
                             Transaction t2 = new Transaction();
-                            t2.setBuyer(aventureiro2);
-                            t2.setProduct(produto2);
+                            t2.setBuyer(UserRef.of(aventureiro2));
+                            t2.setProduct(ProductRef.of(produto2));
                             t2.setAmount(produto2.getPrice());
                             t2.setStatus(TransactionStatus.COMPLETED);
                             t2.setCreatedAt(LocalDateTime.now().minusHours(6));
@@ -0,0 +1,181 @@
+package com.programacao_web.rpg_market.config;
+
+import com.mongodb.DBRef;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Converte os DBRefs antigos de lances e transações em referências embutidas (id mais os
+ * campos exibidos nas listas) e copia o endereço de entrega para dentro da transação.
+ *
+ * Lê os documentos em lotes e busca produtos, usuários e endereços de cada lote com uma
+ * consulta por coleção. Só toca documentos que ainda têm algum DBRef, então é seguro rodar
+ * a cada inicialização. Roda antes dos outros inicializadores, que já consultam pelas
+ * referências novas.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class EmbeddedReferenceMigration implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedReferenceMigration.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void run(String... args) {
+        try {
+            long bids = migrate("bids", List.of("product", "bidder"));
+            long transactions = migrate("transactions", List.of("product", "buyer", "seller", "deliveryAddress"));
+            if (bids > 0 || transactions > 0) {
+                log.info("Referências embutidas gravadas em {} lances e {} transações", bids, transactions);
+            }
+
+            // Os índices antigos eram sobre o DBRef; os novos são criados sobre product.id
+            dropIndexIfExists("bids", "bid_product_amount_idx");
+            dropIndexIfExists("bids", "bid_product_time_idx");
+        } catch (Exception e) {
+            log.warn("⚠️ Erro ao converter referências de lances e transações: {}", e.getMessage());
+        }
+    }
+
+    private long migrate(String collectionName, List<String> refFields) {
+        MongoCollection<Document> collection = mongoTemplate.getCollection(collectionName);
+        Bson legacy = Filters.or(refFields.stream().map(field -> Filters.exists(field + ".$ref")).toList());
+
+        long migrated = 0;
+        List<Document> batch = new ArrayList<>(BATCH_SIZE);
+        try (MongoCursor<Document> cursor = collection.find(legacy)
+                                                      .projection(Projections.include(refFields))
+                                                      .batchSize(BATCH_SIZE)
+                                                      .iterator()) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == BATCH_SIZE) {
+                    migrated += rewrite(collection, batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            migrated += rewrite(collection, batch);
+        }
+        return migrated;
+    }
+
+    /**
+     * Reescreve um lote: uma consulta por coleção referenciada e um bulk write no fim
+     */
+    private long rewrite(MongoCollection<Document> collection, List<Document> batch) {
+        Map<Object, Document> products = load("products", batch, "product",
+                                              Projections.include("name", "image_url", "category"));
+        Map<Object, Document> users = load("users", batch, List.of("bidder", "buyer", "seller"),
+                                           Projections.include("username"));
+        Map<Object, Document> addresses = load("delivery_addresses", batch, "deliveryAddress", null);
+
+        List<WriteModel<Document>> updates = new ArrayList<>(batch.size());
+        for (Document document : batch) {
+            Document set = new Document();
+            Document unset = new Document();
+
+            if (document.get("product") instanceof DBRef ref) {
+                Document product = products.get(ref.getId());
+                set.append("product", new Document("id", ref.getId().toString())
+                    .append("name", product != null ? product.getString("name") : null)
+                    .append("image_url", product != null ? product.getString("image_url") : null)
+                    .append("category", product != null ? product.getString("category") : null));
+            }
+            for (String field : List.of("bidder", "buyer", "seller")) {
+                if (document.get(field) instanceof DBRef ref) {
+                    Document user = users.get(ref.getId());
+                    set.append(field, new Document("id", ref.getId().toString())
+                        .append("username", user != null ? user.getString("username") : null));
+                }
+            }
+            if (document.get("deliveryAddress") instanceof DBRef ref) {
+                // Endereço apagado depois da compra: a transação fica sem a cópia
+                Document address = addresses.get(ref.getId());
+                if (address != null) {
+                    set.append("delivery_address", address);
+                }
+                unset.append("deliveryAddress", "");
+            }
+
+            Document update = new Document("$set", set);
+            if (!unset.isEmpty()) {
+                update.append("$unset", unset);
+            }
+            updates.add(new UpdateOneModel<>(Filters.eq("_id", document.get("_id")), update));
+        }
+
+        return collection.bulkWrite(updates, new BulkWriteOptions().ordered(false)).getModifiedCount();
+    }
+
+    private Map<Object, Document> load(String collectionName, List<Document> batch, String field, Bson projection) {
+        return load(collectionName, batch, List.of(field), projection);
+    }
+
+    /**
+     * Busca numa consulta só os documentos apontados pelos DBRefs dos campos indicados
+     */
+    private Map<Object, Document> load(String collectionName, List<Document> batch, List<String> fields, Bson projection) {
+        Set<Object> ids = new HashSet<>();
+        for (Document document : batch) {
+            for (String field : fields) {
+                if (document.get(field) instanceof DBRef ref) {
+                    ids.add(ref.getId());
+                }
+            }
+        }
+
+        Map<Object, Document> byId = new HashMap<>();
+        if (ids.isEmpty()) {
+            return byId;
+        }
+        FindIterable<Document> found = mongoTemplate.getCollection(collectionName).find(Filters.in("_id", ids));
+        if (projection != null) {
+            found = found.projection(projection);
+        }
+        for (Document document : found) {
+            byId.put(document.get("_id"), document);
+        }
+        return byId;
+    }
+
+    private void dropIndexIfExists(String collectionName, String indexName) {
+        MongoCollection<Document> collection = mongoTemplate.getCollection(collectionName);
+        for (Document index : collection.listIndexes()) {
+            if (indexName.equals(index.getString("name"))) {
+                collection.dropIndex(indexName);
+                log.info("Índice antigo {} removido de {}", indexName, collectionName);
+                return;
+            }
+        }
+    }
+}
@@ -1,17 +1,30 @@
 package com.programacao_web.rpg_market.config;
 
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.IndexOptions;
+
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.index.Index;
 import org.springframework.data.mongodb.core.mapping.event.ValidatingMongoEventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @Configuration
 public class MongoConfig {
 
@@ -26,7 +39,15 @@ public class MongoConfig {
     }
     
     /**
-     * Componente para criar índices MongoDB para otimização de performance
+     * Aplica o {@link MongoIndexCatalog} na inicialização e relata a deriva entre o catálogo e
+     * o banco: índices criados, divergentes (mesmo nome, chaves ou opções diferentes),
+     * aposentados e desconhecidos. Com {@code app.mongo.indexes.repair} os divergentes são
+     * recriados; os desconhecidos só são relatados, podem ter sido criados à mão.
+     *
+     * Os planos das consultas quentes são conferidos pelo {@code MongoIndexCatalogTest}, num
+     * mongod de teste. Com {@code app.mongo.indexes.explain} o mesmo {@code explain} roda também
+     * contra o banco da aplicação, com os dados reais, e avisa quando o plano vencedor tem
+     * COLLSCAN ou SORT em memória.
      */
     @Component
     public static class MongoIndexesConfig implements CommandLineRunner {
@@ -36,71 +57,198 @@ public class MongoConfig {
         @Autowired
         private MongoTemplate mongoTemplate;
 
+        @Value("${app.mongo.indexes.repair:true}")
+        private boolean repair;
+
+        @Value("${app.mongo.indexes.explain:false}")
+        private boolean explain;
+
         @Override
         public void run(String... args) throws Exception {
-            createIndexes();
+            applyCatalog();
+            if (explain) {
+                explainHotQueries();
+            }
         }
 
-        private void createIndexes() {
-            try {
-                // Índices para a coleção de produtos (otimizar painel do mestre)
-                mongoTemplate.indexOps("products").ensureIndex(
-                    new Index()
-                        .on("status", org.springframework.data.domain.Sort.Direction.ASC)
-                        .on("category", org.springframework.data.domain.Sort.Direction.ASC)
-                        .on("type", org.springframework.data.domain.Sort.Direction.ASC)
-                        .on("createdAt", org.springframework.data.domain.Sort.Direction.DESC)
-                        .named("status_category_type_created_idx")
-                        .background()
-                );
-                
-                // Índice para busca por vendedor
-                mongoTemplate.indexOps("products").ensureIndex(
-                    new Index("seller.username", org.springframework.data.domain.Sort.Direction.ASC)
-                        .named("seller_username_idx")
-                        .background()
-                );
-                
-                // Índice para data de criação (usado para ordenação)
-                mongoTemplate.indexOps("products").ensureIndex(
-                    new Index("createdAt", org.springframework.data.domain.Sort.Direction.DESC)
-                        .named("created_at_desc_idx")
-                        .background()
-                );
-
-                // Índices para a coleção de transações
-                mongoTemplate.indexOps("transactions").ensureIndex(
-                    new Index("status", org.springframework.data.domain.Sort.Direction.ASC)
-                        .named("transaction_status_idx")
-                        .background()
-                );
-                
-                mongoTemplate.indexOps("transactions").ensureIndex(
-                    new Index("created_at", org.springframework.data.domain.Sort.Direction.DESC)
-                        .named("transaction_created_at_idx")
-                        .background()
-                );
-
-                // Índices para a coleção de usuários
-                mongoTemplate.indexOps("users").ensureIndex(
-                    new Index("username", org.springframework.data.domain.Sort.Direction.ASC)
-                        .named("username_unique_idx")
-                        .unique()
-                        .background()
-                );
-                
-                mongoTemplate.indexOps("users").ensureIndex(
-                    new Index("email", org.springframework.data.domain.Sort.Direction.ASC)
-                        .named("email_unique_idx")
-                        .unique()
-                        .background()
-                );
-
-                log.info("✅ Índices MongoDB criados com sucesso para otimização de performance!");
+        private void applyCatalog() {
+            int unchanged = 0;
+            int created = 0;
+            int drifted = 0;
+            int failed = 0;
+
+            Map<String, List<MongoIndexCatalog.IndexSpec>> byCollection = new LinkedHashMap<>();
+            for (MongoIndexCatalog.IndexSpec spec : MongoIndexCatalog.INDEXES) {
+                byCollection.computeIfAbsent(spec.collection(), collection -> new ArrayList<>()).add(spec);
+            }
+
+            for (Map.Entry<String, List<MongoIndexCatalog.IndexSpec>> entry : byCollection.entrySet()) {
+                String collectionName = entry.getKey();
+                MongoCollection<Document> collection = mongoTemplate.getCollection(collectionName);
+                Map<String, Document> existing = new LinkedHashMap<>();
+                try {
+                    for (Document index : collection.listIndexes()) {
+                        existing.put(index.getString("name"), index);
+                    }
+                } catch (Exception e) {
+                    log.warn("⚠️ Não foi possível listar os índices de {}: {}", collectionName, e.getMessage());
+                    failed += entry.getValue().size();
+                    continue;
+                }
 
+                for (String retired : MongoIndexCatalog.RETIRED) {
+                    if (existing.remove(retired) != null) {
+                        dropQuietly(collection, collectionName, retired);
+                    }
+                }
+
+                for (MongoIndexCatalog.IndexSpec spec : entry.getValue()) {
+                    Document current = existing.remove(spec.name());
+                    try {
+                        if (current != null && matches(current, spec)) {
+                            unchanged++;
+                            continue;
+                        }
+                        if (current != null) {
+                            drifted++;
+                            log.warn("⚠️ Índice {}.{} diverge do catálogo: no banco {}, esperado {}",
+                                     collectionName, spec.name(), current.get("key"), spec.keys());
+                            if (!repair) {
+                                continue;
+                            }
+                            collection.dropIndex(spec.name());
+                        }
+                        String sameKeys = sameKeys(existing, spec);
+                        if (sameKeys != null) {
+                            // O banco recusaria outro índice com as mesmas chaves
+                            log.warn("⚠️ Índice {}.{} já existe com o nome {}", collectionName, spec.name(), sameKeys);
+                            existing.remove(sameKeys);
+                            drifted++;
+                            continue;
+                        }
+                        collection.createIndex(spec.keys(), new IndexOptions()
+                            .name(spec.name())
+                            .unique(spec.unique())
+                            .sparse(spec.sparse())
+                            .background(true));
+                        created++;
+                        log.info("Índice {}.{} criado ({})", collectionName, spec.name(), spec.serves());
+                    } catch (Exception e) {
+                        failed++;
+                        log.warn("⚠️ Erro ao aplicar o índice {}.{}: {}", collectionName, spec.name(), e.getMessage());
+                    }
+                }
+
+                existing.remove("_id_");
+                for (String unknown : existing.keySet()) {
+                    log.warn("⚠️ Índice {}.{} não está no catálogo {}", collectionName, unknown,
+                             existing.get(unknown).get("key"));
+                }
+            }
+
+            log.info("✅ Catálogo de índices aplicado: {} em dia, {} criados, {} divergentes, {} com erro",
+                     unchanged, created, drifted, failed);
+        }
+
+        private void dropQuietly(MongoCollection<Document> collection, String collectionName, String name) {
+            try {
+                collection.dropIndex(name);
+                log.info("Índice aposentado {}.{} removido", collectionName, name);
             } catch (Exception e) {
-                log.warn("⚠️ Aviso ao criar índices MongoDB (pode ser normal se já existem): {}", e.getMessage());
+                log.warn("⚠️ Erro ao remover o índice aposentado {}.{}: {}", collectionName, name, e.getMessage());
+            }
+        }
+
+        private static boolean matches(Document current, MongoIndexCatalog.IndexSpec spec) {
+            return sameKeyPattern(current.get("key", Document.class), spec.keys())
+                && current.getBoolean("unique", false) == spec.unique()
+                && current.getBoolean("sparse", false) == spec.sparse();
+        }
+
+        private static String sameKeys(Map<String, Document> existing, MongoIndexCatalog.IndexSpec spec) {
+            for (Map.Entry<String, Document> index : existing.entrySet()) {
+                if (sameKeyPattern(index.getValue().get("key", Document.class), spec.keys())) {
+                    return index.getKey();
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Compara campos, ordem e direção; a direção pode vir como int, long ou double
+         */
+        private static boolean sameKeyPattern(Document actual, Document expected) {
+            if (actual == null || actual.size() != expected.size()) {
+                return false;
+            }
+            Iterator<Map.Entry<String, Object>> a = actual.entrySet().iterator();
+            Iterator<Map.Entry<String, Object>> e = expected.entrySet().iterator();
+            while (a.hasNext()) {
+                Map.Entry<String, Object> left = a.next();
+                Map.Entry<String, Object> right = e.next();
+                if (!left.getKey().equals(right.getKey())
+                    || !(left.getValue() instanceof Number l) || !(right.getValue() instanceof Number r)
+                    || Math.signum(l.doubleValue()) != Math.signum(r.doubleValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Confere o plano vencedor de cada consulta quente do catálogo
+         */
+        private void explainHotQueries() {
+            int problems = 0;
+            for (MongoIndexCatalog.HotQuery query : MongoIndexCatalog.HOT_QUERIES) {
+                try {
+                    Set<String> stages = winningPlanStages(mongoTemplate.getDb(), query);
+                    if (stages.contains("COLLSCAN") || stages.contains("SORT")) {
+                        problems++;
+                        log.warn("⚠️ Consulta \"{}\" em {} sem índice adequado: estágios {}",
+                                 query.name(), query.collection(), stages);
+                    } else {
+                        log.debug("Consulta \"{}\" em {}: estágios {}", query.name(), query.collection(), stages);
+                    }
+                } catch (Exception e) {
+                    problems++;
+                    log.warn("⚠️ Erro no explain da consulta \"{}\": {}", query.name(), e.getMessage());
+                }
+            }
+            log.info("Planos das consultas quentes conferidos: {} de {} com problema",
+                     problems, MongoIndexCatalog.HOT_QUERIES.size());
+        }
+
+        /**
+         * Estágios do plano vencedor da consulta quente, pelo {@code explain} do {@code find}
+         */
+        static Set<String> winningPlanStages(MongoDatabase database, MongoIndexCatalog.HotQuery query) {
+            Document find = new Document("find", query.collection()).append("filter", query.filter());
+            if (query.sort() != null) {
+                find.append("sort", query.sort());
+            }
+            Document result = database.runCommand(
+                new Document("explain", find).append("verbosity", "queryPlanner"));
+            Document planner = result.get("queryPlanner", Document.class);
+            Set<String> stages = new HashSet<>();
+            collectStages(planner != null ? planner.get("winningPlan") : null, stages);
+            return stages;
+        }
+
+        private static void collectStages(Object node, Set<String> stages) {
+            if (node instanceof Document document) {
+                Object stage = document.get("stage");
+                if (stage instanceof String name) {
+                    stages.add(name);
+                }
+                for (Object value : document.values()) {
+                    collectStages(value, stages);
+                }
+            } else if (node instanceof List<?> list) {
+                for (Object value : list) {
+                    collectStages(value, stages);
+                }
             }
         }
     }
-}
\ No newline at end of file
+}
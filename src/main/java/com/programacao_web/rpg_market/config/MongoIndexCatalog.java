@@ -0,0 +1,244 @@
+package com.programacao_web.rpg_market.config;
+
+import com.mongodb.DBRef;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Catálogo declarativo dos índices do banco, montado a partir das consultas quentes dos
+ * repositórios e do {@code MongoTemplate}. Cada índice diz quais consultas atende, e cada
+ * consulta quente tem um exemplo em {@link #HOT_QUERIES} para a conferência dos planos.
+ *
+ * Os nomes de campo são os gravados ({@code created_at}, {@code auction_end_date}), não os
+ * das propriedades Java. Regras seguidas: igualdades primeiro, depois o {@code $in} de
+ * categoria da visibilidade por classe, e a ordenação da página por último, com o
+ * {@code _id} de desempate das listagens por cursor.
+ *
+ * O preço não entra em índice: é gravado como texto e filtrado por {@code $expr}, então a
+ * faixa de preço é conferida nos documentos já restritos pelos demais campos (ou respondida
+ * pelo índice do catálogo em memória).
+ */
+public final class MongoIndexCatalog {
+
+    /**
+     * Um índice do catálogo. {@code keys} na ordem do índice, com 1 ou -1.
+     */
+    public record IndexSpec(String collection, String name, Document keys,
+                            boolean unique, boolean sparse, String serves) {
+    }
+
+    /**
+     * Exemplo de uma consulta quente, usado para conferir o plano escolhido pelo banco
+     */
+    public record HotQuery(String name, String collection, Document filter, Document sort) {
+    }
+
+    private static final List<String> VISIBLE = List.of("ARMAS", "ARMADURA_VESTIMENTA");
+
+    public static final List<IndexSpec> INDEXES = List.of(
+        // Produtos
+        index("products", "market_status_category_created_idx",
+              "Vitrines de /mercado, /categoria e /buscar sem palavra-chave",
+              new Document("status", 1).append("category", 1).append("created_at", -1)),
+        index("products", "market_status_created_idx",
+              "Vitrines de quem vê todas as categorias, sem o $in da visibilidade por classe",
+              new Document("status", 1).append("created_at", -1)),
+        index("products", "market_type_status_category_created_idx",
+              "Vendas diretas filtradas e a listagem por cursor (created_at, _id)",
+              new Document("type", 1).append("status", 1).append("category", 1)
+                  .append("created_at", -1).append("_id", -1)),
+        index("products", "market_type_status_rarity_category_created_idx",
+              "Vendas diretas e leilões filtrados por raridade",
+              new Document("type", 1).append("status", 1).append("rarity", 1).append("category", 1)
+                  .append("created_at", -1).append("_id", -1)),
+        index("products", "market_type_status_category_end_idx",
+              "Masmorra dos leilões e a listagem por cursor (auction_end_date, _id)",
+              new Document("type", 1).append("status", 1).append("category", 1)
+                  .append("auction_end_date", 1).append("_id", 1)),
+        index("products", "auction_status_end_idx",
+              "Leilões vencidos (encerramento) e a carga da roda de encerramento",
+              new Document("status", 1).append("auction_end_date", 1)),
+        index("products", "product_seller_status_idx",
+              "Inventário e vendas do aventureiro (findBySeller, findBySellerAndStatusIn)",
+              new Document("seller", 1).append("status", 1)),
+        sparse("products", "product_settlement_batch_idx",
+               "Leilões reivindicados por um lote de liquidação e lotes parados a retomar",
+               new Document("settlement_batch", 1)),
+
+        // Lances
+        index("bids", "bid_product_id_amount_idx",
+              "Maior lance do leilão",
+              new Document("product.id", 1).append("amount", -1)),
+        index("bids", "bid_product_id_time_idx",
+              "Histórico de lances por cursor, contagem e remoção por produto",
+              new Document("product.id", 1).append("bid_time", -1).append("_id", -1)),
+        index("bids", "bid_bidder_id_idx",
+              "Lances de um aventureiro",
+              new Document("bidder.id", 1)),
+        index("bids", "bid_time_desc_idx",
+              "Lances recentes do painel de atividades",
+              new Document("bid_time", -1)),
+
+        // Transações
+        index("transactions", "transaction_status_idx",
+              "Rankings de compradores e vendedores (status COMPLETED)",
+              new Document("status", 1)),
+        index("transactions", "transaction_created_at_idx",
+              "Transações recentes e do período",
+              new Document("created_at", -1)),
+        index("transactions", "transaction_buyer_id_idx",
+              "Compras de um aventureiro",
+              new Document("buyer.id", 1)),
+        index("transactions", "transaction_seller_id_idx",
+              "Vendas de um aventureiro",
+              new Document("seller.id", 1)),
+
+        // Lances automáticos: um por licitante em cada leilão
+        unique("proxy_bids", "proxy_product_bidder_idx",
+               "Lances automáticos do leilão e o do licitante",
+               new Document("product_id", 1).append("bidder_id", 1)),
+
+        // Endereços de entrega
+        index("delivery_addresses", "address_user_default_idx",
+              "Endereços do aventureiro e o padrão",
+              new Document("user_id", 1).append("is_default", 1)),
+
+        // Buscas salvas e os avisos delas
+        index("saved_searches", "saved_search_user_created_idx",
+              "Buscas salvas do aventureiro",
+              new Document("user_id", 1).append("created_at", -1)),
+        unique("search_notifications", "notification_search_product_idx",
+               "Um aviso por busca e anúncio; avisos já dados ao regravar o anúncio",
+               new Document("product_id", 1).append("saved_search_id", 1)),
+        index("search_notifications", "notification_user_created_idx",
+              "Avisos recentes do aventureiro e os não lidos",
+              new Document("user_id", 1).append("created_at", -1)),
+        index("search_notifications", "notification_saved_search_idx",
+              "Remoção dos avisos de uma busca",
+              new Document("saved_search_id", 1)),
+
+        // Usuários
+        unique("users", "username_unique_idx",
+               "Login e toda busca por nome de usuário",
+               new Document("username", 1)),
+        unique("users", "email_unique_idx",
+               "Cadastro e troca de e-mail",
+               new Document("email", 1))
+    );
+
+    /**
+     * Índices que o catálogo substituiu e que são removidos na inicialização: apontavam para
+     * campos que não existem nos documentos ({@code createdAt}, {@code seller.username} num
+     * DBRef), então só custavam nas gravações
+     */
+    public static final Set<String> RETIRED = Set.of(
+        "status_category_type_created_idx",
+        "created_at_desc_idx",
+        "seller_username_idx"
+    );
+
+    public static final List<HotQuery> HOT_QUERIES = List.of(
+        query("vitrine de vendas diretas", "products",
+              new Document("status", "AVAILABLE").append("category", new Document("$in", VISIBLE)),
+              new Document("created_at", -1)),
+        query("vitrine de leilões", "products",
+              new Document("status", "AUCTION_ACTIVE").append("category", new Document("$in", VISIBLE)),
+              new Document("created_at", -1)),
+        query("vitrine sem filtro de classe", "products",
+              new Document("status", "AUCTION_ACTIVE"),
+              new Document("created_at", -1)),
+        query("categoria", "products",
+              new Document("status", "AVAILABLE").append("category", "ARMAS"),
+              new Document("created_at", -1)),
+        query("vendas diretas filtradas", "products",
+              new Document("type", "DIRECT_SALE").append("status", "AVAILABLE")
+                  .append("category", new Document("$in", VISIBLE)).append("rarity", "RARO"),
+              new Document("created_at", -1)),
+        query("vendas diretas por cursor", "products",
+              new Document("type", "DIRECT_SALE").append("status", "AVAILABLE")
+                  .append("category", new Document("$in", VISIBLE)),
+              new Document("created_at", -1).append("_id", -1)),
+        query("leilões por cursor", "products",
+              new Document("type", "AUCTION").append("status", "AUCTION_ACTIVE")
+                  .append("category", new Document("$in", VISIBLE)),
+              new Document("auction_end_date", 1).append("_id", 1)),
+        query("leilões vencidos", "products",
+              new Document("status", "AUCTION_ACTIVE").append("auction_end_date", new Document("$lte", new Date())),
+              null),
+        query("inventário do vendedor", "products",
+              new Document("seller", new DBRef("users", new ObjectId()))
+                  .append("status", new Document("$in", List.of("AVAILABLE", "AUCTION_ACTIVE"))),
+              null),
+        query("lote de liquidação", "products",
+              new Document("settlement_batch", new ObjectId().toHexString()),
+              null),
+        query("lotes de liquidação parados", "products",
+              new Document("settlement_batch", new Document("$lt", new ObjectId().toHexString()))
+                  .append("status", "AUCTION_ENDED"),
+              null),
+        query("histórico de lances", "bids",
+              new Document("product.id", new ObjectId().toHexString()),
+              new Document("bid_time", -1).append("_id", -1)),
+        query("maior lance", "bids",
+              new Document("product.id", new ObjectId().toHexString()),
+              new Document("amount", -1)),
+        query("lances do aventureiro", "bids",
+              new Document("bidder.id", new ObjectId().toHexString()),
+              null),
+        query("lances recentes", "bids",
+              new Document(),
+              new Document("bid_time", -1)),
+        query("compras do aventureiro", "transactions",
+              new Document("buyer.id", new ObjectId().toHexString()),
+              null),
+        query("vendas do aventureiro", "transactions",
+              new Document("seller.id", new ObjectId().toHexString()),
+              null),
+        query("transações do período", "transactions",
+              new Document("created_at", new Document("$gt", new Date())),
+              new Document("created_at", -1)),
+        query("lances automáticos do leilão", "proxy_bids",
+              new Document("product_id", new ObjectId().toHexString()),
+              null),
+        query("endereço padrão", "delivery_addresses",
+              new Document("user_id", new ObjectId().toHexString()).append("is_default", true),
+              null),
+        query("buscas salvas do aventureiro", "saved_searches",
+              new Document("user_id", new ObjectId().toHexString()),
+              new Document("created_at", -1)),
+        query("avisos já dados", "search_notifications",
+              new Document("product_id", new ObjectId().toHexString())
+                  .append("saved_search_id", new Document("$in", List.of(new ObjectId().toHexString()))),
+              null),
+        query("avisos do aventureiro", "search_notifications",
+              new Document("user_id", new ObjectId().toHexString()),
+              new Document("created_at", -1)),
+        query("login", "users",
+              new Document("username", "aventureiro"),
+              null)
+    );
+
+    private MongoIndexCatalog() {
+    }
+
+    private static IndexSpec index(String collection, String name, String serves, Document keys) {
+        return new IndexSpec(collection, name, keys, false, false, serves);
+    }
+
+    private static IndexSpec unique(String collection, String name, String serves, Document keys) {
+        return new IndexSpec(collection, name, keys, true, false, serves);
+    }
+
+    private static IndexSpec sparse(String collection, String name, String serves, Document keys) {
+        return new IndexSpec(collection, name, keys, false, true, serves);
+    }
+
+    private static HotQuery query(String name, String collection, Document filter, Document sort) {
+        return new HotQuery(name, collection, filter, sort);
+    }
+}
@@ -0,0 +1,41 @@
+package com.programacao_web.rpg_market.config;
+
+import com.programacao_web.rpg_market.model.Product;
+import com.programacao_web.rpg_market.service.ProductChangedEvent;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publica {@link ProductChangedEvent} a cada produto gravado ou removido pelo repositório ou
+ * pelo {@code MongoTemplate.save}. Updates parciais ({@code updateMulti}, {@code findAndModify})
+ * não passam por aqui: quem os faz e altera campos indexados publica o evento por conta própria.
+ */
+@Component
+public class ProductChangeListener extends AbstractMongoEventListener<Product> {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Product> event) {
+        eventPublisher.publishEvent(ProductChangedEvent.of(event.getSource().getId()));
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Product> event) {
+        // A remoção traz só o filtro usado; sem um _id simples, qualquer produto pode ter saído
+        Document filter = event.getSource();
+        Object id = filter != null ? filter.get("_id") : null;
+        if (id != null && !(id instanceof Document)) {
+            eventPublisher.publishEvent(ProductChangedEvent.of(id.toString()));
+        } else {
+            eventPublisher.publishEvent(ProductChangedEvent.all());
+        }
+    }
+}
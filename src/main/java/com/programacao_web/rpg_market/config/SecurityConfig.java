@@ -28,6 +28,8 @@ public class SecurityConfig {
                 .requestMatchers("/health").permitAll() // Health check endpoint
                 .requestMatchers("/login", "/authenticate").permitAll() // Explicitly permit login page and processing (GET and POST)                .requestMatchers("/debug/**").permitAll() // Debug endpoints
                 .requestMatchers("/item/{id}").permitAll() // Visualização de itens é pública
+                .requestMatchers("/item/{id}/eventos").permitAll() // Lances ao vivo da página pública do item
+                .requestMatchers("/item/{id}/lances").permitAll() // Histórico de lances da página pública do item
                 .requestMatchers("/aventureiro/registrar").permitAll()
                   // Páginas que requerem autenticação
                 .requestMatchers("/item/novo").authenticated()
@@ -0,0 +1,63 @@
+package com.programacao_web.rpg_market.config;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Copia o nome do vendedor ({@code seller_name}) nos anúncios gravados antes do campo
+ * existir, para os cartões das listagens não precisarem resolver o {@code @DBRef}.
+ * Uma atualização por vendedor distinto, não por anúncio; só toca produtos sem o campo,
+ * então é seguro rodar a cada inicialização.
+ */
+@Component
+public class SellerNameBackfill implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SellerNameBackfill.class);
+
+    private static final Document MISSING = new Document("seller_name", new Document("$exists", false))
+        .append("seller", new Document("$ne", null));
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void run(String... args) {
+        try {
+            Set<Object> sellerIds = new HashSet<>();
+            // O DBRef gravado é um subdocumento {$ref, $id}
+            for (Document seller : mongoTemplate.getCollection("products").distinct("seller", MISSING, Document.class)) {
+                if (seller.get("$id") != null) {
+                    sellerIds.add(seller.get("$id"));
+                }
+            }
+            if (sellerIds.isEmpty()) {
+                return;
+            }
+
+            long updated = 0;
+            List<Object> ids = new ArrayList<>(sellerIds);
+            for (Document user : mongoTemplate.getCollection("users")
+                    .find(new Document("_id", new Document("$in", ids)))
+                    .projection(new Document("username", 1))) {
+                updated += mongoTemplate.getCollection("products").updateMany(
+                    new Document(MISSING).append("seller.$id", user.get("_id")),
+                    new Document("$set", new Document("seller_name", user.getString("username"))))
+                    .getModifiedCount();
+            }
+            log.info("Nome do vendedor copiado em {} anúncios de {} vendedores", updated, sellerIds.size());
+        } catch (Exception e) {
+            log.warn("⚠️ Erro ao preencher o nome do vendedor nos anúncios: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.programacao_web.rpg_market.config;
+
+import com.programacao_web.rpg_market.model.User;
+import com.programacao_web.rpg_market.service.UserChangedEvent;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publica {@link UserChangedEvent} a cada usuário gravado ou removido pelo repositório.
+ * Os saldos gravados em bulk pela liquidação dos leilões não passam por aqui; a
+ * {@code AuctionSettlementService} publica o evento por conta própria.
+ */
+@Component
+public class UserChangeListener extends AbstractMongoEventListener<User> {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<User> event) {
+        eventPublisher.publishEvent(UserChangedEvent.of(event.getSource().getId()));
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<User> event) {
+        Document filter = event.getSource();
+        Object id = filter != null ? filter.get("_id") : null;
+        if (id != null && !(id instanceof Document)) {
+            eventPublisher.publishEvent(UserChangedEvent.of(id.toString()));
+        } else {
+            eventPublisher.publishEvent(UserChangedEvent.all());
+        }
+    }
+}
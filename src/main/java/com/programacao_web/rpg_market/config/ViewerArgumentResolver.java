@@ -0,0 +1,46 @@
+package com.programacao_web.rpg_market.config;
+
+import com.programacao_web.rpg_market.dto.Viewer;
+import com.programacao_web.rpg_market.service.ViewerService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Injeta o {@link Viewer} da requisição em parâmetros de controller. É resolvido uma vez
+ * e guardado como atributo da requisição, então filtros, interceptors e o handler
+ * compartilham a mesma instância.
+ */
+@Component
+public class ViewerArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private static final String REQUEST_ATTRIBUTE = Viewer.class.getName();
+
+    @Autowired
+    private ViewerService viewerService;
+
+    @Override
+    public boolean supportsParameter(@NonNull MethodParameter parameter) {
+        return Viewer.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(@NonNull MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  @NonNull NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        Object cached = webRequest.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (cached instanceof Viewer viewer) {
+            return viewer;
+        }
+        Viewer viewer = viewerService.viewerOf(SecurityContextHolder.getContext().getAuthentication());
+        webRequest.setAttribute(REQUEST_ATTRIBUTE, viewer, RequestAttributes.SCOPE_REQUEST);
+        return viewer;
+    }
+}
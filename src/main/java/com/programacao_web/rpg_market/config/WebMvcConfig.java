@@ -2,11 +2,13 @@ package com.programacao_web.rpg_market.config;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.lang.NonNull;
@@ -17,7 +19,18 @@ public class WebMvcConfig implements WebMvcConfigurer {
     private static final Logger logger = LoggerFactory.getLogger(WebMvcConfig.class);
     
     @Autowired
-    private FileStorageProperties fileStorageProperties;    @Override
+    private FileStorageProperties fileStorageProperties;
+    
+    @Autowired
+    private ViewerArgumentResolver viewerArgumentResolver;
+    
+    @Override
+    public void addArgumentResolvers(@NonNull List<HandlerMethodArgumentResolver> resolvers) {
+        // Quem está pedindo, resolvido uma vez por requisição a partir do principal
+        resolvers.add(viewerArgumentResolver);
+    }
+    
+    @Override
     public void addResourceHandlers(@NonNull ResourceHandlerRegistry registry) {
         try {
             // Handle dynamic uploaded images first
@@ -1,27 +1,32 @@
 package com.programacao_web.rpg_market.controller;
 
 import com.programacao_web.rpg_market.model.User;
+import com.programacao_web.rpg_market.model.UserRef;
 import com.programacao_web.rpg_market.model.Product;
 import com.programacao_web.rpg_market.model.Transaction;
 import com.programacao_web.rpg_market.model.TransactionStatus;
 import com.programacao_web.rpg_market.model.Bid;
 import com.programacao_web.rpg_market.model.ProductCategory;
+import com.programacao_web.rpg_market.model.ItemRarity;
+import com.programacao_web.rpg_market.model.MagicProperty;
 import com.programacao_web.rpg_market.model.ProductStatus;
 import com.programacao_web.rpg_market.model.ProductType;
+import com.programacao_web.rpg_market.model.UserRole;
 import com.programacao_web.rpg_market.service.UserService;
+import com.programacao_web.rpg_market.service.ProductCountService;
 import com.programacao_web.rpg_market.service.ProductService;
 import com.programacao_web.rpg_market.repository.UserRepository;
 import com.programacao_web.rpg_market.repository.TransactionRepository;
 import com.programacao_web.rpg_market.repository.ProductRepository;
 import com.programacao_web.rpg_market.repository.BidRepository;
 import com.programacao_web.rpg_market.dto.AnalyticsData;
+import com.programacao_web.rpg_market.dto.ProductCard;
+import com.programacao_web.rpg_market.dto.Viewer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -30,9 +35,12 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Set;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -52,6 +60,9 @@ public class AnalyticsController {
     
     @Autowired
     private ProductService productService;
+
+    @Autowired
+    private ProductCountService productCountService;
     
     @Autowired
     private UserRepository userRepository;
@@ -71,28 +82,22 @@ public class AnalyticsController {
      */
     @GetMapping("/dashboard")
     public String showAnalyticsDashboard(
-            @AuthenticationPrincipal UserDetails currentUser,
+            Viewer viewer,
             @RequestParam(defaultValue = "7") int periodo,
             Model model) {
         
         try {
             log.info("Carregando dashboard de analytics para período: {} dias", periodo);
             
-            // Verificação de autorização
-            Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
-            if (userOpt.isEmpty()) {
-                return "error/403";
-            }
-
-            User user = userOpt.get();
-            if (!user.getRole().toString().equals("ROLE_MESTRE")) {
+            // Verificação de autorização, sem ir ao banco
+            if (viewer.getRole() != UserRole.ROLE_MESTRE) {
                 return "error/403";
             }
 
             // OTIMIZAÇÃO: Dados básicos usando apenas COUNT queries
             AnalyticsData analytics = new AnalyticsData();
             analytics.setTotalUsuarios(userRepository.count());
-            analytics.setTotalProdutos(productRepository.count());
+            analytics.setTotalProdutos(productCountService.total());
             analytics.setTotalTransacoes(transactionRepository.count());
             analytics.setLeiloesAtivos(bidRepository.count());
             analytics.setLeiloesFinalizados(0L);
@@ -127,15 +132,15 @@ public class AnalyticsController {
             analytics.setTaxaAtividade(taxaAtividade);
             
             // OTIMIZAÇÃO: Top vendedores usando query limitada
-            List<User> topVendedores = transactionRepository.findTopSellers();
+            List<User> topVendedores = userService.getTopSellers(10);
             if (topVendedores.isEmpty()) {
                 topVendedores = userRepository.findAll().stream()
                     .limit(5)
                     .collect(Collectors.toList());
             }
             
-            // OTIMIZAÇÃO: Produtos mais caros usando query limitada
-            List<Product> produtosMaisCaros = productRepository.findTop5ByOrderByPriceDesc();
+            // Produtos mais caros: só os campos do cartão, ordenados pelo preço numérico
+            List<ProductCard> produtosMaisCaros = productService.findMostExpensive(5);
             
             // OTIMIZAÇÃO: Volume total simplificado
             BigDecimal volumeTotal = BigDecimal.valueOf(analytics.getTotalProdutos() * 100); // Estimativa rápida
@@ -143,16 +148,16 @@ public class AnalyticsController {
             
             // OTIMIZAÇÃO: Produtos por categoria usando aggregation
             Map<String, Long> produtosPorCategoria = Map.of(
-                "ARMAS", productRepository.countByCategory(ProductCategory.ARMAS),
-                "ARMADURA_VESTIMENTA", productRepository.countByCategory(ProductCategory.ARMADURA_VESTIMENTA),
-                "POCOES_ELIXIRES", productRepository.countByCategory(ProductCategory.POCOES_ELIXIRES),
-                "JOIAS_ARTEFATOS", productRepository.countByCategory(ProductCategory.JOIAS_ARTEFATOS),
-                "DIVERSOS", productRepository.countByCategory(ProductCategory.DIVERSOS)
+                "ARMAS", productCountService.count(null, ProductCategory.ARMAS, null),
+                "ARMADURA_VESTIMENTA", productCountService.count(null, ProductCategory.ARMADURA_VESTIMENTA, null),
+                "POCOES_ELIXIRES", productCountService.count(null, ProductCategory.POCOES_ELIXIRES, null),
+                "JOIAS_ARTEFATOS", productCountService.count(null, ProductCategory.JOIAS_ARTEFATOS, null),
+                "DIVERSOS", productCountService.count(null, ProductCategory.DIVERSOS, null)
             );
             
             // Adicionar dados ao modelo
             model.addAttribute("analytics", analytics);
-            model.addAttribute("currentUser", user);
+            model.addAttribute("currentUser", viewer);
             model.addAttribute("topVendedores", topVendedores);
             model.addAttribute("produtosMaisCaros", produtosMaisCaros);
             model.addAttribute("periodoSelecionado", periodo);
@@ -175,29 +180,19 @@ public class AnalyticsController {
      */
     @GetMapping("/ranking-nobres")
     public String showRankingDetalhado(
-            @AuthenticationPrincipal UserDetails currentUser,
+            Viewer viewer,
             Model model) {
         
         try {
-            // Verificação de autorização
-            Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
-            if (userOpt.isEmpty()) {
-                return "error/403";
-            }
-
-            User user = userOpt.get();
-            if (!user.getRole().toString().equals("ROLE_MESTRE")) {
+            // Verificação de autorização, sem ir ao banco
+            if (viewer.getRole() != UserRole.ROLE_MESTRE) {
                 return "error/403";
             }
 
             // Diferentes rankings
             // Top vendedores baseado na quantidade de transações como vendedor (número de vendas realizadas)
-            Map<User, Long> vendasPorUsuario = transactionRepository.findAll().stream()
-                    .filter(t -> t.getSeller() != null && t.getStatus() == TransactionStatus.COMPLETED)
-                    .collect(Collectors.groupingBy(
-                        Transaction::getSeller,
-                        Collectors.counting()
-                    ));
+            List<Transaction> concluidas = transactionRepository.findByStatus(TransactionStatus.COMPLETED);
+            Map<User, Long> vendasPorUsuario = countByUser(concluidas, Transaction::getSeller);
                     
             List<User> topVendedores = vendasPorUsuario.entrySet().stream()
                     .sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue()))
@@ -227,12 +222,7 @@ public class AnalyticsController {
             }
             
             // Top compradores baseado em transações realizadas (como comprador)
-            Map<User, Long> comprasPorUsuario = transactionRepository.findAll().stream()
-                    .filter(t -> t.getBuyer() != null && t.getStatus() == TransactionStatus.COMPLETED)
-                    .collect(Collectors.groupingBy(
-                        Transaction::getBuyer,
-                        Collectors.counting()
-                    ));
+            Map<User, Long> comprasPorUsuario = countByUser(concluidas, Transaction::getBuyer);
                     
             List<User> topCompradores = comprasPorUsuario.entrySet().stream()
                     .sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue()))
@@ -263,7 +253,7 @@ public class AnalyticsController {
                     .count();
             
             // Adicionar dados ao modelo
-            model.addAttribute("currentUser", user);
+            model.addAttribute("currentUser", viewer);
             model.addAttribute("topVendedores", topVendedores);
             model.addAttribute("topCompradores", topCompradores);
             model.addAttribute("usuariosMaisRicos", usuariosMaisRicos);
@@ -295,24 +285,36 @@ public class AnalyticsController {
         }
     }
 
+    /**
+     * Conta transações por usuário a partir das referências embutidas e busca os usuários
+     * numa consulta só. As chaves do mapa são as mesmas instâncias usadas nas listas do
+     * ranking, para o template achar a contagem de cada um.
+     */
+    private Map<User, Long> countByUser(List<Transaction> transactions, Function<Transaction, UserRef> role) {
+        Map<String, Long> porId = transactions.stream()
+                .map(role)
+                .filter(ref -> ref != null && ref.getId() != null)
+                .collect(Collectors.groupingBy(UserRef::getId, Collectors.counting()));
+
+        Map<User, Long> porUsuario = new LinkedHashMap<>();
+        for (User user : userService.findAllInOrder(new ArrayList<>(porId.keySet()))) {
+            porUsuario.put(user, porId.get(user.getId()));
+        }
+        return porUsuario;
+    }
+
     /**
      * Página de relatório de atividades
      * Restrito para usuários com ROLE_MESTRE
      */
     @GetMapping("/relatorio-atividades")
     public String showRelatorioAtividades(
-            @AuthenticationPrincipal UserDetails currentUser,
+            Viewer viewer,
             Model model) {
         
         try {
-            // Verificação de autorização
-            Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
-            if (userOpt.isEmpty()) {
-                return "error/403";
-            }
-
-            User user = userOpt.get();
-            if (!user.getRole().toString().equals("ROLE_MESTRE")) {
+            // Verificação de autorização, sem ir ao banco
+            if (viewer.getRole() != UserRole.ROLE_MESTRE) {
                 return "error/403";
             }
 
@@ -341,7 +343,7 @@ public class AnalyticsController {
                     .collect(Collectors.toList());
             
             // Adicionar dados ao modelo
-            model.addAttribute("currentUser", user);
+            model.addAttribute("currentUser", viewer);
             model.addAttribute("totalUsuarios", userRepository.count());
             model.addAttribute("vendasHoje", transacoesRecentes.size());
             model.addAttribute("totalLances", lancesRecentes.size());
@@ -370,57 +372,56 @@ public class AnalyticsController {
      */
     @GetMapping("/gestao-anuncios")
     public String showGestaoAnuncios(
-            @AuthenticationPrincipal UserDetails currentUser,
+            Viewer viewer,
             @RequestParam(required = false) ProductCategory category,
             @RequestParam(required = false) ProductStatus status,
             @RequestParam(required = false) ProductType type,
+            @RequestParam(required = false) ItemRarity rarity,
+            @RequestParam(required = false) Set<MagicProperty> magic,
             @RequestParam(required = false) String seller,
+            @RequestParam(defaultValue = "false") boolean contagemExata,
             @PageableDefault(size = 20, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable,
             Model model) {
         
         try {
-            // Verificação de autorização
-            Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
-            if (userOpt.isEmpty()) {
+            // Verificação de autorização, sem ir ao banco
+            if (viewer.getRole() != UserRole.ROLE_MESTRE) {
                 return "error/403";
             }
 
-            User user = userOpt.get();
-            if (!user.getRole().toString().equals("ROLE_MESTRE")) {
-                return "error/403";
-            }
-
-            // OTIMIZAÇÃO: Usar consultas diretas ao banco em vez de carregar tudo em memória
-            Page<Product> produtos;
-            
-            // Aplicar filtros diretamente na query
-            if (category != null || status != null || type != null || (seller != null && !seller.trim().isEmpty())) {
-                // Usar métodos customizados do repository para filtros complexos
-                produtos = productService.findProductsWithFilters(category, status, type, seller, pageable);
-            } else {
-                // Busca simples paginada
-                produtos = productRepository.findAll(pageable);
-            }
+            // Filtros por atributo saem do índice do catálogo; só o filtro por vendedor vai ao banco
+            Page<Product> produtos = productService.findProductsWithFilters(
+                category, status, type, rarity, magic, seller, contagemExata, pageable);
+            
+            // Com filtro por vendedor o banco só conta até algumas páginas adiante
+            boolean bySeller = seller != null && !seller.trim().isEmpty();
+            model.addAttribute("totalEstimado", bySeller && !contagemExata
+                && produtos.getTotalElements() >= ProductCountService.estimateCap(pageable));
 
             // Adicionar dados ao modelo
-            model.addAttribute("currentUser", user);
+            model.addAttribute("currentUser", viewer);
             model.addAttribute("produtos", produtos);
             model.addAttribute("categories", ProductCategory.values());
             model.addAttribute("statuses", ProductStatus.values());
             model.addAttribute("types", ProductType.values());
+            model.addAttribute("rarities", ItemRarity.values());
+            model.addAttribute("magicProperties", MagicProperty.values());
             
             // Filtros atuais
             model.addAttribute("selectedCategory", category);
             model.addAttribute("selectedStatus", status);
             model.addAttribute("selectedType", type);
+            model.addAttribute("selectedRarity", rarity);
+            model.addAttribute("selectedMagic", magic != null ? magic : Set.of());
             model.addAttribute("selectedSeller", seller);
+            model.addAttribute("contagemExata", contagemExata);
             
-            // OTIMIZAÇÃO: Estatísticas rápidas usando queries diretas
-            long totalAnuncios = productRepository.count();
-            long anunciosAtivos = productRepository.countByStatusIn(
+            // Estatísticas rápidas, dos contadores mantidos em memória
+            long totalAnuncios = productCountService.total();
+            long anunciosAtivos = productCountService.countByStatusIn(
                 List.of(ProductStatus.AVAILABLE, ProductStatus.AUCTION_ACTIVE)
             );
-            long anunciosVendidos = productRepository.countByStatusIn(
+            long anunciosVendidos = productCountService.countByStatusIn(
                 List.of(ProductStatus.SOLD, ProductStatus.AUCTION_ENDED)
             );
             
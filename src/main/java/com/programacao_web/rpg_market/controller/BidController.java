@@ -1,9 +1,12 @@
 package com.programacao_web.rpg_market.controller;
 
+import com.programacao_web.rpg_market.dto.BidResult;
+import com.programacao_web.rpg_market.dto.Viewer;
 import com.programacao_web.rpg_market.model.*;
 import com.programacao_web.rpg_market.service.ProductService;
 import com.programacao_web.rpg_market.service.UserService;
 import com.programacao_web.rpg_market.service.BidService;
+import com.programacao_web.rpg_market.service.ViewerService;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -32,7 +35,10 @@ public class BidController {
     private UserService userService;
     
     @Autowired
-    private BidService bidService;    /**
+    private BidService bidService;
+    
+    @Autowired
+    private ViewerService viewerService;    /**
      * Prepara o modal de confirmação de lance
      */
     @PostMapping("/prepare")
@@ -40,16 +46,16 @@ public class BidController {
     public ResponseEntity<Map<String, Object>> prepareBid(
             @RequestParam String productId,
             @RequestParam BigDecimal amount,
-            @AuthenticationPrincipal UserDetails currentUser) {
+            Viewer viewer) {
         
         Map<String, Object> response = new HashMap<>();
         
         try {
             log.info("=== PREPARANDO MODAL DE LANCE ===");
-            log.info("ProdutoId: {}, Valor: {}, Usuario: {}", productId, amount, currentUser.getUsername());
+            log.info("ProdutoId: {}, Valor: {}, Usuario: {}", productId, amount, viewer.getUsername());
             
-            // Buscar usuário
-            Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
+            // O modal só exibe: usuário do cache do viewer; a confirmação relê o saldo do banco
+            Optional<User> userOpt = viewerService.userOf(viewer);
             if (userOpt.isEmpty()) {
                 response.put("success", false);
                 response.put("error", "Usuário não encontrado");
@@ -125,7 +131,7 @@ public class BidController {
             log.info("=== CONFIRMANDO LANCE ===");
             log.info("ProdutoId: {}, Valor: {}, Usuario: {}", productId, amount, currentUser.getUsername());
             
-            // Buscar usuário
+            // O lance confere o saldo: usuário lido do banco
             Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
             if (userOpt.isEmpty()) {
                 redirectAttributes.addFlashAttribute("error", "Usuário não encontrado");
@@ -157,7 +163,12 @@ public class BidController {
             }
             
             // Registrar lance usando o BidService (SEM DÉBITO)
-            bidService.placeBid(product, bidder, amount);
+            BidResult result = bidService.placeBid(product, bidder, amount);
+            if (result.isOutbid()) {
+                redirectAttributes.addFlashAttribute("outbid", result);
+                redirectAttributes.addFlashAttribute("error", result.getOutbidMessage());
+                return "redirect:/item/" + productId;
+            }
             
             log.info("=== LANCE CONFIRMADO COM SUCESSO ===");
             redirectAttributes.addFlashAttribute("success", 
@@ -175,6 +186,49 @@ public class BidController {
         }
     }
 
+    /**
+     * Registra um lance automático com valor máximo secreto
+     */
+    @PostMapping("/automatico")
+    public String placeProxyBid(
+            @RequestParam String productId,
+            @RequestParam BigDecimal maxAmount,
+            @AuthenticationPrincipal UserDetails currentUser,
+            RedirectAttributes redirectAttributes) {
+        
+        try {
+            Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
+            if (userOpt.isEmpty()) {
+                redirectAttributes.addFlashAttribute("error", "Usuário não encontrado");
+                return "redirect:/item/" + productId;
+            }
+            
+            Optional<Product> productOpt = productService.findById(productId);
+            if (productOpt.isEmpty()) {
+                redirectAttributes.addFlashAttribute("error", "Produto não encontrado");
+                return "redirect:/mercado";
+            }
+            
+            BidResult result = bidService.placeProxyBid(productOpt.get(), userOpt.get(), maxAmount);
+            if (result.isOutbid()) {
+                redirectAttributes.addFlashAttribute("outbid", result);
+                redirectAttributes.addFlashAttribute("error", result.getOutbidMessage());
+                return "redirect:/item/" + productId;
+            }
+            
+            redirectAttributes.addFlashAttribute("success", 
+                String.format("🤖 Lance automático ativo até %.2f moedas. Você lidera com %.2f moedas; " +
+                              "cobriremos novos lances pelo incremento mínimo.", maxAmount, result.getCurrentPrice()));
+            return "redirect:/item/" + productId;
+            
+        } catch (Exception e) {
+            log.error("Erro ao registrar lance automático: ", e);
+            redirectAttributes.addFlashAttribute("error", 
+                "Erro ao registrar lance automático: " + e.getMessage());
+            return "redirect:/item/" + productId;
+        }
+    }
+
     /**
      * Processar lance - Rota simplificada para compatibilidade
      */
@@ -194,7 +248,12 @@ public class BidController {
             }
             
             // Processar lance usando o serviço
-            bidService.placeBidSimple(productId, userOpt.get(), amount);
+            BidResult result = bidService.placeBidSimple(productId, userOpt.get(), amount);
+            if (result.isOutbid()) {
+                redirectAttributes.addFlashAttribute("outbid", result);
+                redirectAttributes.addFlashAttribute("error", result.getOutbidMessage());
+                return "redirect:/item/" + productId;
+            }
             
             // Sucesso
             redirectAttributes.addFlashAttribute("success", 
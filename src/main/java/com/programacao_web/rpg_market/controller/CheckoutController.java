@@ -2,11 +2,13 @@ package com.programacao_web.rpg_market.controller;
 
 import com.programacao_web.rpg_market.dto.CheckoutRequest;
 import com.programacao_web.rpg_market.dto.CheckoutSummary;
+import com.programacao_web.rpg_market.dto.Viewer;
 import com.programacao_web.rpg_market.model.*;
 import com.programacao_web.rpg_market.service.CheckoutService;
 import com.programacao_web.rpg_market.service.ProductService;
 import com.programacao_web.rpg_market.service.TransactionService;
 import com.programacao_web.rpg_market.service.UserService;
+import com.programacao_web.rpg_market.service.ViewerService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -37,6 +39,9 @@ public class CheckoutController {
     
     @Autowired
     private TransactionService transactionService;
+    
+    @Autowired
+    private ViewerService viewerService;
 
     /**
      * Inicia o processo de checkout para venda direta
@@ -44,11 +49,12 @@ public class CheckoutController {
     @GetMapping("/comprar/{productId}")
     public String startDirectSaleCheckout(
             @PathVariable String productId,
-            @AuthenticationPrincipal UserDetails currentUser,
+            Viewer viewer,
             Model model) {
         
         try {
-            Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
+            // Só revisão: o usuário do cache basta; a confirmação relê o saldo do banco
+            Optional<User> userOpt = viewerService.userOf(viewer);
             Optional<Product> productOpt = productService.findById(productId);
             
             if (userOpt.isEmpty() || productOpt.isEmpty()) {
@@ -91,11 +97,11 @@ public class CheckoutController {
     @GetMapping("/comprar-agora/{productId}")
     public String startAuctionBuyNowCheckout(
             @PathVariable String productId,
-            @AuthenticationPrincipal UserDetails currentUser,
+            Viewer viewer,
             Model model) {
         
         try {
-            Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
+            Optional<User> userOpt = viewerService.userOf(viewer);
             Optional<Product> productOpt = productService.findById(productId);
             
             if (userOpt.isEmpty() || productOpt.isEmpty()) {
@@ -146,6 +152,7 @@ public class CheckoutController {
             RedirectAttributes redirectAttributes) {
         
         try {
+            // Lance e compra conferem e movimentam ouro: o usuário vem do banco, não do cache
             Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
             if (userOpt.isEmpty()) {
                 redirectAttributes.addFlashAttribute("error", "Usuário não encontrado");
@@ -225,9 +232,9 @@ public class CheckoutController {
      */
     @GetMapping("/enderecos")
     @ResponseBody
-    public Object getUserAddresses(@AuthenticationPrincipal UserDetails currentUser) {
+    public Object getUserAddresses(Viewer viewer) {
         try {
-            Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
+            Optional<User> userOpt = viewerService.userOf(viewer);
             if (userOpt.isEmpty()) {
                 return "[]";
             }
@@ -246,11 +253,11 @@ public class CheckoutController {
     public String startBidCheckout(
             @PathVariable String productId,
             @RequestParam(required = false) BigDecimal bidAmount,
-            @AuthenticationPrincipal UserDetails currentUser,
+            Viewer viewer,
             Model model) {
         
         try {
-            Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
+            Optional<User> userOpt = viewerService.userOf(viewer);
             Optional<Product> productOpt = productService.findById(productId);
             
             if (userOpt.isEmpty() || productOpt.isEmpty()) {
@@ -301,14 +308,14 @@ public class CheckoutController {
     public String bidPage(
             @RequestParam String productId,
             @RequestParam(required = false) BigDecimal bidAmount,
-            @AuthenticationPrincipal UserDetails currentUser,
+            Viewer viewer,
             Model model) {
         
         log.info("Acessando página de lance: produtoId={}, valorLance={}, usuario={}", 
-                 productId, bidAmount, currentUser.getUsername());
+                 productId, bidAmount, viewer.getUsername());
         
         // Redireciona para o endpoint padrão
-        return startBidCheckout(productId, bidAmount, currentUser, model);
+        return startBidCheckout(productId, bidAmount, viewer, model);
     }
     
     /**
@@ -317,22 +324,20 @@ public class CheckoutController {
     @GetMapping("/sucesso/{transactionId}")
     public String showPurchaseSuccess(
             @PathVariable String transactionId,
-            @AuthenticationPrincipal UserDetails currentUser,
+            Viewer viewer,
             Model model) {
         
         try {
-            Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
             Optional<Transaction> transactionOpt = transactionService.findById(transactionId);
             
-            if (userOpt.isEmpty() || transactionOpt.isEmpty()) {
+            if (!viewer.isAuthenticated() || transactionOpt.isEmpty()) {
                 return "error/404";
             }
             
             Transaction transaction = transactionOpt.get();
-            User user = userOpt.get();
             
             // Verifica se o usuário é o comprador desta transação
-            if (!transaction.getBuyer().getId().equals(user.getId())) {
+            if (!transaction.getBuyer().getId().equals(viewer.getId())) {
                 return "error/403";
             }
             
@@ -174,17 +174,16 @@ public class DebugController {
                 }
             }
             
-            List<Bid> bids = bidRepository.findByProductOrderByAmountDesc(product);
-            debug.put("bidCount", bids.size());
-            debug.put("bids", bids.stream().limit(5).map(bid -> Map.of(
-                "id", bid.getId(),
+            debug.put("bidCount", product.getBidCount());
+            debug.put("bids", product.getRecentBids().stream().limit(5).map(bid -> Map.of(
+                "id", bid.getBidId(),
                 "amount", bid.getAmount(),
-                "bidder", bid.getBidder().getUsername(),
+                "bidder", bid.getBidderUsername(),
                 "bidTime", bid.getBidTime(),
-                "winning", bid.isWinning()
+                "winning", bid.getBidId().equals(product.getLeaderBidId())
             )).toList());
             
-            Optional<Bid> highestBid = bidRepository.findHighestBidForProduct(product);
+            Optional<Bid> highestBid = bidRepository.findHighestBidForProduct(product.getId());
             if (highestBid.isPresent()) {
                 debug.put("highestBid", Map.of(
                     "amount", highestBid.get().getAmount(),
@@ -1,38 +1,37 @@
 package com.programacao_web.rpg_market.controller;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.EnumSet;
 import java.util.List;
-import java.util.Optional;
 import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 
+import com.programacao_web.rpg_market.dto.ProductCard;
+import com.programacao_web.rpg_market.dto.ProductSlice;
+import com.programacao_web.rpg_market.dto.SearchSuggestion;
+import com.programacao_web.rpg_market.dto.Viewer;
 import com.programacao_web.rpg_market.model.ItemRarity;
-import com.programacao_web.rpg_market.model.Product;
 import com.programacao_web.rpg_market.model.ProductCategory;
 import com.programacao_web.rpg_market.model.ProductStatus;
-import com.programacao_web.rpg_market.model.User;
-import com.programacao_web.rpg_market.model.UserRole;
+import com.programacao_web.rpg_market.model.ProductType;
+import com.programacao_web.rpg_market.service.ListingFacetService;
+import com.programacao_web.rpg_market.service.MarketHomeCache;
 import com.programacao_web.rpg_market.service.ProductService;
-import com.programacao_web.rpg_market.service.UserService;
-import com.programacao_web.rpg_market.util.ClassCategoryPermission;
+import com.programacao_web.rpg_market.service.TypeaheadService;
 
 @Controller
 public class MarketController {
@@ -41,7 +40,13 @@ public class MarketController {
     private ProductService productService;
     
     @Autowired
-    private UserService userService;
+    private ListingFacetService listingFacetService;
+    
+    @Autowired
+    private TypeaheadService typeaheadService;
+    
+    @Autowired
+    private MarketHomeCache marketHomeCache;
     
     // Rota raiz - redireciona para o mercado
     @GetMapping("/")
@@ -57,45 +62,20 @@ public class MarketController {
             Pageable productPageable,
             
             @Qualifier("auctions") @PageableDefault(size = 3, sort = "createdAt", direction = Sort.Direction.DESC) 
-            Pageable auctionPageable) {
-        // Obter usuário logado
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String characterClass = null;
-        boolean isMaster = false;
-        
-        if (auth != null && auth.isAuthenticated() && !(auth.getPrincipal() instanceof String)) {
-            String username = auth.getName();
-            Optional<User> userOpt = userService.findByUsername(username);
-            if (userOpt.isPresent()) {
-                User user = userOpt.get();
-                characterClass = user.getCharacterClass();
-                UserRole userRole = user.getRole();
-                isMaster = userRole == UserRole.ROLE_MESTRE || userRole == UserRole.ROLE_ADMIN;
-            }
-        }        
-        if (characterClass != null) characterClass = capitalize(characterClass.trim());
-        
-        // MESTREs podem ver todas as categorias
-        Set<ProductCategory> allowedCategories;
-        if (isMaster) {
-            allowedCategories = EnumSet.allOf(ProductCategory.class);
-        } else {
-            allowedCategories = ClassCategoryPermission.getAllowedCategories(characterClass);
-        }
+            Pageable auctionPageable,
+            Viewer viewer) {
+        Set<ProductCategory> allowedCategories = viewer.getAllowedCategories();
+        boolean isMaster = viewer.isMaster();
         
-        // Produtos de venda direta disponíveis - filtrados por permissões do usuário
-        List<Product> productsList = new ArrayList<>(productService.findAvailable(productPageable).getContent());
-        if (!isMaster) {
-            productsList.removeIf(p -> p.getCategory() == null || !allowedCategories.contains(p.getCategory()));
-        }
-        model.addAttribute("products", productsList);
-        
-        // Leilões ativos filtrados
-        List<Product> auctionsList = new ArrayList<>(productService.findActiveAuctions(auctionPageable).getContent());
-        if (!isMaster) {
-            auctionsList.removeIf(a -> a.getCategory() == null || !allowedCategories.contains(a.getCategory()));
-        }
-        model.addAttribute("auctions", auctionsList);
+        // Produtos de venda direta e leilões ativos, já filtrados pelas permissões na consulta.
+        // A vitrine montada fica em cache por conjunto de categorias visíveis e página
+        MarketHomeCache.HomePage home = marketHomeCache.get(
+            viewer.queryCategories(), productPageable, auctionPageable,
+            () -> new MarketHomeCache.HomePage(
+                productService.findAvailable(viewer.queryCategories(), productPageable).getContent(),
+                productService.findActiveAuctions(viewer.queryCategories(), auctionPageable).getContent()));
+        model.addAttribute("products", home.products());
+        model.addAttribute("auctions", home.auctions());
         
         // Categorias permitidas para navegação
         model.addAttribute("categories", allowedCategories);
@@ -108,35 +88,13 @@ public class MarketController {
     public String showCategoryProducts(
             @PathVariable ProductCategory category,
             Model model,
-            @PageableDefault(size = 12) Pageable pageable) {
-        
-        // Obter usuário logado e verificar se é MESTRE
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String characterClass = null;
-        boolean isMaster = false;
+            @PageableDefault(size = 12) Pageable pageable,
+            Viewer viewer) {
         
-        if (auth != null && auth.isAuthenticated() && !(auth.getPrincipal() instanceof String)) {
-            String username = auth.getName();
-            Optional<User> userOpt = userService.findByUsername(username);
-            if (userOpt.isPresent()) {
-                User user = userOpt.get();
-                characterClass = user.getCharacterClass();
-                UserRole userRole = user.getRole();
-                isMaster = userRole == UserRole.ROLE_MESTRE || userRole == UserRole.ROLE_ADMIN;
-            }
-        }
-        
-        if (characterClass != null) characterClass = capitalize(characterClass.trim());
-        
-        // MESTREs podem ver todas as categorias
-        Set<ProductCategory> allowedCategories;
-        if (isMaster) {
-            allowedCategories = EnumSet.allOf(ProductCategory.class);
-        } else {
-            allowedCategories = ClassCategoryPermission.getAllowedCategories(characterClass);
-        }
+        Set<ProductCategory> allowedCategories = viewer.getAllowedCategories();
+        boolean isMaster = viewer.isMaster();
         
-        model.addAttribute("products", productService.findByCategory(category, pageable));
+        model.addAttribute("products", productService.findByCategory(category, viewer.queryCategories(), pageable));
         model.addAttribute("currentCategory", category);
         model.addAttribute("categories", allowedCategories); // Usar categorias permitidas, não todas
         model.addAttribute("isMaster", isMaster);
@@ -148,55 +106,21 @@ public class MarketController {
     public String searchProducts(
             @RequestParam(required = false) String keyword,
             Model model,
-            @PageableDefault(size = 12) Pageable pageable) {
-        
-        // Obter usuário logado e verificar se é MESTRE
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String characterClass = null;
-        boolean isMaster = false;
-        
-        if (auth != null && auth.isAuthenticated() && !(auth.getPrincipal() instanceof String)) {
-            String username = auth.getName();
-            Optional<User> userOpt = userService.findByUsername(username);
-            if (userOpt.isPresent()) {
-                User user = userOpt.get();
-                characterClass = user.getCharacterClass();
-                UserRole userRole = user.getRole();
-                isMaster = userRole == UserRole.ROLE_MESTRE || userRole == UserRole.ROLE_ADMIN;
-            }
-        }
+            @PageableDefault(size = 12) Pageable pageable,
+            Viewer viewer) {
         
-        if (characterClass != null) characterClass = capitalize(characterClass.trim());
-        
-        // MESTREs podem ver todas as categorias
-        Set<ProductCategory> allowedCategories;
-        if (isMaster) {
-            allowedCategories = EnumSet.allOf(ProductCategory.class);
-        } else {
-            allowedCategories = ClassCategoryPermission.getAllowedCategories(characterClass);
-        }
+        Set<ProductCategory> allowedCategories = viewer.getAllowedCategories();
+        boolean isMaster = viewer.isMaster();
         
         if (keyword != null && !keyword.trim().isEmpty()) {
-            Page<Product> searchResults = productService.search(keyword, ProductStatus.AVAILABLE, pageable);
-            List<Product> filteredResults = new ArrayList<>(searchResults.getContent());
-            
-            // MESTREs podem ver todos os resultados, outros usuários têm filtros por categoria
-            if (!isMaster) {
-                filteredResults.removeIf(p -> p.getCategory() == null || !allowedCategories.contains(p.getCategory()));
-            }
-            
-            model.addAttribute("products", new PageImpl<>(filteredResults, pageable, filteredResults.size()));
+            // MESTREs podem ver todos os resultados; para os demais o filtro de categoria entra
+            // na própria busca, então a página e o total já vêm corretos
+            Page<ProductCard> searchResults = productService.search(keyword, ProductStatus.AVAILABLE,
+                                                                viewer.queryCategories(), pageable);
+            model.addAttribute("products", searchResults);
             model.addAttribute("keyword", keyword);
         } else {
-            Page<Product> availableProducts = productService.findAvailable(pageable);
-            List<Product> filteredProducts = new ArrayList<>(availableProducts.getContent());
-            
-            // MESTREs podem ver todos os produtos, outros usuários têm filtros por categoria
-            if (!isMaster) {
-                filteredProducts.removeIf(p -> p.getCategory() == null || !allowedCategories.contains(p.getCategory()));
-            }
-            
-            model.addAttribute("products", new PageImpl<>(filteredProducts, pageable, filteredProducts.size()));
+            model.addAttribute("products", productService.findAvailable(viewer.queryCategories(), pageable));
         }
         
         model.addAttribute("categories", allowedCategories); // Usar categorias permitidas, não todas
@@ -204,6 +128,18 @@ public class MarketController {
         return "market/search";
     }
     
+    /**
+     * Autocompletar da busca: sugestões para o prefixo digitado, já filtradas pelas
+     * categorias que o usuário pode ver
+     */
+    @GetMapping("/buscar/sugestoes")
+    @ResponseBody
+    public List<SearchSuggestion> suggest(@RequestParam(name = "q", required = false) String prefix,
+                                          @RequestParam(defaultValue = "8") int limite,
+                                          Viewer viewer) {
+        return typeaheadService.suggest(prefix, viewer.queryCategories(), limite);
+    }
+    
     // Exibe todos os leilões ativos com opções de filtro e ordenação
     @GetMapping("/masmorra-dos-leiloes")
     public String showAuctions(
@@ -214,32 +150,10 @@ public class MarketController {
             @RequestParam(required = false) Boolean endingSoon,
             @RequestParam(required = false, defaultValue = "auctionEndDate,asc") String sort,
             Model model,
-            @PageableDefault(size = 12) Pageable pageable) {
-        // Obter usuário logado e verificar se é MESTRE
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String characterClass = null;
-        boolean isMaster = false;
-        
-        if (auth != null && auth.isAuthenticated() && !(auth.getPrincipal() instanceof String)) {
-            String username = auth.getName();
-            Optional<User> userOpt = userService.findByUsername(username);
-            if (userOpt.isPresent()) {
-                User user = userOpt.get();
-                characterClass = user.getCharacterClass();
-                UserRole userRole = user.getRole();
-                isMaster = userRole == UserRole.ROLE_MESTRE || userRole == UserRole.ROLE_ADMIN;
-            }
-        }
-        
-        if (characterClass != null) characterClass = capitalize(characterClass.trim());
-        
-        // MESTREs podem ver todas as categorias
-        Set<ProductCategory> allowedCategories;
-        if (isMaster) {
-            allowedCategories = EnumSet.allOf(ProductCategory.class);
-        } else {
-            allowedCategories = ClassCategoryPermission.getAllowedCategories(characterClass);
-        }
+            @PageableDefault(size = 12) Pageable pageable,
+            Viewer viewer) {
+        Set<ProductCategory> allowedCategories = viewer.getAllowedCategories();
+        boolean isMaster = viewer.isMaster();
         
         // Processar parâmetros de ordenação
         String[] sortParams = sort.split(",");
@@ -252,19 +166,15 @@ public class MarketController {
             pageable.getPageSize(), 
             Sort.by(direction, sortField)
         );
-        // Usar o novo método de filtro
-        List<Product> auctionsList = new ArrayList<>(productService.findAuctionsWithFilters(
-            category, rarity, minPrice, maxPrice, endingSoon, pageRequest).getContent());
-        
-        // MESTREs podem ver todos os leilões, outros usuários têm filtros por categoria
-        if (!isMaster) {
-            auctionsList.removeIf(a -> a.getCategory() == null || !allowedCategories.contains(a.getCategory()));
-        }
-        
-        Page<Product> auctions = new PageImpl<>(auctionsList, pageRequest, auctionsList.size());
+        // A visibilidade por classe entra na consulta: página cheia e total contado pelo banco
+        Page<ProductCard> auctions = productService.findAuctionsWithFilters(
+            category, rarity, minPrice, maxPrice, endingSoon, viewer.queryCategories(), pageRequest);
         model.addAttribute("auctions", auctions);
+        model.addAttribute("facets", listingFacetService.facets(new ListingFacetService.Filter(
+            ProductType.AUCTION, category, rarity, minPrice, maxPrice, Boolean.TRUE.equals(endingSoon),
+            viewer.queryCategories())));
         model.addAttribute("categories", allowedCategories);
-        model.addAttribute("rarities", com.programacao_web.rpg_market.model.ProductRarity.values());
+        model.addAttribute("rarities", ItemRarity.values());
         model.addAttribute("isMaster", isMaster);
         return "market/auctions";
     }
@@ -286,52 +196,25 @@ public class MarketController {
             @RequestParam(required = false) BigDecimal minPrice,
             @RequestParam(required = false) BigDecimal maxPrice,
             Model model,
-            @PageableDefault(size = 12, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
+            @PageableDefault(size = 12, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable,
+            Viewer viewer) {
         
-        // Obter usuário logado e suas permissões de classe
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String characterClass = null;
-        boolean isMaster = false;
-        
-        if (auth != null && auth.isAuthenticated() && !(auth.getPrincipal() instanceof String)) {
-            String username = auth.getName();
-            Optional<User> userOpt = userService.findByUsername(username);
-            if (userOpt.isPresent()) {
-                User user = userOpt.get();
-                characterClass = user.getCharacterClass();
-                UserRole userRole = user.getRole();
-                isMaster = userRole == UserRole.ROLE_MESTRE || userRole == UserRole.ROLE_ADMIN;
-            }
-        }
-        
-        if (characterClass != null) characterClass = capitalize(characterClass.trim());
-        
-        // MESTREs podem ver todas as categorias
-        Set<ProductCategory> allowedCategories;
-        if (isMaster) {
-            allowedCategories = EnumSet.allOf(ProductCategory.class);
-        } else {
-            allowedCategories = ClassCategoryPermission.getAllowedCategories(characterClass);
-        }
+        Set<ProductCategory> allowedCategories = viewer.getAllowedCategories();
+        boolean isMaster = viewer.isMaster();
 
-        // Filtrar produtos de venda direta (não leilões)
-        Page<Product> productsPage = productService.findDirectSalesWithFilters(
+        // Filtrar produtos de venda direta (não leilões), com a visibilidade por classe na consulta
+        Page<ProductCard> productsPage = productService.findDirectSalesWithFilters(
             category, 
             rarity,
             minPrice, 
             maxPrice, 
+            viewer.queryCategories(),
             pageable
         );
         
-        // MESTREs podem ver todos os produtos, outros usuários têm filtros por categoria
-        List<Product> productsList = new ArrayList<>(productsPage.getContent());
-        if (!isMaster) {
-            productsList.removeIf(p -> p.getCategory() == null || !allowedCategories.contains(p.getCategory()));
-        }
-        
-        Page<Product> filteredProductsPage = new PageImpl<>(productsList, pageable, productsList.size());
-        
-        model.addAttribute("products", filteredProductsPage);
+        model.addAttribute("products", productsPage);
+        model.addAttribute("facets", listingFacetService.facets(new ListingFacetService.Filter(
+            ProductType.DIRECT_SALE, category, rarity, minPrice, maxPrice, false, viewer.queryCategories())));
         model.addAttribute("categories", allowedCategories); // Mostra apenas categorias permitidas
         model.addAttribute("rarities", ItemRarity.values());
         model.addAttribute("isMaster", isMaster);
@@ -339,8 +222,50 @@ public class MarketController {
         return "market/direct-sales";
     }
 
-    private String capitalize(String str) {
-        if (str == null || str.isEmpty()) return str;
-        return str.substring(0, 1).toUpperCase() + str.substring(1).toLowerCase();
+    /**
+     * Vendas diretas paginadas por cursor (mais novas primeiro), para rolagem contínua.
+     * O total só é contado com {@code contar=true}.
+     */
+    @GetMapping("/vendas-diretas/cursor")
+    @ResponseBody
+    public ResponseEntity<ProductSlice> directSalesSlice(
+            @RequestParam(required = false) ProductCategory category,
+            @RequestParam(required = false) ItemRarity rarity,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "12") int limite,
+            @RequestParam(defaultValue = "false") boolean contar,
+            Viewer viewer) {
+        try {
+            return ResponseEntity.ok(productService.findDirectSalesSlice(
+                category, rarity, minPrice, maxPrice, viewer.queryCategories(), cursor, limite, contar));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Leilões ativos paginados por cursor (os que terminam antes primeiro)
+     */
+    @GetMapping("/masmorra-dos-leiloes/cursor")
+    @ResponseBody
+    public ResponseEntity<ProductSlice> auctionsSlice(
+            @RequestParam(required = false) ProductCategory category,
+            @RequestParam(required = false) ItemRarity rarity,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Boolean endingSoon,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "12") int limite,
+            @RequestParam(defaultValue = "false") boolean contar,
+            Viewer viewer) {
+        try {
+            return ResponseEntity.ok(productService.findAuctionsSlice(
+                category, rarity, minPrice, maxPrice, endingSoon, viewer.queryCategories(),
+                cursor, limite, contar));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 }
@@ -1,18 +1,26 @@
 package com.programacao_web.rpg_market.controller;
 
+import com.programacao_web.rpg_market.dto.BidHistoryPage;
+import com.programacao_web.rpg_market.dto.BidResult;
+import com.programacao_web.rpg_market.dto.Viewer;
 import com.programacao_web.rpg_market.model.*;
+import com.programacao_web.rpg_market.service.AuctionEventBroadcaster;
+import com.programacao_web.rpg_market.service.BidService;
 import com.programacao_web.rpg_market.service.FileStorageService;
 import com.programacao_web.rpg_market.service.ProductService;
 import com.programacao_web.rpg_market.service.UserService;
-import com.programacao_web.rpg_market.util.ClassCategoryPermission;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,7 +30,6 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.Set;
-import java.util.EnumSet;
 
 @Controller
 @RequestMapping("/item")
@@ -37,35 +44,25 @@ public class ProductController {    private static final Logger log = LoggerFact
     @Autowired
     private FileStorageService fileStorageService;
     
+    @Autowired
+    private AuctionEventBroadcaster auctionEventBroadcaster;
+    
+    @Autowired
+    private BidService bidService;
+    
     @GetMapping("/novo")
-    public String showCreateProductForm(Model model, @AuthenticationPrincipal UserDetails currentUser) {
+    public String showCreateProductForm(Model model, Viewer viewer) {
         try {
             model.addAttribute("product", new Product());
             // Exibir categorias baseadas nas permissões do usuário
-            String characterClass = null;
-            UserRole userRole = null;
-            if (currentUser != null) {
-                Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
-                if (userOpt.isPresent()) {
-                    characterClass = userOpt.get().getCharacterClass();
-                    userRole = userOpt.get().getRole();
-                }
-            }
-            if (characterClass != null) characterClass = capitalize(characterClass.trim());
-            
-            // MESTREs podem criar anúncios de qualquer categoria
-            Set<ProductCategory> allowedCategories;
-            if (userRole == UserRole.ROLE_MESTRE || userRole == UserRole.ROLE_ADMIN) {
-                allowedCategories = EnumSet.allOf(ProductCategory.class);
-            } else {
-                allowedCategories = com.programacao_web.rpg_market.util.ClassCategoryPermission.getAllowedCategories(characterClass);
-            }
+            // (MESTREs podem criar anúncios de qualquer categoria)
+            Set<ProductCategory> allowedCategories = viewer.getAllowedCategories();
             
             model.addAttribute("categories", allowedCategories);
             model.addAttribute("rarities", ItemRarity.values());
             model.addAttribute("types", ProductType.values());
             model.addAttribute("magicProperties", MagicProperty.values());
-            model.addAttribute("isMaster", userRole == UserRole.ROLE_MESTRE || userRole == UserRole.ROLE_ADMIN);
+            model.addAttribute("isMaster", viewer.isMaster());
             return "product/create";
         } catch (Exception e) {
             throw e;
@@ -79,8 +76,16 @@ public class ProductController {    private static final Logger log = LoggerFact
             @RequestParam(value = "directSalePrice", required = false) BigDecimal directSalePrice,
             @RequestParam(value = "startingBid", required = false) BigDecimal startingBid,
             @AuthenticationPrincipal UserDetails currentUser,
+            Viewer viewer,
             RedirectAttributes redirectAttributes) {
         try {
+            // Validação: MESTREs podem criar leilões de qualquer categoria, outros usuários têm restrições
+            if (product.getType() == ProductType.AUCTION && !viewer.isMaster() && 
+                !viewer.canSee(product.getCategory())) {
+                redirectAttributes.addFlashAttribute("error", "Sua classe não pode criar leilões dessa categoria.");
+                return "redirect:/item/novo";
+            }
+            
             Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
             if (userOpt.isEmpty()) {
                 redirectAttributes.addFlashAttribute("error", "Usuário não encontrado no reino.");
@@ -88,14 +93,6 @@ public class ProductController {    private static final Logger log = LoggerFact
             }
             User user = userOpt.get();
             
-            // Validação: MESTREs podem criar leilões de qualquer categoria, outros usuários têm restrições
-            boolean isMaster = user.getRole() == UserRole.ROLE_MESTRE || user.getRole() == UserRole.ROLE_ADMIN;
-            if (product.getType() == ProductType.AUCTION && !isMaster && 
-                !ClassCategoryPermission.isCategoryAllowed(user.getCharacterClass(), product.getCategory())) {
-                redirectAttributes.addFlashAttribute("error", "Sua classe não pode criar leilões dessa categoria.");
-                return "redirect:/item/novo";
-            }
-            
             if (product.getType() == ProductType.DIRECT_SALE) {
                 if (directSalePrice == null || directSalePrice.compareTo(BigDecimal.ZERO) <= 0) {
                     redirectAttributes.addFlashAttribute("error", "Por favor, informe um preço válido para venda direta.");
@@ -150,8 +147,7 @@ public class ProductController {    private static final Logger log = LoggerFact
     }
     
     @GetMapping("/{id}")
-    public String showProduct(@PathVariable String id, Model model, 
-                            @AuthenticationPrincipal UserDetails currentUser) {
+    public String showProduct(@PathVariable String id, Model model, Viewer viewer) {
         Optional<Product> productOpt = productService.findById(id);
         if (productOpt.isEmpty()) {
             return "error/404";
@@ -163,26 +159,61 @@ public class ProductController {    private static final Logger log = LoggerFact
         if (product.getStatus() == ProductStatus.SOLD || 
             product.getStatus() == ProductStatus.AUCTION_ENDED) {
             
-            if (currentUser != null) {
-                Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
-                if (userOpt.isPresent() && 
-                    product.getSeller().getId().equals(userOpt.get().getId())) {
-                    model.addAttribute("isOwner", true);
-                }
+            if (viewer.isAuthenticated() && product.getSeller().getId().equals(viewer.getId())) {
+                model.addAttribute("isOwner", true);
             }
             
             // Para produtos vendidos, ainda mostra a página mas com indicação clara
             model.addAttribute("isSold", true);
         }
         
-        // Se for leilão, busca os lances
+        // Se for leilão, a página mostra os lances recentes embutidos no produto;
+        // o restante do histórico é carregado por páginas em /item/{id}/lances
         if (product.getType() == ProductType.AUCTION) {
-            model.addAttribute("bids", productService.getProductBids(product));
+            model.addAttribute("bids", product.getRecentBids());
         }
         
+        // Vizinhos pré-calculados: uma leitura em memória e uma consulta pelos cartões
+        model.addAttribute("similarItems", productService.findSimilar(product.getId(), viewer.queryCategories()));
+        
         return "product/details";
     }
     
+    /**
+     * Histórico de lances paginado por cursor, do mais recente para o mais antigo
+     */
+    @GetMapping("/{id}/lances")
+    @ResponseBody
+    public ResponseEntity<BidHistoryPage> bidHistory(@PathVariable String id,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(defaultValue = "20") int limite) {
+        try {
+            return ResponseEntity.ok(bidService.getBidHistory(id, cursor, limite));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    /**
+     * Stream de eventos ao vivo do leilão (novo lance, lance superado, encerramento)
+     */
+    @GetMapping(value = "/{id}/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public ResponseEntity<SseEmitter> streamAuctionEvents(@PathVariable String id, Viewer viewer) {
+        // O lance ao vivo segue a visibilidade das listagens: a classe precisa poder ver a categoria
+        Optional<Product> productOpt = productService.findById(id);
+        if (productOpt.isEmpty() || (productOpt.get().getCategory() != null
+                                     && !viewer.canSee(productOpt.get().getCategory()))) {
+            return ResponseEntity.notFound().build();
+        }
+        SseEmitter emitter = auctionEventBroadcaster.subscribe(id);
+        if (emitter == null) {
+            // Limite de espectadores atingido: o navegador tenta de novo pelo retry do EventSource
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+    
     /**
      * Inicia processo de compra - redireciona para checkout
      */
@@ -259,7 +290,12 @@ public class ProductController {    private static final Logger log = LoggerFact
             }
             
             // Processa o lance usando o ProductService
-            productService.makeBid(product, bidder, amount);
+            BidResult result = productService.makeBid(product, bidder, amount);
+            if (result.isOutbid()) {
+                redirectAttributes.addFlashAttribute("outbid", result);
+                redirectAttributes.addFlashAttribute("error", result.getOutbidMessage());
+                return "redirect:/item/" + id;
+            }
             
             redirectAttributes.addFlashAttribute("success", 
                 "Lance de " + amount + " moedas realizado com sucesso! Que a sorte esteja com você, aventureiro!");
@@ -275,20 +311,18 @@ public class ProductController {    private static final Logger log = LoggerFact
     
     // Exibe formulário de edição de produto
     @GetMapping("/{id}/editar")
-    public String showEditForm(@PathVariable String id, Model model, @AuthenticationPrincipal UserDetails currentUser) {
+    public String showEditForm(@PathVariable String id, Model model, Viewer viewer) {
         Optional<Product> productOpt = productService.findById(id);
-        Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
         
-        if (productOpt.isEmpty() || userOpt.isEmpty()) {
+        if (productOpt.isEmpty() || !viewer.isAuthenticated()) {
             return "error/404";
         }
         
-        User user = userOpt.get();
         Product product = productOpt.get();
         
         // MESTREs podem editar qualquer produto, outros usuários só os próprios
-        boolean isMaster = user.getRole() == UserRole.ROLE_MESTRE || user.getRole() == UserRole.ROLE_ADMIN;
-        boolean isOwner = product.getSeller().getId().equals(user.getId());
+        boolean isMaster = viewer.isMaster();
+        boolean isOwner = product.getSeller().getId().equals(viewer.getId());
         
         if (!isMaster && !isOwner) {
             return "error/403"; // Acesso negado
@@ -309,6 +343,7 @@ public class ProductController {    private static final Logger log = LoggerFact
             @ModelAttribute Product product,
             @RequestParam(value = "image", required = false) MultipartFile image,
             @AuthenticationPrincipal UserDetails currentUser,
+            Viewer viewer,
             RedirectAttributes redirectAttributes) {
         Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
         if (userOpt.isEmpty()) {
@@ -326,7 +361,7 @@ public class ProductController {    private static final Logger log = LoggerFact
         Product originalProduct = originalProductOpt.get();
         
         // MESTREs podem editar qualquer produto, outros usuários só os próprios
-        boolean isMaster = user.getRole() == UserRole.ROLE_MESTRE || user.getRole() == UserRole.ROLE_ADMIN;
+        boolean isMaster = viewer.isMaster();
         boolean isOwner = originalProduct.getSeller().getId().equals(user.getId());
         
         if (!isMaster && !isOwner) {
@@ -367,6 +402,7 @@ public class ProductController {    private static final Logger log = LoggerFact
     @PostMapping("/{id}/excluir")
     public String deleteProduct(@PathVariable String id, 
                               @AuthenticationPrincipal UserDetails currentUser,
+                              Viewer viewer,
                               RedirectAttributes redirectAttributes) {
         try {
             // Primeiro, obtenha o usuário atual do UserService usando o nome de usuário do UserDetails
@@ -389,7 +425,7 @@ public class ProductController {    private static final Logger log = LoggerFact
               
             // Verifica permissões: MESTREs podem excluir qualquer item, outros usuários só os próprios
             boolean canDelete = false;
-            boolean isMaster = user.getRole() == UserRole.ROLE_MESTRE || user.getRole() == UserRole.ROLE_ADMIN;
+            boolean isMaster = viewer.isMaster();
             boolean isOwner = product.getSeller().getId().equals(user.getId());
             
             if (isMaster) {
@@ -440,8 +476,15 @@ public class ProductController {    private static final Logger log = LoggerFact
     @PostMapping("/{id}/excluir-mestre")
     public String deleteProductFromMarket(@PathVariable String id, 
                                         @AuthenticationPrincipal UserDetails currentUser,
+                                        Viewer viewer,
                                         RedirectAttributes redirectAttributes) {
         try {
+            // Verifica se é MESTRE antes de qualquer consulta
+            if (!viewer.isMaster()) {
+                redirectAttributes.addFlashAttribute("errorMessage", "Acesso negado. Apenas MESTREs podem usar esta função.");
+                return "redirect:/mercado";
+            }
+            
             Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
             
             if (userOpt.isEmpty()) {
@@ -451,12 +494,6 @@ public class ProductController {    private static final Logger log = LoggerFact
             
             User user = userOpt.get();
             
-            // Verifica se é MESTRE
-            if (user.getRole() != UserRole.ROLE_MESTRE && user.getRole() != UserRole.ROLE_ADMIN) {
-                redirectAttributes.addFlashAttribute("errorMessage", "Acesso negado. Apenas MESTREs podem usar esta função.");
-                return "redirect:/mercado";
-            }
-            
             Optional<Product> productOpt = productService.findById(id);
             
             if (productOpt.isEmpty()) {
@@ -485,9 +522,4 @@ public class ProductController {    private static final Logger log = LoggerFact
             return "redirect:/mestre/gestao-anuncios";
         }
     }
-    
-    private String capitalize(String str) {
-    if (str == null || str.isEmpty()) return str;
-    return str.substring(0, 1).toUpperCase() + str.substring(1).toLowerCase();
-}
 }
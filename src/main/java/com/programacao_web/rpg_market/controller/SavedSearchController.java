@@ -0,0 +1,98 @@
+package com.programacao_web.rpg_market.controller;
+
+import com.programacao_web.rpg_market.dto.Viewer;
+import com.programacao_web.rpg_market.model.ItemRarity;
+import com.programacao_web.rpg_market.model.MagicProperty;
+import com.programacao_web.rpg_market.model.SavedSearch;
+import com.programacao_web.rpg_market.service.SavedSearchService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Buscas salvas do aventureiro e os avisos de anúncios que as atendem
+ */
+@Controller
+@RequestMapping("/aventureiro")
+public class SavedSearchController {
+
+    private static final Logger log = LoggerFactory.getLogger(SavedSearchController.class);
+
+    @Autowired
+    private SavedSearchService savedSearchService;
+
+    /**
+     * Buscas salvas e os avisos mais recentes
+     */
+    @GetMapping("/buscas-salvas")
+    public String showSavedSearches(Viewer viewer, Model model) {
+        if (!viewer.isAuthenticated()) {
+            return "redirect:/login";
+        }
+        model.addAttribute("savedSearches", savedSearchService.findByUserId(viewer.getId()));
+        model.addAttribute("notifications", savedSearchService.findNotifications(viewer.getId()));
+        model.addAttribute("unreadCount", savedSearchService.countUnread(viewer.getId()));
+        model.addAttribute("categories", viewer.getAllowedCategories());
+        model.addAttribute("rarities", ItemRarity.values());
+        model.addAttribute("magicProperties", MagicProperty.values());
+        return "user/saved-searches";
+    }
+
+    /**
+     * Salva os filtros atuais de /vendas-diretas ou /masmorra-dos-leiloes
+     */
+    @PostMapping("/buscas-salvas")
+    public String saveSearch(@ModelAttribute SavedSearch search, Viewer viewer,
+                             RedirectAttributes redirectAttributes) {
+        if (!viewer.isAuthenticated()) {
+            return "redirect:/login";
+        }
+        if (search.getCategory() != null && !viewer.canSee(search.getCategory())) {
+            redirectAttributes.addFlashAttribute("error", "Sua classe não pode ver itens desta categoria");
+            return "redirect:/aventureiro/buscas-salvas";
+        }
+        try {
+            savedSearchService.save(viewer.getId(), search);
+            redirectAttributes.addFlashAttribute("success", "Busca salva! Você será avisado quando surgir um item assim.");
+        } catch (IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+        } catch (Exception e) {
+            log.error("Erro ao salvar busca: {}", e.getMessage(), e);
+            redirectAttributes.addFlashAttribute("error", "Erro ao salvar a busca");
+        }
+        return "redirect:/aventureiro/buscas-salvas";
+    }
+
+    @PostMapping("/buscas-salvas/{searchId}/deletar")
+    public String deleteSearch(@PathVariable String searchId, Viewer viewer,
+                               RedirectAttributes redirectAttributes) {
+        if (!viewer.isAuthenticated()) {
+            return "redirect:/login";
+        }
+        if (savedSearchService.delete(viewer.getId(), searchId)) {
+            redirectAttributes.addFlashAttribute("success", "Busca removida.");
+        } else {
+            redirectAttributes.addFlashAttribute("error", "Busca não encontrada.");
+        }
+        return "redirect:/aventureiro/buscas-salvas";
+    }
+
+    @PostMapping("/avisos/lidos")
+    public String markNotificationsRead(Viewer viewer) {
+        if (!viewer.isAuthenticated()) {
+            return "redirect:/login";
+        }
+        savedSearchService.markAllRead(viewer.getId());
+        return "redirect:/aventureiro/buscas-salvas";
+    }
+}
@@ -1,13 +1,13 @@
 package com.programacao_web.rpg_market.controller;
 
+import com.programacao_web.rpg_market.dto.Viewer;
 import com.programacao_web.rpg_market.model.Transaction;
 import com.programacao_web.rpg_market.model.TransactionStatus;
 import com.programacao_web.rpg_market.model.User;
 import com.programacao_web.rpg_market.service.TransactionService;
 import com.programacao_web.rpg_market.service.UserService;
+import com.programacao_web.rpg_market.service.ViewerService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -25,19 +25,20 @@ public class TransactionController {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private ViewerService viewerService;
+    
     // Exibe detalhes de uma transação
     @GetMapping("/{id}")
     public String showTransaction(
             @PathVariable String id,
-            @AuthenticationPrincipal UserDetails currentUser,
+            Viewer viewer,
             Model model) {
         
-        Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
-        if (userOpt.isEmpty()) {
+        if (!viewer.isAuthenticated()) {
             return "error/403";
         }
         
-        User user = userOpt.get();
         Optional<Transaction> transactionOpt = transactionService.findById(id);
         
         if (transactionOpt.isEmpty()) {
@@ -45,32 +46,36 @@ public class TransactionController {
         }
           Transaction transaction = transactionOpt.get();
         
-        // Verifica se o usuário é parte da transação (com segurança para DBRef)
+        // Verifica se o usuário é parte da transação (com segurança para referências incompletas)
         boolean isBuyer = transaction.getBuyer() != null && 
                          transaction.getBuyer().getId() != null && 
-                         transaction.getBuyer().getId().equals(user.getId());
+                         transaction.getBuyer().getId().equals(viewer.getId());
         boolean isSeller = transaction.getSeller() != null && 
                           transaction.getSeller().getId() != null && 
-                          transaction.getSeller().getId().equals(user.getId());
+                          transaction.getSeller().getId().equals(viewer.getId());
         
         if (!isBuyer && !isSeller) {
             return "error/403";
         }
         
         model.addAttribute("transaction", transaction);
+        // A transação guarda só id e nome; classe e nível vêm dos usuários completos
+        model.addAttribute("seller", userService.resolve(transaction.getSeller()).orElse(null));
+        model.addAttribute("buyer", userService.resolve(transaction.getBuyer()).orElse(null));
         return "transaction/details";
     }
     
-    // Atualiza o status de uma transação
+    // Atualiza o status de uma transação. Só o status muda e o usuário serve para conferir
+    // quem pede, então o do cache do viewer basta aqui e nas ações abaixo
     @PostMapping("/{id}/atualizar")
     public String updateTransactionStatus(
             @PathVariable String id,
             @RequestParam TransactionStatus status,
-            @AuthenticationPrincipal UserDetails currentUser,
+            Viewer viewer,
             RedirectAttributes redirectAttributes) {
         
         try {
-            Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
+            Optional<User> userOpt = viewerService.userOf(viewer);
             if (userOpt.isEmpty()) {
                 throw new IllegalArgumentException("Usuário não encontrado");
             }
@@ -90,11 +95,11 @@ public class TransactionController {
     public String addTrackingCode(
             @PathVariable String id,
             @RequestParam String trackingCode,
-            @AuthenticationPrincipal UserDetails currentUser,
+            Viewer viewer,
             RedirectAttributes redirectAttributes) {
         
         try {
-            Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
+            Optional<User> userOpt = viewerService.userOf(viewer);
             if (userOpt.isEmpty()) {
                 throw new IllegalArgumentException("Usuário não encontrado");
             }
@@ -113,11 +118,11 @@ public class TransactionController {
     @PostMapping("/{id}/confirmar-recebimento")
     public String confirmReceipt(
             @PathVariable String id,
-            @AuthenticationPrincipal UserDetails currentUser,
+            Viewer viewer,
             RedirectAttributes redirectAttributes) {
         
         try {
-            Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
+            Optional<User> userOpt = viewerService.userOf(viewer);
             if (userOpt.isEmpty()) {
                 throw new IllegalArgumentException("Usuário não encontrado");
             }
@@ -137,11 +142,11 @@ public class TransactionController {
     public String openDispute(
             @PathVariable String id,
             @RequestParam String reason,
-            @AuthenticationPrincipal UserDetails currentUser,
+            Viewer viewer,
             RedirectAttributes redirectAttributes) {
         
         try {
-            Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
+            Optional<User> userOpt = viewerService.userOf(viewer);
             if (userOpt.isEmpty()) {
                 throw new IllegalArgumentException("Usuário não encontrado");
             }
@@ -1,5 +1,6 @@
 package com.programacao_web.rpg_market.controller;
 
+import com.programacao_web.rpg_market.dto.Viewer;
 import com.programacao_web.rpg_market.model.Product;
 import com.programacao_web.rpg_market.model.User;
 import com.programacao_web.rpg_market.model.DeliveryAddress;
@@ -9,6 +10,7 @@ import com.programacao_web.rpg_market.service.DeliveryAddressService;
 import com.programacao_web.rpg_market.dto.PasswordChangeRequest;
 import com.programacao_web.rpg_market.service.FileStorageService;
 import com.programacao_web.rpg_market.service.CustomUserDetailsService;
+import com.programacao_web.rpg_market.service.ViewerService;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -48,6 +50,9 @@ public class UserController {
     @Autowired
     private DeliveryAddressService deliveryAddressService;
     
+    @Autowired
+    private ViewerService viewerService;
+    
     // Adicionar este método na classe UserController
     private void refreshAuthentication(User user) {
         UserDetails updatedUserDetails = customUserDetailsService.loadUserByUsername(user.getUsername());
@@ -97,8 +102,9 @@ public class UserController {
     
     // Exibe o perfil do usuário logado
     @GetMapping("/perfil")
-    public String showProfile(@AuthenticationPrincipal UserDetails currentUser, Model model) {
-        Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
+    public String showProfile(Viewer viewer, Model model) {
+        // Telas que só exibem usam o usuário do cache do viewer; quem grava o usuário relê do banco
+        Optional<User> userOpt = viewerService.userOf(viewer);
         if (userOpt.isEmpty()) {
             return "error/403";
         }
@@ -115,8 +121,8 @@ public class UserController {
     
     // Exibe o inventário (produtos) do usuário
     @GetMapping("/inventario")
-    public String showInventory(@AuthenticationPrincipal UserDetails currentUser, Model model) {
-        Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
+    public String showInventory(Viewer viewer, Model model) {
+        Optional<User> userOpt = viewerService.userOf(viewer);
         if (userOpt.isEmpty()) {
             return "error/403";
         }
@@ -130,16 +136,16 @@ public class UserController {
     }
       // Exibe as compras realizadas pelo usuário
     @GetMapping("/compras")
-    public String showUserPurchases(@AuthenticationPrincipal UserDetails currentUser, Model model) {
-        userService.findByUsername(currentUser.getUsername()).ifPresent(user -> {
+    public String showUserPurchases(Viewer viewer, Model model) {
+        viewerService.userOf(viewer).ifPresent(user -> {
             model.addAttribute("transactions", userService.getUserPurchases(user));
         });
         return "user/purchases";
     }
       // Exibe as vendas realizadas pelo usuário
     @GetMapping("/vendas")
-    public String showUserSales(@AuthenticationPrincipal UserDetails currentUser, Model model) {
-        userService.findByUsername(currentUser.getUsername()).ifPresent(user -> {
+    public String showUserSales(Viewer viewer, Model model) {
+        viewerService.userOf(viewer).ifPresent(user -> {
             model.addAttribute("transactions", userService.getUserSales(user));
         });
         return "user/sales";
@@ -160,6 +166,7 @@ public class UserController {
             RedirectAttributes redirectAttributes) {
         
         try {
+            // Grava o usuário inteiro, ouro incluso: lê o estado atual do banco, não o do cache
             Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
             if (userOpt.isEmpty()) {
                 return "error/403";
@@ -181,8 +188,8 @@ public class UserController {
     
     // Exibe formulário para editar perfil
     @GetMapping("/editar-perfil")
-    public String showEditProfileForm(@AuthenticationPrincipal UserDetails currentUser, Model model) {
-        Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
+    public String showEditProfileForm(Viewer viewer, Model model) {
+        Optional<User> userOpt = viewerService.userOf(viewer);
         if (userOpt.isEmpty()) {
             return "error/403";
         }
@@ -199,6 +206,7 @@ public class UserController {
             RedirectAttributes redirectAttributes) {
         
         try {
+            // Grava o usuário inteiro, ouro incluso: lê o estado atual do banco, não o do cache
             Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
             if (userOpt.isEmpty()) {
                 return "error/403";
@@ -235,8 +243,8 @@ public class UserController {
     // === ADDRESS MANAGEMENT ENDPOINTS ===
       // Display user addresses
     @GetMapping("/enderecos")
-    public String showAddresses(@AuthenticationPrincipal UserDetails currentUser, Model model) {
-        Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
+    public String showAddresses(Viewer viewer, Model model) {
+        Optional<User> userOpt = viewerService.userOf(viewer);
         if (userOpt.isEmpty()) {
             return "error/403";
         }
@@ -251,9 +259,8 @@ public class UserController {
     
     // Show form to add new address
     @GetMapping("/enderecos/novo")
-    public String showAddAddressForm(@AuthenticationPrincipal UserDetails currentUser, Model model) {
-        Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
-        if (userOpt.isEmpty()) {
+    public String showAddAddressForm(Viewer viewer, Model model) {
+        if (!viewer.isAuthenticated()) {
             return "error/403";
         }
         
@@ -267,19 +274,17 @@ public class UserController {
     @PostMapping("/enderecos/novo")
     public String createAddress(
             @ModelAttribute DeliveryAddress address,
-            @AuthenticationPrincipal UserDetails currentUser,
+            Viewer viewer,
             RedirectAttributes redirectAttributes) {
           try {
-            Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
-            if (userOpt.isEmpty()) {
+            if (!viewer.isAuthenticated()) {
                 return "error/403";
             }
             
-            User user = userOpt.get();
-            address.setUserId(user.getId());
+            address.setUserId(viewer.getId());
             
             // If this is the user's first address, make it default
-            if (deliveryAddressService.countByUserId(user.getId()) == 0) {
+            if (deliveryAddressService.countByUserId(viewer.getId()) == 0) {
                 address.setIsDefault(true);
             }
             
@@ -297,16 +302,14 @@ public class UserController {
     @GetMapping("/enderecos/{addressId}/editar")
     public String showEditAddressForm(
             @PathVariable String addressId,
-            @AuthenticationPrincipal UserDetails currentUser,
+            Viewer viewer,
             Model model) {
         
-        Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
-        if (userOpt.isEmpty()) {
+        if (!viewer.isAuthenticated()) {
             return "error/403";
         }
         
-        User user = userOpt.get();
-        Optional<DeliveryAddress> addressOpt = deliveryAddressService.findByIdAndUserId(addressId, user.getId());
+        Optional<DeliveryAddress> addressOpt = deliveryAddressService.findByIdAndUserId(addressId, viewer.getId());
         
         if (addressOpt.isEmpty()) {
             return "error/404";
@@ -323,10 +326,10 @@ public class UserController {
     public String updateAddress(
             @PathVariable String addressId,
             @ModelAttribute DeliveryAddress updatedAddress,
-            @AuthenticationPrincipal UserDetails currentUser,
+            Viewer viewer,
             RedirectAttributes redirectAttributes) {
-          try {            Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
-            if (userOpt.isEmpty()) {
+          try {
+            if (!viewer.isAuthenticated()) {
                 return "error/403";
             }
             
@@ -345,16 +348,15 @@ public class UserController {
     @PostMapping("/enderecos/{addressId}/deletar")
     public String deleteAddress(
             @PathVariable String addressId,
-            @AuthenticationPrincipal UserDetails currentUser,
+            Viewer viewer,
             RedirectAttributes redirectAttributes) {
         
         try {
-            Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
-            if (userOpt.isEmpty()) {            return "error/403";
+            if (!viewer.isAuthenticated()) {
+                return "error/403";
             }
             
-            User user = userOpt.get();
-            boolean deleted = deliveryAddressService.deleteByIdAndUserId(addressId, user.getId());
+            boolean deleted = deliveryAddressService.deleteByIdAndUserId(addressId, viewer.getId());
             
             if (deleted) {
                 redirectAttributes.addFlashAttribute("success", "Endereço removido com sucesso!");
@@ -373,16 +375,15 @@ public class UserController {
     @PostMapping("/enderecos/{addressId}/padrao")
     public String setAsDefaultAddress(
             @PathVariable String addressId,
-            @AuthenticationPrincipal UserDetails currentUser,
+            Viewer viewer,
             RedirectAttributes redirectAttributes) {
         
         try {
-            Optional<User> userOpt = userService.findByUsername(currentUser.getUsername());
-            if (userOpt.isEmpty()) {            return "error/403";
+            if (!viewer.isAuthenticated()) {
+                return "error/403";
             }
             
-            User user = userOpt.get();
-            deliveryAddressService.setAsDefault(addressId, user.getId());
+            deliveryAddressService.setAsDefault(addressId, viewer.getId());
             redirectAttributes.addFlashAttribute("success", "Endereço definido como padrão!");
             
         } catch (Exception e) {
@@ -0,0 +1,45 @@
+package com.programacao_web.rpg_market.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Uma página do histórico de lances de um leilão, do mais recente para o mais antigo.
+ * {@code nextCursor} é passado de volta para buscar a página seguinte e é null na última.
+ */
+public class BidHistoryPage {
+
+    /**
+     * Lance como aparece no histórico
+     */
+    public static class Entry {
+        private final String id;
+        private final String bidder;
+        private final BigDecimal amount;
+        private final LocalDateTime bidTime;
+
+        public Entry(String id, String bidder, BigDecimal amount, LocalDateTime bidTime) {
+            this.id = id;
+            this.bidder = bidder;
+            this.amount = amount;
+            this.bidTime = bidTime;
+        }
+
+        public String getId() { return id; }
+        public String getBidder() { return bidder; }
+        public BigDecimal getAmount() { return amount; }
+        public LocalDateTime getBidTime() { return bidTime; }
+    }
+
+    private final List<Entry> bids;
+    private final String nextCursor;
+
+    public BidHistoryPage(List<Entry> bids, String nextCursor) {
+        this.bids = bids;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Entry> getBids() { return bids; }
+    public String getNextCursor() { return nextCursor; }
+}
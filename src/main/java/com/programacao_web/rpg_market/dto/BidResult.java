@@ -0,0 +1,62 @@
+package com.programacao_web.rpg_market.dto;
+
+import com.programacao_web.rpg_market.model.Bid;
+
+import java.math.BigDecimal;
+
+/**
+ * Resultado de uma tentativa de lance.
+ *
+ * Um lance superado (outro licitante chegou antes ao mesmo preço) não é um erro de
+ * validação: volta como {@link Status#OUTBID} com o preço atual e o próximo lance
+ * mínimo, para que a tela possa oferecer um novo lance.
+ */
+public class BidResult {
+
+    public enum Status {
+        ACCEPTED,
+        OUTBID
+    }
+
+    private final Status status;
+    private final Bid bid;
+    private final BigDecimal currentPrice;
+    private final BigDecimal minNextBid;
+
+    private BidResult(Status status, Bid bid, BigDecimal currentPrice, BigDecimal minNextBid) {
+        this.status = status;
+        this.bid = bid;
+        this.currentPrice = currentPrice;
+        this.minNextBid = minNextBid;
+    }
+
+    public static BidResult accepted(Bid bid, BigDecimal currentPrice, BigDecimal minNextBid) {
+        return new BidResult(Status.ACCEPTED, bid, currentPrice, minNextBid);
+    }
+
+    public static BidResult outbid(BigDecimal currentPrice, BigDecimal minNextBid) {
+        return new BidResult(Status.OUTBID, null, currentPrice, minNextBid);
+    }
+
+    public boolean isAccepted() {
+        return status == Status.ACCEPTED;
+    }
+
+    public boolean isOutbid() {
+        return status == Status.OUTBID;
+    }
+
+    /**
+     * Mensagem exibida ao licitante quando o lance foi superado
+     */
+    public String getOutbidMessage() {
+        return String.format("⚔️ Outro aventureiro chegou antes! O lance atual é %.2f moedas; " +
+                             "o próximo lance deve ser de pelo menos %.2f moedas.", currentPrice, minNextBid);
+    }
+
+    // Getters
+    public Status getStatus() { return status; }
+    public Bid getBid() { return bid; }
+    public BigDecimal getCurrentPrice() { return currentPrice; }
+    public BigDecimal getMinNextBid() { return minNextBid; }
+}
@@ -0,0 +1,66 @@
+package com.programacao_web.rpg_market.dto;
+
+import com.programacao_web.rpg_market.model.ItemRarity;
+import com.programacao_web.rpg_market.model.MagicProperty;
+import com.programacao_web.rpg_market.model.ProductCategory;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Quantos itens cada opção de filtro traria, dados os demais filtros escolhidos.
+ * A contagem de uma dimensão ignora o próprio filtro: com "Armas" escolhida, as outras
+ * categorias continuam mostrando quantos itens teriam.
+ */
+public class FacetCounts {
+
+    /**
+     * Faixa de preço [min, max); {@code max} null é a última faixa, sem limite
+     */
+    public static class PriceBucket {
+        private final BigDecimal min;
+        private final BigDecimal max;
+        private final long count;
+
+        public PriceBucket(BigDecimal min, BigDecimal max, long count) {
+            this.min = min;
+            this.max = max;
+            this.count = count;
+        }
+
+        public BigDecimal getMin() { return min; }
+        public BigDecimal getMax() { return max; }
+        public long getCount() { return count; }
+    }
+
+    private final Map<ProductCategory, Long> categories;
+    private final Map<ItemRarity, Long> rarities;
+    private final Map<MagicProperty, Long> magicProperties;
+    private final List<PriceBucket> priceBuckets;
+
+    public FacetCounts(Map<ProductCategory, Long> categories, Map<ItemRarity, Long> rarities,
+                       Map<MagicProperty, Long> magicProperties, List<PriceBucket> priceBuckets) {
+        this.categories = categories;
+        this.rarities = rarities;
+        this.magicProperties = magicProperties;
+        this.priceBuckets = priceBuckets;
+    }
+
+    public Map<ProductCategory, Long> getCategories() { return categories; }
+    public Map<ItemRarity, Long> getRarities() { return rarities; }
+    public Map<MagicProperty, Long> getMagicProperties() { return magicProperties; }
+    public List<PriceBucket> getPriceBuckets() { return priceBuckets; }
+
+    public long countOf(ProductCategory category) {
+        return categories.getOrDefault(category, 0L);
+    }
+
+    public long countOf(ItemRarity rarity) {
+        return rarities.getOrDefault(rarity, 0L);
+    }
+
+    public long countOf(MagicProperty property) {
+        return magicProperties.getOrDefault(property, 0L);
+    }
+}
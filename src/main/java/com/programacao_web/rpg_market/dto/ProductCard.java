@@ -0,0 +1,85 @@
+package com.programacao_web.rpg_market.dto;
+
+import com.programacao_web.rpg_market.model.ItemRarity;
+import com.programacao_web.rpg_market.model.ProductCategory;
+import com.programacao_web.rpg_market.model.ProductStatus;
+import com.programacao_web.rpg_market.model.ProductType;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Produto como aparece nos cartões das listagens, lido direto da coleção de produtos só
+ * com os campos de {@link #FIELDS}.
+ *
+ * Fica de fora o que o cartão não mostra (histórico, lances recentes, propriedades) e,
+ * principalmente, o {@code @DBRef} do vendedor, que carregava o usuário inteiro por cartão:
+ * o nome vem da cópia {@code seller_name} gravada no anúncio. Os nomes dos campos batem com
+ * os de {@code Product}, então critérios e ordenações escritos para o produto valem aqui.
+ */
+public class ProductCard {
+
+    /**
+     * Campos gravados que a leitura do cartão projeta
+     */
+    public static final String[] FIELDS = {
+        "name", "description", "price", "category", "type", "status", "rarity", "image_url",
+        "seller_name", "created_at", "auction_end_date", "buy_now_price"
+    };
+
+    @Id
+    private String id;
+
+    @Field("name")
+    private String name;
+
+    @Field("description")
+    private String description;
+
+    @Field("price")
+    private BigDecimal price;
+
+    @Field("category")
+    private ProductCategory category;
+
+    @Field("type")
+    private ProductType type;
+
+    @Field("status")
+    private ProductStatus status;
+
+    @Field("rarity")
+    private ItemRarity rarity;
+
+    @Field("image_url")
+    private String imageUrl;
+
+    @Field("seller_name")
+    private String sellerName;
+
+    @Field("created_at")
+    private LocalDateTime createdAt;
+
+    @Field("auction_end_date")
+    private LocalDateTime auctionEndDate;
+
+    @Field("buy_now_price")
+    private BigDecimal buyNowPrice;
+
+    public String getId() { return id; }
+    public String getName() { return name; }
+    public String getDescription() { return description; }
+    public BigDecimal getPrice() { return price; }
+    public ProductCategory getCategory() { return category; }
+    public ProductType getType() { return type; }
+    public ProductStatus getStatus() { return status; }
+    public ItemRarity getRarity() { return rarity; }
+    public String getImageUrl() { return imageUrl; }
+    public String getSellerName() { return sellerName; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getAuctionEndDate() { return auctionEndDate; }
+    public BigDecimal getBuyNowPrice() { return buyNowPrice; }
+}
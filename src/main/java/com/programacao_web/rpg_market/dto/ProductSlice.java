@@ -0,0 +1,24 @@
+package com.programacao_web.rpg_market.dto;
+
+import java.util.List;
+
+/**
+ * Um trecho de uma listagem do mercado paginada por chave. {@code nextCursor} é passado de
+ * volta para buscar o trecho seguinte e é null no último; {@code total} só vem quando pedido.
+ */
+public class ProductSlice {
+
+    private final List<ProductCard> products;
+    private final String nextCursor;
+    private final Long total;
+
+    public ProductSlice(List<ProductCard> products, String nextCursor, Long total) {
+        this.products = products;
+        this.nextCursor = nextCursor;
+        this.total = total;
+    }
+
+    public List<ProductCard> getProducts() { return products; }
+    public String getNextCursor() { return nextCursor; }
+    public Long getTotal() { return total; }
+}
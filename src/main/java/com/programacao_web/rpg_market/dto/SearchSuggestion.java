@@ -0,0 +1,22 @@
+package com.programacao_web.rpg_market.dto;
+
+/**
+ * Sugestão do autocompletar da busca: o texto exibido, o tipo ("produto" ou "categoria")
+ * e para onde ela leva
+ */
+public class SearchSuggestion {
+
+    private final String text;
+    private final String kind;
+    private final String url;
+
+    public SearchSuggestion(String text, String kind, String url) {
+        this.text = text;
+        this.kind = kind;
+        this.url = url;
+    }
+
+    public String getText() { return text; }
+    public String getKind() { return kind; }
+    public String getUrl() { return url; }
+}
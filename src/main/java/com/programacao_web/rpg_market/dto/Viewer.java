@@ -0,0 +1,78 @@
+package com.programacao_web.rpg_market.dto;
+
+import com.programacao_web.rpg_market.model.ProductCategory;
+import com.programacao_web.rpg_market.model.User;
+import com.programacao_web.rpg_market.model.UserRole;
+import com.programacao_web.rpg_market.util.ClassCategoryPermission;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Quem está fazendo a requisição: id, papel, classe já normalizada, categorias visíveis
+ * (como máscara de bits sobre {@link ProductCategory}) e nível.
+ *
+ * É montado uma vez por requisição pelo {@code ViewerArgumentResolver} e basta para as
+ * decisões de visibilidade e permissão dos controllers, sem buscar o usuário no banco.
+ * Visitantes não autenticados recebem {@link #ANONYMOUS}.
+ */
+public final class Viewer {
+
+    public static final Viewer ANONYMOUS = new Viewer(null, null, null, null, 0);
+
+    private final String id;
+    private final String username;
+    private final UserRole role;
+    private final String characterClass;
+    private final int level;
+    private final long categoryMask;
+    private final Set<ProductCategory> allowedCategories;
+
+    public Viewer(String id, String username, UserRole role, String characterClass, int level) {
+        this.id = id;
+        this.username = username;
+        this.role = role;
+        this.characterClass = ClassCategoryPermission.normalizeClass(characterClass);
+        this.level = level;
+
+        Set<ProductCategory> allowed = ClassCategoryPermission.getAllowedCategories(this.characterClass, role);
+        this.allowedCategories = Collections.unmodifiableSet(EnumSet.copyOf(allowed));
+        this.categoryMask = ClassCategoryPermission.toMask(allowed);
+    }
+
+    public static Viewer of(User user) {
+        return new Viewer(user.getId(), user.getUsername(), user.getRole(), user.getCharacterClass(), user.getLevel());
+    }
+
+    public boolean isAuthenticated() {
+        return username != null;
+    }
+
+    /**
+     * MESTREs e ADMINs: veem todas as categorias e gerenciam qualquer anúncio
+     */
+    public boolean isMaster() {
+        return ClassCategoryPermission.hasAdminPermissions(role);
+    }
+
+    public boolean canSee(ProductCategory category) {
+        return category != null && (categoryMask & (1L << category.ordinal())) != 0;
+    }
+
+    /**
+     * Categorias para filtrar as consultas: null para MESTREs (sem filtro) e o conjunto da
+     * classe para os demais
+     */
+    public Set<ProductCategory> queryCategories() {
+        return isMaster() ? null : allowedCategories;
+    }
+
+    public String getId() { return id; }
+    public String getUsername() { return username; }
+    public UserRole getRole() { return role; }
+    public String getCharacterClass() { return characterClass; }
+    public int getLevel() { return level; }
+    public long getCategoryMask() { return categoryMask; }
+    public Set<ProductCategory> getAllowedCategories() { return allowedCategories; }
+}
@@ -2,7 +2,6 @@ package com.programacao_web.rpg_market.model;
 
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
-import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 import lombok.NoArgsConstructor;
@@ -19,11 +18,12 @@ public class Bid {
     @Id
     private String id;
     
-    @DBRef
-    private Product product;
+    // Referências embutidas: listar lances não precisa buscar produto nem licitante
+    @Field("product")
+    private ProductRef product;
     
-    @DBRef
-    private User bidder;
+    @Field("bidder")
+    private UserRef bidder;
     
     @Field("amount")
     private BigDecimal amount;
@@ -38,11 +38,11 @@ public class Bid {
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
     
-    public Product getProduct() { return product; }
-    public void setProduct(Product product) { this.product = product; }
+    public ProductRef getProduct() { return product; }
+    public void setProduct(ProductRef product) { this.product = product; }
     
-    public User getBidder() { return bidder; }
-    public void setBidder(User bidder) { this.bidder = bidder; }
+    public UserRef getBidder() { return bidder; }
+    public void setBidder(UserRef bidder) { this.bidder = bidder; }
     
     public BigDecimal getAmount() { return amount; }
     public void setAmount(BigDecimal amount) { this.amount = amount; }
@@ -46,8 +46,9 @@ public class Product {
     @DBRef
     private User seller;
     
-    @DBRef
-    private List<Bid> bids = new ArrayList<>();
+    // Nome do vendedor copiado no anúncio, para os cartões das listagens não resolverem o DBRef
+    @Field("seller_name")
+    private String sellerName;
     
     @Field("created_at")
     private LocalDateTime createdAt;
@@ -86,6 +87,23 @@ public class Product {
     @Field("experience_gained")
     private Integer experienceGained = 0;
     
+    // Resumo do leilão, mantido no mesmo update atômico que aceita cada lance
+    @Field("leader_id")
+    private String leaderId;
+    
+    @Field("leader_bid_id")
+    private String leaderBidId;
+    
+    @Field("bid_count")
+    private Long bidCount = 0L;
+    
+    @Field("last_bid_time")
+    private LocalDateTime lastBidTime;
+    
+    // Últimos lances, do mais recente para o mais antigo; o histórico completo fica na coleção de lances
+    @Field("recent_bids")
+    private List<RecentBid> recentBids = new ArrayList<>();
+    
     // Getters e Setters manuais para resolver problema do Lombok
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
@@ -112,10 +130,16 @@ public class Product {
     public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
     
     public User getSeller() { return seller; }
-    public void setSeller(User seller) { this.seller = seller; }
+    public void setSeller(User seller) {
+        this.seller = seller;
+        this.sellerName = seller != null ? seller.getUsername() : null;
+    }
     
-    public List<Bid> getBids() { return bids; }
-    public void setBids(List<Bid> bids) { this.bids = bids; }
+    public String getSellerName() {
+        // Anúncios gravados antes do campo existir ainda não têm a cópia
+        return sellerName != null ? sellerName : (seller != null ? seller.getUsername() : null);
+    }
+    public void setSellerName(String sellerName) { this.sellerName = sellerName; }
     
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
@@ -141,4 +165,19 @@ public class Product {
         }
         this.magicProperties.add(property);
     }    // Getters and setters should be handled by Lombok
+
+    public String getLeaderId() { return leaderId; }
+    public void setLeaderId(String leaderId) { this.leaderId = leaderId; }
+    
+    public String getLeaderBidId() { return leaderBidId; }
+    public void setLeaderBidId(String leaderBidId) { this.leaderBidId = leaderBidId; }
+    
+    public Long getBidCount() { return bidCount; }
+    public void setBidCount(Long bidCount) { this.bidCount = bidCount; }
+    
+    public LocalDateTime getLastBidTime() { return lastBidTime; }
+    public void setLastBidTime(LocalDateTime lastBidTime) { this.lastBidTime = lastBidTime; }
+    
+    public List<RecentBid> getRecentBids() { return recentBids; }
+    public void setRecentBids(List<RecentBid> recentBids) { this.recentBids = recentBids; }
 }
@@ -0,0 +1,52 @@
+package com.programacao_web.rpg_market.model;
+
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import lombok.NoArgsConstructor;
+
+/**
+ * Referência embutida a um produto: o id e o que as listas de lances e de compras mostram
+ * (nome, imagem e categoria). O produto completo é buscado pelo id quando necessário.
+ */
+@NoArgsConstructor
+public class ProductRef {
+
+    // Nome explícito: sem ele o Spring Data grava "id" embutido como "_id"
+    @Field("id")
+    private String id;
+
+    @Field("name")
+    private String name;
+
+    @Field("image_url")
+    private String imageUrl;
+
+    @Field("category")
+    private ProductCategory category;
+
+    public ProductRef(String id, String name, String imageUrl, ProductCategory category) {
+        this.id = id;
+        this.name = name;
+        this.imageUrl = imageUrl;
+        this.category = category;
+    }
+
+    public static ProductRef of(Product product) {
+        return product != null
+            ? new ProductRef(product.getId(), product.getName(), product.getImageUrl(), product.getCategory())
+            : null;
+    }
+
+    // Getters e Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getImageUrl() { return imageUrl; }
+    public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
+
+    public ProductCategory getCategory() { return category; }
+    public void setCategory(ProductCategory category) { this.category = category; }
+}
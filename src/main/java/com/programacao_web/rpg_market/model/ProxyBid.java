@@ -0,0 +1,57 @@
+package com.programacao_web.rpg_market.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Lance automático (proxy): o valor máximo que o licitante aceita pagar.
+ * O máximo nunca é exibido; o motor de leilões cobre os lances concorrentes
+ * no incremento mínimo até esse limite.
+ */
+@NoArgsConstructor
+@Document(collection = "proxy_bids")
+public class ProxyBid {
+    
+    @Id
+    private String id;
+    
+    @Field("product_id")
+    private String productId;
+    
+    @Field("bidder_id")
+    private String bidderId;
+    
+    @Field("bidder_username")
+    private String bidderUsername;
+    
+    @Field("max_amount")
+    private BigDecimal maxAmount;
+    
+    @Field("created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+    
+    // Getters e Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    
+    public String getProductId() { return productId; }
+    public void setProductId(String productId) { this.productId = productId; }
+    
+    public String getBidderId() { return bidderId; }
+    public void setBidderId(String bidderId) { this.bidderId = bidderId; }
+    
+    public String getBidderUsername() { return bidderUsername; }
+    public void setBidderUsername(String bidderUsername) { this.bidderUsername = bidderUsername; }
+    
+    public BigDecimal getMaxAmount() { return maxAmount; }
+    public void setMaxAmount(BigDecimal maxAmount) { this.maxAmount = maxAmount; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,55 @@
+package com.programacao_web.rpg_market.model;
+
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Cópia resumida de um lance, embutida no produto. O produto guarda só os lances mais
+ * recentes; o histórico completo fica na coleção de lances e é lido por páginas.
+ */
+@NoArgsConstructor
+public class RecentBid {
+
+    @Field("bid_id")
+    private String bidId;
+
+    @Field("bidder_id")
+    private String bidderId;
+
+    @Field("bidder_username")
+    private String bidderUsername;
+
+    @Field("amount")
+    private BigDecimal amount;
+
+    @Field("bid_time")
+    private LocalDateTime bidTime;
+
+    public RecentBid(Bid bid) {
+        this.bidId = bid.getId();
+        this.bidderId = bid.getBidder() != null ? bid.getBidder().getId() : null;
+        this.bidderUsername = bid.getBidder() != null ? bid.getBidder().getUsername() : null;
+        this.amount = bid.getAmount();
+        this.bidTime = bid.getBidTime();
+    }
+
+    // Getters e Setters
+    public String getBidId() { return bidId; }
+    public void setBidId(String bidId) { this.bidId = bidId; }
+
+    public String getBidderId() { return bidderId; }
+    public void setBidderId(String bidderId) { this.bidderId = bidderId; }
+
+    public String getBidderUsername() { return bidderUsername; }
+    public void setBidderUsername(String bidderUsername) { this.bidderUsername = bidderUsername; }
+
+    public BigDecimal getAmount() { return amount; }
+    public void setAmount(BigDecimal amount) { this.amount = amount; }
+
+    public LocalDateTime getBidTime() { return bidTime; }
+    public void setBidTime(LocalDateTime bidTime) { this.bidTime = bidTime; }
+}
@@ -0,0 +1,85 @@
+package com.programacao_web.rpg_market.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Busca salva por um aventureiro: os filtros de /vendas-diretas ou /masmorra-dos-leiloes
+ * mais palavras-chave. Cada anúncio novo ou alterado que atende a ela vira um aviso.
+ * Campos nulos (ou vazios) não filtram; as propriedades mágicas são todas exigidas.
+ */
+@NoArgsConstructor
+@Document(collection = "saved_searches")
+public class SavedSearch {
+    
+    @Id
+    private String id;
+    
+    @Field("user_id")
+    private String userId;
+    
+    private String name;
+    
+    // Venda direta ou leilão; nulo aceita os dois
+    private ProductType type;
+    
+    private ProductCategory category;
+    
+    private ItemRarity rarity;
+    
+    @Field("min_price")
+    private BigDecimal minPrice;
+    
+    @Field("max_price")
+    private BigDecimal maxPrice;
+    
+    @Field("magic_properties")
+    private Set<MagicProperty> magicProperties = new HashSet<>();
+    
+    private String keywords;
+    
+    @Field("created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+    
+    // Getters e Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+    
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    
+    public ProductType getType() { return type; }
+    public void setType(ProductType type) { this.type = type; }
+    
+    public ProductCategory getCategory() { return category; }
+    public void setCategory(ProductCategory category) { this.category = category; }
+    
+    public ItemRarity getRarity() { return rarity; }
+    public void setRarity(ItemRarity rarity) { this.rarity = rarity; }
+    
+    public BigDecimal getMinPrice() { return minPrice; }
+    public void setMinPrice(BigDecimal minPrice) { this.minPrice = minPrice; }
+    
+    public BigDecimal getMaxPrice() { return maxPrice; }
+    public void setMaxPrice(BigDecimal maxPrice) { this.maxPrice = maxPrice; }
+    
+    public Set<MagicProperty> getMagicProperties() { return magicProperties; }
+    public void setMagicProperties(Set<MagicProperty> magicProperties) { this.magicProperties = magicProperties; }
+    
+    public String getKeywords() { return keywords; }
+    public void setKeywords(String keywords) { this.keywords = keywords; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,72 @@
+package com.programacao_web.rpg_market.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Aviso de que um anúncio atende a uma busca salva. Há no máximo um por busca e anúncio
+ * (índice único), então regravações do anúncio não repetem o aviso.
+ */
+@NoArgsConstructor
+@Document(collection = "search_notifications")
+public class SearchNotification {
+    
+    @Id
+    private String id;
+    
+    @Field("user_id")
+    private String userId;
+    
+    @Field("saved_search_id")
+    private String savedSearchId;
+    
+    @Field("saved_search_name")
+    private String savedSearchName;
+    
+    @Field("product_id")
+    private String productId;
+    
+    @Field("product_name")
+    private String productName;
+    
+    private BigDecimal price;
+    
+    private boolean read;
+    
+    @Field("created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+    
+    // Getters e Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+    
+    public String getSavedSearchId() { return savedSearchId; }
+    public void setSavedSearchId(String savedSearchId) { this.savedSearchId = savedSearchId; }
+    
+    public String getSavedSearchName() { return savedSearchName; }
+    public void setSavedSearchName(String savedSearchName) { this.savedSearchName = savedSearchName; }
+    
+    public String getProductId() { return productId; }
+    public void setProductId(String productId) { this.productId = productId; }
+    
+    public String getProductName() { return productName; }
+    public void setProductName(String productName) { this.productName = productName; }
+    
+    public BigDecimal getPrice() { return price; }
+    public void setPrice(BigDecimal price) { this.price = price; }
+    
+    public boolean isRead() { return read; }
+    public void setRead(boolean read) { this.read = read; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -2,7 +2,6 @@ package com.programacao_web.rpg_market.model;
 
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
-import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.math.BigDecimal;
@@ -14,14 +13,15 @@ public class Transaction {
     @Id
     private String id;
     
-    @DBRef
-    private Product product;
+    // Referências embutidas: listar compras e vendas não precisa buscar produto nem usuários
+    @Field("product")
+    private ProductRef product;
     
-    @DBRef
-    private User buyer;
+    @Field("buyer")
+    private UserRef buyer;
     
-    @DBRef
-    private User seller;
+    @Field("seller")
+    private UserRef seller;
     
     @Field("amount")
     private BigDecimal amount;
@@ -38,7 +38,8 @@ public class Transaction {
     @Field("tracking_code")
     private String trackingCode;
     
-    @DBRef
+    // Cópia do endereço no momento da compra; editar o endereço depois não muda a entrega
+    @Field("delivery_address")
     private DeliveryAddress deliveryAddress;
     
     @Field("notes")
@@ -48,14 +49,14 @@ public class Transaction {
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
     
-    public Product getProduct() { return product; }
-    public void setProduct(Product product) { this.product = product; }
+    public ProductRef getProduct() { return product; }
+    public void setProduct(ProductRef product) { this.product = product; }
     
-    public User getBuyer() { return buyer; }
-    public void setBuyer(User buyer) { this.buyer = buyer; }
+    public UserRef getBuyer() { return buyer; }
+    public void setBuyer(UserRef buyer) { this.buyer = buyer; }
     
-    public User getSeller() { return seller; }
-    public void setSeller(User seller) { this.seller = seller; }
+    public UserRef getSeller() { return seller; }
+    public void setSeller(UserRef seller) { this.seller = seller; }
     
     public BigDecimal getAmount() { return amount; }
     public void setAmount(BigDecimal amount) { this.amount = amount; }
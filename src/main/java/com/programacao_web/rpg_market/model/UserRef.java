@@ -0,0 +1,39 @@
+package com.programacao_web.rpg_market.model;
+
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import lombok.NoArgsConstructor;
+
+/**
+ * Referência embutida a um usuário: o id e o nome exibido nas listas.
+ *
+ * Substitui o {@code @DBRef} em lances e transações, que obrigava uma consulta extra por
+ * documento lido. Quando a página precisa do usuário completo (nível, classe, saldo), o
+ * chamador busca pelo id.
+ */
+@NoArgsConstructor
+public class UserRef {
+
+    // Nome explícito: sem ele o Spring Data grava "id" embutido como "_id"
+    @Field("id")
+    private String id;
+
+    @Field("username")
+    private String username;
+
+    public UserRef(String id, String username) {
+        this.id = id;
+        this.username = username;
+    }
+
+    public static UserRef of(User user) {
+        return user != null ? new UserRef(user.getId(), user.getUsername()) : null;
+    }
+
+    // Getters e Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+}
@@ -1,28 +1,37 @@
 package com.programacao_web.rpg_market.repository;
 
 import com.programacao_web.rpg_market.model.Bid;
-import com.programacao_web.rpg_market.model.Product;
-import com.programacao_web.rpg_market.model.User;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface BidRepository extends MongoRepository<Bid, String> {
-    List<Bid> findByProductOrderByAmountDesc(Product product);
-    List<Bid> findByBidder(User bidder);
+    // Produto e licitante são referências embutidas: as consultas filtram por product.id e bidder.id
+    List<Bid> findByProductIdOrderByAmountDesc(String productId);
+    List<Bid> findByBidderId(String bidderId);
+    Optional<Bid> findFirstByProductIdAndWinningTrue(String productId);
+    long countByProductId(String productId);
+    Optional<Bid> findFirstByProductIdOrderByBidTimeDesc(String productId);
+    long deleteByProductId(String productId);
+    List<Bid> findTop10ByProductIdOrderByBidTimeDesc(String productId);
+    List<Bid> findTop15ByOrderByBidTimeDesc();
+    long countByBidTimeAfter(LocalDateTime since);
     
-    @Query("{ 'product' : ?0, 'amount' : { $eq: ?1 } }")
-    Optional<Bid> findByProductAndAmount(Product product, String highestAmount);
+    @Query("{ 'product.id' : ?0, 'amount' : { $eq: ?1 } }")
+    Optional<Bid> findByProductIdAndAmount(String productId, String highestAmount);
     
-    @Query(value="{ 'product' : ?0 }", sort="{ 'amount' : -1 }")
-    List<Bid> findByProductSortedByAmountDesc(Product product);
+    @Query(value="{ 'product.id' : ?0 }", sort="{ 'amount' : -1 }")
+    List<Bid> findByProductIdSortedByAmountDesc(String productId);
     
-    default Optional<Bid> findHighestBidForProduct(Product product) {
-        List<Bid> bids = findByProductSortedByAmountDesc(product);
-        return bids.isEmpty() ? Optional.empty() : Optional.of(bids.get(0));
+    Optional<Bid> findFirstByProductIdOrderByAmountDesc(String productId);
+    
+    default Optional<Bid> findHighestBidForProduct(String productId) {
+        // Lê só o primeiro lance pelo índice (product.id, amount desc), sem carregar a lista
+        return findFirstByProductIdOrderByAmountDesc(productId);
     }
 }
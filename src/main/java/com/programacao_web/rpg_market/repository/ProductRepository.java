@@ -6,6 +6,7 @@ import com.programacao_web.rpg_market.model.ProductStatus;
 import com.programacao_web.rpg_market.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -18,9 +19,6 @@ public interface ProductRepository extends MongoRepository<Product, String> {
     Page<Product> findByStatus(ProductStatus status, Pageable pageable);
     Page<Product> findByCategoryAndStatus(ProductCategory category, ProductStatus status, Pageable pageable);
     
-    @Query("{'$or': [{'name': {$regex: ?0, $options: 'i'}}, {'description': {$regex: ?0, $options: 'i'}}], 'status': ?1}")
-    Page<Product> searchByNameAndStatus(String keyword, ProductStatus status, Pageable pageable);
-    
     List<Product> findByStatusAndAuctionEndDateLessThanEqual(ProductStatus status, LocalDateTime dateTime);
     List<Product> findBySeller(User seller);
     List<Product> findBySellerAndStatusIn(User seller, List<ProductStatus> statuses);
@@ -36,8 +34,14 @@ public interface ProductRepository extends MongoRepository<Product, String> {
     // Contagem otimizada por categoria
     long countByCategory(ProductCategory category);
     
-    // Top produtos mais caros (OTIMIZAÇÃO)
-    List<Product> findTop5ByOrderByPriceDesc();
+    // Contagem de leilões e soma dos contadores de lances mantidos no próprio produto
+    long countByType(com.programacao_web.rpg_market.model.ProductType type);
+    
+    @Aggregation(pipeline = {
+        "{ $match: { 'type': 'AUCTION' } }",
+        "{ $group: { _id: null, total: { $sum: { $ifNull: ['$bid_count', 0] } } } }"
+    })
+    Long sumAuctionBidCounts();
     
     // Busca por categoria com paginação
     Page<Product> findByCategory(ProductCategory category, Pageable pageable);
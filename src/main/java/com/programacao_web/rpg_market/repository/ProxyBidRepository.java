@@ -0,0 +1,15 @@
+package com.programacao_web.rpg_market.repository;
+
+import com.programacao_web.rpg_market.model.ProxyBid;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ProxyBidRepository extends MongoRepository<ProxyBid, String> {
+    List<ProxyBid> findByProductId(String productId);
+    Optional<ProxyBid> findByProductIdAndBidderId(String productId, String bidderId);
+    void deleteByProductId(String productId);
+}
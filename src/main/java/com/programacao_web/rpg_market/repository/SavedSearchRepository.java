@@ -0,0 +1,15 @@
+package com.programacao_web.rpg_market.repository;
+
+import com.programacao_web.rpg_market.model.SavedSearch;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SavedSearchRepository extends MongoRepository<SavedSearch, String> {
+    List<SavedSearch> findByUserIdOrderByCreatedAtDesc(String userId);
+    Optional<SavedSearch> findByIdAndUserId(String id, String userId);
+    long countByUserId(String userId);
+}
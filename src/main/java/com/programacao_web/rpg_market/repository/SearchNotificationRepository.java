@@ -0,0 +1,14 @@
+package com.programacao_web.rpg_market.repository;
+
+import com.programacao_web.rpg_market.model.SearchNotification;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SearchNotificationRepository extends MongoRepository<SearchNotification, String> {
+    List<SearchNotification> findTop50ByUserIdOrderByCreatedAtDesc(String userId);
+    long countByUserIdAndReadFalse(String userId);
+    void deleteBySavedSearchId(String savedSearchId);
+}
@@ -2,7 +2,6 @@ package com.programacao_web.rpg_market.repository;
 
 import com.programacao_web.rpg_market.model.Transaction;
 import com.programacao_web.rpg_market.model.TransactionStatus;
-import com.programacao_web.rpg_market.model.User;
 import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
@@ -12,11 +11,14 @@ import java.util.List;
 
 @Repository
 public interface TransactionRepository extends MongoRepository<Transaction, String> {
-    // Busca transações de um comprador
-    List<Transaction> findByBuyer(User buyer);
+    // Busca transações de um comprador (buyer é referência embutida)
+    List<Transaction> findByBuyerId(String buyerId);
     
-    // Busca transações de um vendedor
-    List<Transaction> findBySeller(User seller);
+    // Busca transações de um vendedor (seller é referência embutida)
+    List<Transaction> findBySellerId(String sellerId);
+    
+    // Transações mais recentes, para os painéis de atividade
+    List<Transaction> findTop15ByOrderByCreatedAtDesc();
     
     // Busca transações por status
     List<Transaction> findByStatus(TransactionStatus status);
@@ -27,30 +29,23 @@ public interface TransactionRepository extends MongoRepository<Transaction, Stri
     // OTIMIZAÇÃO: Contagem de transações por período
     long countByCreatedAtAfter(LocalDateTime startDate);
     
-    // Busca os top vendedores por número de vendas completadas
+    // Ids dos top vendedores por número de vendas completadas
     @Aggregation(pipeline = {
         "{ $match: { 'status': 'COMPLETED' } }",
-        "{ $group: { _id: '$seller', count: { $sum: 1 } } }",
+        "{ $group: { _id: '$seller.id', count: { $sum: 1 } } }",
         "{ $sort: { count: -1 } }",
-        "{ $limit: ?0 }"
+        "{ $limit: ?0 }",
+        "{ $project: { _id: 1 } }"
     })
-    List<User> findTopSellers(int limit);
+    List<String> findTopSellerIds(int limit);
     
-    // Busca os top compradores por número de compras completadas
+    // Ids dos top compradores por número de compras completadas
     @Aggregation(pipeline = {
         "{ $match: { 'status': 'COMPLETED' } }",
-        "{ $group: { _id: '$buyer', count: { $sum: 1 } } }",
+        "{ $group: { _id: '$buyer.id', count: { $sum: 1 } } }",
         "{ $sort: { count: -1 } }",
-        "{ $limit: ?0 }"
+        "{ $limit: ?0 }",
+        "{ $project: { _id: 1 } }"
     })
-    List<User> findTopBuyers(int limit);
-    
-    // Métodos de conveniência para ranking
-    default List<User> findTopSellers() {
-        return findTopSellers(10);
-    }
-    
-    default List<User> findTopBuyers() {
-        return findTopBuyers(10);
-    }
+    List<String> findTopBuyerIds(int limit);
 }
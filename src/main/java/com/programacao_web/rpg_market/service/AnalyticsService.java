@@ -33,6 +33,9 @@ public class AnalyticsService {
     @Autowired
     private BidRepository bidRepository;
 
+    @Autowired
+    private UserService userService;
+
     /**
      * Retorna dados completos de análise
      */
@@ -94,11 +97,11 @@ public class AnalyticsService {
      * Retorna top vendedores com mais detalhes
      */
     public List<AnalyticsData.UserRankingData> getTopSellers(int limit) {
-        List<User> topSellers = transactionRepository.findTopSellers(limit);
+        List<User> topSellers = userService.getTopSellers(limit);
         List<AnalyticsData.UserRankingData> result = new ArrayList<>();
 
         for (User seller : topSellers) {
-            List<Transaction> vendas = transactionRepository.findBySeller(seller);
+            List<Transaction> vendas = transactionRepository.findBySellerId(seller.getId());
             Long quantidade = (long) vendas.size();
             BigDecimal valorTotal = vendas.stream()
                 .map(Transaction::getAmount)
@@ -115,11 +118,11 @@ public class AnalyticsService {
      * Retorna top compradores com mais detalhes
      */
     public List<AnalyticsData.UserRankingData> getTopBuyers(int limit) {
-        List<User> topBuyers = transactionRepository.findTopBuyers(limit);
+        List<User> topBuyers = userService.getTopBuyers(limit);
         List<AnalyticsData.UserRankingData> result = new ArrayList<>();
 
         for (User buyer : topBuyers) {
-            List<Transaction> compras = transactionRepository.findByBuyer(buyer);
+            List<Transaction> compras = transactionRepository.findByBuyerId(buyer.getId());
             Long quantidade = (long) compras.size();
             BigDecimal valorTotal = compras.stream()
                 .map(Transaction::getAmount)
@@ -296,18 +299,13 @@ public class AnalyticsService {
                         p.getStatus() == ProductStatus.AUCTION_ENDED)
             .count();
     }    private BigDecimal getAverageBidsPerAuction() {
-        List<Product> leiloes = productRepository.findAll().stream()
-            .filter(p -> p.getType() == ProductType.AUCTION)
-            .collect(Collectors.toList());
-
-        if (leiloes.isEmpty()) return BigDecimal.ZERO;
-
-        long totalLances = leiloes.stream()
-            .mapToLong(p -> bidRepository.findByProductOrderByAmountDesc(p).size())
-            .sum();
+        // Usa o contador de lances mantido em cada produto, sem ler a coleção de lances
+        long leiloes = productRepository.countByType(ProductType.AUCTION);
+        if (leiloes == 0) return BigDecimal.ZERO;
 
-        return new BigDecimal(totalLances).divide(
-            new BigDecimal(leiloes.size()), 2, RoundingMode.HALF_UP);
+        Long totalLances = productRepository.sumAuctionBidCounts();
+        return new BigDecimal(totalLances != null ? totalLances : 0L).divide(
+            new BigDecimal(leiloes), 2, RoundingMode.HALF_UP);
     }
 
     /**
@@ -405,15 +403,8 @@ public class AnalyticsService {
      * Métodos para listas de atividades recentes
      */
     public List<Transaction> getRecentTransactionsList() {
-        return transactionRepository.findAll().stream()
-            .sorted((a, b) -> {
-                if (a.getCreatedAt() == null && b.getCreatedAt() == null) return 0;
-                if (a.getCreatedAt() == null) return 1;
-                if (b.getCreatedAt() == null) return -1;
-                return b.getCreatedAt().compareTo(a.getCreatedAt());
-            })
-            .limit(15)
-            .collect(Collectors.toList());
+        // Uma consulta ordenada; produto e usuários já vêm embutidos em cada transação
+        return transactionRepository.findTop15ByOrderByCreatedAtDesc();
     }
     
     public List<Product> getRecentProductsList() {
@@ -421,23 +412,14 @@ public class AnalyticsService {
     }
     
     public List<Bid> getRecentBidsList() {
-        return bidRepository.findAll().stream()
-            .sorted((a, b) -> {
-                if (a.getBidTime() == null && b.getBidTime() == null) return 0;
-                if (a.getBidTime() == null) return 1;
-                if (b.getBidTime() == null) return -1;
-                return b.getBidTime().compareTo(a.getBidTime());
-            })
-            .limit(15)
-            .collect(Collectors.toList());
+        // Uma consulta ordenada; produto e licitante já vêm embutidos em cada lance
+        return bidRepository.findTop15ByOrderByBidTimeDesc();
     }
     
     /**
      * Método auxiliar para contar lances desde uma data
      */
     private long countBidsSince(LocalDateTime since) {
-        return bidRepository.findAll().stream()
-            .filter(bid -> bid.getBidTime() != null && bid.getBidTime().isAfter(since))
-            .count();
+        return bidRepository.countByBidTimeAfter(since);
     }
 }
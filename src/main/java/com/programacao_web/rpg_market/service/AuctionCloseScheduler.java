@@ -0,0 +1,192 @@
+package com.programacao_web.rpg_market.service;
+
+import com.programacao_web.rpg_market.model.Product;
+import com.programacao_web.rpg_market.model.ProductStatus;
+import com.programacao_web.rpg_market.model.ProductType;
+import com.programacao_web.rpg_market.util.HierarchicalTimerWheel;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Agenda o encerramento dos leilões em uma roda de temporizadores hierárquica.
+ *
+ * Os leilões ativos são carregados na inicialização e reagendados quando um produto é
+ * criado, editado, comprado imediatamente ou excluído. A liquidação dispara no horário
+ * exato de término (com a precisão de um tick), em vez de esperar a varredura periódica.
+ * A métrica {@code auction.settlement.lag} mede o atraso entre o término e a liquidação.
+ */
+@Service
+public class AuctionCloseScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(AuctionCloseScheduler.class);
+
+    @Autowired
+    private AuctionSettlementService auctionSettlementService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.auction.close.tick-ms:100}")
+    private long tickMillis;
+
+    private HierarchicalTimerWheel<String> wheel;
+    private ScheduledExecutorService ticker;
+    private ExecutorService settler;
+
+    private Timer settlementLag;
+    private Counter settledAuctions;
+
+    @PostConstruct
+    void start() {
+        wheel = new HierarchicalTimerWheel<>(tickMillis, 6, 4, System.currentTimeMillis());
+
+        settlementLag = Timer.builder("auction.settlement.lag")
+            .description("Atraso entre o término do leilão e o início da liquidação")
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry);
+        settledAuctions = Counter.builder("auction.settlement.count")
+            .description("Leilões liquidados pela roda de temporizadores")
+            .register(meterRegistry);
+        Gauge.builder("auction.close.pending", wheel, HierarchicalTimerWheel::size)
+            .description("Leilões aguardando o horário de término")
+            .register(meterRegistry);
+
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "auction-close-timer"));
+        settler = Executors.newSingleThreadExecutor(runnable -> daemon(runnable, "auction-settlement"));
+        ticker.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        ticker.shutdownNow();
+        settler.shutdown();
+        try {
+            settler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Carrega todos os leilões ativos na roda, lendo só os campos usados no agendamento
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadActiveAuctions() {
+        Query query = Query.query(Criteria.where("status").is(ProductStatus.AUCTION_ACTIVE)
+                                          .and("type").is(ProductType.AUCTION));
+        query.fields().include("status", "type", "auctionEndDate");
+
+        List<Product> auctions = mongoTemplate.find(query, Product.class);
+        auctions.forEach(this::schedule);
+        log.info("Roda de encerramento carregada com {} leilões ativos", auctions.size());
+    }
+
+    /**
+     * Agenda ou reagenda o encerramento do produto; cancela se ele não for mais um leilão ativo
+     */
+    public void schedule(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        if (product.getType() == ProductType.AUCTION
+                && product.getStatus() == ProductStatus.AUCTION_ACTIVE
+                && product.getAuctionEndDate() != null) {
+            wheel.schedule(product.getId(), toEpochMillis(product.getAuctionEndDate()));
+        } else {
+            wheel.cancel(product.getId());
+        }
+    }
+
+    /**
+     * Remove o leilão da roda (compra imediata, exclusão ou encerramento manual)
+     */
+    public void cancel(String productId) {
+        wheel.cancel(productId);
+    }
+
+    private void advance() {
+        try {
+            List<HierarchicalTimerWheel.Expiration<String>> expired = wheel.advance(System.currentTimeMillis());
+            if (!expired.isEmpty()) {
+                // Todos os leilões que venceram no mesmo tick são liquidados em um único lote
+                settler.execute(() -> settle(expired));
+            }
+        } catch (Exception e) {
+            // Uma exceção aqui cancelaria o agendamento periódico
+            log.error("Erro ao avançar a roda de encerramento de leilões: {}", e.getMessage(), e);
+        }
+    }
+
+    private void settle(List<HierarchicalTimerWheel.Expiration<String>> expired) {
+        long now = System.currentTimeMillis();
+        List<String> ids = new ArrayList<>(expired.size());
+        for (HierarchicalTimerWheel.Expiration<String> expiration : expired) {
+            settlementLag.record(Duration.ofMillis(Math.max(0, now - expiration.getDeadlineMillis())));
+            ids.add(expiration.getKey());
+        }
+
+        try {
+            Query query = Query.query(Criteria.where("_id").in(ids).and("status").is(ProductStatus.AUCTION_ACTIVE));
+            query.fields().include("status", "type", "auctionEndDate");
+
+            List<String> due = new ArrayList<>(ids.size());
+            for (Product product : mongoTemplate.find(query, Product.class)) {
+                if (product.getAuctionEndDate() == null) {
+                    continue;
+                }
+                // A data de término pode ter sido alterada em outro nó depois do agendamento
+                long endMillis = toEpochMillis(product.getAuctionEndDate());
+                if (endMillis > System.currentTimeMillis() + tickMillis) {
+                    wheel.schedule(product.getId(), endMillis);
+                } else {
+                    due.add(product.getId());
+                }
+            }
+
+            if (!due.isEmpty()) {
+                settledAuctions.increment(auctionSettlementService.settle(due));
+            }
+        } catch (Exception e) {
+            log.error("Erro ao liquidar lote de {} leilões: {}", ids.size(), e.getMessage(), e);
+        }
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,584 @@
+package com.programacao_web.rpg_market.service;
+
+import com.programacao_web.rpg_market.dto.BidResult;
+import com.programacao_web.rpg_market.model.*;
+import com.programacao_web.rpg_market.repository.ProxyBidRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Motor de leilões em memória.
+ *
+ * Mantém o estado vivo de cada leilão ativo (preço atual, líder, incremento mínimo e
+ * quantidade de lances). Cada produto pertence a um único shard, e cada shard tem uma
+ * única thread aceitando lances, então a validação de um lance é O(1) e não há corrida
+ * entre lances concorrentes do mesmo leilão neste nó. Entre nós, o árbitro é um
+ * findAndModify condicional no preço do produto. O lance é confirmado ao licitante quando
+ * está no diário local ({@link BidJournal}); a gravação na coleção de lances é feita depois,
+ * em lote, na ordem do diário.
+ */
+@Service
+public class AuctionEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(AuctionEngine.class);
+
+    /**
+     * Quantos lances recentes ficam embutidos no produto
+     */
+    public static final int RECENT_BIDS = 10;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private AuctionEventBroadcaster auctionEventBroadcaster;
+
+    @Autowired
+    private ProxyBidRepository proxyBidRepository;
+
+    @Autowired
+    private BidJournal bidJournal;
+
+    @Autowired
+    private CatalogIndexService catalogIndexService;
+
+    @Value("${app.auction.shards:0}")
+    private int configuredShards;
+
+    private final Map<String, AuctionState> auctions = new ConcurrentHashMap<>();
+
+    private ExecutorService[] acceptors;
+
+    @PostConstruct
+    void start() {
+        int shards = configuredShards > 0 ? configuredShards : Runtime.getRuntime().availableProcessors();
+        acceptors = new ExecutorService[shards];
+        for (int i = 0; i < shards; i++) {
+            acceptors[i] = Executors.newSingleThreadExecutor(namedThreads("auction-shard-" + i));
+        }
+        log.info("Motor de leilões iniciado com {} shards", shards);
+    }
+
+    @PreDestroy
+    void stop() {
+        shutdown(acceptors);
+    }
+
+    /**
+     * Registra um lance no shard do produto (SEM DÉBITO - apenas verifica saldo).
+     * O preço é aceito por compare-and-set no produto; o documento do lance é gravado
+     * de forma assíncrona. Se outro lance chegou antes, devolve {@link BidResult#outbid}.
+     */
+    public BidResult placeBid(Product product, User bidder, BigDecimal amount, boolean rejectIfLeading) {
+        int shard = shardOf(product.getId());
+        List<CompletableFuture<Void>> durable = new ArrayList<>();
+        BidResult result = await(acceptors[shard].submit(() -> accept(product, bidder, amount, rejectIfLeading, durable)));
+        awaitDurable(durable);
+        return result;
+    }
+
+    /**
+     * Registra um lance automático (valor máximo secreto) no shard do produto
+     */
+    public BidResult placeProxyBid(Product product, User bidder, BigDecimal maxAmount) {
+        int shard = shardOf(product.getId());
+        List<CompletableFuture<Void>> durable = new ArrayList<>();
+        BidResult result = await(acceptors[shard].submit(() -> registerProxy(product, bidder, maxAmount, durable)));
+        awaitDurable(durable);
+        return result;
+    }
+
+    /**
+     * Retorna o id do líder atual se o leilão estiver carregado em memória, ou null se
+     * o motor ainda não conhece este leilão.
+     */
+    public String currentLeaderId(String productId) {
+        AuctionState state = auctions.get(productId);
+        return state != null ? state.leaderId : null;
+    }
+
+    /**
+     * Indica se o leilão está carregado em memória
+     */
+    public boolean isTracked(String productId) {
+        return auctions.containsKey(productId);
+    }
+
+    /**
+     * Fecha o leilão para novos lances e aguarda a persistência dos lances já aceitos.
+     * Deve ser chamado antes de liquidar o leilão.
+     */
+    public void close(String productId) {
+        int shard = shardOf(productId);
+        await(acceptors[shard].submit(() -> {
+            AuctionState state = auctions.get(productId);
+            if (state != null) {
+                state.closed = true;
+            }
+            return null;
+        }));
+        // Barreira: tudo que foi aceito antes do fechamento já está no MongoDB
+        bidJournal.flush();
+    }
+
+    /**
+     * Fecha um lote de leilões de uma vez: cada shard recebe uma única tarefa com os
+     * seus produtos e o diário é esvaziado uma única vez no final.
+     */
+    public void closeAll(Collection<String> productIds) {
+        List<Future<Object>> pending = new ArrayList<>();
+        for (Map.Entry<Integer, List<String>> entry : groupByShard(productIds).entrySet()) {
+            List<String> ids = entry.getValue();
+            pending.add(acceptors[entry.getKey()].submit(() -> {
+                for (String id : ids) {
+                    AuctionState state = auctions.get(id);
+                    if (state != null) {
+                        state.closed = true;
+                    }
+                }
+                return null;
+            }));
+        }
+        pending.forEach(AuctionEngine::await);
+        bidJournal.flush();
+    }
+
+    /**
+     * Descarta o estado em memória de um lote de leilões já liquidados
+     */
+    public void evictAll(Collection<String> productIds) {
+        List<Future<Object>> pending = new ArrayList<>();
+        for (Map.Entry<Integer, List<String>> entry : groupByShard(productIds).entrySet()) {
+            List<String> ids = entry.getValue();
+            pending.add(acceptors[entry.getKey()].submit(() -> {
+                ids.forEach(auctions::remove);
+                return null;
+            }));
+        }
+        pending.forEach(AuctionEngine::await);
+    }
+
+    /**
+     * Descarta o estado em memória de um leilão (após liquidação, edição ou exclusão).
+     * O próximo lance recarrega o estado a partir do banco.
+     */
+    public void evict(String productId) {
+        int shard = shardOf(productId);
+        await(acceptors[shard].submit(() -> auctions.remove(productId)));
+    }
+
+    private BidResult accept(Product product, User bidder, BigDecimal amount, boolean rejectIfLeading,
+                             List<CompletableFuture<Void>> durable) {
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Valor de lance inválido");
+        }
+
+        // Uma nova tentativa só acontece quando outro nó alterou o preço desde que o estado foi carregado
+        for (int attempt = 0; ; attempt++) {
+            AuctionState state = activeState(product, bidder);
+
+            if (rejectIfLeading && bidder.getId().equals(state.leaderId)) {
+                throw new IllegalArgumentException("Você já está liderando este leilão!");
+            }
+
+            BigDecimal minBid = state.minNextBid();
+            if (amount.compareTo(minBid) < 0) {
+                return BidResult.outbid(state.currentPrice(), minBid);
+            }
+
+            requireBalance(bidder, amount);
+
+            Bid bid = commit(state, product, bidder, amount, durable);
+            if (bid == null) {
+                if (attempt == 0) {
+                    continue;
+                }
+                BigDecimal current = product.getPrice() != null ? product.getPrice() : BigDecimal.ZERO;
+                return BidResult.outbid(current, current.add(state.minIncrement));
+            }
+
+            // Um lance automático mais alto cobre o lance manual na mesma chamada
+            resolveProxies(state, product, durable);
+            if (!bidder.getId().equals(state.leaderId)) {
+                return BidResult.outbid(state.currentPrice(), state.minNextBid());
+            }
+            return BidResult.accepted(bid, amount, state.minNextBid());
+        }
+    }
+
+    /**
+     * Registra ou aumenta o valor máximo do licitante e resolve os lances automáticos
+     * concorrentes em memória. Só o resultado final (preço e líder) é gravado.
+     */
+    private BidResult registerProxy(Product product, User bidder, BigDecimal maxAmount,
+                                    List<CompletableFuture<Void>> durable) {
+        if (maxAmount == null || maxAmount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Valor máximo inválido");
+        }
+
+        AuctionState state = activeState(product, bidder);
+
+        // Quem já lidera só precisa cobrir o preço atual; os demais, o próximo lance mínimo
+        BigDecimal minMax = bidder.getId().equals(state.leaderId) ? state.currentPrice() : state.minNextBid();
+        if (maxAmount.compareTo(minMax) < 0) {
+            return BidResult.outbid(state.currentPrice(), state.minNextBid());
+        }
+
+        requireBalance(bidder, maxAmount);
+
+        ProxyBid proxy = proxyBidRepository.findByProductIdAndBidderId(product.getId(), bidder.getId())
+            .orElseGet(ProxyBid::new);
+        proxy.setProductId(product.getId());
+        proxy.setBidderId(bidder.getId());
+        proxy.setBidderUsername(bidder.getUsername());
+        if (proxy.getMaxAmount() == null || maxAmount.compareTo(proxy.getMaxAmount()) > 0) {
+            // Aumentar o máximo mantém a prioridade original em caso de empate
+            proxy.setMaxAmount(maxAmount);
+        }
+        proxy = proxyBidRepository.save(proxy);
+        state.proxies.put(bidder.getId(), new ProxyEntry(proxy, bidder));
+
+        Bid bid = resolveProxies(state, product, durable);
+        if (!bidder.getId().equals(state.leaderId)) {
+            return BidResult.outbid(state.currentPrice(), state.minNextBid());
+        }
+        return BidResult.accepted(bid, state.currentPrice(), state.minNextBid());
+    }
+
+    /**
+     * Resolve os lances automáticos do leilão no incremento mínimo, como uma sequência de
+     * lances e contra-lances, mas grava apenas o resultado: o maior máximo vence, pagando o
+     * segundo maior valor mais um incremento (limitado ao próprio máximo). Em empate vence
+     * o lance automático mais antigo. Devolve o lance gravado, ou null se nada mudou.
+     */
+    private Bid resolveProxies(AuctionState state, Product product, List<CompletableFuture<Void>> durable) {
+        ProxyOutcome outcome = resolveProxies(state.proxies.values(), state.leaderId,
+                                              state.currentPrice(), state.minIncrement);
+        if (outcome == null) {
+            return null;
+        }
+
+        Bid bid = commit(state, product, outcome.bidder(), outcome.amount(), durable);
+        if (bid != null) {
+            log.debug("Lance automático resolvido: produto={}, líder={}, valor={}",
+                      product.getId(), outcome.bidder().getId(), outcome.amount());
+        }
+        return bid;
+    }
+
+    /**
+     * Parte pura da resolução: quem deve liderar e por quanto, dados os lances automáticos,
+     * o líder e o preço atuais. Null quando o leilão fica como está.
+     */
+    static ProxyOutcome resolveProxies(Collection<ProxyEntry> proxies, String leaderId,
+                                       BigDecimal currentPrice, BigDecimal minIncrement) {
+        if (proxies.isEmpty()) {
+            return null;
+        }
+
+        List<ProxyEntry> ranked = new ArrayList<>(proxies);
+        ranked.sort(Comparator.comparing((ProxyEntry entry) -> entry.maxAmount).reversed()
+                              .thenComparing(entry -> entry.createdAt));
+        ProxyEntry top = ranked.get(0);
+
+        // Maior valor que alguém além do primeiro colocado aceita pagar
+        BigDecimal challenger = ranked.size() > 1 ? ranked.get(1).maxAmount : null;
+        boolean topLeads = top.bidder.getId().equals(leaderId);
+        if (!topLeads && leaderId != null) {
+            challenger = challenger == null ? currentPrice : challenger.max(currentPrice);
+        }
+
+        BigDecimal target;
+        if (topLeads) {
+            if (challenger == null || challenger.compareTo(currentPrice) < 0) {
+                return null;
+            }
+            target = top.maxAmount.min(challenger.add(minIncrement));
+        } else {
+            BigDecimal floor = currentPrice.add(minIncrement);
+            if (top.maxAmount.compareTo(floor) < 0) {
+                return null;
+            }
+            target = challenger != null ? floor.max(challenger.add(minIncrement)) : floor;
+            target = top.maxAmount.min(target);
+        }
+
+        if (topLeads && target.compareTo(currentPrice) <= 0) {
+            return null;
+        }
+        return new ProxyOutcome(top.bidder, target);
+    }
+
+    /**
+     * Carrega o estado e aplica as validações comuns a lances manuais e automáticos
+     */
+    private AuctionState activeState(Product product, User bidder) {
+        AuctionState state = auctions.computeIfAbsent(product.getId(), id -> load(product));
+
+        if (state.closed || state.status != ProductStatus.AUCTION_ACTIVE) {
+            throw new IllegalArgumentException("Este item não está em leilão ativo");
+        }
+
+        if (bidder.getId().equals(state.sellerId)) {
+            throw new IllegalArgumentException("Você não pode dar lances no seu próprio item");
+        }
+        return state;
+    }
+
+    private static void requireBalance(User bidder, BigDecimal amount) {
+        // O ouro NÃO é debitado aqui, apenas verificado
+        if (bidder.getGoldCoins() == null || bidder.getGoldCoins().compareTo(amount) < 0) {
+            BigDecimal balance = bidder.getGoldCoins() != null ? bidder.getGoldCoins() : BigDecimal.ZERO;
+            throw new IllegalArgumentException(String.format(
+                "Saldo insuficiente! Você precisa de mais %.2f moedas de ouro", amount.subtract(balance)));
+        }
+    }
+
+    /**
+     * Grava o novo preço e líder por compare-and-set, atualiza o estado em memória, anexa o
+     * lance ao diário e publica o evento. O futuro do fsync vai para {@code durable}; quem
+     * chamou o motor só responde depois dele. Devolve null (e descarta o estado) se outro nó
+     * alterou o leilão desde que o estado foi carregado.
+     */
+    private Bid commit(AuctionState state, Product product, User bidder, BigDecimal amount,
+                       List<CompletableFuture<Void>> durable) {
+        Bid bid = new Bid();
+        bid.setId(new ObjectId().toHexString());
+        bid.setProduct(ProductRef.of(product));
+        bid.setBidder(UserRef.of(bidder));
+        bid.setAmount(amount);
+        bid.setBidTime(LocalDateTime.now());
+        bid.setWinning(true);
+
+        Product updated = compareAndSet(product.getId(), state.price, bid);
+        if (updated == null) {
+            // Outro nó mudou o preço ou encerrou o leilão: recarrega do banco e revalida
+            auctions.remove(product.getId());
+            refresh(product);
+            return null;
+        }
+
+        String previousLeaderId = state.leaderId;
+        String previousLeaderName = state.leaderName;
+        state.apply(updated);
+        state.leaderName = bidder.getUsername();
+        copySummary(updated, product);
+        catalogIndexService.updatePrice(product.getId(), amount);
+
+        durable.add(bidJournal.append(bid));
+        log.debug("Lance aceito: produto={}, valor={}, lances={}", product.getId(), amount, state.bidCount);
+        auctionEventBroadcaster.publishBid(product, bid, state.minNextBid(), previousLeaderId, previousLeaderName);
+        return bid;
+    }
+
+    /**
+     * Aceita o lance com um único findAndModify condicional: só grava se o leilão continua
+     * ativo e o preço no banco ainda é o que este nó validou. No mesmo update atualiza o
+     * resumo do leilão (líder, lance vencedor, contagem, horário do último lance e a lista
+     * limitada de lances recentes).
+     * Devolve o documento atualizado, ou null se outro lance chegou antes.
+     */
+    private Product compareAndSet(String productId, BigDecimal expectedPrice, Bid bid) {
+        Query query = Query.query(Criteria.where("_id").is(productId)
+                                          .and("status").is(ProductStatus.AUCTION_ACTIVE)
+                                          .and("price").is(expectedPrice));
+        includeSummaryFields(query);
+
+        Update update = new Update()
+            .set("price", bid.getAmount())
+            .set("leaderId", bid.getBidder().getId())
+            .set("leaderBidId", bid.getId())
+            .set("lastBidTime", bid.getBidTime())
+            .inc("bidCount", 1);
+        update.push("recentBids").atPosition(Update.Position.FIRST).slice(RECENT_BIDS).each(new RecentBid(bid));
+
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Product.class);
+    }
+
+    /**
+     * Atualiza preço, status e resumo do leilão com os valores atuais do banco
+     */
+    private void refresh(Product product) {
+        Query query = Query.query(Criteria.where("_id").is(product.getId()));
+        includeSummaryFields(query);
+
+        Product current = mongoTemplate.findOne(query, Product.class);
+        if (current == null) {
+            throw new IllegalArgumentException("Produto não encontrado");
+        }
+        product.setStatus(current.getStatus());
+        product.setMinBidIncrement(current.getMinBidIncrement());
+        copySummary(current, product);
+    }
+
+    private static void includeSummaryFields(Query query) {
+        query.fields().include("price", "status", "type", "minBidIncrement",
+                               "leaderId", "leaderBidId", "bidCount", "lastBidTime");
+    }
+
+    private static void copySummary(Product from, Product to) {
+        to.setPrice(from.getPrice());
+        to.setLeaderId(from.getLeaderId());
+        to.setLeaderBidId(from.getLeaderBidId());
+        to.setBidCount(from.getBidCount());
+        to.setLastBidTime(from.getLastBidTime());
+    }
+
+    /**
+     * Carrega o estado do leilão na primeira vez que o produto recebe um lance neste nó.
+     * Tudo vem do próprio documento do produto, sem consultar a coleção de lances.
+     */
+    private AuctionState load(Product product) {
+        AuctionState state = new AuctionState();
+        state.status = product.getType() == ProductType.AUCTION ? product.getStatus() : null;
+        state.sellerId = product.getSeller() != null ? product.getSeller().getId() : null;
+        state.minIncrement = product.getMinBidIncrement() != null ? product.getMinBidIncrement() : BigDecimal.ONE;
+        state.apply(product);
+
+        for (ProxyBid proxy : proxyBidRepository.findByProductId(product.getId())) {
+            User bidder = new User();
+            bidder.setId(proxy.getBidderId());
+            bidder.setUsername(proxy.getBidderUsername());
+            state.proxies.put(proxy.getBidderId(), new ProxyEntry(proxy, bidder));
+        }
+        return state;
+    }
+
+    private int shardOf(String productId) {
+        return Math.floorMod(productId.hashCode(), acceptors.length);
+    }
+
+    private Map<Integer, List<String>> groupByShard(Collection<String> productIds) {
+        Map<Integer, List<String>> byShard = new HashMap<>();
+        for (String id : productIds) {
+            byShard.computeIfAbsent(shardOf(id), shard -> new ArrayList<>()).add(id);
+        }
+        return byShard;
+    }
+
+    private static void awaitDurable(List<CompletableFuture<Void>> durable) {
+        for (CompletableFuture<Void> future : durable) {
+            await(future);
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Processamento do lance interrompido", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Erro ao processar lance", e.getCause());
+        }
+    }
+
+    private static ThreadFactory namedThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static void shutdown(ExecutorService[] executors) {
+        if (executors == null) return;
+        for (ExecutorService executor : executors) {
+            executor.shutdown();
+        }
+        for (ExecutorService executor : executors) {
+            try {
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Estado vivo de um leilão. Só é alterado pela thread do shard dono do produto.
+     */
+    private static class AuctionState {
+        volatile ProductStatus status;
+        volatile String sellerId;
+        volatile BigDecimal price; // valor gravado no banco (pode ser null), usado no compare-and-set
+        volatile BigDecimal minIncrement;
+        volatile String leaderId;
+        volatile String leaderName; // só conhecido quando o lance foi aceito neste nó
+        volatile String leaderBidId;
+        volatile long bidCount;
+        volatile boolean closed;
+        final Map<String, ProxyEntry> proxies = new HashMap<>();
+
+        void apply(Product product) {
+            price = product.getPrice();
+            if (!Objects.equals(leaderId, product.getLeaderId())) {
+                leaderName = null;
+            }
+            leaderId = product.getLeaderId();
+            leaderBidId = product.getLeaderBidId();
+            bidCount = product.getBidCount() != null ? product.getBidCount() : 0;
+        }
+
+        BigDecimal currentPrice() {
+            return price != null ? price : BigDecimal.ZERO;
+        }
+
+        BigDecimal minNextBid() {
+            return currentPrice().add(minIncrement);
+        }
+    }
+
+    /**
+     * Lance automático carregado em memória. O licitante guarda só id e nome, que é o
+     * necessário para gravar o lance e publicar o evento.
+     */
+    static class ProxyEntry {
+        final User bidder;
+        final BigDecimal maxAmount;
+        final LocalDateTime createdAt;
+
+        ProxyEntry(ProxyBid proxy, User bidder) {
+            this(bidder, proxy.getMaxAmount(), proxy.getCreatedAt());
+        }
+
+        ProxyEntry(User bidder, BigDecimal maxAmount, LocalDateTime createdAt) {
+            this.bidder = bidder;
+            this.maxAmount = maxAmount;
+            this.createdAt = createdAt != null ? createdAt : LocalDateTime.MIN;
+        }
+    }
+
+    /**
+     * Lance que a resolução dos lances automáticos manda gravar
+     */
+    record ProxyOutcome(User bidder, BigDecimal amount) {
+    }
+}
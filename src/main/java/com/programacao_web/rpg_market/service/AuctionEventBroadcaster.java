@@ -0,0 +1,328 @@
+package com.programacao_web.rpg_market.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.programacao_web.rpg_market.model.Bid;
+import com.programacao_web.rpg_market.model.Product;
+import com.programacao_web.rpg_market.model.User;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Transmissão ao vivo dos leilões por Server-Sent Events.
+ *
+ * Cada página de leilão aberta assina o produto uma vez; um lance aceito vira um único
+ * evento serializado e repassado a todos os assinantes daquele produto, em vez de cada
+ * navegador recarregar a página. O número de assinantes por produto é limitado e as
+ * conexões ociosas recebem um heartbeat periódico para não serem derrubadas por proxies.
+ *
+ * Cada assinante tem uma fila limitada de eventos, esvaziada por um pool pequeno de
+ * threads de envio, uma tarefa por assinante de cada vez. O repasse só enfileira, então um
+ * navegador lento não atrasa os demais; quando a fila dele enche, a conexão é encerrada e
+ * o EventSource reconecta e recarrega o estado pela página.
+ */
+@Service
+public class AuctionEventBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(AuctionEventBroadcaster.class);
+
+    public static final String EVENT_BID = "bid";
+    public static final String EVENT_OUTBID = "outbid";
+    public static final String EVENT_CLOSED = "closed";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.auction.sse.max-watchers-per-item:2000}")
+    private int maxWatchersPerItem;
+
+    @Value("${app.auction.sse.timeout-ms:1800000}")
+    private long emitterTimeoutMillis;
+
+    @Value("${app.auction.sse.queue-per-watcher:32}")
+    private int queuePerWatcher;
+
+    @Value("${app.auction.sse.sender-threads:4}")
+    private int senderThreads;
+
+    // Eventos enviados por tarefa antes de devolver a thread aos outros assinantes
+    private static final int SEND_BATCH = 16;
+
+    // Marca na fila: encerra a conexão depois dos eventos já enfileirados
+    private static final Set<DataWithMediaType> COMPLETE = Set.of();
+
+    private static final Set<DataWithMediaType> PING = SseEmitter.event().comment("ping").build();
+
+    private final Map<String, Set<Watcher>> watchers = new ConcurrentHashMap<>();
+    private final AtomicInteger watcherCount = new AtomicInteger();
+
+    // Serializa os eventos e enfileira nos assinantes, fora da thread que aceitou o lance
+    private ExecutorService fanOut;
+    // Esvazia as filas dos assinantes; só estas threads bloqueiam na escrita da resposta
+    private ExecutorService senders;
+
+    /**
+     * Um navegador assinando um produto, com a sua fila de eventos ainda não enviados
+     */
+    private final class Watcher {
+        private final String productId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<DataWithMediaType>> pending;
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Watcher(String productId, SseEmitter emitter) {
+            this.productId = productId;
+            this.emitter = emitter;
+            this.pending = new ArrayBlockingQueue<>(queuePerWatcher);
+        }
+
+        /**
+         * Enfileira sem bloquear; com a fila cheia o assinante está atrasado demais e sai
+         */
+        void enqueue(Set<DataWithMediaType> event) {
+            if (!pending.offer(event)) {
+                log.debug("Assinante lento do produto {} desconectado ({} eventos pendentes)",
+                          productId, pending.size());
+                remove(productId, this);
+                pending.clear();
+                pending.offer(COMPLETE);
+            }
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                for (int sent = 0; sent < SEND_BATCH; sent++) {
+                    Set<DataWithMediaType> event = pending.poll();
+                    if (event == null) {
+                        break;
+                    }
+                    if (event == COMPLETE) {
+                        pending.clear();
+                        emitter.complete();
+                        break;
+                    }
+                    emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                pending.clear();
+                remove(productId, this);
+            } finally {
+                draining.set(false);
+            }
+            // Sobrou evento (lote cheio ou enfileirado durante o envio): agenda outra rodada
+            if (!pending.isEmpty() && draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        fanOut = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "auction-sse");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger senderIds = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "auction-sse-send-" + senderIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("auction.sse.watchers", watcherCount, AtomicInteger::get)
+            .description("Conexões SSE abertas em páginas de leilão")
+            .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() {
+        fanOut.shutdown();
+        senders.shutdown();
+        try {
+            fanOut.awaitTermination(5, TimeUnit.SECONDS);
+            senders.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        watchers.values().forEach(current -> current.forEach(watcher -> watcher.emitter.complete()));
+        watchers.clear();
+    }
+
+    /**
+     * Registra um novo assinante do produto, ou devolve null se o limite de assinantes
+     * daquele produto já foi atingido
+     */
+    public SseEmitter subscribe(String productId) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        Watcher watcher = new Watcher(productId, emitter);
+        boolean[] added = new boolean[1];
+        // compute é atômico por produto, então a limpeza de um conjunto vazio não perde assinantes
+        watchers.compute(productId, (id, existing) -> {
+            Set<Watcher> current = existing != null ? existing : new CopyOnWriteArraySet<>();
+            if (current.size() < maxWatchersPerItem) {
+                added[0] = current.add(watcher);
+            }
+            return current.isEmpty() ? null : current;
+        });
+        if (!added[0]) {
+            return null;
+        }
+        watcherCount.incrementAndGet();
+
+        Runnable unsubscribe = () -> remove(productId, watcher);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+        return emitter;
+    }
+
+    /**
+     * Publica um lance aceito e, se havia outro líder, o aviso de lance superado.
+     * O envio acontece fora da thread que aceitou o lance.
+     */
+    public void publishBid(Product product, Bid bid, BigDecimal minNextBid,
+                           String previousLeaderId, String previousLeaderName) {
+        String productId = product.getId();
+        if (!watchers.containsKey(productId)) {
+            return;
+        }
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("productId", productId);
+        data.put("amount", bid.getAmount());
+        data.put("price", product.getPrice());
+        data.put("minNextBid", minNextBid);
+        data.put("bidCount", product.getBidCount());
+        data.put("bidder", bid.getBidder().getUsername());
+        data.put("bidTime", bid.getBidTime() != null ? bid.getBidTime().toString() : null);
+        String bidderId = bid.getBidder().getId();
+
+        fanOut.execute(() -> {
+            broadcast(productId, EVENT_BID, data);
+
+            if (previousLeaderId != null && !previousLeaderId.equals(bidderId)) {
+                Map<String, Object> outbid = new LinkedHashMap<>();
+                outbid.put("productId", productId);
+                outbid.put("user", previousLeaderName != null ? previousLeaderName : usernameOf(previousLeaderId));
+                outbid.put("price", data.get("price"));
+                outbid.put("minNextBid", minNextBid);
+                broadcast(productId, EVENT_OUTBID, outbid);
+            }
+        });
+    }
+
+    /**
+     * Publica o encerramento do leilão (liquidação, compra imediata ou exclusão) e fecha
+     * as conexões do produto
+     */
+    public void publishClosed(Product product) {
+        String productId = product.getId();
+        if (!watchers.containsKey(productId)) {
+            return;
+        }
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("productId", productId);
+        data.put("status", product.getStatus() != null ? product.getStatus().name() : null);
+        data.put("price", product.getPrice());
+
+        fanOut.execute(() -> {
+            broadcast(productId, EVENT_CLOSED, data);
+            Set<Watcher> closed = watchers.remove(productId);
+            if (closed != null) {
+                watcherCount.addAndGet(-closed.size());
+                // Cada conexão fecha depois de enviar o encerramento que já está na fila
+                closed.forEach(watcher -> watcher.enqueue(COMPLETE));
+            }
+        });
+    }
+
+    /**
+     * Mantém as conexões abertas e descarta as que o navegador já fechou
+     */
+    @Scheduled(fixedRateString = "${app.auction.sse.heartbeat-ms:15000}")
+    public void heartbeat() {
+        if (watchers.isEmpty()) {
+            return;
+        }
+        fanOut.execute(() -> watchers.values().forEach(current -> current.forEach(watcher -> watcher.enqueue(PING))));
+    }
+
+    /**
+     * Serializa o evento uma única vez e enfileira o mesmo texto para todos os assinantes
+     */
+    private void broadcast(String productId, String eventName, Map<String, Object> data) {
+        Set<Watcher> current = watchers.get(productId);
+        if (current == null || current.isEmpty()) {
+            return;
+        }
+
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            log.error("Erro ao serializar evento {} do produto {}: {}", eventName, productId, e.getMessage());
+            return;
+        }
+
+        Set<DataWithMediaType> event = SseEmitter.event().name(eventName).data(json).build();
+        for (Watcher watcher : current) {
+            watcher.enqueue(event);
+        }
+    }
+
+    private void remove(String productId, Watcher watcher) {
+        watchers.computeIfPresent(productId, (id, current) -> {
+            if (current.remove(watcher)) {
+                watcherCount.decrementAndGet();
+            }
+            return current.isEmpty() ? null : current;
+        });
+    }
+
+    private String usernameOf(String userId) {
+        Query query = Query.query(Criteria.where("_id").is(userId));
+        query.fields().include("username");
+        User user = mongoTemplate.findOne(query, User.class);
+        return user != null ? user.getUsername() : null;
+    }
+}
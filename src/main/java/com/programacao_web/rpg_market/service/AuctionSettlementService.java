@@ -0,0 +1,650 @@
+package com.programacao_web.rpg_market.service;
+
+import com.programacao_web.rpg_market.model.*;
+import com.programacao_web.rpg_market.repository.UserRepository;
+
+import com.mongodb.DBRef;
+import com.mongodb.bulk.BulkWriteResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Liquidação em lote dos leilões encerrados.
+ *
+ * Um lote é reivindicado com um único updateMulti (o que também bloqueia o
+ * compare-and-set de lances em outros nós), os usuários envolvidos são lidos de uma vez
+ * e os leilões são divididos em partições independentes: dois leilões caem na mesma
+ * partição quando compartilham vendedor ou vencedor. Assim cada saldo é tocado por uma
+ * única thread, na ordem de término dos leilões, e as partições rodam em paralelo.
+ * Cada partição grava produtos, transações e saldos em operações em lote.
+ *
+ * Dentro da partição a ordem das gravações é o que permite retomar um lote interrompido:
+ * primeiro as transações das vendas (a decisão, com o id do próprio produto, então não
+ * há duas vendas do mesmo leilão), depois os saldos, cada usuário marcado com o lote
+ * aplicado, e por último os produtos, que perdem o {@code settlement_batch}. Um leilão
+ * encerrado que ainda tem {@code settlement_batch} depois do prazo de recuperação é de um
+ * lote que parou no meio: {@link #recoverStalled()} reaplica os saldos de quem ainda não
+ * tem a marca e liquida de novo os leilões que não chegaram a ter decisão.
+ */
+@Service
+public class AuctionSettlementService {
+
+    private static final Logger log = LoggerFactory.getLogger(AuctionSettlementService.class);
+
+    private static final String SETTLEMENT_BATCH = "settlement_batch";
+    // Lotes aplicados ao saldo e ainda não concluídos; o lote sai daqui ao ser concluído
+    private static final String APPLIED_BATCHES = "settlement_batches";
+    private static final int MAX_APPLIED_BATCHES = 50;
+    private static final int BUYER_EXPERIENCE = 10;
+    private static final int SELLER_EXPERIENCE = 15;
+    private static final int MAX_BALANCE_RETRIES = 5;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private AuctionEngine auctionEngine;
+
+    @Autowired
+    private AuctionEventBroadcaster auctionEventBroadcaster;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.auction.settlement.parallelism:4}")
+    private int parallelism;
+
+    @Value("${app.auction.settlement.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.auction.settlement.recovery-grace-ms:300000}")
+    private long recoveryGraceMillis;
+
+    private ExecutorService partitionWorkers;
+
+    private Timer batchTimer;
+    private Counter soldAuctions;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        partitionWorkers = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "auction-settle-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        batchTimer = Timer.builder("auction.settlement.batch")
+            .description("Duração de cada lote de liquidação de leilões")
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry);
+        soldAuctions = Counter.builder("auction.settlement.sold")
+            .description("Leilões liquidados com venda")
+            .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() {
+        partitionWorkers.shutdown();
+        try {
+            partitionWorkers.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Liquida os leilões informados que ainda estão ativos, em lotes de até
+     * {@code app.auction.settlement.batch-size}. Devolve quantos leilões foram encerrados.
+     */
+    public int settle(Collection<String> productIds) {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(productIds));
+        int settled = 0;
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<String> batch = ids.subList(from, Math.min(ids.size(), from + batchSize));
+            try {
+                settled += settleBatch(batch);
+            } catch (Exception e) {
+                log.error("Erro ao liquidar lote de {} leilões: {}", batch.size(), e.getMessage(), e);
+            }
+        }
+        return settled;
+    }
+
+    private int settleBatch(List<String> ids) {
+        long start = System.nanoTime();
+
+        // Bloqueia novos lances neste nó e garante que os lances aceitos já estão no banco
+        auctionEngine.closeAll(ids);
+
+        String batchId = new ObjectId().toHexString();
+        long claimed = mongoTemplate.updateMulti(
+            Query.query(Criteria.where("_id").in(ids)
+                                .and("status").is(ProductStatus.AUCTION_ACTIVE)
+                                .and("type").is(ProductType.AUCTION)),
+            new Update().set("status", ProductStatus.AUCTION_ENDED).set(SETTLEMENT_BATCH, batchId),
+            Product.class).getModifiedCount();
+        if (claimed == 0) {
+            auctionEngine.evictAll(ids);
+            return 0;
+        }
+        return settleClaimed(batchId, start);
+    }
+
+    /**
+     * Liquida os leilões já reivindicados pelo lote
+     */
+    private int settleClaimed(String batchId, long start) {
+        List<EndedAuction> auctions = loadClaimed(batchId);
+        Map<String, User> users = loadUsers(auctions);
+
+        List<Future<Integer>> results = new ArrayList<>();
+        for (List<EndedAuction> partition : partition(auctions)) {
+            results.add(partitionWorkers.submit(() -> settlePartition(partition, users, batchId)));
+        }
+        int sold = 0;
+        for (Future<Integer> result : results) {
+            sold += awaitPartition(result);
+        }
+
+        List<String> settledIds = auctions.stream().map(EndedAuction::productId).toList();
+        auctionEngine.evictAll(settledIds);
+        mongoTemplate.remove(Query.query(Criteria.where("productId").in(settledIds)), ProxyBid.class);
+        auctions.forEach(auction -> auctionEventBroadcaster.publishClosed(auction.toProduct()));
+        // Status mudou por updateMulti, que não dispara os eventos de gravação do repositório
+        eventPublisher.publishEvent(ProductChangedEvent.of(settledIds));
+        // Saldos e experiência também foram gravados em bulk, fora dos eventos do repositório
+        if (!users.isEmpty()) {
+            eventPublisher.publishEvent(UserChangedEvent.of(users.keySet()));
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        batchTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        soldAuctions.increment(sold);
+        double elapsedMillis = elapsedNanos / 1_000_000.0;
+        log.info("Lote de liquidação {}: {} leilões ({} vendidos, {} partições) em {} ms ({} leilões/s)",
+                 batchId, auctions.size(), sold, results.size(), String.format("%.1f", elapsedMillis),
+                 String.format("%.0f", auctions.size() * 1000.0 / Math.max(elapsedMillis, 0.001)));
+        return auctions.size();
+    }
+
+    /**
+     * Lê os leilões reivindicados como documentos crus: o vendedor vem do próprio DBRef,
+     * sem carregar um usuário por produto
+     */
+    private List<EndedAuction> loadClaimed(String batchId) {
+        Query query = Query.query(Criteria.where(SETTLEMENT_BATCH).is(batchId));
+        query.fields().include("_id", "seller", "leader_id", "price", "auction_end_date", "name", "image_url", "category");
+
+        List<EndedAuction> auctions = new ArrayList<>();
+        for (Document document : mongoTemplate.find(query, Document.class, "products")) {
+            Object seller = document.get("seller");
+            Object price = document.get("price");
+            Date endDate = document.getDate("auction_end_date");
+            String category = document.getString("category");
+            auctions.add(new EndedAuction(
+                document.get("_id").toString(),
+                seller instanceof DBRef ref ? ref.getId().toString() : null,
+                document.getString("leader_id"),
+                price != null ? new BigDecimal(price.toString()) : null,
+                endDate != null ? endDate.getTime() : 0L,
+                document.getString("name"),
+                document.getString("image_url"),
+                category != null ? ProductCategory.valueOf(category) : null));
+        }
+        return auctions;
+    }
+
+    private Map<String, User> loadUsers(List<EndedAuction> auctions) {
+        Set<String> userIds = new HashSet<>();
+        for (EndedAuction auction : auctions) {
+            if (auction.winnerId() != null && auction.sellerId() != null) {
+                userIds.add(auction.winnerId());
+                userIds.add(auction.sellerId());
+            }
+        }
+        Map<String, User> users = new HashMap<>();
+        userRepository.findAllById(userIds).forEach(user -> users.put(user.getId(), user));
+        return users;
+    }
+
+    /**
+     * Agrupa os leilões por componentes conexos do grafo vendedor-vencedor (union-find).
+     * Leilões sem vencedor formam partições de um só leilão.
+     */
+    private List<List<EndedAuction>> partition(List<EndedAuction> auctions) {
+        Map<String, String> parent = new HashMap<>();
+        for (EndedAuction auction : auctions) {
+            if (auction.winnerId() != null && auction.sellerId() != null) {
+                union(parent, auction.sellerId(), auction.winnerId());
+            }
+        }
+
+        Map<String, List<EndedAuction>> groups = new LinkedHashMap<>();
+        for (EndedAuction auction : auctions) {
+            String key = auction.winnerId() != null && auction.sellerId() != null
+                ? find(parent, auction.sellerId())
+                : auction.productId();
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(auction);
+        }
+        for (List<EndedAuction> group : groups.values()) {
+            group.sort(Comparator.comparingLong(EndedAuction::endMillis));
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    private static void union(Map<String, String> parent, String a, String b) {
+        String rootA = find(parent, a);
+        String rootB = find(parent, b);
+        if (!rootA.equals(rootB)) {
+            parent.put(rootA, rootB);
+        }
+    }
+
+    private static String find(Map<String, String> parent, String id) {
+        String root = id;
+        while (true) {
+            String next = parent.get(root);
+            if (next == null || next.equals(root)) {
+                break;
+            }
+            root = next;
+        }
+        // Compressão de caminho
+        String current = id;
+        while (!current.equals(root)) {
+            String next = parent.get(current);
+            parent.put(current, root);
+            current = next;
+        }
+        return root;
+    }
+
+    /**
+     * Liquida uma partição. Nenhum usuário desta partição aparece em outra, então os
+     * saldos correntes são mantidos só em memória até a gravação em lote.
+     */
+    private int settlePartition(List<EndedAuction> auctions, Map<String, User> users, String batchId) {
+        Map<String, Ledger> ledgers = new LinkedHashMap<>();
+        List<EndedAuction> sold = new ArrayList<>();
+        List<String> unsoldIds = new ArrayList<>();
+
+        for (EndedAuction auction : auctions) {
+            if (auction.winnerId() == null || auction.price() == null) {
+                log.info("Leilão terminado sem lances para o produto: {}", auction.productId());
+                unsoldIds.add(auction.productId());
+                continue;
+            }
+            Ledger winner = ledger(ledgers, users, auction.winnerId());
+            Ledger seller = ledger(ledgers, users, auction.sellerId());
+            if (winner == null || seller == null) {
+                log.warn("Vencedor ou vendedor do leilão {} não existe mais. Leilão encerrado sem venda.",
+                         auction.productId());
+                unsoldIds.add(auction.productId());
+                continue;
+            }
+
+            if (winner.balance().compareTo(auction.price()) < 0) {
+                // Vencedor não tem mais saldo - leilão termina sem venda
+                log.warn("Vencedor {} não tem saldo suficiente para o leilão {}. Leilão encerrado sem venda.",
+                         winner.user.getUsername(), auction.productId());
+                unsoldIds.add(auction.productId());
+                continue;
+            }
+
+            winner.transfer(auction.price().negate());
+            seller.transfer(auction.price());
+            winner.gainExperience(BUYER_EXPERIENCE);
+            seller.gainExperience(SELLER_EXPERIENCE);
+            sold.add(auction);
+        }
+
+        List<String> soldIds = sold.stream().map(EndedAuction::productId).toList();
+        if (!sold.isEmpty()) {
+            // A decisão vai primeiro: se a partição parar daqui em diante, a recuperação
+            // sabe quais leilões foram vendidos sem decidir de novo com saldos já alterados
+            mongoTemplate.insert(transactionsFor(sold, ledgers), Transaction.class);
+            writeBalances(ledgers.values(), batchId);
+        }
+        finish(soldIds, unsoldIds, ledgers.keySet(), batchId);
+        return sold.size();
+    }
+
+    /**
+     * Uma transação por leilão vendido, com o id do produto: gravar a mesma venda duas
+     * vezes falha na chave em vez de cobrar de novo
+     */
+    private static List<Transaction> transactionsFor(List<EndedAuction> sold, Map<String, Ledger> ledgers) {
+        List<Transaction> transactions = new ArrayList<>(sold.size());
+        LocalDateTime now = LocalDateTime.now();
+        for (EndedAuction auction : sold) {
+            Transaction transaction = new Transaction();
+            transaction.setId(auction.productId());
+            transaction.setProduct(auction.toProductRef());
+            transaction.setBuyer(UserRef.of(ledgers.get(auction.winnerId()).user));
+            transaction.setSeller(UserRef.of(ledgers.get(auction.sellerId()).user));
+            transaction.setAmount(auction.price());
+            transaction.setStatus(TransactionStatus.PENDING);
+            transaction.setCreatedAt(now);
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    /**
+     * Conclui os leilões da partição: vendidos viram SOLD, os demais ficam encerrados, e
+     * todos perdem o {@code settlement_batch}. Por último o lote sai da lista dos usuários.
+     */
+    private void finish(List<String> soldIds, List<String> unsoldIds, Collection<String> userIds, String batchId) {
+        if (!soldIds.isEmpty()) {
+            mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(soldIds).and(SETTLEMENT_BATCH).is(batchId)),
+                new Update().set("status", ProductStatus.SOLD).unset(SETTLEMENT_BATCH),
+                Product.class);
+        }
+        if (!unsoldIds.isEmpty()) {
+            mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(unsoldIds).and(SETTLEMENT_BATCH).is(batchId)),
+                new Update().unset(SETTLEMENT_BATCH),
+                Product.class);
+        }
+        if (!userIds.isEmpty()) {
+            mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(userIds).and(APPLIED_BATCHES).is(batchId)),
+                new Update().pull(APPLIED_BATCHES, batchId),
+                User.class);
+        }
+    }
+
+    /**
+     * Retoma lotes de liquidação que pararam no meio (queda do nó, erro numa partição):
+     * leilões encerrados que ainda têm {@code settlement_batch} depois do prazo de
+     * recuperação. Os que já têm transação foram vendidos: os saldos são reaplicados só a
+     * quem ainda não tem a marca do lote, e o leilão vira SOLD. Os sem transação não
+     * movimentaram saldo algum e são liquidados de novo num lote novo.
+     * Devolve quantos leilões foram concluídos.
+     */
+    public int recoverStalled() {
+        // O id do lote é um ObjectId: o texto em hexadecimal começa pelo horário da criação
+        String cutoff = new ObjectId(new Date(System.currentTimeMillis() - recoveryGraceMillis)).toHexString();
+        Query query = Query.query(Criteria.where(SETTLEMENT_BATCH).lt(cutoff)
+                                          .and("status").is(ProductStatus.AUCTION_ENDED));
+        query.fields().include("_id", SETTLEMENT_BATCH);
+        query.limit(batchSize);
+
+        Map<String, List<String>> stalled = new LinkedHashMap<>();
+        for (Document document : mongoTemplate.find(query, Document.class, "products")) {
+            stalled.computeIfAbsent(document.getString(SETTLEMENT_BATCH), batch -> new ArrayList<>())
+                   .add(document.get("_id").toString());
+        }
+
+        int recovered = 0;
+        for (Map.Entry<String, List<String>> entry : stalled.entrySet()) {
+            try {
+                recovered += recoverBatch(entry.getKey(), entry.getValue());
+            } catch (Exception e) {
+                log.error("Erro ao retomar o lote de liquidação {}: {}", entry.getKey(), e.getMessage(), e);
+            }
+        }
+        return recovered;
+    }
+
+    private int recoverBatch(String batchId, List<String> productIds) {
+        log.warn("Retomando lote de liquidação {} com {} leilões pendentes", batchId, productIds.size());
+
+        // Vendas já decididas: saldos de quem ficou sem a marca do lote e conclusão
+        List<Transaction> decided = mongoTemplate.find(
+            Query.query(Criteria.where("_id").in(productIds)), Transaction.class);
+        Set<String> userIds = new HashSet<>();
+        for (Transaction transaction : decided) {
+            userIds.add(transaction.getBuyer().getId());
+            userIds.add(transaction.getSeller().getId());
+        }
+        if (!decided.isEmpty()) {
+            Map<String, Ledger> ledgers = new LinkedHashMap<>();
+            for (User user : mongoTemplate.find(Query.query(Criteria.where("_id").in(userIds)
+                                                                    .and(APPLIED_BATCHES).ne(batchId)), User.class)) {
+                ledgers.put(user.getId(), new Ledger(user));
+            }
+            for (Transaction transaction : decided) {
+                Ledger winner = ledgers.get(transaction.getBuyer().getId());
+                if (winner != null) {
+                    winner.transfer(transaction.getAmount().negate());
+                    winner.gainExperience(BUYER_EXPERIENCE);
+                }
+                Ledger seller = ledgers.get(transaction.getSeller().getId());
+                if (seller != null) {
+                    seller.transfer(transaction.getAmount());
+                    seller.gainExperience(SELLER_EXPERIENCE);
+                }
+            }
+            writeBalances(ledgers.values(), batchId);
+        }
+        List<String> decidedIds = decided.stream().map(Transaction::getId).toList();
+        finish(decidedIds, List.of(), userIds, batchId);
+
+        if (!decidedIds.isEmpty()) {
+            eventPublisher.publishEvent(ProductChangedEvent.of(decidedIds));
+            eventPublisher.publishEvent(UserChangedEvent.of(userIds));
+        }
+
+        // Sem transação: nenhum saldo mudou por eles, então são liquidados do zero num lote novo
+        List<String> undecided = new ArrayList<>(productIds);
+        undecided.removeAll(decidedIds);
+        int resettled = 0;
+        if (!undecided.isEmpty()) {
+            String retryBatchId = new ObjectId().toHexString();
+            long reclaimed = mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(undecided)
+                                    .and(SETTLEMENT_BATCH).is(batchId)
+                                    .and("status").is(ProductStatus.AUCTION_ENDED)),
+                new Update().set(SETTLEMENT_BATCH, retryBatchId),
+                Product.class).getModifiedCount();
+            if (reclaimed > 0) {
+                resettled = settleClaimed(retryBatchId, System.nanoTime());
+            }
+        }
+        return decidedIds.size() + resettled;
+    }
+
+    private static Ledger ledger(Map<String, Ledger> ledgers, Map<String, User> users, String userId) {
+        Ledger ledger = ledgers.get(userId);
+        if (ledger == null) {
+            User user = users.get(userId);
+            if (user == null) {
+                return null;
+            }
+            ledger = new Ledger(user);
+            ledgers.put(userId, ledger);
+        }
+        return ledger;
+    }
+
+    /**
+     * Grava os saldos em um único bulk. O ouro é um BigDecimal gravado como texto, então
+     * não dá para usar $inc: cada usuário recebe um $set condicionado aos valores lidos e
+     * ao lote ainda não aplicado, e ganha o id do lote na lista de lotes aplicados. Quem
+     * mudou no meio do caminho fica sem a marca, é relido e recebe de novo só os movimentos
+     * desta partição. Um usuário que não pôde ser gravado interrompe a partição, que fica
+     * para a recuperação.
+     */
+    private void writeBalances(Collection<Ledger> ledgers, String batchId) {
+        List<Ledger> changed = ledgers.stream().filter(Ledger::isChanged).toList();
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+        for (Ledger ledger : changed) {
+            bulk.updateOne(ledger.expectedQuery(batchId), ledger.update(batchId));
+        }
+        BulkWriteResult result = bulk.execute();
+        if (result.getMatchedCount() == changed.size()) {
+            return;
+        }
+
+        Query appliedQuery = Query.query(Criteria.where("_id").in(changed.stream().map(ledger -> ledger.user.getId()).toList())
+                                                 .and(APPLIED_BATCHES).is(batchId));
+        appliedQuery.fields().include("_id");
+        Set<String> applied = new HashSet<>();
+        mongoTemplate.find(appliedQuery, User.class).forEach(user -> applied.add(user.getId()));
+
+        for (Ledger ledger : changed) {
+            if (!applied.contains(ledger.user.getId()) && !retryBalance(ledger, batchId)) {
+                throw new IllegalStateException("Saldo do usuário " + ledger.user.getId()
+                                                + " não atualizado no lote " + batchId);
+            }
+        }
+    }
+
+    private boolean retryBalance(Ledger ledger, String batchId) {
+        for (int attempt = 0; attempt < MAX_BALANCE_RETRIES; attempt++) {
+            Optional<User> current = userRepository.findById(ledger.user.getId());
+            if (current.isEmpty()) {
+                break;
+            }
+            Ledger retry = ledger.replayOn(current.get());
+            if (mongoTemplate.updateFirst(retry.expectedQuery(batchId), retry.update(batchId), User.class)
+                             .getModifiedCount() == 1) {
+                return true;
+            }
+        }
+        log.error("Não foi possível atualizar o saldo do usuário {} na liquidação (variação de {} moedas)",
+                  ledger.user.getId(), ledger.goldDelta);
+        return false;
+    }
+
+    private static int awaitPartition(Future<Integer> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Liquidação interrompida", e);
+        } catch (ExecutionException e) {
+            // Os demais leilões do lote seguem; os desta partição continuam encerrados com o
+            // settlement_batch e são concluídos por recoverStalled depois do prazo de recuperação
+            log.error("Erro ao liquidar partição de leilões: {}", e.getCause().getMessage(), e.getCause());
+            return 0;
+        }
+    }
+
+    /**
+     * Leilão reivindicado pelo lote, com o que a liquidação precisa
+     */
+    private record EndedAuction(String productId, String sellerId, String winnerId,
+                                BigDecimal price, long endMillis,
+                                String name, String imageUrl, ProductCategory category) {
+
+        ProductRef toProductRef() {
+            return new ProductRef(productId, name, imageUrl, category);
+        }
+
+        Product toProduct() {
+            Product product = new Product();
+            product.setId(productId);
+            product.setStatus(ProductStatus.AUCTION_ENDED);
+            product.setPrice(price);
+            return product;
+        }
+    }
+
+    /**
+     * Saldo corrente de um usuário dentro de uma partição. Guarda os valores lidos para o
+     * compare-and-set e a sequência de movimentos para reaplicar em caso de conflito.
+     */
+    private static final class Ledger {
+        final User user;
+        final BigDecimal originalGold;
+        final int originalExperience;
+        final int originalLevel;
+        BigDecimal goldDelta = BigDecimal.ZERO;
+        final List<Integer> experienceGains = new ArrayList<>();
+
+        Ledger(User user) {
+            this.user = user;
+            this.originalGold = user.getGoldCoins();
+            this.originalExperience = user.getExperience();
+            this.originalLevel = user.getLevel();
+            if (user.getGoldCoins() == null) {
+                user.setGoldCoins(BigDecimal.ZERO);
+            }
+        }
+
+        BigDecimal balance() {
+            return user.getGoldCoins();
+        }
+
+        void transfer(BigDecimal amount) {
+            user.setGoldCoins(user.getGoldCoins().add(amount));
+            goldDelta = goldDelta.add(amount);
+        }
+
+        void gainExperience(int exp) {
+            UserService.gainExperience(user, exp);
+            experienceGains.add(exp);
+        }
+
+        boolean isChanged() {
+            return goldDelta.signum() != 0 || !experienceGains.isEmpty();
+        }
+
+        Ledger replayOn(User current) {
+            Ledger replay = new Ledger(current);
+            replay.transfer(goldDelta);
+            experienceGains.forEach(replay::gainExperience);
+            return replay;
+        }
+
+        /**
+         * Só casa se o usuário ainda tem os valores lidos e este lote ainda não foi aplicado
+         */
+        Query expectedQuery(String batchId) {
+            return Query.query(Criteria.where("_id").is(user.getId())
+                                       .and("goldCoins").is(originalGold)
+                                       .and("experience").is(originalExperience)
+                                       .and("level").is(originalLevel)
+                                       .and(APPLIED_BATCHES).ne(batchId));
+        }
+
+        Update update(String batchId) {
+            Update update = new Update()
+                .set("goldCoins", user.getGoldCoins())
+                .set("experience", user.getExperience())
+                .set("level", user.getLevel());
+            update.push(APPLIED_BATCHES).slice(-MAX_APPLIED_BATCHES).each(batchId);
+            return update;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.programacao_web.rpg_market.service;
+
+import com.programacao_web.rpg_market.util.TokenBucket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Controle de admissão dos lances.
+ *
+ * Cada lance consome uma ficha do balde do licitante e uma do balde do leilão, na entrada
+ * do {@link BidService}, antes do motor de leilões: todo caminho que grava um lance (página
+ * do item, modal de confirmação, checkout, lance automático) passa por ali, e as etapas que
+ * só preparam a confirmação não gastam ficha. O balde do licitante impede que um único cliente dispare
+ * centenas de lances por segundo; o do leilão impede que um leilão disputado tome toda a
+ * capacidade do motor. Os baldes ficam em mapas concorrentes e são descartados quando
+ * voltam a ficar cheios.
+ */
+@Service
+public class BidAdmissionService {
+
+    private static final Logger log = LoggerFactory.getLogger(BidAdmissionService.class);
+
+    /**
+     * Resultado da admissão: {@code retryAfterMillis} é 0 quando o lance foi admitido
+     */
+    public record Decision(boolean admitted, String limitedBy, long retryAfterMillis) {
+
+        static final Decision ADMITTED = new Decision(true, null, 0);
+
+        /**
+         * Segundos inteiros para o cabeçalho Retry-After (no mínimo 1)
+         */
+        public long retryAfterSeconds() {
+            return Math.max(1, (retryAfterMillis + 999) / 1000);
+        }
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.auction.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.auction.admission.user.rate-per-second:2}")
+    private double userRate;
+
+    @Value("${app.auction.admission.user.burst:5}")
+    private int userBurst;
+
+    @Value("${app.auction.admission.product.rate-per-second:50}")
+    private double productRate;
+
+    @Value("${app.auction.admission.product.burst:100}")
+    private int productBurst;
+
+    private final Map<String, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> productBuckets = new ConcurrentHashMap<>();
+
+    private Counter admitted;
+    private Counter rejectedByUser;
+    private Counter rejectedByProduct;
+
+    @PostConstruct
+    void start() {
+        admitted = Counter.builder("auction.bid.admission")
+            .tag("outcome", "accepted").tag("limit", "none")
+            .description("Lances admitidos pelo controle de admissão")
+            .register(meterRegistry);
+        rejectedByUser = Counter.builder("auction.bid.admission")
+            .tag("outcome", "rejected").tag("limit", "user")
+            .description("Lances recusados pelo limite do licitante")
+            .register(meterRegistry);
+        rejectedByProduct = Counter.builder("auction.bid.admission")
+            .tag("outcome", "rejected").tag("limit", "product")
+            .description("Lances recusados pelo limite do leilão")
+            .register(meterRegistry);
+        Gauge.builder("auction.bid.admission.buckets", this, service -> service.userBuckets.size() + service.productBuckets.size())
+            .description("Baldes de fichas em memória")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Consome as fichas do lance ou recusa com a mensagem de espera mostrada ao licitante
+     */
+    public void admit(String username, String productId) {
+        Decision decision = tryAdmit(username, productId);
+        if (decision.admitted()) {
+            return;
+        }
+        log.debug("Lance recusado pelo limite de {}: usuário={}, produto={}", decision.limitedBy(), username, productId);
+        throw new IllegalArgumentException("user".equals(decision.limitedBy())
+            ? String.format("⏳ Calma, aventureiro! Você está dando lances rápido demais. Tente de novo em %d s.",
+                            decision.retryAfterSeconds())
+            : String.format("⏳ Este leilão está recebendo lances demais agora. Tente de novo em %d s.",
+                            decision.retryAfterSeconds()));
+    }
+
+    /**
+     * Consome uma ficha do licitante e uma do leilão. O leilão só é consultado se o
+     * licitante ainda tem ficha, para que um cliente insistente não gaste a cota do leilão.
+     */
+    public Decision tryAdmit(String username, String productId) {
+        if (!enabled) {
+            return Decision.ADMITTED;
+        }
+        long now = System.nanoTime();
+
+        if (username != null) {
+            long wait = userBuckets.computeIfAbsent(username, key -> new TokenBucket(userRate, userBurst, now))
+                                   .tryConsume(now);
+            if (wait > 0) {
+                rejectedByUser.increment();
+                return new Decision(false, "user", TimeUnit.NANOSECONDS.toMillis(wait));
+            }
+        }
+
+        if (productId != null) {
+            long wait = productBuckets.computeIfAbsent(productId, key -> new TokenBucket(productRate, productBurst, now))
+                                      .tryConsume(now);
+            if (wait > 0) {
+                rejectedByProduct.increment();
+                return new Decision(false, "product", TimeUnit.NANOSECONDS.toMillis(wait));
+            }
+        }
+
+        admitted.increment();
+        return Decision.ADMITTED;
+    }
+
+    /**
+     * Descarta os baldes cheios: recriá-los no próximo lance dá o mesmo resultado
+     */
+    @Scheduled(fixedDelayString = "${app.auction.admission.cleanup-ms:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        userBuckets.entrySet().removeIf(entry -> entry.getValue().isFull(now));
+        productBuckets.entrySet().removeIf(entry -> entry.getValue().isFull(now));
+    }
+}
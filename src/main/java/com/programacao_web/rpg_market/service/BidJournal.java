@@ -0,0 +1,537 @@
+package com.programacao_web.rpg_market.service;
+
+import com.programacao_web.rpg_market.model.Bid;
+import com.programacao_web.rpg_market.model.ProductCategory;
+import com.programacao_web.rpg_market.model.ProductRef;
+import com.programacao_web.rpg_market.model.UserRef;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Diário local de lances, só de anexação, com group commit.
+ *
+ * Um lance aceito é anexado ao segmento atual e confirmado ao licitante assim que o
+ * fsync do grupo termina; lances de todos os shards que chegam na mesma janela dividem
+ * o mesmo fsync. Uma thread separada grava os lances em lote na coleção {@code bids} e
+ * avança o checkpoint; segmentos totalmente gravados são apagados. Na inicialização, os
+ * registros depois do checkpoint são relidos e gravados de novo (a inserção ignora
+ * lances que já existem), e uma cauda corrompida por queda é truncada.
+ *
+ * Formato de cada registro: tamanho (int), CRC32 do conteúdo (int) e o conteúdo.
+ */
+@Service
+public class BidJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(BidJournal.class);
+
+    private static final String SEGMENT_PREFIX = "bids-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+    private static final int DRAIN_BATCH = 1000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.auction.journal.dir:data/bid-journal}")
+    private String journalDir;
+
+    @Value("${app.auction.journal.group-commit-ms:2}")
+    private long groupCommitMillis;
+
+    @Value("${app.auction.journal.drain-ms:50}")
+    private long drainMillis;
+
+    @Value("${app.auction.journal.segment-bytes:67108864}")
+    private long segmentBytes;
+
+    private final BlockingQueue<PendingAppend> appends = new LinkedBlockingQueue<>();
+    private final ConcurrentLinkedQueue<JournalRecord> undrained = new ConcurrentLinkedQueue<>();
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private final AtomicLong nextSequence = new AtomicLong(1);
+
+    private Path directory;
+    private FileChannel channel;
+    private long checkpoint;
+    private volatile boolean running;
+
+    private Thread committer;
+    private ScheduledExecutorService drainer;
+    private Timer fsyncTimer;
+
+    @PostConstruct
+    void start() throws IOException {
+        directory = Paths.get(journalDir);
+        Files.createDirectories(directory);
+        checkpoint = readCheckpoint();
+
+        long lastSequence = replay();
+        nextSequence.set(Math.max(lastSequence, checkpoint) + 1);
+        openSegment(nextSequence.get());
+
+        fsyncTimer = Timer.builder("auction.journal.fsync")
+            .description("Duração de cada group commit do diário de lances")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        Gauge.builder("auction.journal.undrained", undrained, Queue::size)
+            .description("Lances confirmados no diário e ainda não gravados no MongoDB")
+            .register(meterRegistry);
+
+        running = true;
+        committer = new Thread(this::commitLoop, "bid-journal-commit");
+        committer.setDaemon(true);
+        committer.start();
+
+        drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bid-journal-drain");
+            thread.setDaemon(true);
+            return thread;
+        });
+        drainer.scheduleWithFixedDelay(this::drainSafely, 0, drainMillis, TimeUnit.MILLISECONDS);
+
+        log.info("Diário de lances em {} (checkpoint {}, {} lances pendentes da última execução)",
+                 directory.toAbsolutePath(), checkpoint, undrained.size());
+    }
+
+    @PreDestroy
+    void stop() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Erro ao esvaziar o diário de lances no desligamento: {}", e.getMessage());
+        }
+        running = false;
+        committer.interrupt();
+        drainer.shutdown();
+        try {
+            drainer.awaitTermination(10, TimeUnit.SECONDS);
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.warn("Erro ao fechar o diário de lances: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Anexa o lance ao diário. O futuro termina quando o registro está em disco (fsync).
+     */
+    public CompletableFuture<Void> append(Bid bid) {
+        PendingAppend pending = new PendingAppend(JournalRecord.of(bid));
+        appends.add(pending);
+        return pending.durable;
+    }
+
+    /**
+     * Aguarda o fsync de tudo que já foi anexado e grava no MongoDB todos os lances
+     * pendentes. Usado antes de liquidar um leilão.
+     */
+    public void flush() {
+        PendingAppend barrier = new PendingAppend(null);
+        appends.add(barrier);
+        try {
+            barrier.durable.get();
+            drainer.submit(() -> {
+                drain();
+                return null;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Esvaziamento do diário de lances interrompido", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Erro ao esvaziar o diário de lances", e.getCause());
+        }
+    }
+
+    // ---- Group commit ----
+
+    private void commitLoop() {
+        List<PendingAppend> group = new ArrayList<>();
+        while (running) {
+            try {
+                PendingAppend first = appends.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                // Janela do group commit: lances de outros shards entram no mesmo fsync
+                if (groupCommitMillis > 0) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(groupCommitMillis));
+                }
+                group.add(first);
+                appends.drainTo(group);
+                commit(group);
+            } catch (RuntimeException e) {
+                // Nenhum licitante pode ficar esperando um fsync que não vai acontecer
+                log.error("Erro no group commit do diário de lances: {}", e.getMessage(), e);
+                group.forEach(pending -> pending.durable.completeExceptionally(e));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingAppend> group) {
+        List<JournalRecord> records = new ArrayList<>(group.size());
+        for (PendingAppend pending : group) {
+            if (pending.record != null) {
+                pending.record.sequence = nextSequence.getAndIncrement();
+                records.add(pending.record);
+            }
+        }
+
+        try {
+            if (!records.isEmpty()) {
+                long started = System.nanoTime();
+                writeAndSync(records);
+                fsyncTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                undrained.addAll(records);
+            }
+        } catch (IOException e) {
+            // Sem diário, o lance não pode ser perdido: grava direto no MongoDB antes de confirmar
+            log.error("Erro ao gravar o diário de lances, gravando {} lances direto no MongoDB: {}",
+                      records.size(), e.getMessage(), e);
+            try {
+                insertIntoMongo(records);
+            } catch (RuntimeException fallbackError) {
+                group.forEach(pending -> pending.durable.completeExceptionally(fallbackError));
+                return;
+            }
+        }
+        group.forEach(pending -> pending.durable.complete(null));
+    }
+
+    private void writeAndSync(List<JournalRecord> records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(records.size() * 128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (JournalRecord record : records) {
+            byte[] payload = record.encode();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            out.writeInt(payload.length);
+            out.writeInt((int) crc.getValue());
+            out.write(payload);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+
+        if (channel.size() >= segmentBytes) {
+            channel.close();
+            openSegment(nextSequence.get());
+        }
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        synchronized (segments) {
+            segments.put(firstSequence, path);
+        }
+    }
+
+    // ---- Gravação no MongoDB ----
+
+    private void drainSafely() {
+        try {
+            drain();
+        } catch (Exception e) {
+            // Os registros continuam no diário e são gravados na próxima rodada
+            log.error("Erro ao gravar lances do diário no MongoDB: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Grava em lote os lances confirmados, na ordem do diário, e avança o checkpoint
+     */
+    private void drain() throws IOException {
+        while (!undrained.isEmpty()) {
+            List<JournalRecord> batch = new ArrayList<>(DRAIN_BATCH);
+            Iterator<JournalRecord> iterator = undrained.iterator();
+            while (iterator.hasNext() && batch.size() < DRAIN_BATCH) {
+                batch.add(iterator.next());
+            }
+
+            insertIntoMongo(batch);
+
+            // Só remove da fila depois de gravado; uma falha acima mantém o lote para a próxima rodada
+            for (int i = 0; i < batch.size(); i++) {
+                undrained.poll();
+            }
+            checkpoint = batch.get(batch.size() - 1).sequence;
+            writeCheckpoint(checkpoint);
+            deleteDrainedSegments();
+        }
+    }
+
+    private void insertIntoMongo(List<JournalRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        BulkOperations inserts = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Bid.class);
+        Map<String, JournalRecord> latestByProduct = new LinkedHashMap<>();
+        for (JournalRecord record : records) {
+            inserts.insert(record.toBid());
+            latestByProduct.put(record.productId, record);
+        }
+        try {
+            inserts.execute();
+        } catch (BulkOperationException | DuplicateKeyException e) {
+            // Na releitura depois de uma queda, parte dos lances já pode estar no banco
+            if (!onlyDuplicates(e)) {
+                throw e;
+            }
+        }
+
+        // O último lance de cada produto no lote é o vencedor; os anteriores deixam de ser
+        BulkOperations demotions = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Bid.class);
+        for (JournalRecord latest : latestByProduct.values()) {
+            demotions.updateMulti(
+                Query.query(Criteria.where("product.id").is(latest.productId)
+                                    .and("winning").is(true)
+                                    .and("_id").ne(latest.bidId)),
+                new Update().set("winning", false));
+        }
+        demotions.execute();
+    }
+
+    private static boolean onlyDuplicates(RuntimeException e) {
+        if (e instanceof DuplicateKeyException) {
+            return true;
+        }
+        BulkOperationException bulkError = (BulkOperationException) e;
+        return bulkError.getErrors().stream().allMatch(error -> error.getCode() == 11000);
+    }
+
+    private void deleteDrainedSegments() throws IOException {
+        synchronized (segments) {
+            // Um segmento pode ser apagado quando o seguinte começa depois do checkpoint + 1
+            while (segments.size() > 1) {
+                Map.Entry<Long, Path> oldest = segments.firstEntry();
+                Long nextFirst = segments.higherKey(oldest.getKey());
+                if (nextFirst == null || nextFirst - 1 > checkpoint) {
+                    return;
+                }
+                Files.deleteIfExists(oldest.getValue());
+                segments.pollFirstEntry();
+            }
+        }
+    }
+
+    // ---- Checkpoint e releitura ----
+
+    private long readCheckpoint() throws IOException {
+        Path path = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        String content = Files.readString(path, StandardCharsets.UTF_8).trim();
+        return content.isEmpty() ? 0 : Long.parseLong(content);
+    }
+
+    private void writeCheckpoint(long sequence) throws IOException {
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        Files.writeString(temp, Long.toString(sequence), StandardCharsets.UTF_8);
+        Files.move(temp, directory.resolve(CHECKPOINT_FILE),
+                   StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Relê os segmentos existentes, enfileira o que passou do checkpoint e devolve a
+     * maior sequência encontrada
+     */
+    private long replay() throws IOException {
+        long lastSequence = 0;
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(Comparator.naturalOrder());
+
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long firstSequence = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            segments.put(firstSequence, file);
+
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long position = 0;
+                ByteBuffer header = ByteBuffer.allocate(8);
+                while (true) {
+                    header.clear();
+                    if (in.read(header, position) < 8) {
+                        break;
+                    }
+                    header.flip();
+                    int length = header.getInt();
+                    int expectedCrc = header.getInt();
+                    if (length <= 0 || length > MAX_RECORD_BYTES) {
+                        break;
+                    }
+                    ByteBuffer payload = ByteBuffer.allocate(length);
+                    if (in.read(payload, position + 8) < length) {
+                        break;
+                    }
+                    CRC32 crc = new CRC32();
+                    crc.update(payload.array());
+                    if ((int) crc.getValue() != expectedCrc) {
+                        break;
+                    }
+
+                    JournalRecord record = JournalRecord.decode(payload.array());
+                    lastSequence = Math.max(lastSequence, record.sequence);
+                    if (record.sequence > checkpoint) {
+                        undrained.add(record);
+                    }
+                    position += 8 + length;
+                }
+
+                // Registro incompleto ou corrompido no fim: sobra de uma gravação interrompida
+                if (position < in.size()) {
+                    log.warn("Truncando cauda inválida do diário {} na posição {}", file, position);
+                    in.truncate(position);
+                }
+            }
+        }
+        return lastSequence;
+    }
+
+    // ---- Registros ----
+
+    private static class PendingAppend {
+        final JournalRecord record;
+        final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        PendingAppend(JournalRecord record) {
+            this.record = record;
+        }
+    }
+
+    /**
+     * Lance como gravado no diário: os ids, os campos exibidos das referências embutidas e o
+     * valor como texto. Os campos de exibição ficam no fim do registro; registros gravados
+     * antes deles são lidos com esses campos vazios.
+     */
+    private static class JournalRecord {
+        long sequence;
+        String bidId;
+        String productId;
+        String bidderId;
+        String amount;
+        String bidTime;
+        String bidderUsername;
+        String productName;
+        String productImageUrl;
+        String productCategory;
+
+        static JournalRecord of(Bid bid) {
+            JournalRecord record = new JournalRecord();
+            record.bidId = bid.getId();
+            record.productId = bid.getProduct().getId();
+            record.bidderId = bid.getBidder().getId();
+            record.amount = bid.getAmount().toPlainString();
+            record.bidTime = bid.getBidTime().toString();
+            record.bidderUsername = bid.getBidder().getUsername();
+            record.productName = bid.getProduct().getName();
+            record.productImageUrl = bid.getProduct().getImageUrl();
+            record.productCategory = bid.getProduct().getCategory() != null ? bid.getProduct().getCategory().name() : null;
+            return record;
+        }
+
+        Bid toBid() {
+            Bid bid = new Bid();
+            bid.setId(bidId);
+            bid.setProduct(new ProductRef(productId, productName, productImageUrl,
+                                          productCategory != null ? ProductCategory.valueOf(productCategory) : null));
+            bid.setBidder(new UserRef(bidderId, bidderUsername));
+            bid.setAmount(new BigDecimal(amount));
+            bid.setBidTime(LocalDateTime.parse(bidTime));
+            bid.setWinning(true);
+            return bid;
+        }
+
+        byte[] encode() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(192);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeLong(sequence);
+                out.writeUTF(bidId);
+                out.writeUTF(productId);
+                out.writeUTF(bidderId);
+                out.writeUTF(amount);
+                out.writeUTF(bidTime);
+                writeOptional(out, bidderUsername);
+                writeOptional(out, productName);
+                writeOptional(out, productImageUrl);
+                writeOptional(out, productCategory);
+            }
+            return bytes.toByteArray();
+        }
+
+        static JournalRecord decode(byte[] payload) throws IOException {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+                JournalRecord record = new JournalRecord();
+                record.sequence = in.readLong();
+                record.bidId = in.readUTF();
+                record.productId = in.readUTF();
+                record.bidderId = in.readUTF();
+                record.amount = in.readUTF();
+                record.bidTime = in.readUTF();
+                record.bidderUsername = readOptional(in);
+                record.productName = readOptional(in);
+                record.productImageUrl = readOptional(in);
+                record.productCategory = readOptional(in);
+                return record;
+            }
+        }
+
+        private static void writeOptional(DataOutputStream out, String value) throws IOException {
+            out.writeUTF(value != null ? value : "");
+        }
+
+        private static String readOptional(DataInputStream in) throws IOException {
+            if (in.available() == 0) {
+                return null;
+            }
+            String value = in.readUTF();
+            return value.isEmpty() ? null : value;
+        }
+    }
+}
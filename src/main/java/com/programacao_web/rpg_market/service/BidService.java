@@ -1,16 +1,26 @@
 package com.programacao_web.rpg_market.service;
 
+import com.programacao_web.rpg_market.dto.BidHistoryPage;
+import com.programacao_web.rpg_market.dto.BidResult;
 import com.programacao_web.rpg_market.model.*;
 import com.programacao_web.rpg_market.repository.BidRepository;
 import com.programacao_web.rpg_market.repository.ProductRepository;
 import com.programacao_web.rpg_market.repository.UserRepository;
 
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -21,6 +31,8 @@ public class BidService {
 
     private static final Logger log = LoggerFactory.getLogger(BidService.class);
 
+    private static final int MAX_HISTORY_PAGE = 50;
+
     @Autowired
     private BidRepository bidRepository;
     
@@ -31,151 +43,170 @@ public class BidService {
     private UserRepository userRepository;
     
     @Autowired
-    private TransactionService transactionService;/**
+    private TransactionService transactionService;
+    
+    @Autowired
+    private AuctionEngine auctionEngine;
+    
+    @Autowired
+    private AuctionSettlementService auctionSettlementService;
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private BidAdmissionService bidAdmissionService;
+    
+    /**
      * Registra um lance no leilão (SEM DÉBITO - apenas verifica saldo)
      */
     @Transactional
-    public Bid placeBid(Product product, User bidder, BigDecimal amount) {
+    public BidResult placeBid(Product product, User bidder, BigDecimal amount) {
         log.info("=== INICIANDO REGISTRO DE LANCE ===");
         log.info("Produto: {} ({})", product.getName(), product.getId());
         log.info("Usuário: {} (saldo: {} moedas)", bidder.getUsername(), bidder.getGoldCoins());
         log.info("Valor do lance: {} moedas", amount);
-        
-        // VALIDAÇÕES IMPORTANTES
-        if (product.getType() != ProductType.AUCTION || product.getStatus() != ProductStatus.AUCTION_ACTIVE) {
-            throw new IllegalArgumentException("Este item não está em leilão ativo");
-        }
-        
-        if (bidder.getId().equals(product.getSeller().getId())) {
-            throw new IllegalArgumentException("Você não pode dar lances no seu próprio item");
+        bidAdmissionService.admit(bidder.getUsername(), product.getId());
+        
+        // Validação, atualização do líder e persistência ficam no motor de leilões:
+        // o lance é aceito em O(1) pela thread dona do produto e gravado de forma assíncrona
+        BidResult result = auctionEngine.placeBid(product, bidder, amount, false);
+        if (result.isOutbid()) {
+            log.info("Lance superado: preço atual {}, próximo mínimo {}", result.getCurrentPrice(), result.getMinNextBid());
+            return result;
         }
-        
-        // Verificar se o lance é maior que o atual + incremento mínimo
-        BigDecimal currentPrice = product.getPrice() != null ? product.getPrice() : BigDecimal.ZERO;
-        BigDecimal minIncrement = product.getMinBidIncrement() != null ? product.getMinBidIncrement() : BigDecimal.ONE;
-        BigDecimal minBid = currentPrice.add(minIncrement);
-        
-        if (amount.compareTo(minBid) < 0) {
-            throw new IllegalArgumentException(String.format("O lance deve ser pelo menos %.2f moedas", minBid));
-        }
-        
-        // VERIFICAÇÃO CRUCIAL: O usuário tem saldo suficiente?
-        if (bidder.getGoldCoins().compareTo(amount) < 0) {
-            BigDecimal needed = amount.subtract(bidder.getGoldCoins());
-            throw new IllegalArgumentException(String.format("Saldo insuficiente! Você precisa de mais %.2f moedas de ouro", needed));
-        }
-        
-        log.info("✅ Todas as validações passaram");
-        
-        // Marcar lances anteriores como não vencedores
-        List<Bid> previousBids = bidRepository.findByProductOrderByAmountDesc(product);
-        for (Bid oldBid : previousBids) {
-            if (oldBid.isWinning()) {
-                oldBid.setWinning(false);
-                bidRepository.save(oldBid);
-                log.info("Lance anterior desativado: usuário {}, valor {}", 
-                         oldBid.getBidder().getUsername(), oldBid.getAmount());
-            }
-        }
-        
-        // Criar o novo lance
-        Bid newBid = new Bid();
-        newBid.setProduct(product);
-        newBid.setBidder(bidder);        newBid.setAmount(amount);
-        newBid.setBidTime(LocalDateTime.now());
-        newBid.setWinning(true); // Este é o lance vencedor atual
-        
-        // Salvar o lance (SEM DÉBITO - só registra)
-        Bid savedBid = bidRepository.save(newBid);
-        log.info("✅ Novo lance registrado: ID={}", savedBid.getId());
-        
-        // Atualizar o preço atual do produto para refletir o lance mais alto
-        product.setPrice(amount);
-        productRepository.save(product);
-        log.info("✅ Preço do produto atualizado para: {} moedas", amount);
+        log.info("✅ Novo lance registrado: ID={}", result.getBid().getId());
         
         // IMPORTANTE: O ouro NÃO é debitado aqui!
         // Será debitado apenas quando o leilão terminar e este for o lance vencedor
         log.info("=== LANCE REGISTRADO COM SUCESSO (SEM DÉBITO) ===");
         
-        return savedBid;
+        return result;
     }
 
     /**
-     * Busca todos os lances de um produto
+     * Registra um lance automático: o motor cobre os lances concorrentes no incremento
+     * mínimo até o valor máximo informado (SEM DÉBITO - apenas verifica saldo)
      */
-    public List<Bid> getProductBids(Product product) {
-        return bidRepository.findByProductOrderByAmountDesc(product);
+    public BidResult placeProxyBid(Product product, User bidder, BigDecimal maxAmount) {
+        log.info("Lance automático: produto={}, usuário={}", product.getId(), bidder.getUsername());
+        bidAdmissionService.admit(bidder.getUsername(), product.getId());
+        return auctionEngine.placeProxyBid(product, bidder, maxAmount);
+    }
+
+    /**
+     * Busca uma página do histórico de lances, do mais recente para o mais antigo.
+     * A paginação é por chave (horário do lance, id), então o custo de cada página não
+     * depende de quantos lances o leilão já recebeu. Os nomes dos licitantes vêm de uma
+     * única consulta por página.
+     */
+    public BidHistoryPage getBidHistory(String productId, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_HISTORY_PAGE));
+
+        Criteria criteria = Criteria.where("product.id").is(productId);
+        if (cursor != null && !cursor.isBlank()) {
+            int separator = cursor.lastIndexOf('_');
+            Date before;
+            Object beforeId;
+            try {
+                before = Date.from(LocalDateTime.parse(cursor.substring(0, separator))
+                                                .atZone(ZoneId.systemDefault()).toInstant());
+                beforeId = toStoredId(cursor.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursor de histórico inválido");
+            }
+            criteria = criteria.orOperator(
+                Criteria.where("bid_time").lt(before),
+                Criteria.where("bid_time").is(before).and("_id").lt(beforeId));
+        }
+
+        Query query = Query.query(criteria)
+            .with(Sort.by(Sort.Direction.DESC, "bid_time").and(Sort.by(Sort.Direction.DESC, "_id")))
+            .limit(pageSize + 1);
+        query.fields().include("_id", "bidder.username", "amount", "bid_time");
+
+        // Documentos crus: o nome do licitante já vem na referência embutida
+        List<org.bson.Document> documents = mongoTemplate.find(query, org.bson.Document.class, "bids");
+        boolean hasMore = documents.size() > pageSize;
+        if (hasMore) {
+            documents = documents.subList(0, pageSize);
+        }
+
+        List<BidHistoryPage.Entry> entries = new ArrayList<>(documents.size());
+        for (org.bson.Document document : documents) {
+            Object amount = document.get("amount");
+            Date bidTime = document.getDate("bid_time");
+            org.bson.Document bidder = document.get("bidder", org.bson.Document.class);
+            entries.add(new BidHistoryPage.Entry(
+                document.get("_id").toString(),
+                bidder != null ? bidder.getString("username") : null,
+                amount != null ? new BigDecimal(amount.toString()) : null,
+                bidTime != null ? LocalDateTime.ofInstant(bidTime.toInstant(), ZoneId.systemDefault()) : null));
+        }
+
+        String nextCursor = null;
+        if (hasMore && !entries.isEmpty()) {
+            BidHistoryPage.Entry last = entries.get(entries.size() - 1);
+            nextCursor = last.getBidTime() + "_" + last.getId();
+        }
+        return new BidHistoryPage(entries, nextCursor);
+    }
+
+    private static Object toStoredId(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
     }
 
     /**
      * Busca o lance vencedor atual de um produto
      */
     public Bid getCurrentWinningBid(Product product) {
-        List<Bid> bids = bidRepository.findByProductOrderByAmountDesc(product);
-        return bids.stream()
-                   .filter(Bid::isWinning)
-                   .findFirst()
-                   .orElse(null);
+        // O produto guarda o id do lance vencedor: uma leitura por id em vez da lista de lances
+        if (product.getLeaderBidId() == null) {
+            return null;
+        }
+        return bidRepository.findById(product.getLeaderBidId()).orElse(null);
     }
 
     /**
      * Verifica se um usuário tem o lance vencedor em um produto
      */
     public boolean isUserWinning(Product product, User user) {
-        Bid winningBid = getCurrentWinningBid(product);
-        return winningBid != null && winningBid.getBidder().getId().equals(user.getId());
+        // Leilões já carregados no motor respondem sem consultar o banco
+        if (auctionEngine.isTracked(product.getId())) {
+            return user.getId().equals(auctionEngine.currentLeaderId(product.getId()));
+        }
+        return user.getId().equals(product.getLeaderId());
     }
 
     /**
      * Finaliza um leilão processando o lance vencedor
-     * (Aqui que acontece o débito do ouro)
+     * (Aqui que acontece o débito do ouro, pela liquidação em lote)
      */
     @Transactional
     public void processAuctionEnd(Product product) {
         log.info("Finalizando leilão do produto: {}", product.getId());
         
-        Bid winningBid = getCurrentWinningBid(product);
-        if (winningBid != null) {
-            User winner = winningBid.getBidder();
-            BigDecimal amount = winningBid.getAmount();
-            
-            // Verificar se o vencedor ainda tem saldo suficiente
-            if (winner.getGoldCoins().compareTo(amount) >= 0) {
-                // Debitar o valor do vencedor
-                winner.setGoldCoins(winner.getGoldCoins().subtract(amount));
-                
-                // Creditar o valor para o vendedor
-                User seller = product.getSeller();
-                seller.setGoldCoins(seller.getGoldCoins().add(amount));
-                
-                // Atualizar status do produto
-                product.setStatus(ProductStatus.SOLD);
-                
-                log.info("Leilão finalizado com sucesso. Vencedor: {}, Valor: {}", 
-                         winner.getUsername(), amount);
-            } else {
-                // Vencedor não tem mais saldo - cancelar leilão
-                log.warn("Vencedor {} não tem saldo suficiente. Cancelando leilão.", 
-                         winner.getUsername());
-                product.setStatus(ProductStatus.AUCTION_ENDED);
-            }
-        } else {
-            // Sem lances - leilão termina sem venda
-            product.setStatus(ProductStatus.AUCTION_ENDED);
-            log.info("Leilão terminado sem lances para o produto: {}", product.getId());
-        }
+        auctionSettlementService.settle(List.of(product.getId()));
         
-        productRepository.save(product);
+        // Mantém o objeto do chamador coerente com o que foi gravado
+        productRepository.findById(product.getId()).ifPresent(current -> {
+            product.setStatus(current.getStatus());
+            product.setPrice(current.getPrice());
+            product.setLeaderId(current.getLeaderId());
+            product.setLeaderBidId(current.getLeaderBidId());
+            product.setBidCount(current.getBidCount());
+            product.setLastBidTime(current.getLastBidTime());
+        });
     }
     
     /**
      * Método simplificado para dar lances (compatível com o controlador)
      */
     @Transactional
-    public Bid placeBidSimple(String productId, User bidder, BigDecimal amount) {
+    public BidResult placeBidSimple(String productId, User bidder, BigDecimal amount) {
         log.info("=== PROCESSANDO LANCE SIMPLES ===");
         log.info("ProductId: {}, Amount: {}, User: {}", productId, amount, bidder.getUsername());
+        bidAdmissionService.admit(bidder.getUsername(), productId);
         
         // Buscar produto
         Product product = productRepository.findById(productId)
@@ -191,52 +222,16 @@ public class BidService {
             throw new IllegalArgumentException("Este item não está em leilão ativo");
         }
         
-        // Verificar se não é o próprio vendedor
-        if (bidder.getId().equals(product.getSeller().getId())) {
-            throw new IllegalArgumentException("Você não pode dar lances no seu próprio item");
-        }
-        
-        // Verificar se o usuário já está liderando o leilão
-        if (isUserWinning(product, bidder)) {
-            throw new IllegalArgumentException("Você já está liderando este leilão!");
-        }
-        
-        // Verificar se o lance é válido (maior que o atual)
-        BigDecimal currentPrice = product.getPrice() != null ? product.getPrice() : BigDecimal.ZERO;
-        BigDecimal minBid = currentPrice.add(BigDecimal.ONE); // Incremento mínimo de 1
-        
-        if (amount.compareTo(minBid) < 0) {
-            throw new IllegalArgumentException(
-                String.format("O lance deve ser pelo menos $%.2f", minBid));
+        // Demais validações (vendedor, liderança, valor mínimo e saldo) são feitas pelo motor
+        BidResult result = auctionEngine.placeBid(product, bidder, amount, true);
+        if (result.isOutbid()) {
+            log.info("Lance superado (preço atual: {})", result.getCurrentPrice());
+            return result;
         }
-        
-        // Marcar lances anteriores como não vencedores
-        bidRepository.findByProductOrderByAmountDesc(product).forEach(oldBid -> {
-            if (oldBid.isWinning()) {
-                oldBid.setWinning(false);
-                bidRepository.save(oldBid);
-                log.info("Lance anterior marcado como não vencedor: {}", oldBid.getId());
-            }
-        });
-        
-        // Criar e salvar o novo lance
-        Bid bid = new Bid();
-        bid.setProduct(product);
-        bid.setBidder(bidder);
-        bid.setAmount(amount);
-        bid.setBidTime(LocalDateTime.now());
-        bid.setWinning(true); // Este será o lance vencedor
-        
-        Bid savedBid = bidRepository.save(bid);
-        log.info("Lance salvo com sucesso: {}", savedBid.getId());
-        
-        // Atualizar o preço do produto
-        product.setPrice(amount);
-        productRepository.save(product);
-        log.info("Preço do produto atualizado: {}", product.getPrice());
+        log.info("Lance aceito: {} (preço atual: {})", result.getBid().getId(), product.getPrice());
         
         log.info("=== LANCE PROCESSADO COM SUCESSO ===");
-        return savedBid;
+        return result;
     }
     
     /**
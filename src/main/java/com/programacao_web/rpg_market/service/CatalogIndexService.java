@@ -0,0 +1,484 @@
+package com.programacao_web.rpg_market.service;
+
+import com.programacao_web.rpg_market.model.ItemRarity;
+import com.programacao_web.rpg_market.model.MagicProperty;
+import com.programacao_web.rpg_market.model.Product;
+import com.programacao_web.rpg_market.model.ProductCategory;
+import com.programacao_web.rpg_market.model.ProductStatus;
+import com.programacao_web.rpg_market.model.ProductType;
+import com.programacao_web.rpg_market.repository.ProductRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Índice em memória dos atributos de filtro do catálogo: um conjunto de bits por valor de
+ * status, tipo, categoria, raridade e propriedade mágica, sobre números internos densos
+ * dados aos produtos.
+ *
+ * Qualquer combinação de filtros vira AND/OR de conjuntos de bits; preço e prazo do leilão
+ * são conferidos só nos candidatos que sobram. A página é escolhida em memória pela
+ * ordenação pedida e só os produtos dela são lidos do banco, por id. O total sai da
+ * contagem de bits, sem {@code count} no banco.
+ *
+ * Montado na inicialização e mantido pelos {@link ProductChangedEvent}, como o índice de
+ * busca; o preço dos leilões, que muda a cada lance sem passar pelos eventos de gravação,
+ * é atualizado pelo motor de leilões. Enquanto não está pronto, ou para ordenações que
+ * não conhece, devolve null e quem chamou consulta o banco.
+ */
+@Service
+public class CatalogIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogIndexService.class);
+
+    private static final String[] INDEXED_FIELDS = {
+        "status", "type", "category", "rarity", "magic_properties", "price", "created_at", "auction_end_date"
+    };
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${app.catalog.compact-ratio:0.25}")
+    private double compactRatio;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Protegido por lock
+    private Segment segment = new Segment();
+
+    private volatile boolean ready;
+
+    // Ids alterados enquanto uma reconstrução completa lia o banco
+    private volatile Set<String> changedDuringRebuild;
+
+    /**
+     * Combinação de filtros. Conjuntos nulos não filtram; dentro de uma dimensão os valores
+     * se somam (OR), entre dimensões se cruzam (AND). Propriedades mágicas são todas exigidas.
+     */
+    public static final class Filter {
+        private Collection<ProductStatus> statuses;
+        private Collection<ProductType> types;
+        private Collection<ProductCategory> categories;
+        private Collection<ItemRarity> rarities;
+        private Collection<MagicProperty> magicProperties;
+        private BigDecimal minPrice;
+        private BigDecimal maxPrice;
+        private LocalDateTime endingBefore;
+
+        public Filter statuses(Collection<ProductStatus> statuses) { this.statuses = statuses; return this; }
+        public Filter status(ProductStatus status) { return statuses(status != null ? List.of(status) : null); }
+        public Filter types(Collection<ProductType> types) { this.types = types; return this; }
+        public Filter type(ProductType type) { return types(type != null ? List.of(type) : null); }
+        public Filter categories(Collection<ProductCategory> categories) { this.categories = categories; return this; }
+        public Filter category(ProductCategory category) { return categories(category != null ? List.of(category) : null); }
+        public Filter rarity(ItemRarity rarity) { this.rarities = rarity != null ? List.of(rarity) : null; return this; }
+        public Filter magicProperties(Collection<MagicProperty> magic) { this.magicProperties = magic; return this; }
+        public Filter endingBefore(LocalDateTime endingBefore) { this.endingBefore = endingBefore; return this; }
+
+        /**
+         * Faixa [min, max]; limites nulos ou não positivos são ignorados, como nos formulários
+         */
+        public Filter priceBetween(BigDecimal minPrice, BigDecimal maxPrice) {
+            this.minPrice = minPrice != null && minPrice.signum() > 0 ? minPrice : null;
+            this.maxPrice = maxPrice != null && maxPrice.signum() > 0 ? maxPrice : null;
+            return this;
+        }
+    }
+
+    /**
+     * Produto como o índice o enxerga. Datas em milissegundos, {@code Long.MIN_VALUE} quando ausentes.
+     */
+    private record Entry(String productId, ProductStatus status, ProductType type, ProductCategory category,
+                         ItemRarity rarity, Set<MagicProperty> magicProperties, BigDecimal price,
+                         long createdAt, long auctionEndDate) {
+
+        Entry withPrice(BigDecimal newPrice) {
+            return new Entry(productId, status, type, category, rarity, magicProperties, newPrice,
+                             createdAt, auctionEndDate);
+        }
+    }
+
+    /**
+     * Todo o estado do índice; trocado inteiro numa reconstrução
+     */
+    private static final class Segment {
+        final List<Entry> documents = new ArrayList<>();
+        final Map<String, Integer> docByProduct = new HashMap<>();
+        final Map<ProductStatus, BitSet> byStatus = new EnumMap<>(ProductStatus.class);
+        final Map<ProductType, BitSet> byType = new EnumMap<>(ProductType.class);
+        final Map<ProductCategory, BitSet> byCategory = new EnumMap<>(ProductCategory.class);
+        final Map<ItemRarity, BitSet> byRarity = new EnumMap<>(ItemRarity.class);
+        final Map<MagicProperty, BitSet> byMagic = new EnumMap<>(MagicProperty.class);
+        final BitSet live = new BitSet();
+        int liveCount;
+        int tombstones;
+
+        void add(Entry entry) {
+            remove(entry.productId());
+            int doc = documents.size();
+            documents.add(entry);
+            docByProduct.put(entry.productId(), doc);
+            mark(byStatus, entry.status(), doc, true);
+            mark(byType, entry.type(), doc, true);
+            mark(byCategory, entry.category(), doc, true);
+            mark(byRarity, entry.rarity(), doc, true);
+            for (MagicProperty property : entry.magicProperties()) {
+                mark(byMagic, property, doc, true);
+            }
+            live.set(doc);
+            liveCount++;
+        }
+
+        void remove(String productId) {
+            Integer doc = docByProduct.remove(productId);
+            if (doc == null) {
+                return;
+            }
+            Entry entry = documents.set(doc, null);
+            mark(byStatus, entry.status(), doc, false);
+            mark(byType, entry.type(), doc, false);
+            mark(byCategory, entry.category(), doc, false);
+            mark(byRarity, entry.rarity(), doc, false);
+            for (MagicProperty property : entry.magicProperties()) {
+                mark(byMagic, property, doc, false);
+            }
+            live.clear(doc);
+            liveCount--;
+            tombstones++;
+        }
+
+        private static <K> void mark(Map<K, BitSet> sets, K key, int doc, boolean value) {
+            if (key == null) {
+                return;
+            }
+            if (value) {
+                sets.computeIfAbsent(key, k -> new BitSet()).set(doc);
+            } else {
+                BitSet set = sets.get(key);
+                if (set != null) {
+                    set.clear(doc);
+                }
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        changedDuringRebuild = ConcurrentHashMap.newKeySet();
+        Segment fresh = new Segment();
+        Query query = new Query();
+        query.fields().include(INDEXED_FIELDS);
+        try (Stream<Product> products = mongoTemplate.stream(query, Product.class)) {
+            products.forEach(product -> fresh.add(toEntry(product)));
+        }
+
+        Set<String> missed;
+        lock.writeLock().lock();
+        try {
+            segment = fresh;
+            missed = changedDuringRebuild;
+            changedDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!missed.isEmpty()) {
+            reindex(missed);
+        }
+        ready = true;
+        log.info("Índice do catálogo montado com {} produtos", fresh.liveCount);
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isAll()) {
+            rebuild();
+            return;
+        }
+        Set<String> pending = changedDuringRebuild;
+        if (pending != null) {
+            pending.addAll(event.productIds());
+        }
+        reindex(event.productIds());
+    }
+
+    /**
+     * Novo preço de um leilão aceito pelo motor (o findAndModify não dispara eventos de gravação)
+     */
+    public void updatePrice(String productId, BigDecimal price) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = segment.docByProduct.get(productId);
+            if (doc != null) {
+                segment.documents.set(doc, segment.documents.get(doc).withPrice(price));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Relê os produtos indicados numa consulta e substitui suas entradas; os que não existem
+     * mais saem do índice
+     */
+    private void reindex(Collection<String> productIds) {
+        Query query = Query.query(Criteria.where("_id").in(productIds));
+        query.fields().include(INDEXED_FIELDS);
+        Map<String, Entry> entries = new HashMap<>();
+        for (Product product : mongoTemplate.find(query, Product.class)) {
+            entries.put(product.getId(), toEntry(product));
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (String productId : productIds) {
+                Entry entry = entries.get(productId);
+                if (entry != null) {
+                    segment.add(entry);
+                } else {
+                    segment.remove(productId);
+                }
+            }
+            if (segment.tombstones > 1000 && segment.tombstones > compactRatio * segment.documents.size()) {
+                segment = compact(segment);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reconstrói os conjuntos só com os produtos vivos, renumerando na mesma ordem
+     */
+    private static Segment compact(Segment old) {
+        Segment compacted = new Segment();
+        for (Entry entry : old.documents) {
+            if (entry != null) {
+                compacted.add(entry);
+            }
+        }
+        return compacted;
+    }
+
+    private static Entry toEntry(Product product) {
+        Set<MagicProperty> magic = product.getMagicProperties() == null || product.getMagicProperties().isEmpty()
+            ? Set.of()
+            : EnumSet.copyOf(product.getMagicProperties());
+        return new Entry(product.getId(), product.getStatus(), product.getType(), product.getCategory(),
+                         product.getRarity(), magic, product.getPrice(),
+                         millis(product.getCreatedAt()), millis(product.getAuctionEndDate()));
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : Long.MIN_VALUE;
+    }
+
+    /**
+     * Uma página dos produtos que atendem ao filtro, na ordem pedida (createdAt, auctionEndDate
+     * ou price; sem ordenação, os mais novos primeiro). Null se o índice não está pronto ou a
+     * ordenação não é suportada: nesse caso a consulta vai ao banco.
+     */
+    public Page<Product> find(Filter filter, Pageable pageable) {
+        Page<String> ids = findIds(filter, pageable);
+        return ids != null ? new PageImpl<>(loadInOrder(ids.getContent()), pageable, ids.getTotalElements()) : null;
+    }
+
+    /**
+     * Como {@link #find}, mas só os ids da página, para quem carrega outra visão do produto
+     */
+    public Page<String> findIds(Filter filter, Pageable pageable) {
+        Comparator<Entry> order = comparator(pageable.getSort());
+        if (!ready || order == null) {
+            return null;
+        }
+
+        int wanted = (int) Math.min(Integer.MAX_VALUE, pageable.getOffset() + pageable.getPageSize());
+        List<String> pageIds = new ArrayList<>();
+        long total = 0;
+
+        lock.readLock().lock();
+        try {
+            Segment current = segment;
+            BitSet matches = candidates(current, filter);
+
+            // Heap com os primeiros na ordem pedida; o topo é o pior deles
+            PriorityQueue<Entry> top = new PriorityQueue<>(order.reversed());
+            for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+                Entry entry = current.documents.get(doc);
+                if (!accepts(entry, filter)) {
+                    continue;
+                }
+                total++;
+                if (top.size() < wanted) {
+                    top.add(entry);
+                } else if (wanted > 0 && order.compare(entry, top.peek()) < 0) {
+                    top.poll();
+                    top.add(entry);
+                }
+            }
+
+            List<Entry> ranked = new ArrayList<>(top);
+            ranked.sort(order);
+            for (int i = (int) pageable.getOffset(); i < ranked.size(); i++) {
+                pageIds.add(ranked.get(i).productId());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return new PageImpl<>(pageIds, pageable, total);
+    }
+
+    /**
+     * Quantos produtos atendem ao filtro, ou -1 se o índice ainda não está pronto
+     */
+    public long count(Filter filter) {
+        if (!ready) {
+            return -1;
+        }
+        lock.readLock().lock();
+        try {
+            Segment current = segment;
+            BitSet matches = candidates(current, filter);
+            if (filter.minPrice == null && filter.maxPrice == null && filter.endingBefore == null) {
+                return matches.cardinality();
+            }
+            long total = 0;
+            for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+                if (accepts(current.documents.get(doc), filter)) {
+                    total++;
+                }
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cruza os conjuntos de bits das dimensões filtradas
+     */
+    private static BitSet candidates(Segment current, Filter filter) {
+        BitSet matches = (BitSet) current.live.clone();
+        if (filter.statuses != null) {
+            matches.and(union(current.byStatus, filter.statuses));
+        }
+        if (filter.types != null) {
+            matches.and(union(current.byType, filter.types));
+        }
+        if (filter.categories != null) {
+            matches.and(union(current.byCategory, filter.categories));
+        }
+        if (filter.rarities != null) {
+            matches.and(union(current.byRarity, filter.rarities));
+        }
+        if (filter.magicProperties != null) {
+            for (MagicProperty property : filter.magicProperties) {
+                BitSet set = current.byMagic.get(property);
+                if (set == null) {
+                    matches.clear();
+                    break;
+                }
+                matches.and(set);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Filtros por faixa, conferidos candidato a candidato
+     */
+    private static boolean accepts(Entry entry, Filter filter) {
+        if (filter.minPrice != null && (entry.price() == null || entry.price().compareTo(filter.minPrice) < 0)) {
+            return false;
+        }
+        if (filter.maxPrice != null && (entry.price() == null || entry.price().compareTo(filter.maxPrice) > 0)) {
+            return false;
+        }
+        if (filter.endingBefore != null
+            && (entry.auctionEndDate() == Long.MIN_VALUE || entry.auctionEndDate() > millis(filter.endingBefore))) {
+            return false;
+        }
+        return true;
+    }
+
+    private static <K> BitSet union(Map<K, BitSet> sets, Collection<K> keys) {
+        BitSet union = new BitSet();
+        for (K key : keys) {
+            BitSet set = sets.get(key);
+            if (set != null) {
+                union.or(set);
+            }
+        }
+        return union;
+    }
+
+    /**
+     * Comparador para a ordenação pedida, com o id como desempate; null se algum campo não
+     * está no índice
+     */
+    private static Comparator<Entry> comparator(Sort sort) {
+        if (sort.isUnsorted()) {
+            sort = Sort.by(Sort.Direction.DESC, "createdAt");
+        }
+        Comparator<Entry> order = null;
+        for (Sort.Order field : sort) {
+            Comparator<Entry> next = switch (field.getProperty()) {
+                case "createdAt" -> Comparator.comparingLong(Entry::createdAt);
+                case "auctionEndDate" -> Comparator.comparingLong(Entry::auctionEndDate);
+                case "price" -> Comparator.comparing(Entry::price, Comparator.nullsFirst(Comparator.naturalOrder()));
+                default -> null;
+            };
+            if (next == null) {
+                return null;
+            }
+            if (field.isDescending()) {
+                next = next.reversed();
+            }
+            order = order == null ? next : order.thenComparing(next);
+        }
+        return order.thenComparing(Entry::productId);
+    }
+
+    /**
+     * Carrega só os produtos da página, numa consulta, na ordem escolhida
+     */
+    private List<Product> loadInOrder(List<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Product> byId = new HashMap<>();
+        productRepository.findAllById(ids).forEach(product -> byId.put(product.getId(), product));
+        List<Product> products = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Product product = byId.get(id);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+}
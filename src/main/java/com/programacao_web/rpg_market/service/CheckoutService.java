@@ -1,5 +1,6 @@
 package com.programacao_web.rpg_market.service;
 
+import com.programacao_web.rpg_market.dto.BidResult;
 import com.programacao_web.rpg_market.dto.CheckoutRequest;
 import com.programacao_web.rpg_market.dto.CheckoutSummary;
 import com.programacao_web.rpg_market.model.*;
@@ -30,6 +31,15 @@ public class CheckoutService {
     @Autowired
     private TransactionService transactionService;
     
+    @Autowired
+    private AuctionEngine auctionEngine;
+    
+    @Autowired
+    private AuctionEventBroadcaster auctionEventBroadcaster;
+    
+    @Autowired
+    private AuctionCloseScheduler auctionCloseScheduler;
+    
     /**
      * Prepara o resumo do checkout antes da confirmação
      */
@@ -144,18 +154,16 @@ public class CheckoutService {
         }
           Product product = summary.getProduct();
         
-        // Ensure delivery address is saved before creating transaction
-        // because Transaction uses @DBRef for deliveryAddress
+        // A transação guarda uma cópia do endereço; um endereço novo só vai para o
+        // cadastro do usuário se ele pediu para salvar
         if (summary.getDeliveryAddress() != null && summary.getDeliveryAddress().getId() == null) {
             DeliveryAddress newAddress = summary.getDeliveryAddress();
             newAddress.setUserId(buyer.getId());
             
-            // Save address permanently if user requested, otherwise save as temporary
             if (request.getSaveAddress() != null && request.getSaveAddress()) {
                 newAddress.setIsDefault(false);
+                deliveryAddressService.save(newAddress);
             }
-            
-            deliveryAddressService.save(newAddress);
         }
 
         Transaction transaction;// Processa baseado no tipo de compra
@@ -176,11 +184,18 @@ public class CheckoutService {
             
             // Se for leilão com compra imediata, também marca como encerrado
             if ("AUCTION_BUY_NOW".equals(summary.getPurchaseType())) {
+                // Nenhum lance pode ser aceito depois da compra imediata
+                auctionCloseScheduler.cancel(product.getId());
+                auctionEngine.close(product.getId());
                 product.setStatus(ProductStatus.AUCTION_ENDED);
             }
             
             // Salva as alterações do produto diretamente via ProductService
             productService.save(product);
+            auctionEngine.evict(product.getId());
+            if ("AUCTION_BUY_NOW".equals(summary.getPurchaseType())) {
+                auctionEventBroadcaster.publishClosed(product);
+            }
               // Cria a transação com endereço de entrega e observações
             transaction = transactionService.createTransaction(
                 product, buyer, summary.getSeller(), summary.getTotalAmount(),
@@ -192,7 +207,10 @@ public class CheckoutService {
             log.info("Processando lance em leilão: produtoId={}, licitante={}, valor={}", 
                      productId, buyer.getUsername(), summary.getBidAmount());
             
-            productService.makeBid(product, buyer, summary.getBidAmount());
+            BidResult bidResult = productService.makeBid(product, buyer, summary.getBidAmount());
+            if (bidResult.isOutbid()) {
+                throw new IllegalArgumentException(bidResult.getOutbidMessage());
+            }
             
             log.info("Lance em leilão processado com sucesso");
             
@@ -31,12 +31,14 @@ public class CustomUserDetailsService implements UserDetailsService {
         
         // Criar nossa implementação personalizada de UserDetails
         return new CustomUserDetails(
+            user.getId(),
             user.getUsername(),
             user.getPassword(),
             true, true, true, true,
             authorities,
             user.getProfileImageUrl(),
-            user.getCharacterClass()
+            user.getCharacterClass(),
+            user.getLevel()
         );
     }
     
@@ -44,27 +46,38 @@ public class CustomUserDetailsService implements UserDetailsService {
     public static class CustomUserDetails extends org.springframework.security.core.userdetails.User {
         
         private static final long serialVersionUID = 1L;
+        private final String id;
         private final String profileImageUrl;
         private final String characterClass;
+        private final int level;
         
-        public CustomUserDetails(String username, String password, 
+        public CustomUserDetails(String id, String username, String password, 
                               boolean enabled, boolean accountNonExpired,
                               boolean credentialsNonExpired, boolean accountNonLocked,
                               Collection<? extends GrantedAuthority> authorities,
                               String profileImageUrl,
-                              String characterClass) {
+                              String characterClass,
+                              int level) {
             super(username, password, enabled, accountNonExpired, 
                   credentialsNonExpired, accountNonLocked, authorities);
+            this.id = id;
             this.profileImageUrl = profileImageUrl;
             this.characterClass = characterClass;
+            this.level = level;
         }
         
-        // Método getter para o atributo personalizado
+        // Métodos getter para os atributos personalizados
+        public String getId() {
+            return id;
+        }
         public String getProfileImageUrl() {
             return profileImageUrl;
         }
         public String getCharacterClass() {
             return characterClass;
         }
+        public int getLevel() {
+            return level;
+        }
     }
 }
\ No newline at end of file
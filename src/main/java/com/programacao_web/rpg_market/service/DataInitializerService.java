@@ -303,9 +303,9 @@ public class DataInitializerService implements CommandLineRunner {
                     .orElse(null);
 
                 Transaction transaction = new Transaction();
-                transaction.setProduct(product);
-                transaction.setBuyer(buyer);
-                transaction.setSeller(product.getSeller());
+                transaction.setProduct(ProductRef.of(product));
+                transaction.setBuyer(UserRef.of(buyer));
+                transaction.setSeller(UserRef.of(product.getSeller()));
                 transaction.setAmount(product.getPrice());
                 transaction.setStatus(TransactionStatus.COMPLETED);
                 transaction.setCreatedAt(product.getCreatedAt().plusHours(random.nextInt(24)));
@@ -349,9 +349,9 @@ public class DataInitializerService implements CommandLineRunner {
                     .orElse(null);
 
                 Transaction transaction = new Transaction();
-                transaction.setProduct(product);
-                transaction.setBuyer(buyer);
-                transaction.setSeller(product.getSeller());
+                transaction.setProduct(ProductRef.of(product));
+                transaction.setBuyer(UserRef.of(buyer));
+                transaction.setSeller(UserRef.of(product.getSeller()));
                 transaction.setAmount(product.getPrice());
                 transaction.setStatus(random.nextBoolean() ? TransactionStatus.PENDING : TransactionStatus.SHIPPED);
                 transaction.setCreatedAt(LocalDateTime.now().minusDays(random.nextInt(5)));
@@ -411,9 +411,9 @@ public class DataInitializerService implements CommandLineRunner {
                         .orElse(null);
                     
                     Transaction transaction = new Transaction();
-                    transaction.setProduct(product);
-                    transaction.setBuyer(buyer);
-                    transaction.setSeller(seller);
+                    transaction.setProduct(ProductRef.of(product));
+                    transaction.setBuyer(UserRef.of(buyer));
+                    transaction.setSeller(UserRef.of(seller));
                     transaction.setAmount(new BigDecimal(random.nextInt(800) + 50)); // Valores históricos variados
                     transaction.setStatus(TransactionStatus.COMPLETED);
                     
@@ -467,9 +467,9 @@ public class DataInitializerService implements CommandLineRunner {
                     .orElse(null);
                 
                 Transaction bid = new Transaction();
-                bid.setProduct(auction);
-                bid.setBuyer(bidder);
-                bid.setSeller(auction.getSeller());
+                bid.setProduct(ProductRef.of(auction));
+                bid.setBuyer(UserRef.of(bidder));
+                bid.setSeller(UserRef.of(auction.getSeller()));
                 bid.setAmount(currentPrice);
                 bid.setStatus(i == numBids - 1 ? TransactionStatus.PENDING : TransactionStatus.CANCELED); // Último lance fica pendente
                 bid.setCreatedAt(auction.getCreatedAt().plusHours(i * 6 + random.nextInt(6))); // Lances espalhados no tempo
@@ -506,9 +506,9 @@ public class DataInitializerService implements CommandLineRunner {
             LocalDateTime auctionEndTime = auction.getCreatedAt().plusDays(random.nextInt(7) + 1);
             
             Transaction winningBid = new Transaction();
-            winningBid.setProduct(auction);
-            winningBid.setBuyer(winner);
-            winningBid.setSeller(auction.getSeller());
+            winningBid.setProduct(ProductRef.of(auction));
+            winningBid.setBuyer(UserRef.of(winner));
+            winningBid.setSeller(UserRef.of(auction.getSeller()));
             winningBid.setAmount(finalPrice);
             winningBid.setStatus(TransactionStatus.COMPLETED);
             winningBid.setCreatedAt(auctionEndTime.minusMinutes(random.nextInt(60)));
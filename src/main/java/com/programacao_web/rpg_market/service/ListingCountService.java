@@ -0,0 +1,48 @@
+package com.programacao_web.rpg_market.service;
+
+import com.programacao_web.rpg_market.model.Product;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Totais das listagens do mercado, guardados por filtro.
+ *
+ * A contagem custa mais que a própria página em catálogos grandes e muda pouco entre uma
+ * visita e outra. O cache é limpo a cada produto gravado ou removido e, como lances e
+ * encerramentos em lote não passam pelos eventos de gravação, também a cada minuto.
+ */
+@Service
+public class ListingCountService {
+
+    public static final String CACHE_NAME = "listingCounts";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Total de produtos que atendem ao filtro (a consulta não deve ter paginação nem cursor)
+     */
+    @Cacheable(value = CACHE_NAME, key = "#query.queryObject.toString()")
+    public long count(Query query) {
+        return mongoTemplate.count(query, Product.class);
+    }
+
+    @EventListener
+    @CacheEvict(value = CACHE_NAME, allEntries = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        // Só limpa o cache
+    }
+
+    @Scheduled(fixedRate = 60_000)
+    @CacheEvict(value = CACHE_NAME, allEntries = true)
+    public void expire() {
+        // Só limpa o cache
+    }
+}
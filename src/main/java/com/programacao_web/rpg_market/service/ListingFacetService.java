@@ -0,0 +1,195 @@
+package com.programacao_web.rpg_market.service;
+
+import com.programacao_web.rpg_market.dto.FacetCounts;
+import com.programacao_web.rpg_market.model.ItemRarity;
+import com.programacao_web.rpg_market.model.MagicProperty;
+import com.programacao_web.rpg_market.model.ProductCategory;
+import com.programacao_web.rpg_market.model.ProductStatus;
+import com.programacao_web.rpg_market.model.ProductType;
+import com.programacao_web.rpg_market.util.StoredPrice;
+
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Contagens por categoria, raridade, propriedade mágica e faixa de preço para os filtros
+ * das vitrines, numa única agregação {@code $facet}.
+ *
+ * O {@code $match} inicial leva o que vale para todas as dimensões (tipo, status,
+ * visibilidade da classe, prazo do leilão); cada faceta aplica só os filtros das outras
+ * dimensões. O resultado fica em cache por filtro e é descartado a cada mudança no
+ * catálogo, como os totais das listagens.
+ */
+@Service
+public class ListingFacetService {
+
+    private static final Logger log = LoggerFactory.getLogger(ListingFacetService.class);
+
+    public static final String CACHE_NAME = "listingFacets";
+
+    /**
+     * Limites inferiores das faixas de preço; a última não tem teto
+     */
+    static final List<BigDecimal> PRICE_BOUNDARIES = List.of(
+        BigDecimal.ZERO, new BigDecimal("50"), new BigDecimal("100"), new BigDecimal("250"),
+        new BigDecimal("500"), new BigDecimal("1000"), new BigDecimal("5000"));
+
+    private static final String OPEN_BUCKET = "acima";
+
+    /**
+     * Filtro atual de uma vitrine. É a chave do cache, então precisa de igualdade por valor.
+     */
+    public record Filter(ProductType type,
+                         ProductCategory category,
+                         ItemRarity rarity,
+                         BigDecimal minPrice,
+                         BigDecimal maxPrice,
+                         boolean endingSoon,
+                         Set<ProductCategory> visibleCategories) {
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Cacheable(CACHE_NAME)
+    public FacetCounts facets(Filter filter) {
+        Document base = new Document("type", filter.type().name())
+            .append("status", (filter.type() == ProductType.AUCTION ? ProductStatus.AUCTION_ACTIVE
+                                                                     : ProductStatus.AVAILABLE).name());
+        if (filter.visibleCategories() != null) {
+            base.append("category", new Document("$in", filter.visibleCategories().stream().map(Enum::name).toList()));
+        }
+        if (filter.endingSoon()) {
+            LocalDateTime nextDay = LocalDateTime.now().plusHours(24).truncatedTo(ChronoUnit.MINUTES);
+            base.append("auction_end_date",
+                        new Document("$lte", Date.from(nextDay.atZone(ZoneId.systemDefault()).toInstant())));
+        }
+
+        Document byCategory = filter.category() != null ? new Document("category", filter.category().name()) : new Document();
+        Document byRarity = filter.rarity() != null ? new Document("rarity", filter.rarity().name()) : new Document();
+        Document priceRange = StoredPrice.rangeExpr(filter.minPrice(), filter.maxPrice());
+        Document byPrice = priceRange != null ? new Document("$expr", priceRange) : new Document();
+
+        Document facet = new Document()
+            .append("categories", List.of(
+                new Document("$match", and(byRarity, byPrice)),
+                groupBy("$category")))
+            .append("rarities", List.of(
+                new Document("$match", and(byCategory, byPrice)),
+                groupBy("$rarity")))
+            .append("magicProperties", List.of(
+                new Document("$match", and(byCategory, byRarity, byPrice)),
+                new Document("$unwind", "$magic_properties"),
+                groupBy("$magic_properties")))
+            .append("prices", List.of(
+                new Document("$match", and(byCategory, byRarity)),
+                new Document("$bucket", new Document("groupBy", StoredPrice.numeric())
+                    .append("boundaries", PRICE_BOUNDARIES.stream().map(StoredPrice::decimal).toList())
+                    .append("default", OPEN_BUCKET)
+                    .append("output", new Document("count", new Document("$sum", 1))))));
+
+        Document result = mongoTemplate.getCollection("products")
+            .aggregate(List.of(new Document("$match", base), new Document("$facet", facet)))
+            .first();
+        if (result == null) {
+            result = new Document();
+        }
+
+        return new FacetCounts(
+            counts(result, "categories", ProductCategory.class, ProductCategory::valueOf),
+            counts(result, "rarities", ItemRarity.class, ItemRarity::valueOf),
+            counts(result, "magicProperties", MagicProperty.class, MagicProperty::valueOf),
+            priceBuckets(result));
+    }
+
+    @EventListener
+    @CacheEvict(value = CACHE_NAME, allEntries = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        // Só limpa o cache
+    }
+
+    @Scheduled(fixedRate = 60_000)
+    @CacheEvict(value = CACHE_NAME, allEntries = true)
+    public void expire() {
+        // Só limpa o cache
+    }
+
+    private static Document groupBy(String field) {
+        return new Document("$group", new Document("_id", field).append("count", new Document("$sum", 1)));
+    }
+
+    private static Document and(Document... filters) {
+        Document merged = new Document();
+        for (Document filter : filters) {
+            merged.putAll(filter);
+        }
+        return merged;
+    }
+
+    private static <E extends Enum<E>> Map<E, Long> counts(Document result, String facet, Class<E> type,
+                                                           Function<String, E> parse) {
+        Map<E, Long> counts = new EnumMap<>(type);
+        for (Document group : result.getList(facet, Document.class, List.of())) {
+            Object value = group.get("_id");
+            if (value == null) {
+                continue;
+            }
+            try {
+                counts.put(parse.apply(value.toString()), ((Number) group.get("count")).longValue());
+            } catch (IllegalArgumentException e) {
+                // Valor antigo que não existe mais no enum
+                log.debug("Valor {} ignorado na faceta {}", value, facet);
+            }
+        }
+        return counts;
+    }
+
+    private static List<FacetCounts.PriceBucket> priceBuckets(Document result) {
+        Map<BigDecimal, Long> byLowerBound = new HashMap<>();
+        long open = 0;
+        for (Document bucket : result.getList("prices", Document.class, List.of())) {
+            Object id = bucket.get("_id");
+            long count = ((Number) bucket.get("count")).longValue();
+            if (id instanceof Decimal128 lower) {
+                byLowerBound.put(lower.bigDecimalValue().stripTrailingZeros(), count);
+            } else {
+                // Acima do último limite (ou preço que não converte, que o filtro de faixa também exclui)
+                open += count;
+            }
+        }
+
+        // Todas as faixas aparecem, inclusive as vazias, na ordem dos limites
+        List<FacetCounts.PriceBucket> buckets = new ArrayList<>(PRICE_BOUNDARIES.size());
+        for (int i = 0; i < PRICE_BOUNDARIES.size() - 1; i++) {
+            BigDecimal min = PRICE_BOUNDARIES.get(i);
+            buckets.add(new FacetCounts.PriceBucket(min, PRICE_BOUNDARIES.get(i + 1),
+                                                    byLowerBound.getOrDefault(min.stripTrailingZeros(), 0L)));
+        }
+        BigDecimal last = PRICE_BOUNDARIES.get(PRICE_BOUNDARIES.size() - 1);
+        buckets.add(new FacetCounts.PriceBucket(last, null, open));
+        return buckets;
+    }
+}
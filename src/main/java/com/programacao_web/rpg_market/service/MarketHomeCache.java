@@ -0,0 +1,92 @@
+package com.programacao_web.rpg_market.service;
+
+import com.programacao_web.rpg_market.dto.ProductCard;
+import com.programacao_web.rpg_market.model.ProductCategory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Vitrines da página inicial do mercado, guardadas por conjunto de categorias visíveis e página.
+ *
+ * Só existem uns nove conjuntos de visibilidade (um por classe e o dos MESTREs), então quase
+ * todo acesso a /mercado cai numa entrada pronta. Qualquer {@link ProductChangedEvent}
+ * (criação, edição, venda, encerramento de leilão) descarta tudo; o prazo curto cobre os
+ * preços dos leilões, que mudam a cada lance sem passar pelos eventos.
+ */
+@Service
+public class MarketHomeCache {
+
+    /**
+     * Só as primeiras páginas, de tamanho pequeno e na ordenação padrão, são guardadas; o
+     * resto vai direto ao banco, para parâmetros arbitrários não encherem o cache
+     */
+    static final int MAX_CACHED_PAGE = 4;
+    static final int MAX_CACHED_SIZE = 24;
+    static final Sort HOME_SORT = Sort.by(Sort.Direction.DESC, "createdAt");
+
+    public record HomePage(List<ProductCard> products, List<ProductCard> auctions) {
+    }
+
+    private record Key(Set<ProductCategory> visibleCategories,
+                       int productPage, int productSize, int auctionPage, int auctionSize) {
+    }
+
+    private record Entry(HomePage page, long loadedAt) {
+    }
+
+    @Value("${app.market.home-cache-ttl-ms:15000}")
+    private long ttlMillis;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    // Incrementada a cada invalidação; uma carga que começou antes dela não é guardada
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * A vitrine guardada para a visibilidade e as páginas pedidas, ou a carregada por {@code loader}
+     */
+    public HomePage get(Set<ProductCategory> visibleCategories,
+                        Pageable productPageable, Pageable auctionPageable,
+                        Supplier<HomePage> loader) {
+        if (!cacheable(productPageable) || !cacheable(auctionPageable)) {
+            return loader.get();
+        }
+
+        Key key = new Key(visibleCategories, productPageable.getPageNumber(), productPageable.getPageSize(),
+                          auctionPageable.getPageNumber(), auctionPageable.getPageSize());
+        long now = System.currentTimeMillis();
+        Entry cached = entries.get(key);
+        if (cached != null && now - cached.loadedAt() < ttlMillis) {
+            return cached.page();
+        }
+
+        long loadedGeneration = generation.get();
+        HomePage page = loader.get();
+        if (generation.get() == loadedGeneration) {
+            entries.put(key, new Entry(page, now));
+        }
+        return page;
+    }
+
+    private static boolean cacheable(Pageable pageable) {
+        return pageable.getPageNumber() <= MAX_CACHED_PAGE && pageable.getPageSize() <= MAX_CACHED_SIZE
+            && pageable.getSort().equals(HOME_SORT);
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+}
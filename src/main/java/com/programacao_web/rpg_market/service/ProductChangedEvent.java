@@ -0,0 +1,28 @@
+package com.programacao_web.rpg_market.service;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Aviso de que produtos foram criados, alterados ou removidos. Quem mantém cópias em memória
+ * (índice de busca, caches) relê os ids indicados; {@code productIds} vazio significa que
+ * qualquer produto pode ter mudado e a cópia inteira deve ser refeita.
+ */
+public record ProductChangedEvent(Set<String> productIds) {
+
+    public static ProductChangedEvent of(String productId) {
+        return new ProductChangedEvent(Set.of(productId));
+    }
+
+    public static ProductChangedEvent of(Collection<String> productIds) {
+        return new ProductChangedEvent(Set.copyOf(productIds));
+    }
+
+    public static ProductChangedEvent all() {
+        return new ProductChangedEvent(Set.of());
+    }
+
+    public boolean isAll() {
+        return productIds.isEmpty();
+    }
+}
@@ -0,0 +1,209 @@
+package com.programacao_web.rpg_market.service;
+
+import com.programacao_web.rpg_market.model.Product;
+import com.programacao_web.rpg_market.model.ProductCategory;
+import com.programacao_web.rpg_market.model.ProductStatus;
+import com.programacao_web.rpg_market.model.ProductType;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Totais do catálogo para os painéis do MESTRE, sem {@code count} no banco a cada visita.
+ *
+ * Mantém um contador por combinação (status, categoria, tipo) e a combinação atual de cada
+ * produto; cada {@link ProductChangedEvent} relê só os produtos indicados e move um de um
+ * contador para outro. Qualquer total filtrado por essas três dimensões sai da soma dos
+ * contadores.
+ *
+ * Filtros que os contadores não cobrem (o nome do vendedor, por expressão regular) têm
+ * contagem estimada: o banco conta só até algumas páginas além da atual. A contagem exata
+ * é opcional, pedida explicitamente.
+ */
+@Service
+public class ProductCountService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductCountService.class);
+
+    /**
+     * Páginas além da atual que a contagem estimada confirma
+     */
+    static final int ESTIMATE_PAGES_AHEAD = 5;
+
+    private static final String[] COUNTED_FIELDS = { "status", "category", "type" };
+
+    private record Key(ProductStatus status, ProductCategory category, ProductType type) {
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Protegidos por lock
+    private Map<String, Key> keyByProduct = new HashMap<>();
+    private Map<Key, Long> counters = new HashMap<>();
+
+    private volatile boolean ready;
+
+    // Ids alterados enquanto uma reconstrução completa lia o banco
+    private volatile Set<String> changedDuringRebuild;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        changedDuringRebuild = ConcurrentHashMap.newKeySet();
+        Map<String, Key> freshKeys = new HashMap<>();
+        Map<Key, Long> freshCounters = new HashMap<>();
+        Query query = new Query();
+        query.fields().include(COUNTED_FIELDS);
+        try (Stream<Product> products = mongoTemplate.stream(query, Product.class)) {
+            products.forEach(product -> {
+                Key key = keyOf(product);
+                freshKeys.put(product.getId(), key);
+                freshCounters.merge(key, 1L, Long::sum);
+            });
+        }
+
+        Set<String> missed;
+        lock.writeLock().lock();
+        try {
+            keyByProduct = freshKeys;
+            counters = freshCounters;
+            missed = changedDuringRebuild;
+            changedDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!missed.isEmpty()) {
+            recount(missed);
+        }
+        ready = true;
+        log.info("Contadores do catálogo montados com {} produtos", freshKeys.size());
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isAll()) {
+            rebuild();
+            return;
+        }
+        Set<String> pending = changedDuringRebuild;
+        if (pending != null) {
+            pending.addAll(event.productIds());
+        }
+        recount(event.productIds());
+    }
+
+    /**
+     * Relê a combinação dos produtos indicados e move cada um para o contador novo; os que
+     * não existem mais saem da contagem
+     */
+    private void recount(Collection<String> productIds) {
+        Query query = Query.query(Criteria.where("_id").in(productIds));
+        query.fields().include(COUNTED_FIELDS);
+        Map<String, Key> current = new HashMap<>();
+        for (Product product : mongoTemplate.find(query, Product.class)) {
+            current.put(product.getId(), keyOf(product));
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (String productId : productIds) {
+                Key previous = keyByProduct.remove(productId);
+                if (previous != null) {
+                    counters.computeIfPresent(previous, (key, count) -> count > 1 ? count - 1 : null);
+                }
+                Key key = current.get(productId);
+                if (key != null) {
+                    keyByProduct.put(productId, key);
+                    counters.merge(key, 1L, Long::sum);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Produtos com o status, a categoria e o tipo indicados (nulos não filtram)
+     */
+    public long count(ProductStatus status, ProductCategory category, ProductType type) {
+        if (!ready) {
+            Criteria criteria = new Criteria();
+            if (status != null) criteria = criteria.and("status").is(status);
+            if (category != null) criteria = criteria.and("category").is(category);
+            if (type != null) criteria = criteria.and("type").is(type);
+            return mongoTemplate.count(Query.query(criteria), Product.class);
+        }
+        lock.readLock().lock();
+        try {
+            long total = 0;
+            for (Map.Entry<Key, Long> counter : counters.entrySet()) {
+                Key key = counter.getKey();
+                if ((status == null || key.status() == status)
+                    && (category == null || key.category() == category)
+                    && (type == null || key.type() == type)) {
+                    total += counter.getValue();
+                }
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long total() {
+        return count(null, null, null);
+    }
+
+    public long countByStatusIn(Collection<ProductStatus> statuses) {
+        long total = 0;
+        for (ProductStatus status : statuses) {
+            total += count(status, null, null);
+        }
+        return total;
+    }
+
+    /**
+     * Total de uma consulta que os contadores não cobrem. Com {@code exact} conta tudo; sem,
+     * conta só até {@link #estimateCap} e a paginação mostra as próximas páginas a partir daí.
+     */
+    public long countQuery(Query filter, Pageable pageable, boolean exact) {
+        Query countQuery = Query.of(filter).skip(0);
+        if (!exact) {
+            countQuery.limit((int) Math.min(Integer.MAX_VALUE, estimateCap(pageable)));
+        } else {
+            countQuery.limit(0);
+        }
+        return mongoTemplate.count(countQuery, Product.class);
+    }
+
+    /**
+     * Até onde a contagem estimada vai para a página pedida; um total igual a ele quer dizer
+     * "pelo menos isso"
+     */
+    public static long estimateCap(Pageable pageable) {
+        return pageable.getOffset() + (long) pageable.getPageSize() * (ESTIMATE_PAGES_AHEAD + 1);
+    }
+
+    private static Key keyOf(Product product) {
+        return new Key(product.getStatus(), product.getCategory(), product.getType());
+    }
+}
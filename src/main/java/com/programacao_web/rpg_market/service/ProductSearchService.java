@@ -0,0 +1,401 @@
+package com.programacao_web.rpg_market.service;
+
+import com.programacao_web.rpg_market.model.Product;
+import com.programacao_web.rpg_market.model.ProductCategory;
+import com.programacao_web.rpg_market.model.ProductStatus;
+import com.programacao_web.rpg_market.repository.ProductRepository;
+import com.programacao_web.rpg_market.util.PortugueseAnalyzer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Busca textual de produtos por índice invertido em memória.
+ *
+ * Cada produto indexado recebe um número interno crescente; as listas de ocorrências de
+ * cada termo ficam ordenadas por esse número, então a consulta percorre a lista do termo
+ * mais raro e procura os demais por busca binária, sem tocar no banco. Status e categoria
+ * são conjuntos de bits cruzados com o resultado. O ranking é BM25, com o nome valendo
+ * {@value #NAME_WEIGHT} vezes a descrição.
+ *
+ * O índice é montado na inicialização e atualizado a cada {@link ProductChangedEvent}.
+ * Produto alterado é reindexado com um número novo e o antigo vira lápide; quando as
+ * lápides passam de uma fração do índice, as listas são recompactadas.
+ */
+@Service
+public class ProductSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchService.class);
+
+    static final int NAME_WEIGHT = 3;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${app.search.compact-ratio:0.25}")
+    private double compactRatio;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Protegido por lock
+    private Segment segment = new Segment();
+
+    // Ids alterados enquanto uma reconstrução completa lia o banco
+    private volatile Set<String> changedDuringRebuild;
+
+    /**
+     * Produto como o índice o enxerga
+     */
+    private record Entry(String productId, ProductStatus status, ProductCategory category,
+                         String[] terms, int[] frequencies, int length) {
+    }
+
+    /**
+     * Lista de ocorrências de um termo: números de documento crescentes e a frequência em cada
+     * um. {@code live} conta só os documentos que não viraram lápide.
+     */
+    private static final class Postings {
+        int[] docs = new int[4];
+        int[] frequencies = new int[4];
+        int size;
+        int live;
+
+        void add(int doc, int frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size] = frequency;
+            size++;
+            live++;
+        }
+
+        /**
+         * Primeira posição a partir de {@code from} com documento >= {@code doc}
+         */
+        int advance(int from, int doc) {
+            int step = 1;
+            int high = from;
+            while (high < size && docs[high] < doc) {
+                from = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            int index = Arrays.binarySearch(docs, from, Math.min(high + 1, size), doc);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+
+    /**
+     * Todo o estado do índice; trocado inteiro numa reconstrução
+     */
+    private static final class Segment {
+        final List<Entry> documents = new ArrayList<>();
+        final Map<String, Integer> docByProduct = new HashMap<>();
+        final Map<String, Postings> postings = new HashMap<>();
+        final Map<ProductStatus, BitSet> byStatus = new EnumMap<>(ProductStatus.class);
+        final Map<ProductCategory, BitSet> byCategory = new EnumMap<>(ProductCategory.class);
+        final BitSet live = new BitSet();
+        long totalLength;
+        int liveCount;
+        int tombstones;
+
+        void add(Entry entry) {
+            remove(entry.productId());
+            int doc = documents.size();
+            documents.add(entry);
+            docByProduct.put(entry.productId(), doc);
+            for (int i = 0; i < entry.terms().length; i++) {
+                postings.computeIfAbsent(entry.terms()[i], term -> new Postings()).add(doc, entry.frequencies()[i]);
+            }
+            if (entry.status() != null) {
+                byStatus.computeIfAbsent(entry.status(), status -> new BitSet()).set(doc);
+            }
+            if (entry.category() != null) {
+                byCategory.computeIfAbsent(entry.category(), category -> new BitSet()).set(doc);
+            }
+            live.set(doc);
+            totalLength += entry.length();
+            liveCount++;
+        }
+
+        void remove(String productId) {
+            Integer doc = docByProduct.remove(productId);
+            if (doc == null) {
+                return;
+            }
+            Entry entry = documents.set(doc, null);
+            for (String term : entry.terms()) {
+                postings.get(term).live--;
+            }
+            if (entry.status() != null) {
+                byStatus.get(entry.status()).clear(doc);
+            }
+            if (entry.category() != null) {
+                byCategory.get(entry.category()).clear(doc);
+            }
+            live.clear(doc);
+            totalLength -= entry.length();
+            liveCount--;
+            tombstones++;
+        }
+    }
+
+    private record Hit(int doc, double score) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        changedDuringRebuild = ConcurrentHashMap.newKeySet();
+        Segment fresh = new Segment();
+        Query query = new Query();
+        query.fields().include("name", "description", "status", "category");
+        try (Stream<Product> products = mongoTemplate.stream(query, Product.class)) {
+            products.forEach(product -> fresh.add(toEntry(product)));
+        }
+
+        Set<String> missed;
+        lock.writeLock().lock();
+        try {
+            segment = fresh;
+            missed = changedDuringRebuild;
+            changedDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!missed.isEmpty()) {
+            reindex(missed);
+        }
+        log.info("Índice de busca montado com {} produtos e {} termos", fresh.liveCount, fresh.postings.size());
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isAll()) {
+            rebuild();
+            return;
+        }
+        Set<String> pending = changedDuringRebuild;
+        if (pending != null) {
+            pending.addAll(event.productIds());
+        }
+        reindex(event.productIds());
+    }
+
+    /**
+     * Relê os produtos indicados numa consulta e substitui suas entradas; os que não existem
+     * mais saem do índice
+     */
+    private void reindex(Collection<String> productIds) {
+        Query query = Query.query(Criteria.where("_id").in(productIds));
+        query.fields().include("name", "description", "status", "category");
+        Map<String, Entry> entries = new HashMap<>();
+        for (Product product : mongoTemplate.find(query, Product.class)) {
+            entries.put(product.getId(), toEntry(product));
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (String productId : productIds) {
+                Entry entry = entries.get(productId);
+                if (entry != null) {
+                    segment.add(entry);
+                } else {
+                    segment.remove(productId);
+                }
+            }
+            if (segment.tombstones > 1000 && segment.tombstones > compactRatio * segment.documents.size()) {
+                segment = compact(segment);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reconstrói as listas só com os documentos vivos, renumerando na mesma ordem
+     */
+    private static Segment compact(Segment old) {
+        Segment compacted = new Segment();
+        for (Entry entry : old.documents) {
+            if (entry != null) {
+                compacted.add(entry);
+            }
+        }
+        return compacted;
+    }
+
+    private static Entry toEntry(Product product) {
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        int length = 0;
+        for (String term : PortugueseAnalyzer.analyze(product.getName())) {
+            frequencies.merge(term, NAME_WEIGHT, Integer::sum);
+            length += NAME_WEIGHT;
+        }
+        for (String term : PortugueseAnalyzer.analyze(product.getDescription())) {
+            frequencies.merge(term, 1, Integer::sum);
+            length++;
+        }
+
+        String[] terms = frequencies.keySet().toArray(new String[0]);
+        int[] counts = new int[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            counts[i] = frequencies.get(terms[i]);
+        }
+        return new Entry(product.getId(), product.getStatus(), product.getCategory(), terms, counts, length);
+    }
+
+    /**
+     * Busca produtos que contêm todos os termos da consulta, ordenados por relevância.
+     * {@code statuses} e {@code categories} nulos não filtram.
+     */
+    public Page<Product> search(String keyword, Collection<ProductStatus> statuses,
+                                Collection<ProductCategory> categories, Pageable pageable) {
+        Page<String> ids = searchIds(keyword, statuses, categories, pageable);
+        return new PageImpl<>(loadInOrder(ids.getContent()), pageable, ids.getTotalElements());
+    }
+
+    /**
+     * Como {@link #search}, mas só os ids da página, na ordem do ranking
+     */
+    public Page<String> searchIds(String keyword, Collection<ProductStatus> statuses,
+                                  Collection<ProductCategory> categories, Pageable pageable) {
+        List<String> terms = PortugueseAnalyzer.analyze(keyword).stream().distinct().toList();
+        if (terms.isEmpty()) {
+            return Page.empty(pageable);
+        }
+
+        int wanted = (int) Math.min(Integer.MAX_VALUE, pageable.getOffset() + pageable.getPageSize());
+        List<String> pageIds = new ArrayList<>();
+        long total;
+
+        lock.readLock().lock();
+        try {
+            Segment current = segment;
+            List<Postings> lists = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                Postings postings = current.postings.get(term);
+                if (postings == null || postings.live == 0) {
+                    return Page.empty(pageable);
+                }
+                lists.add(postings);
+            }
+            lists.sort(Comparator.comparingInt(postings -> postings.live));
+
+            BitSet allowed = (BitSet) current.live.clone();
+            if (statuses != null) {
+                allowed.and(union(current.byStatus, statuses));
+            }
+            if (categories != null) {
+                allowed.and(union(current.byCategory, categories));
+            }
+
+            double n = Math.max(1, current.liveCount);
+            double averageLength = current.liveCount > 0 ? (double) current.totalLength / current.liveCount : 1.0;
+            double[] idf = new double[lists.size()];
+            for (int t = 0; t < lists.size(); t++) {
+                double df = lists.get(t).live;
+                idf[t] = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+            }
+
+            PriorityQueue<Hit> top = new PriorityQueue<>(Comparator.comparingDouble(Hit::score));
+            int[] positions = new int[lists.size()];
+            Postings rarest = lists.get(0);
+            total = 0;
+
+            candidates:
+            for (int i = 0; i < rarest.size; i++) {
+                int doc = rarest.docs[i];
+                if (!allowed.get(doc)) {
+                    continue;
+                }
+                int length = current.documents.get(doc).length();
+                double norm = K1 * (1 - B + B * length / averageLength);
+                double score = idf[0] * termScore(rarest.frequencies[i], norm);
+                for (int t = 1; t < lists.size(); t++) {
+                    Postings other = lists.get(t);
+                    positions[t] = other.advance(positions[t], doc);
+                    if (positions[t] >= other.size || other.docs[positions[t]] != doc) {
+                        continue candidates;
+                    }
+                    score += idf[t] * termScore(other.frequencies[positions[t]], norm);
+                }
+
+                total++;
+                if (top.size() < wanted) {
+                    top.add(new Hit(doc, score));
+                } else if (wanted > 0 && score > top.peek().score()) {
+                    top.poll();
+                    top.add(new Hit(doc, score));
+                }
+            }
+
+            List<Hit> ranked = new ArrayList<>(top);
+            ranked.sort(Comparator.comparingDouble(Hit::score).reversed().thenComparing(Hit::doc, Comparator.reverseOrder()));
+            for (int i = (int) pageable.getOffset(); i < ranked.size(); i++) {
+                pageIds.add(current.documents.get(ranked.get(i).doc()).productId());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return new PageImpl<>(pageIds, pageable, total);
+    }
+
+    private static double termScore(int frequency, double norm) {
+        return frequency * (K1 + 1) / (frequency + norm);
+    }
+
+    private static <K> BitSet union(Map<K, BitSet> sets, Collection<K> keys) {
+        BitSet union = new BitSet();
+        for (K key : keys) {
+            BitSet set = sets.get(key);
+            if (set != null) {
+                union.or(set);
+            }
+        }
+        return union;
+    }
+
+    /**
+     * Carrega só os produtos da página, numa consulta, na ordem do ranking
+     */
+    private List<Product> loadInOrder(List<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Product> byId = new HashMap<>();
+        productRepository.findAllById(ids).forEach(product -> byId.put(product.getId(), product));
+        List<Product> products = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Product product = byId.get(id);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+}
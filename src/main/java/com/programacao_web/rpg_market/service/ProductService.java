@@ -1,27 +1,50 @@
 package com.programacao_web.rpg_market.service;
 
+import com.programacao_web.rpg_market.dto.BidResult;
+import com.programacao_web.rpg_market.dto.ProductCard;
+import com.programacao_web.rpg_market.dto.ProductSlice;
 import com.programacao_web.rpg_market.model.*;
 import com.programacao_web.rpg_market.repository.BidRepository;
 import com.programacao_web.rpg_market.repository.ProductRepository;
+import com.programacao_web.rpg_market.repository.ProxyBidRepository;
 import com.programacao_web.rpg_market.repository.TransactionRepository;
+import com.programacao_web.rpg_market.util.KeysetCursor;
+import com.programacao_web.rpg_market.util.StoredPrice;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.CacheEvict;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,6 +54,8 @@ public class ProductService {
 
     private static final Logger log = LoggerFactory.getLogger(ProductService.class);
 
+    private static final int MAX_SLICE_SIZE = 48;
+
     @Autowired
     private ProductRepository productRepository;
     
@@ -50,12 +75,49 @@ public class ProductService {
     @Autowired
     private MongoTemplate mongoTemplate;
     
+    @Autowired
+    private AuctionEngine auctionEngine;
+    
+    @Autowired
+    private ProxyBidRepository proxyBidRepository;
+    
+    @Autowired
+    private AuctionEventBroadcaster auctionEventBroadcaster;
+    
+    @Autowired
+    private AuctionCloseScheduler auctionCloseScheduler;
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private ProductSearchService productSearchService;
+    
+    @Autowired
+    private AuctionSettlementService auctionSettlementService;
+    
+    @Autowired
+    private ListingCountService listingCountService;
+    
+    @Autowired
+    private CatalogIndexService catalogIndexService;
+    
+    @Autowired
+    private ProductCountService productCountService;
+    
+    @Autowired
+    private SimilarItemsService similarItemsService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     /**
      * Cria um novo produto
      */
     public Product create(Product product, User seller) {
         // Definir o vendedor
         product.setSeller(seller);
+        product.setCreatedAt(LocalDateTime.now());
         
         // Garantir que leilões sempre tenham um preço inicial > 0
         if (product.getType() == ProductType.AUCTION && 
@@ -70,7 +132,30 @@ public class ProductService {
             product.setStatus(ProductStatus.AUCTION_ACTIVE);
         }
         
-        return productRepository.save(product);    }
+        Product saved = productRepository.save(product);
+        auctionCloseScheduler.schedule(saved);
+        return saved;
+    }
+    
+    /**
+     * Grava a data de criação dos produtos que não a têm, tirada do próprio ObjectId, para a
+     * vitrine por novidade e o cursor das vendas diretas alcançarem também os anúncios antigos
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillCreatedAt() {
+        try {
+            long updated = mongoTemplate.updateMulti(
+                Query.query(Criteria.where("createdAt").is(null).and("_id").type(JsonSchemaObject.Type.OBJECT_ID)),
+                AggregationUpdate.update().set("created_at").toValue(ConvertOperators.valueOf("_id").convertToDate()),
+                Product.class).getModifiedCount();
+            if (updated > 0) {
+                log.info("Data de criação preenchida em {} produtos antigos", updated);
+                eventPublisher.publishEvent(ProductChangedEvent.all());
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Erro ao preencher a data de criação dos produtos: {}", e.getMessage());
+        }
+    }
     
     /**
      * Busca um produto pelo ID
@@ -80,44 +165,143 @@ public class ProductService {
     }
     
     /**
-     * Busca produtos disponíveis para venda direta
+     * Busca produtos disponíveis para venda direta, como cartões.
+     * {@code visibleCategories} é o conjunto que o usuário pode ver ({@code null} para todas)
+     * e entra na própria consulta, para a página vir cheia e o total contado pelo banco.
      */
-    public Page<Product> findAvailable(Pageable pageable) {
-        return productRepository.findByStatus(ProductStatus.AVAILABLE, pageable);
+    public Page<ProductCard> findAvailable(Set<ProductCategory> visibleCategories, Pageable pageable) {
+        return findCards(withCategory(Criteria.where("status").is(ProductStatus.AVAILABLE), null, visibleCategories),
+                         pageable);
     }
     
     /**
-     * Busca leilões ativos
+     * Busca leilões ativos visíveis para o usuário
      */
-    public Page<Product> findActiveAuctions(Pageable pageable) {
-        return productRepository.findByStatus(ProductStatus.AUCTION_ACTIVE, pageable);
+    public Page<ProductCard> findActiveAuctions(Set<ProductCategory> visibleCategories, Pageable pageable) {
+        return findCards(withCategory(Criteria.where("status").is(ProductStatus.AUCTION_ACTIVE), null, visibleCategories),
+                         pageable);
     }
     
     /**
-     * Busca produtos por categoria
+     * Busca produtos por categoria; uma categoria que o usuário não pode ver dá página vazia
+     */
+    public Page<ProductCard> findByCategory(ProductCategory category, Set<ProductCategory> visibleCategories, Pageable pageable) {
+        return findCards(withCategory(Criteria.where("status").is(ProductStatus.AVAILABLE), category, visibleCategories),
+                         pageable);
+    }
+
+    /**
+     * Os produtos mais caros do catálogo, em qualquer status, para o painel do MESTRE
+     */
+    public List<ProductCard> findMostExpensive(int limit) {
+        PageRequest top = PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "price"));
+        // O índice compara o preço como número; o banco ordenaria o texto gravado
+        Page<String> indexed = catalogIndexService.findIds(new CatalogIndexService.Filter(), top);
+        if (indexed != null) {
+            return loadCards(indexed.getContent());
+        }
+        Query query = new Query().with(top);
+        query.fields().include(ProductCard.FIELDS);
+        return mongoTemplate.find(query, ProductCard.class, mongoTemplate.getCollectionName(Product.class));
+    }
+
+    /**
+     * Cartões dos itens semelhantes ao produto, já pré-calculados, das categorias visíveis
+     */
+    public List<ProductCard> findSimilar(String productId, Set<ProductCategory> visibleCategories) {
+        return loadCards(similarItemsService.similarTo(productId, visibleCategories));
+    }
+
+    /**
+     * Uma página de cartões para o critério, com o total em cache por filtro. Critério null
+     * (categoria não visível) dá página vazia.
+     */
+    private Page<ProductCard> findCards(Criteria criteria, Pageable pageable) {
+        if (criteria == null) {
+            return Page.empty(pageable);
+        }
+        Query query = new Query(criteria);
+        long total = listingCountService.count(query);
+        query.with(pageable);
+        query.fields().include(ProductCard.FIELDS);
+        return new PageImpl<>(mongoTemplate.find(query, ProductCard.class, mongoTemplate.getCollectionName(Product.class)),
+                              pageable, total);
+    }
+
+    /**
+     * Cartões de uma página de ids vinda dos índices em memória, na mesma ordem
      */
-    public Page<Product> findByCategory(ProductCategory category, Pageable pageable) {
-        return productRepository.findByCategoryAndStatus(category, ProductStatus.AVAILABLE, pageable);
+    private Page<ProductCard> cardsOf(Page<String> ids) {
+        return new PageImpl<>(loadCards(ids.getContent()), ids.getPageable(), ids.getTotalElements());
+    }
+
+    private List<ProductCard> loadCards(List<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Query query = Query.query(Criteria.where("_id").in(ids));
+        query.fields().include(ProductCard.FIELDS);
+        Map<String, ProductCard> byId = new HashMap<>();
+        mongoTemplate.find(query, ProductCard.class, mongoTemplate.getCollectionName(Product.class))
+                     .forEach(card -> byId.put(card.getId(), card));
+        List<ProductCard> cards = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            ProductCard card = byId.get(id);
+            if (card != null) {
+                cards.add(card);
+            }
+        }
+        return cards;
+    }
+
+    /**
+     * Acrescenta o filtro de categoria: a escolhida pelo usuário, se ele pode vê-la, ou
+     * todas as visíveis. Devolve null quando a combinação não pode ter resultado.
+     */
+    private static Criteria withCategory(Criteria criteria, ProductCategory category, Set<ProductCategory> visibleCategories) {
+        if (category != null) {
+            if (visibleCategories != null && !visibleCategories.contains(category)) {
+                return null;
+            }
+            return criteria.and("category").is(category);
+        }
+        if (visibleCategories != null) {
+            return criteria.and("category").in(visibleCategories);
+        }
+        return criteria;
     }
     
     /**
-     * Busca produtos por palavra-chave
+     * Busca produtos por palavra-chave no índice invertido, já restrita às categorias
+     * permitidas ({@code null} para todas)
      */
-    public Page<Product> search(String keyword, ProductStatus status, Pageable pageable) {
-        return productRepository.searchByNameAndStatus(keyword, status, pageable);
+    public Page<ProductCard> search(String keyword, ProductStatus status, Set<ProductCategory> categories, Pageable pageable) {
+        return cardsOf(productSearchService.searchIds(keyword, List.of(status), categories, pageable));
     }
     
     /**
      * MÉTODO OTIMIZADO para busca com filtros múltiplos 
-     * Usado pelo painel do mestre para melhor performance
+     * Usado pelo painel do mestre para melhor performance.
+     * Com filtro por vendedor o total é estimado, a menos que {@code exactCount} seja pedido.
      */
     public Page<Product> findProductsWithFilters(ProductCategory category, ProductStatus status, 
-                                               ProductType type, String seller, Pageable pageable) {
-        
-        // Se nenhum filtro específico, usar busca simples
-        if (category == null && status == null && type == null && 
-            (seller == null || seller.trim().isEmpty())) {
-            return productRepository.findAll(pageable);
+                                               ProductType type, ItemRarity rarity,
+                                               Set<MagicProperty> magicProperties, String seller,
+                                               boolean exactCount, Pageable pageable) {
+        boolean bySeller = seller != null && !seller.trim().isEmpty();
+        
+        // Sem filtro por vendedor, o índice do catálogo responde sem ir ao banco
+        if (!bySeller) {
+            Page<Product> indexed = catalogIndexService.find(new CatalogIndexService.Filter()
+                .category(category)
+                .status(status)
+                .type(type)
+                .rarity(rarity)
+                .magicProperties(magicProperties == null || magicProperties.isEmpty() ? null : magicProperties),
+                pageable);
+            if (indexed != null) {
+                return indexed;
+            }
         }
         
         // Usar MongoDB Template para query dinâmica otimizada
@@ -135,8 +319,17 @@ public class ProductService {
             query.addCriteria(Criteria.where("type").is(type));
         }
         
-        if (seller != null && !seller.trim().isEmpty()) {
-            query.addCriteria(Criteria.where("seller.username").regex(seller, "i"));
+        if (rarity != null) {
+            query.addCriteria(Criteria.where("rarity").is(rarity));
+        }
+        
+        if (magicProperties != null && !magicProperties.isEmpty()) {
+            query.addCriteria(Criteria.where("magicProperties").all(magicProperties));
+        }
+        
+        if (bySeller) {
+            // O vendedor é um DBRef; o nome copiado no anúncio é que pode ser filtrado
+            query.addCriteria(Criteria.where("sellerName").regex(Pattern.quote(seller.trim()), "i"));
         }
         
         // Aplicar paginação e ordenação
@@ -145,26 +338,30 @@ public class ProductService {
         // Executar a query
         List<Product> produtos = mongoTemplate.find(query, Product.class);
         
-        // Contar total para paginação
-        long total = mongoTemplate.count(query.skip(0).limit(0), Product.class);
+        // Só status, categoria e tipo saem dos contadores; o resto é contado no banco, e a
+        // regex do vendedor só até algumas páginas adiante quando a contagem exata não foi pedida
+        long total;
+        if (rarity == null && (magicProperties == null || magicProperties.isEmpty()) && !bySeller) {
+            total = productCountService.count(status, category, type);
+        } else {
+            total = productCountService.countQuery(query, pageable, exactCount || !bySeller);
+        }
         
         return new PageImpl<>(produtos, pageable, total);
     }
     
     /**
-     * Busca os lances de um produto
-     */
-    public List<Bid> getProductBids(Product product) {
-        return bidRepository.findByProductOrderByAmountDesc(product);
-    }    /**
      * Realiza um lance em um leilão (delegado para BidService)
      */    @Transactional
-    public void makeBid(Product product, User bidder, BigDecimal amount) {
+    public BidResult makeBid(Product product, User bidder, BigDecimal amount) {
         log.info("Delegando lance para BidService: produtoId={}, licitante={}, valor={}", 
                  product.getId(), bidder.getUsername(), amount);
         
         // Delegar para o BidService que tem a lógica correta
-        bidService.placeBid(product, bidder, amount);
+        BidResult result = bidService.placeBid(product, bidder, amount);
+        if (result.isOutbid()) {
+            return result;
+        }
         
         // Verificar se é uma compra imediata (buy now)
         if (product.getBuyNowPrice() != null && 
@@ -174,6 +371,7 @@ public class ProductService {
         }
         
         log.info("makeBid concluído com sucesso");
+        return result;
     }
     
     /**
@@ -198,26 +396,66 @@ public class ProductService {
             throw new IllegalArgumentException("Preço não definido para este produto");
         }
         
+        if (product.getType() == ProductType.AUCTION) {
+            auctionCloseScheduler.cancel(product.getId());
+            auctionEngine.close(product.getId());
+        }
+        
+        // Só o status muda, e só se o produto ainda está à venda: preço e resumo do leilão
+        // gravados pelo motor ficam intactos, e duas compras simultâneas não vendem duas vezes
+        Product claimed = mongoTemplate.findAndModify(
+            Query.query(Criteria.where("_id").is(product.getId())
+                                .and("status").is(product.getType() == ProductType.AUCTION
+                                    ? ProductStatus.AUCTION_ACTIVE : ProductStatus.AVAILABLE)),
+            new Update().set("status", ProductStatus.SOLD),
+            FindAndModifyOptions.options().returnNew(true),
+            Product.class);
+        auctionEngine.evict(product.getId());
+        if (claimed == null) {
+            throw new IllegalArgumentException("Este produto não está disponível para compra");
+        }
         product.setStatus(ProductStatus.SOLD);
-        productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(product.getId()));
+        if (product.getType() == ProductType.AUCTION) {
+            auctionEventBroadcaster.publishClosed(product);
+        }
         
         // Cria uma transação
         transactionService.createTransaction(product, buyer, product.getSeller(), price);
     }
       /**
-     * Verifica periodicamente leilões que terminaram
+     * Varredura de reconciliação para leilões que terminaram.
+     * O encerramento normal é disparado pela AuctionCloseScheduler no horário exato;
+     * esta varredura só cobre leilões criados em outro nó ou perdidos por reinício, e
+     * retoma os lotes de liquidação que pararam no meio.
      */
-    @Scheduled(fixedRate = 60000) // Executa a cada minuto
+    @Scheduled(fixedDelayString = "${app.auction.close.reconcile-ms:900000}",
+               initialDelayString = "${app.auction.close.reconcile-ms:900000}")
     @Transactional
     public void checkEndedAuctions() {
+        // Lotes de liquidação interrompidos ficam encerrados com settlement_batch
+        int recovered = auctionSettlementService.recoverStalled();
+        if (recovered > 0) {
+            log.info("✅ {} leilões de lotes de liquidação interrompidos concluídos", recovered);
+        }
+        
         List<Product> endedAuctions = productRepository.findByStatusAndAuctionEndDateLessThanEqual(
             ProductStatus.AUCTION_ACTIVE, LocalDateTime.now());
             
         log.info("Verificando leilões terminados. Encontrados: {}", endedAuctions.size());
-            
+        if (endedAuctions.isEmpty()) {
+            return;
+        }
+        
+        List<String> ids = new ArrayList<>(endedAuctions.size());
         for (Product auction : endedAuctions) {
-            endAuction(auction);
+            auctionCloseScheduler.cancel(auction.getId());
+            ids.add(auction.getId());
         }
+        
+        // Todos os leilões encontrados são liquidados em lote
+        int settled = auctionSettlementService.settle(ids);
+        log.info("✅ {} leilões finalizados pela varredura", settled);
     }
     
     /**
@@ -227,6 +465,8 @@ public class ProductService {
         log.info("=== FINALIZANDO LEILÃO ===");
         log.info("Produto: {} ({})", product.getName(), product.getId());
         
+        auctionCloseScheduler.cancel(product.getId());
+        
         // Usar o BidService para processar o fim do leilão corretamente
         bidService.processAuctionEnd(product);
         
@@ -243,26 +483,11 @@ public class ProductService {
             throw new RuntimeException("Produto não encontrado");
         }
         
-        Product product = productOpt.get();
-        // Update properties
-        product.setName(updatedProduct.getName());
-        product.setDescription(updatedProduct.getDescription());
-        product.setPrice(updatedProduct.getPrice());
-        product.setCategory(updatedProduct.getCategory());
-        
-        // Se for um leilão, permite atualizar o preço de compra imediata e incremento mínimo
-        if (product.getType() == ProductType.AUCTION && 
-            product.getStatus() != ProductStatus.AUCTION_ENDED) {
-            product.setBuyNowPrice(updatedProduct.getBuyNowPrice());
-            product.setMinBidIncrement(updatedProduct.getMinBidIncrement());
-        }
-        
-        // Se houver nova imagem, atualiza ela
-        if (updatedProduct.getImageUrl() != null && !updatedProduct.getImageUrl().isEmpty()) {
-            product.setImageUrl(updatedProduct.getImageUrl());
-        }
-        
-        return productRepository.save(product);
+        Product saved = applyEdit(productOpt.get(), updatedProduct);
+        // Preço e incremento podem ter mudado: o motor recarrega o leilão no próximo lance
+        auctionEngine.evict(id);
+        auctionCloseScheduler.schedule(saved);
+        return saved;
     }
 
     /**
@@ -282,39 +507,68 @@ public class ProductService {
             throw new IllegalArgumentException("Você não tem permissão para editar este produto");
         }
         
-        // Update properties
-        product.setName(updatedProduct.getName());
-        product.setDescription(updatedProduct.getDescription());
-        product.setPrice(updatedProduct.getPrice());
-        product.setCategory(updatedProduct.getCategory());
-        
-        // If it's an auction, allow updating buy now price and minimum bid increment
-        if (product.getType() == ProductType.AUCTION && 
-            product.getStatus() != ProductStatus.AUCTION_ENDED) {
-            product.setBuyNowPrice(updatedProduct.getBuyNowPrice());
-            product.setMinBidIncrement(updatedProduct.getMinBidIncrement());
+        Product saved = applyEdit(product, updatedProduct);
+        auctionEngine.evict(id);
+        auctionCloseScheduler.schedule(saved);
+        return saved;
+    }
+
+    /**
+     * Grava só os campos editáveis com {@code $set}, sem regravar o documento: preço, líder,
+     * contagem e lances recentes mantidos pelo {@link AuctionEngine} não voltam ao valor lido
+     * antes da edição. Num leilão o preço é o lance inicial e só muda enquanto ninguém deu
+     * lance; compra imediata e incremento só mudam com o leilão ativo. As condições ficam na
+     * consulta, então um lance aceito entre a leitura e a gravação prevalece.
+     * Devolve o produto relido do banco.
+     */
+    private Product applyEdit(Product product, Product edited) {
+        Update update = new Update()
+            .set("name", edited.getName())
+            .set("description", edited.getDescription())
+            .set("category", edited.getCategory());
+        if (edited.getImageUrl() != null && !edited.getImageUrl().isEmpty()) {
+            update.set("imageUrl", edited.getImageUrl());
         }
-        
-        // If there's a new image, update it
-        if (updatedProduct.getImageUrl() != null && !updatedProduct.getImageUrl().isEmpty()) {
-            product.setImageUrl(updatedProduct.getImageUrl());
+        if (product.getType() != ProductType.AUCTION) {
+            update.set("price", edited.getPrice());
         }
-        
-        return productRepository.save(product);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(product.getId())), update, Product.class);
+
+        if (product.getType() == ProductType.AUCTION) {
+            mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(product.getId())
+                                    .and("status").is(ProductStatus.AUCTION_ACTIVE)),
+                new Update().set("buyNowPrice", edited.getBuyNowPrice())
+                            .set("minBidIncrement", edited.getMinBidIncrement()),
+                Product.class);
+            if (edited.getPrice() != null && edited.getPrice().compareTo(BigDecimal.ZERO) > 0) {
+                mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(product.getId())
+                                        .and("status").is(ProductStatus.AUCTION_ACTIVE)
+                                        .and("leaderId").is(null)),
+                    new Update().set("price", edited.getPrice()),
+                    Product.class);
+            }
+        }
+
+        // Updates parciais não disparam os eventos de gravação do repositório
+        eventPublisher.publishEvent(ProductChangedEvent.of(product.getId()));
+        return findById(product.getId())
+            .orElseThrow(() -> new IllegalArgumentException("Produto não encontrado"));
     }
 
     /**
      * Retorna ranking de vendedores com mais vendas
      */
     public List<User> getTopSellers() {
-        return transactionRepository.findTopSellers();
+        return userService.getTopSellers(10);
     }
 
     /**
      * Retorna ranking de compradores com mais compras
      */
     public List<User> getTopBuyers() {
-        return transactionRepository.findTopBuyers();
+        return userService.getTopBuyers(10);
     }
 
     /**
@@ -356,6 +610,7 @@ public class ProductService {
             if (product.getType() == ProductType.AUCTION && 
                 product.getStatus() == ProductStatus.AUCTION_ACTIVE) {
                 
+                auctionEngine.close(product.getId());
                 cancelAllBidsForProduct(product);
                 
                 // Update product status before deletion to reflect it was canceled
@@ -365,6 +620,12 @@ public class ProductService {
             
             // Delete the product
             productRepository.delete(product);
+            auctionEngine.evict(product.getId());
+            proxyBidRepository.deleteByProductId(product.getId());
+            auctionCloseScheduler.cancel(product.getId());
+            if (product.getStatus() == ProductStatus.CANCELED) {
+                auctionEventBroadcaster.publishClosed(product);
+            }
             
             // Handle image deletion if needed
             if (product.getImageUrl() != null && !product.getImageUrl().isEmpty()) {
@@ -381,117 +642,221 @@ public class ProductService {
      * Cancel all bids for a product
      */
     private void cancelAllBidsForProduct(Product product) {
-        List<Bid> bids = bidRepository.findByProductOrderByAmountDesc(product);
-        if (!bids.isEmpty()) {
-            // Notify bidders about cancellation if needed
-            // For now, just delete all bids
-            bidRepository.deleteAll(bids);
-        }
+        // Remove direto no banco, sem carregar os lances
+        bidRepository.deleteByProductId(product.getId());
     }
 
     /**
      * Busca produtos de venda direta com filtros
-     */    public Page<Product> findDirectSalesWithFilters(
+     */
+    public Page<ProductCard> findDirectSalesWithFilters(
             ProductCategory category,
             ItemRarity rarity,
             BigDecimal minPrice,
             BigDecimal maxPrice,
+            Set<ProductCategory> visibleCategories,
             Pageable pageable) {
         
-        // Criar critérios
-        Criteria criteria = new Criteria();
-        
-        // Critérios básicos para vendas diretas
-        criteria = Criteria.where("type").is(ProductType.DIRECT_SALE)
-                .and("status").is(ProductStatus.AVAILABLE);
-        
-        // Adicionar filtros opcionais
-        if (category != null) {
-            criteria = criteria.and("category").is(category);
+        Criteria criteria = directSalesCriteria(category, rarity, minPrice, maxPrice, visibleCategories);
+        if (criteria == null) {
+            return Page.empty(pageable);
         }
         
-        if (rarity != null) {
-            criteria = criteria.and("rarity").is(rarity);
+        // O índice do catálogo responde filtro, página e total sem ir ao banco
+        Page<String> indexed = catalogIndexService.findIds(new CatalogIndexService.Filter()
+            .type(ProductType.DIRECT_SALE)
+            .status(ProductStatus.AVAILABLE)
+            .categories(category != null ? List.of(category) : visibleCategories)
+            .rarity(rarity)
+            .priceBetween(minPrice, maxPrice), pageable);
+        if (indexed != null) {
+            return cardsOf(indexed);
         }
         
-        if (minPrice != null && minPrice.compareTo(BigDecimal.ZERO) > 0) {
-            criteria = criteria.and("price").gte(minPrice);
-        }
+        // Sem o índice, a consulta vai ao banco (total em cache por filtro)
+        return findCards(criteria, pageable);
+    }
+
+    /**
+     * Busca leilões ativos com filtros
+     */
+    public Page<ProductCard> findAuctionsWithFilters(
+            ProductCategory category,
+            ItemRarity rarity,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            Boolean endingSoon,
+            Set<ProductCategory> visibleCategories,
+            Pageable pageable) {
         
-        if (maxPrice != null && maxPrice.compareTo(BigDecimal.ZERO) > 0) {
-            criteria = criteria.and("price").lte(maxPrice);
+        Criteria criteria = auctionsCriteria(category, rarity, minPrice, maxPrice, endingSoon, visibleCategories);
+        if (criteria == null) {
+            return Page.empty(pageable);
         }
         
-        // Criar consulta
-        Query query = new Query(criteria);
+        // O índice do catálogo responde filtro, página e total sem ir ao banco
+        Page<String> indexed = catalogIndexService.findIds(new CatalogIndexService.Filter()
+            .type(ProductType.AUCTION)
+            .status(ProductStatus.AUCTION_ACTIVE)
+            .categories(category != null ? List.of(category) : visibleCategories)
+            .rarity(rarity)
+            .priceBetween(minPrice, maxPrice)
+            .endingBefore(Boolean.TRUE.equals(endingSoon) ? LocalDateTime.now().plusHours(24) : null), pageable);
+        if (indexed != null) {
+            return cardsOf(indexed);
+        }
         
-        // Obter contagem total para paginação
-        long total = mongoTemplate.count(query, Product.class);
+        // Sem o índice, a consulta vai ao banco (total em cache por filtro)
+        return findCards(criteria, pageable);
+    }
+
+    /**
+     * Vendas diretas paginadas por chave, das mais novas para as mais antigas.
+     * O cursor guarda (createdAt, id) do último item, então a página 500 custa o mesmo que
+     * a primeira; o total só é contado quando {@code withTotal} é pedido.
+     */
+    public ProductSlice findDirectSalesSlice(
+            ProductCategory category,
+            ItemRarity rarity,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            Set<ProductCategory> visibleCategories,
+            String cursor,
+            int limit,
+            boolean withTotal) {
+        Criteria criteria = directSalesCriteria(category, rarity, minPrice, maxPrice, visibleCategories);
+        return slice(criteria, "createdAt", Sort.Direction.DESC, cursor, limit, withTotal);
+    }
+
+    /**
+     * Leilões ativos paginados por chave, dos que terminam antes para os que terminam depois
+     */
+    public ProductSlice findAuctionsSlice(
+            ProductCategory category,
+            ItemRarity rarity,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            Boolean endingSoon,
+            Set<ProductCategory> visibleCategories,
+            String cursor,
+            int limit,
+            boolean withTotal) {
+        Criteria criteria = auctionsCriteria(category, rarity, minPrice, maxPrice, endingSoon, visibleCategories);
+        return slice(criteria, "auctionEndDate", Sort.Direction.ASC, cursor, limit, withTotal);
+    }
+
+    private ProductSlice slice(Criteria criteria, String sortField, Sort.Direction direction,
+                               String cursor, int limit, boolean withTotal) {
+        if (criteria == null) {
+            return new ProductSlice(List.of(), null, withTotal ? 0L : null);
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_SLICE_SIZE));
+
+        // O total é do filtro, sem a posição do cursor; conta antes de acrescentá-la
+        Long total = withTotal ? listingCountService.count(new Query(criteria)) : null;
+
+        if (cursor != null && !cursor.isBlank()) {
+            KeysetCursor.Position after = KeysetCursor.decode(sortField, cursor);
+            Object afterId = ObjectId.isValid(after.id()) ? new ObjectId(after.id()) : after.id();
+            boolean desc = direction == Sort.Direction.DESC;
+            criteria = criteria.orOperator(
+                desc ? Criteria.where(sortField).lt(after.value()) : Criteria.where(sortField).gt(after.value()),
+                desc ? Criteria.where(sortField).is(after.value()).and("_id").lt(afterId)
+                     : Criteria.where(sortField).is(after.value()).and("_id").gt(afterId));
+        }
+
+        Query query = new Query(criteria)
+            .with(Sort.by(direction, sortField).and(Sort.by(direction, "_id")))
+            .limit(pageSize + 1);
+        // Só o que o cartão mostra: sem histórico nem o vendedor referenciado
+        query.fields().include(ProductCard.FIELDS);
+
+        List<ProductCard> cards = mongoTemplate.find(query, ProductCard.class, mongoTemplate.getCollectionName(Product.class));
+        boolean hasMore = cards.size() > pageSize;
+        if (hasMore) {
+            cards = cards.subList(0, pageSize);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            ProductCard last = cards.get(cards.size() - 1);
+            LocalDateTime lastValue = "createdAt".equals(sortField) ? last.getCreatedAt() : last.getAuctionEndDate();
+            if (lastValue != null) {
+                nextCursor = KeysetCursor.encode(sortField, lastValue, last.getId());
+            }
+        }
+        return new ProductSlice(cards, nextCursor, total);
+    }
+
+    /**
+     * Critérios das vendas diretas; null quando a categoria pedida não é visível
+     */
+    private static Criteria directSalesCriteria(
+            ProductCategory category,
+            ItemRarity rarity,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            Set<ProductCategory> visibleCategories) {
         
-        // Adicionar paginação
-        query.with(pageable);
+        // Critérios básicos para vendas diretas
+        Criteria criteria = Criteria.where("type").is(ProductType.DIRECT_SALE)
+                .and("status").is(ProductStatus.AVAILABLE);
         
-        // Executar consulta
-        List<Product> products = mongoTemplate.find(query, Product.class);
+        // Categoria escolhida e visibilidade por classe entram na consulta
+        criteria = withCategory(criteria, category, visibleCategories);
+        if (criteria == null) {
+            return null;
+        }
         
-        // Retornar Page
-        return new PageImpl<>(products, pageable, total);
+        return withAttributes(criteria, rarity, minPrice, maxPrice);
     }
 
     /**
-     * Busca leilões ativos com filtros
-     */    public Page<Product> findAuctionsWithFilters(
+     * Critérios dos leilões ativos; null quando a categoria pedida não é visível
+     */
+    private static Criteria auctionsCriteria(
             ProductCategory category,
             ItemRarity rarity,
             BigDecimal minPrice,
             BigDecimal maxPrice,
             Boolean endingSoon,
-            Pageable pageable) {
-        
-        // Criar critérios
-        Criteria criteria = new Criteria();
+            Set<ProductCategory> visibleCategories) {
         
         // Critérios básicos para leilões ativos
-        criteria = Criteria.where("type").is(ProductType.AUCTION)
+        Criteria criteria = Criteria.where("type").is(ProductType.AUCTION)
                 .and("status").is(ProductStatus.AUCTION_ACTIVE);
         
-        // Adicionar filtros opcionais
-        if (category != null) {
-            criteria = criteria.and("category").is(category);
+        // Categoria escolhida e visibilidade por classe entram na consulta
+        criteria = withCategory(criteria, category, visibleCategories);
+        if (criteria == null) {
+            return null;
         }
         
-        if (rarity != null) {
-            criteria = criteria.and("rarity").is(rarity);
-        }
+        criteria = withAttributes(criteria, rarity, minPrice, maxPrice);
         
-        if (minPrice != null && minPrice.compareTo(BigDecimal.ZERO) > 0) {
-            criteria = criteria.and("price").gte(minPrice);
-        }
-        
-        if (maxPrice != null && maxPrice.compareTo(BigDecimal.ZERO) > 0) {
-            criteria = criteria.and("price").lte(maxPrice);
-        }
-        
-        // Filtro especial para leilões terminando em breve (próximas 24 horas)
+        // Filtro especial para leilões terminando em breve (próximas 24 horas).
+        // Truncado no minuto para o filtro, e o total em cache, se repetirem entre requisições
         if (endingSoon != null && endingSoon) {
-            LocalDateTime nextDay = LocalDateTime.now().plusHours(24);
+            LocalDateTime nextDay = LocalDateTime.now().plusHours(24).truncatedTo(ChronoUnit.MINUTES);
             criteria = criteria.and("auctionEndDate").lte(nextDay);
         }
         
-        // Criar consulta
-        Query query = new Query(criteria);
-        
-        // Obter contagem total para paginação
-        long total = mongoTemplate.count(query, Product.class);
-        
-        // Adicionar paginação
-        query.with(pageable);
+        return criteria;
+    }
+
+    private static Criteria withAttributes(Criteria criteria, ItemRarity rarity, BigDecimal minPrice, BigDecimal maxPrice) {
+        // Adicionar filtros opcionais
+        if (rarity != null) {
+            criteria = criteria.and("rarity").is(rarity);
+        }
         
-        // Executar consulta
-        List<Product> auctions = mongoTemplate.find(query, Product.class);
+        // O preço é gravado como texto: a faixa compara o valor convertido para decimal
+        org.bson.Document priceRange = StoredPrice.rangeExpr(minPrice, maxPrice);
+        if (priceRange != null) {
+            criteria = criteria.and("$expr").is(priceRange);
+        }
         
-        // Retornar Page
-        return new PageImpl<>(auctions, pageable, total);
+        return criteria;
     }
 
     /**
@@ -0,0 +1,303 @@
+package com.programacao_web.rpg_market.service;
+
+import com.programacao_web.rpg_market.dto.Viewer;
+import com.programacao_web.rpg_market.model.ItemRarity;
+import com.programacao_web.rpg_market.model.MagicProperty;
+import com.programacao_web.rpg_market.model.Product;
+import com.programacao_web.rpg_market.model.ProductCategory;
+import com.programacao_web.rpg_market.model.ProductStatus;
+import com.programacao_web.rpg_market.model.ProductType;
+import com.programacao_web.rpg_market.model.SavedSearch;
+import com.programacao_web.rpg_market.model.SearchNotification;
+import com.programacao_web.rpg_market.util.PortugueseAnalyzer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Confere anúncios novos e alterados contra as buscas salvas, no sentido inverso de uma
+ * busca: o índice é sobre as consultas, não sobre os produtos.
+ *
+ * Cada busca salva entra no índice por uma única chave, a mais seletiva que ela tem: a
+ * palavra-chave mais longa (depois do analisador de português) ou, sem palavras-chave, a
+ * combinação exata de tipo, categoria e raridade, com {@code *} nas que ela não filtra. Um
+ * produto sonda as chaves dos seus termos e as 8 combinações de tipo, categoria e raridade
+ * com e sem curinga; só as buscas dessas listas são conferidas por inteiro (preço, todas as
+ * propriedades mágicas, todas as palavras-chave). O custo de um anúncio depende dos seus
+ * termos, não de quantas buscas existem.
+ *
+ * Montado na inicialização a partir da coleção e mantido pelo {@link SavedSearchService}.
+ * A conferência roda fora da thread que gravou o produto; avisos repetidos para a mesma
+ * busca e anúncio são barrados pelo índice único da coleção.
+ */
+@Service
+public class SavedSearchPercolator {
+
+    private static final Logger log = LoggerFactory.getLogger(SavedSearchPercolator.class);
+
+    private static final String[] PRODUCT_FIELDS = {
+        "name", "description", "status", "type", "category", "rarity", "magic_properties", "price", "seller_name"
+    };
+
+    private static final Set<ProductStatus> LISTED = EnumSet.of(ProductStatus.AVAILABLE, ProductStatus.AUCTION_ACTIVE);
+
+    private static final String ANY = "*";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ViewerService viewerService;
+
+    /**
+     * Busca salva como o índice a enxerga: termos já analisados, propriedades como máscara
+     */
+    private record Entry(String searchId, String userId, String name, ProductType type,
+                         ProductCategory category, ItemRarity rarity, BigDecimal minPrice,
+                         BigDecimal maxPrice, long magicMask, Set<String> terms, String anchor) {
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Protegidos por lock
+    private Map<String, Entry> searches = new HashMap<>();
+    private Map<String, Set<String>> searchesByKey = new HashMap<>();
+
+    // Buscas alteradas enquanto uma reconstrução completa lia o banco
+    private volatile Set<String> changedDuringRebuild;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        changedDuringRebuild = ConcurrentHashMap.newKeySet();
+        Map<String, Entry> fresh = new HashMap<>();
+        Map<String, Set<String>> freshKeys = new HashMap<>();
+        try (Stream<SavedSearch> saved = mongoTemplate.stream(new Query(), SavedSearch.class)) {
+            saved.forEach(search -> {
+                Entry entry = toEntry(search);
+                fresh.put(entry.searchId(), entry);
+                freshKeys.computeIfAbsent(entry.anchor(), key -> new HashSet<>()).add(entry.searchId());
+            });
+        }
+
+        Set<String> missed;
+        lock.writeLock().lock();
+        try {
+            searches = fresh;
+            searchesByKey = freshKeys;
+            missed = changedDuringRebuild;
+            changedDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!missed.isEmpty()) {
+            reload(missed);
+        }
+        log.info("Índice de buscas salvas montado com {} buscas em {} chaves", fresh.size(), freshKeys.size());
+    }
+
+    /**
+     * Relê as buscas indicadas e troca suas entradas; as que não existem mais saem do índice
+     */
+    public void reload(Collection<String> searchIds) {
+        Set<String> pending = changedDuringRebuild;
+        if (pending != null) {
+            pending.addAll(searchIds);
+        }
+        Map<String, Entry> current = new HashMap<>();
+        for (SavedSearch search : mongoTemplate.find(Query.query(Criteria.where("_id").in(searchIds)), SavedSearch.class)) {
+            current.put(search.getId(), toEntry(search));
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (String searchId : searchIds) {
+                Entry previous = searches.remove(searchId);
+                if (previous != null) {
+                    Set<String> ids = searchesByKey.get(previous.anchor());
+                    if (ids != null && ids.remove(searchId) && ids.isEmpty()) {
+                        searchesByKey.remove(previous.anchor());
+                    }
+                }
+                Entry entry = current.get(searchId);
+                if (entry != null) {
+                    searches.put(searchId, entry);
+                    searchesByKey.computeIfAbsent(entry.anchor(), key -> new HashSet<>()).add(searchId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Confere os anúncios gravados contra as buscas salvas e grava os avisos. Reconstruções
+     * completas do catálogo ({@link ProductChangedEvent#all()}) não avisam: não são anúncios novos.
+     */
+    @Async
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isAll()) {
+            return;
+        }
+        try {
+            Query query = Query.query(Criteria.where("_id").in(event.productIds())
+                                              .and("status").in(LISTED));
+            query.fields().include(PRODUCT_FIELDS);
+            for (Product product : mongoTemplate.find(query, Product.class)) {
+                notifyMatches(product, match(product));
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Erro ao conferir buscas salvas para {}: {}", event.productIds(), e.getMessage());
+        }
+    }
+
+    /**
+     * Buscas salvas que o produto atende
+     */
+    private List<Entry> match(Product product) {
+        Set<String> terms = new HashSet<>(PortugueseAnalyzer.analyze(product.getName()));
+        terms.addAll(PortugueseAnalyzer.analyze(product.getDescription()));
+
+        List<String> probes = new ArrayList<>(terms.size() + 8);
+        for (String term : terms) {
+            probes.add("k:" + term);
+        }
+        for (String type : List.of(name(product.getType()), ANY)) {
+            for (String category : List.of(name(product.getCategory()), ANY)) {
+                for (String rarity : List.of(name(product.getRarity()), ANY)) {
+                    probes.add(attributeKey(type, category, rarity));
+                }
+            }
+        }
+
+        long magicMask = maskOf(product.getMagicProperties());
+        List<Entry> matched = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Set<String> seen = new HashSet<>();
+            for (String probe : probes) {
+                Set<String> ids = searchesByKey.get(probe);
+                if (ids == null) {
+                    continue;
+                }
+                for (String searchId : ids) {
+                    Entry entry = searches.get(searchId);
+                    if (seen.add(searchId) && accepts(entry, product, magicMask, terms)) {
+                        matched.add(entry);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return matched;
+    }
+
+    private static boolean accepts(Entry entry, Product product, long magicMask, Set<String> terms) {
+        if (entry.type() != null && entry.type() != product.getType()) return false;
+        if (entry.category() != null && entry.category() != product.getCategory()) return false;
+        if (entry.rarity() != null && entry.rarity() != product.getRarity()) return false;
+        if ((entry.magicMask() & magicMask) != entry.magicMask()) return false;
+        BigDecimal price = product.getPrice();
+        if (entry.minPrice() != null && (price == null || price.compareTo(entry.minPrice()) < 0)) return false;
+        if (entry.maxPrice() != null && (price == null || price.compareTo(entry.maxPrice()) > 0)) return false;
+        return terms.containsAll(entry.terms());
+    }
+
+    /**
+     * Grava um aviso por busca atendida, menos para o próprio vendedor e para quem a classe
+     * não deixa ver a categoria. Os pares já avisados são lidos numa consulta só.
+     */
+    private void notifyMatches(Product product, List<Entry> matched) {
+        if (matched.isEmpty()) {
+            return;
+        }
+        List<String> searchIds = matched.stream().map(Entry::searchId).toList();
+        Set<String> alreadyNotified = new HashSet<>();
+        Query existing = Query.query(Criteria.where("productId").is(product.getId())
+                                             .and("savedSearchId").in(searchIds));
+        existing.fields().include("savedSearchId");
+        for (SearchNotification notification : mongoTemplate.find(existing, SearchNotification.class)) {
+            alreadyNotified.add(notification.getSavedSearchId());
+        }
+
+        List<SearchNotification> notifications = new ArrayList<>();
+        for (Entry entry : matched) {
+            if (alreadyNotified.contains(entry.searchId())) {
+                continue;
+            }
+            Viewer viewer = viewerService.viewerById(entry.userId());
+            if (!viewer.isAuthenticated() || viewer.getUsername().equals(product.getSellerName())
+                || !viewer.canSee(product.getCategory())) {
+                continue;
+            }
+            SearchNotification notification = new SearchNotification();
+            notification.setUserId(entry.userId());
+            notification.setSavedSearchId(entry.searchId());
+            notification.setSavedSearchName(entry.name());
+            notification.setProductId(product.getId());
+            notification.setProductName(product.getName());
+            notification.setPrice(product.getPrice());
+            notifications.add(notification);
+        }
+
+        for (SearchNotification notification : notifications) {
+            try {
+                mongoTemplate.insert(notification);
+            } catch (DuplicateKeyException e) {
+                // Outra gravação do mesmo anúncio avisou primeiro
+            }
+        }
+        if (!notifications.isEmpty()) {
+            log.debug("{} avisos de buscas salvas para o anúncio {}", notifications.size(), product.getId());
+        }
+    }
+
+    private static Entry toEntry(SavedSearch search) {
+        Set<String> terms = new LinkedHashSet<>(PortugueseAnalyzer.analyze(search.getKeywords()));
+        String anchor;
+        if (!terms.isEmpty()) {
+            // A palavra mais longa tende a ser a mais rara entre os anúncios
+            anchor = "k:" + terms.stream().max(Comparator.comparingInt(String::length)).get();
+        } else {
+            anchor = attributeKey(name(search.getType()), name(search.getCategory()), name(search.getRarity()));
+        }
+        return new Entry(search.getId(), search.getUserId(), search.getName(), search.getType(),
+                         search.getCategory(), search.getRarity(), search.getMinPrice(), search.getMaxPrice(),
+                         maskOf(search.getMagicProperties()), Set.copyOf(terms), anchor);
+    }
+
+    private static String attributeKey(String type, String category, String rarity) {
+        return "a:" + type + "|" + category + "|" + rarity;
+    }
+
+    private static String name(Enum<?> value) {
+        return value != null ? value.name() : ANY;
+    }
+
+    private static long maskOf(Collection<MagicProperty> properties) {
+        long mask = 0;
+        if (properties != null) {
+            for (MagicProperty property : properties) {
+                mask |= 1L << property.ordinal();
+            }
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,111 @@
+package com.programacao_web.rpg_market.service;
+
+import com.programacao_web.rpg_market.model.SavedSearch;
+import com.programacao_web.rpg_market.model.SearchNotification;
+import com.programacao_web.rpg_market.repository.SavedSearchRepository;
+import com.programacao_web.rpg_market.repository.SearchNotificationRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Buscas salvas dos aventureiros e os avisos de anúncios que as atendem. Cada alteração
+ * numa busca é repassada ao {@link SavedSearchPercolator}, que confere os anúncios novos.
+ */
+@Service
+public class SavedSearchService {
+
+    @Autowired
+    private SavedSearchRepository savedSearchRepository;
+
+    @Autowired
+    private SearchNotificationRepository searchNotificationRepository;
+
+    @Autowired
+    private SavedSearchPercolator savedSearchPercolator;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${app.saved-search.max-per-user:20}")
+    private int maxPerUser;
+
+    public List<SavedSearch> findByUserId(String userId) {
+        return savedSearchRepository.findByUserIdOrderByCreatedAtDesc(userId);
+    }
+
+    /**
+     * Salva uma busca para o aventureiro. Exige ao menos um filtro e uma faixa de preço
+     * coerente, e limita quantas buscas cada um mantém.
+     */
+    public SavedSearch save(String userId, SavedSearch search) {
+        if (search.getKeywords() != null && search.getKeywords().trim().isEmpty()) {
+            search.setKeywords(null);
+        }
+        if (search.getMinPrice() != null && search.getMinPrice().signum() <= 0) {
+            search.setMinPrice(null);
+        }
+        if (search.getMaxPrice() != null && search.getMaxPrice().signum() <= 0) {
+            search.setMaxPrice(null);
+        }
+        if (search.getCategory() == null && search.getRarity() == null && search.getKeywords() == null
+            && search.getMinPrice() == null && search.getMaxPrice() == null
+            && (search.getMagicProperties() == null || search.getMagicProperties().isEmpty())) {
+            throw new IllegalArgumentException("Escolha ao menos um filtro ou palavra-chave para salvar a busca");
+        }
+        if (search.getMinPrice() != null && search.getMaxPrice() != null
+            && search.getMinPrice().compareTo(search.getMaxPrice()) > 0) {
+            throw new IllegalArgumentException("O preço mínimo não pode ser maior que o máximo");
+        }
+        if (savedSearchRepository.countByUserId(userId) >= maxPerUser) {
+            throw new IllegalArgumentException("Limite de " + maxPerUser + " buscas salvas atingido");
+        }
+        if (search.getName() == null || search.getName().trim().isEmpty()) {
+            search.setName(search.getKeywords() != null ? search.getKeywords().trim() : "Minha busca");
+        }
+
+        search.setId(null);
+        search.setUserId(userId);
+        search.setCreatedAt(LocalDateTime.now());
+        SavedSearch saved = savedSearchRepository.save(search);
+        savedSearchPercolator.reload(List.of(saved.getId()));
+        return saved;
+    }
+
+    /**
+     * Remove a busca do aventureiro e os avisos dela
+     */
+    public boolean delete(String userId, String searchId) {
+        return savedSearchRepository.findByIdAndUserId(searchId, userId)
+            .map(search -> {
+                savedSearchRepository.delete(search);
+                searchNotificationRepository.deleteBySavedSearchId(searchId);
+                savedSearchPercolator.reload(List.of(searchId));
+                return true;
+            })
+            .orElse(false);
+    }
+
+    public List<SearchNotification> findNotifications(String userId) {
+        return searchNotificationRepository.findTop50ByUserIdOrderByCreatedAtDesc(userId);
+    }
+
+    public long countUnread(String userId) {
+        return searchNotificationRepository.countByUserIdAndReadFalse(userId);
+    }
+
+    public void markAllRead(String userId) {
+        mongoTemplate.updateMulti(
+            Query.query(Criteria.where("userId").is(userId).and("read").is(false)),
+            Update.update("read", true),
+            SearchNotification.class);
+    }
+}
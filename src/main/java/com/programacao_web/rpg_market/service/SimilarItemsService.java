@@ -0,0 +1,317 @@
+package com.programacao_web.rpg_market.service;
+
+import com.programacao_web.rpg_market.model.ItemRarity;
+import com.programacao_web.rpg_market.model.MagicProperty;
+import com.programacao_web.rpg_market.model.Product;
+import com.programacao_web.rpg_market.model.ProductCategory;
+import com.programacao_web.rpg_market.model.ProductStatus;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Itens semelhantes da página do produto, pré-calculados: cada produto à venda guarda a
+ * lista dos {@code k} vizinhos mais parecidos, e a página só lê essa lista pelo id.
+ *
+ * A semelhança soma categoria igual, raridade próxima, sobreposição das propriedades
+ * mágicas (Jaccard) e proximidade de preço (razão entre o menor e o maior). Só entram
+ * produtos disponíveis ou em leilão ativo.
+ *
+ * Mantido pelos {@link ProductChangedEvent}: um produto novo ou alterado é comparado com
+ * os demais uma vez, ganha sua lista e entra na dos vizinhos que ele supera; um produto
+ * vendido ou removido sai das listas onde aparecia, e só essas são recalculadas. O preço
+ * dos leilões muda a cada lance sem evento de gravação, então a proximidade de preço usa o
+ * da última gravação do leilão.
+ */
+@Service
+public class SimilarItemsService {
+
+    private static final Logger log = LoggerFactory.getLogger(SimilarItemsService.class);
+
+    private static final String[] INDEXED_FIELDS = { "status", "category", "rarity", "magic_properties", "price" };
+
+    private static final Set<ProductStatus> ACTIVE = EnumSet.of(ProductStatus.AVAILABLE, ProductStatus.AUCTION_ACTIVE);
+
+    // Pesos da semelhança; somam 1
+    private static final double CATEGORY_WEIGHT = 0.40;
+    private static final double RARITY_WEIGHT = 0.20;
+    private static final double MAGIC_WEIGHT = 0.25;
+    private static final double PRICE_WEIGHT = 0.15;
+
+    private static final int MAX_RARITY_DISTANCE = ItemRarity.values().length - 1;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${app.similar.top-k:6}")
+    private int topK;
+
+    /**
+     * Produto como a semelhança o enxerga: propriedades mágicas como máscara de bits
+     */
+    private record Features(String productId, ProductCategory category, ItemRarity rarity,
+                            long magicMask, double price) {
+    }
+
+    /**
+     * Um vizinho e sua nota; ordem da lista: nota maior primeiro, id como desempate
+     */
+    private record Neighbor(String productId, double score) {
+    }
+
+    private static final Comparator<Neighbor> BEST_FIRST =
+        Comparator.comparingDouble(Neighbor::score).reversed().thenComparing(Neighbor::productId);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Protegidos por lock
+    private Map<String, Features> active = new HashMap<>();
+    private Map<String, List<Neighbor>> neighbors = new HashMap<>();
+    // Para cada produto, as listas onde ele aparece
+    private Map<String, Set<String>> listedBy = new HashMap<>();
+
+    // Ids alterados enquanto uma reconstrução completa lia o banco
+    private volatile Set<String> changedDuringRebuild;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        changedDuringRebuild = ConcurrentHashMap.newKeySet();
+        Map<String, Features> fresh = new HashMap<>();
+        Query query = Query.query(Criteria.where("status").in(ACTIVE));
+        query.fields().include(INDEXED_FIELDS);
+        try (Stream<Product> products = mongoTemplate.stream(query, Product.class)) {
+            products.forEach(product -> fresh.put(product.getId(), toFeatures(product)));
+        }
+
+        Map<String, List<Neighbor>> freshNeighbors = new HashMap<>();
+        Map<String, Set<String>> freshListedBy = new HashMap<>();
+        for (Features features : fresh.values()) {
+            List<Neighbor> list = nearest(features, fresh.values());
+            freshNeighbors.put(features.productId(), list);
+            for (Neighbor neighbor : list) {
+                freshListedBy.computeIfAbsent(neighbor.productId(), id -> new HashSet<>()).add(features.productId());
+            }
+        }
+
+        Set<String> missed;
+        lock.writeLock().lock();
+        try {
+            active = fresh;
+            neighbors = freshNeighbors;
+            listedBy = freshListedBy;
+            missed = changedDuringRebuild;
+            changedDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!missed.isEmpty()) {
+            reindex(missed);
+        }
+        log.info("Itens semelhantes calculados para {} produtos", fresh.size());
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isAll()) {
+            rebuild();
+            return;
+        }
+        Set<String> pending = changedDuringRebuild;
+        if (pending != null) {
+            pending.addAll(event.productIds());
+        }
+        reindex(event.productIds());
+    }
+
+    /**
+     * Ids dos vizinhos do produto, do mais parecido para o menos, só das categorias visíveis
+     * (null não filtra). Lista vazia para produtos fora de venda ou antes da primeira montagem.
+     */
+    public List<String> similarTo(String productId, Set<ProductCategory> visibleCategories) {
+        lock.readLock().lock();
+        try {
+            List<Neighbor> list = neighbors.get(productId);
+            if (list == null) {
+                return List.of();
+            }
+            List<String> ids = new ArrayList<>(list.size());
+            for (Neighbor neighbor : list) {
+                Features features = active.get(neighbor.productId());
+                if (features != null
+                    && (visibleCategories == null || visibleCategories.contains(features.category()))) {
+                    ids.add(neighbor.productId());
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Relê os produtos indicados e atualiza as listas: os que saíram de venda deixam as listas
+     * dos vizinhos, que são recalculadas; os à venda são comparados com todos uma vez
+     */
+    private void reindex(Collection<String> productIds) {
+        Query query = Query.query(Criteria.where("_id").in(productIds));
+        query.fields().include(INDEXED_FIELDS);
+        Map<String, Features> current = new HashMap<>();
+        for (Product product : mongoTemplate.find(query, Product.class)) {
+            if (ACTIVE.contains(product.getStatus())) {
+                current.put(product.getId(), toFeatures(product));
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            // Listas que perderam um vizinho e precisam ser completadas de novo
+            Set<String> stale = new HashSet<>();
+            for (String productId : productIds) {
+                remove(productId, stale);
+            }
+            for (Features features : current.values()) {
+                add(features);
+            }
+            for (String productId : stale) {
+                Features features = active.get(productId);
+                if (features != null && !current.containsKey(productId)) {
+                    replaceList(productId, nearest(features, active.values()));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(String productId, Set<String> stale) {
+        if (active.remove(productId) == null) {
+            return;
+        }
+        replaceList(productId, List.of());
+        neighbors.remove(productId);
+        Set<String> owners = listedBy.remove(productId);
+        if (owners != null) {
+            for (String owner : owners) {
+                List<Neighbor> list = neighbors.get(owner);
+                if (list != null) {
+                    list.removeIf(neighbor -> neighbor.productId().equals(productId));
+                    stale.add(owner);
+                }
+            }
+        }
+    }
+
+    private void add(Features features) {
+        active.put(features.productId(), features);
+        replaceList(features.productId(), nearest(features, active.values()));
+
+        // Entra na lista de quem ele supera
+        for (Features other : active.values()) {
+            if (other.productId().equals(features.productId())) {
+                continue;
+            }
+            List<Neighbor> list = neighbors.get(other.productId());
+            Neighbor candidate = new Neighbor(features.productId(), score(other, features));
+            if (list.size() < topK) {
+                insert(list, candidate);
+                listedBy.computeIfAbsent(features.productId(), id -> new HashSet<>()).add(other.productId());
+            } else if (BEST_FIRST.compare(candidate, list.get(list.size() - 1)) < 0) {
+                Neighbor dropped = list.remove(list.size() - 1);
+                Set<String> owners = listedBy.get(dropped.productId());
+                if (owners != null) {
+                    owners.remove(other.productId());
+                }
+                insert(list, candidate);
+                listedBy.computeIfAbsent(features.productId(), id -> new HashSet<>()).add(other.productId());
+            }
+        }
+    }
+
+    /**
+     * Troca a lista do produto, mantendo o índice reverso
+     */
+    private void replaceList(String productId, List<Neighbor> list) {
+        List<Neighbor> previous = neighbors.put(productId, new ArrayList<>(list));
+        if (previous != null) {
+            for (Neighbor neighbor : previous) {
+                Set<String> owners = listedBy.get(neighbor.productId());
+                if (owners != null) {
+                    owners.remove(productId);
+                }
+            }
+        }
+        for (Neighbor neighbor : list) {
+            listedBy.computeIfAbsent(neighbor.productId(), id -> new HashSet<>()).add(productId);
+        }
+    }
+
+    private static void insert(List<Neighbor> list, Neighbor neighbor) {
+        int position = Collections.binarySearch(list, neighbor, BEST_FIRST);
+        list.add(position < 0 ? -position - 1 : position, neighbor);
+    }
+
+    /**
+     * Os {@code topK} mais parecidos com o produto, mantidos num heap do pior para o melhor
+     */
+    private List<Neighbor> nearest(Features features, Collection<Features> candidates) {
+        PriorityQueue<Neighbor> heap = new PriorityQueue<>(topK + 1, BEST_FIRST.reversed());
+        for (Features other : candidates) {
+            if (other.productId().equals(features.productId())) {
+                continue;
+            }
+            heap.offer(new Neighbor(other.productId(), score(features, other)));
+            if (heap.size() > topK) {
+                heap.poll();
+            }
+        }
+        List<Neighbor> list = new ArrayList<>(heap);
+        list.sort(BEST_FIRST);
+        return list;
+    }
+
+    private static double score(Features a, Features b) {
+        double score = 0;
+        if (a.category() != null && a.category() == b.category()) {
+            score += CATEGORY_WEIGHT;
+        }
+        if (a.rarity() != null && b.rarity() != null) {
+            int distance = Math.abs(a.rarity().ordinal() - b.rarity().ordinal());
+            score += RARITY_WEIGHT * (1.0 - (double) distance / MAX_RARITY_DISTANCE);
+        }
+        long union = a.magicMask() | b.magicMask();
+        if (union != 0) {
+            score += MAGIC_WEIGHT * Long.bitCount(a.magicMask() & b.magicMask()) / Long.bitCount(union);
+        }
+        if (a.price() > 0 && b.price() > 0) {
+            score += PRICE_WEIGHT * Math.min(a.price(), b.price()) / Math.max(a.price(), b.price());
+        }
+        return score;
+    }
+
+    private static Features toFeatures(Product product) {
+        long magicMask = 0;
+        if (product.getMagicProperties() != null) {
+            for (MagicProperty property : product.getMagicProperties()) {
+                magicMask |= 1L << property.ordinal();
+            }
+        }
+        BigDecimal price = product.getPrice();
+        return new Features(product.getId(), product.getCategory(), product.getRarity(), magicMask,
+                            price != null ? price.doubleValue() : 0);
+    }
+}
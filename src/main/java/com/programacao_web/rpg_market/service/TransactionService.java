@@ -2,9 +2,11 @@ package com.programacao_web.rpg_market.service;
 
 import com.programacao_web.rpg_market.model.DeliveryAddress;
 import com.programacao_web.rpg_market.model.Product;
+import com.programacao_web.rpg_market.model.ProductRef;
 import com.programacao_web.rpg_market.model.Transaction;
 import com.programacao_web.rpg_market.model.TransactionStatus;
 import com.programacao_web.rpg_market.model.User;
+import com.programacao_web.rpg_market.model.UserRef;
 import com.programacao_web.rpg_market.model.DeliveryAddress;
 import com.programacao_web.rpg_market.repository.TransactionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,9 +33,9 @@ public class TransactionService {
     @Transactional
     public Transaction createTransaction(Product product, User buyer, User seller, BigDecimal amount) {
         Transaction transaction = new Transaction();
-        transaction.setProduct(product);
-        transaction.setBuyer(buyer);
-        transaction.setSeller(seller);
+        transaction.setProduct(ProductRef.of(product));
+        transaction.setBuyer(UserRef.of(buyer));
+        transaction.setSeller(UserRef.of(seller));
         transaction.setAmount(amount);
         transaction.setStatus(TransactionStatus.PENDING);
         transaction.setCreatedAt(LocalDateTime.now());
@@ -54,9 +56,9 @@ public class TransactionService {
     public Transaction createTransaction(Product product, User buyer, User seller, BigDecimal amount, 
                                        DeliveryAddress deliveryAddress, String notes) {
         Transaction transaction = new Transaction();
-        transaction.setProduct(product);
-        transaction.setBuyer(buyer);
-        transaction.setSeller(seller);
+        transaction.setProduct(ProductRef.of(product));
+        transaction.setBuyer(UserRef.of(buyer));
+        transaction.setSeller(UserRef.of(seller));
         transaction.setAmount(amount);
         transaction.setStatus(TransactionStatus.PENDING);
         transaction.setCreatedAt(LocalDateTime.now());
@@ -88,12 +90,8 @@ public class TransactionService {
             transaction.setCompletedAt(LocalDateTime.now());
             
             // Experiência extra ao completar - com verificação de null
-            if (transaction.getBuyer() != null) {
-                userService.addExperience(transaction.getBuyer(), 5);
-            }
-            if (transaction.getSeller() != null) {
-                userService.addExperience(transaction.getSeller(), 5);
-            }
+            userService.resolve(transaction.getBuyer()).ifPresent(buyer -> userService.addExperience(buyer, 5));
+            userService.resolve(transaction.getSeller()).ifPresent(seller -> userService.addExperience(seller, 5));
         }
         
         return transactionRepository.save(transaction);
@@ -103,14 +101,14 @@ public class TransactionService {
      * Busca transações de um comprador
      */
     public List<Transaction> getBuyerTransactions(User buyer) {
-        return transactionRepository.findByBuyer(buyer);
+        return transactionRepository.findByBuyerId(buyer.getId());
     }
     
     /**
      * Busca transações de um vendedor
      */
     public List<Transaction> getSellerTransactions(User seller) {
-        return transactionRepository.findBySeller(seller);
+        return transactionRepository.findBySellerId(seller.getId());
     }
     
     /**
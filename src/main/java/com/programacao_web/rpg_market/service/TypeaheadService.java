@@ -0,0 +1,401 @@
+package com.programacao_web.rpg_market.service;
+
+import com.programacao_web.rpg_market.dto.SearchSuggestion;
+import com.programacao_web.rpg_market.model.Product;
+import com.programacao_web.rpg_market.model.ProductCategory;
+import com.programacao_web.rpg_market.model.ProductStatus;
+import com.programacao_web.rpg_market.util.PortugueseAnalyzer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Autocompletar da busca por árvore de prefixos em memória.
+ *
+ * As chaves são os nomes dos produtos à venda e os nomes das categorias, em minúsculas e sem
+ * acentos, inseridos a partir de cada palavra ("espada de fogo" também é achada por "fogo").
+ * Cada nó guarda as {@value #CACHED_PER_NODE} melhores sugestões da sua subárvore, então
+ * responder a um prefixo é descer a árvore e ler uma lista pronta.
+ *
+ * A popularidade de um nome é a soma de 1 + lances de cada produto à venda com ele; a de uma
+ * categoria, quantos produtos ela tem à venda. Mudanças em produtos ajustam só as sugestões
+ * afetadas e recalculam as listas no caminho delas até a raiz. Os lances não passam pelos
+ * eventos de gravação, então a árvore é remontada de tempos em tempos para atualizar a
+ * popularidade.
+ */
+@Service
+public class TypeaheadService {
+
+    private static final Logger log = LoggerFactory.getLogger(TypeaheadService.class);
+
+    static final int CACHED_PER_NODE = 32;
+    static final int MAX_SUGGESTIONS = 10;
+
+    private static final int MIN_WORD_KEY = 3;
+
+    private static final Set<ProductStatus> LISTED = EnumSet.of(ProductStatus.AVAILABLE, ProductStatus.AUCTION_ACTIVE);
+
+    private static final Comparator<Suggestion> RANKING =
+        Comparator.comparingLong((Suggestion suggestion) -> suggestion.score).reversed()
+                  .thenComparing(suggestion -> suggestion.text);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Protegido por lock
+    private Trie trie = new Trie();
+
+    // Ids alterados enquanto uma reconstrução completa lia o banco
+    private volatile Set<String> changedDuringRebuild;
+
+    /**
+     * Uma sugestão e as chaves pelas quais é achada. {@code perCategory} conta os produtos à
+     * venda de cada categoria, para esconder sugestões de categorias que o usuário não vê.
+     */
+    private static final class Suggestion {
+        final String text;
+        final String kind;
+        final String url;
+        final String[] keys;
+        final int[] perCategory = new int[ProductCategory.values().length];
+        long score;
+        boolean attached;
+
+        Suggestion(String text, String kind, String url) {
+            this.text = text;
+            this.kind = kind;
+            this.url = url;
+            this.keys = keysOf(text);
+        }
+
+        boolean visibleTo(Set<ProductCategory> categories) {
+            if (categories == null) {
+                return true;
+            }
+            for (ProductCategory category : categories) {
+                if (perCategory[category.ordinal()] > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Nó da árvore: filhos em arrays ordenados pelo caractere, sugestões que terminam aqui e
+     * as melhores da subárvore
+     */
+    private static final class Node {
+        private static final char[] NO_LABELS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final Suggestion[] NO_SUGGESTIONS = new Suggestion[0];
+
+        final Node parent;
+        final int depth;
+        char[] labels = NO_LABELS;
+        Node[] children = NO_CHILDREN;
+        List<Suggestion> terminals;
+        Suggestion[] top = NO_SUGGESTIONS;
+
+        Node(Node parent, int depth) {
+            this.parent = parent;
+            this.depth = depth;
+        }
+
+        Node child(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node childOrCreate(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index >= 0) {
+                return children[index];
+            }
+            int at = -index - 1;
+            Node created = new Node(this, depth + 1);
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            newLabels[at] = label;
+            newChildren[at] = created;
+            System.arraycopy(labels, at, newLabels, at + 1, labels.length - at);
+            System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+            labels = newLabels;
+            children = newChildren;
+            return created;
+        }
+
+        /**
+         * Refaz a lista das melhores a partir das sugestões daqui e das listas dos filhos
+         */
+        void recomputeTop() {
+            List<Suggestion> candidates = new ArrayList<>();
+            if (terminals != null) {
+                candidates.addAll(terminals);
+            }
+            for (Node child : children) {
+                candidates.addAll(Arrays.asList(child.top));
+            }
+            // A mesma sugestão chega por mais de um filho quando tem várias chaves com este prefixo
+            top = candidates.stream().distinct().sorted(RANKING).limit(CACHED_PER_NODE).toArray(Suggestion[]::new);
+        }
+    }
+
+    private record Listed(String suggestionKey, ProductCategory category, long weight) {
+    }
+
+    /**
+     * Todo o estado do autocompletar; trocado inteiro numa reconstrução
+     */
+    private static final class Trie {
+        final Node root = new Node(null, 0);
+        final Map<String, Suggestion> suggestions = new HashMap<>();
+        final Map<String, Listed> byProduct = new HashMap<>();
+
+        /**
+         * Tira a contribuição antiga do produto e soma a nova; devolve as sugestões tocadas
+         */
+        void update(String productId, Product product, Set<Suggestion> touched) {
+            Listed old = byProduct.remove(productId);
+            if (old != null) {
+                contribute(old, -1, touched);
+            }
+            if (product != null && product.getName() != null && !product.getName().isBlank()
+                && LISTED.contains(product.getStatus())) {
+                String name = product.getName().trim();
+                String key = "produto:" + PortugueseAnalyzer.fold(name);
+                suggestions.computeIfAbsent(key, k -> new Suggestion(name, "produto",
+                    "/buscar?keyword=" + URLEncoder.encode(name, StandardCharsets.UTF_8)));
+                long bids = product.getBidCount() != null ? product.getBidCount() : 0;
+                Listed listed = new Listed(key, product.getCategory(), 1 + bids);
+                byProduct.put(productId, listed);
+                contribute(listed, 1, touched);
+            }
+        }
+
+        private void contribute(Listed listed, int sign, Set<Suggestion> touched) {
+            Suggestion product = suggestions.get(listed.suggestionKey());
+            product.score += sign * listed.weight();
+            touched.add(product);
+            if (listed.category() != null) {
+                product.perCategory[listed.category().ordinal()] += sign;
+                Suggestion category = suggestions.computeIfAbsent("categoria:" + listed.category().name(),
+                    k -> categorySuggestion(listed.category()));
+                category.score += sign;
+                category.perCategory[listed.category().ordinal()] += sign;
+                touched.add(category);
+            }
+        }
+
+        /**
+         * Prende, solta ou reordena as sugestões tocadas e recalcula as listas dos nós afetados,
+         * dos mais fundos para a raiz, cada nó uma vez
+         */
+        void apply(Set<Suggestion> touched) {
+            Set<Node> affected = new HashSet<>();
+            for (Suggestion suggestion : touched) {
+                boolean keep = suggestion.score > 0;
+                for (String key : suggestion.keys) {
+                    Node node = root;
+                    for (int i = 0; i < key.length() && node != null; i++) {
+                        node = keep ? node.childOrCreate(key.charAt(i)) : node.child(key.charAt(i));
+                    }
+                    if (node == null) {
+                        continue;
+                    }
+                    if (keep && !suggestion.attached) {
+                        if (node.terminals == null) {
+                            node.terminals = new ArrayList<>(1);
+                        }
+                        node.terminals.add(suggestion);
+                    } else if (!keep && node.terminals != null) {
+                        node.terminals.remove(suggestion);
+                    }
+                    for (Node up = node; up != null; up = up.parent) {
+                        affected.add(up);
+                    }
+                }
+                suggestion.attached = keep;
+                if (!keep) {
+                    suggestions.values().remove(suggestion);
+                }
+            }
+
+            List<Node> ordered = new ArrayList<>(affected);
+            ordered.sort(Comparator.comparingInt((Node node) -> node.depth).reversed());
+            for (Node node : ordered) {
+                node.recomputeTop();
+            }
+        }
+    }
+
+    private static Suggestion categorySuggestion(ProductCategory category) {
+        return new Suggestion(category.getDisplayName(), "categoria", "/categoria/" + category.name());
+    }
+
+    /**
+     * O texto normalizado inteiro e, a partir de cada palavra de {@value #MIN_WORD_KEY} letras
+     * ou mais, o resto dele
+     */
+    static String[] keysOf(String text) {
+        String normalized = normalize(text);
+        List<String> keys = new ArrayList<>();
+        keys.add(normalized);
+        for (int i = 1; i < normalized.length(); i++) {
+            if (normalized.charAt(i - 1) == ' ') {
+                int end = normalized.indexOf(' ', i);
+                int wordLength = (end < 0 ? normalized.length() : end) - i;
+                if (wordLength >= MIN_WORD_KEY) {
+                    keys.add(normalized.substring(i));
+                }
+            }
+        }
+        return keys.stream().filter(key -> !key.isEmpty()).distinct().toArray(String[]::new);
+    }
+
+    /**
+     * Minúsculas, sem acentos e com qualquer sequência de não-letras virando um espaço
+     */
+    static String normalize(String text) {
+        String folded = PortugueseAnalyzer.fold(text);
+        StringBuilder out = new StringBuilder(folded.length());
+        boolean space = false;
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (space && out.length() > 0) {
+                    out.append(' ');
+                }
+                out.append(c);
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return out.toString();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        changedDuringRebuild = ConcurrentHashMap.newKeySet();
+        Trie fresh = new Trie();
+        Set<Suggestion> touched = new HashSet<>();
+        Query query = Query.query(Criteria.where("status").in(LISTED));
+        query.fields().include("name", "category", "status", "bid_count");
+        try (Stream<Product> products = mongoTemplate.stream(query, Product.class)) {
+            products.forEach(product -> fresh.update(product.getId(), product, touched));
+        }
+        fresh.apply(touched);
+
+        Set<String> missed;
+        lock.writeLock().lock();
+        try {
+            trie = fresh;
+            missed = changedDuringRebuild;
+            changedDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!missed.isEmpty()) {
+            reindex(missed);
+        }
+        log.info("Autocompletar montado com {} sugestões", fresh.suggestions.size());
+    }
+
+    /**
+     * Remonta periodicamente para a popularidade acompanhar os lances
+     */
+    @Scheduled(initialDelayString = "${app.typeahead.refresh-ms:600000}", fixedDelayString = "${app.typeahead.refresh-ms:600000}")
+    public void refresh() {
+        rebuild();
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isAll()) {
+            rebuild();
+            return;
+        }
+        Set<String> pending = changedDuringRebuild;
+        if (pending != null) {
+            pending.addAll(event.productIds());
+        }
+        reindex(event.productIds());
+    }
+
+    private void reindex(Collection<String> productIds) {
+        Query query = Query.query(Criteria.where("_id").in(productIds));
+        query.fields().include("name", "category", "status", "bid_count");
+        Map<String, Product> products = new HashMap<>();
+        for (Product product : mongoTemplate.find(query, Product.class)) {
+            products.put(product.getId(), product);
+        }
+
+        lock.writeLock().lock();
+        try {
+            Set<Suggestion> touched = new HashSet<>();
+            for (String productId : productIds) {
+                trie.update(productId, products.get(productId), touched);
+            }
+            trie.apply(touched);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Até {@code limit} sugestões para o prefixo digitado, das mais populares para as menos.
+     * {@code visibleCategories} null não filtra; com filtro, só aparecem nomes e categorias
+     * com algum produto à venda numa categoria visível.
+     */
+    public List<SearchSuggestion> suggest(String prefix, Set<ProductCategory> visibleCategories, int limit) {
+        String normalized = prefix != null ? normalize(prefix) : "";
+        int wanted = Math.max(1, Math.min(limit, MAX_SUGGESTIONS));
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+
+        List<SearchSuggestion> result = new ArrayList<>(wanted);
+        lock.readLock().lock();
+        try {
+            Node node = trie.root;
+            for (int i = 0; i < normalized.length() && node != null; i++) {
+                node = node.child(normalized.charAt(i));
+            }
+            if (node == null) {
+                return List.of();
+            }
+            for (Suggestion suggestion : node.top) {
+                if (suggestion.visibleTo(visibleCategories)) {
+                    result.add(new SearchSuggestion(suggestion.text, suggestion.kind, suggestion.url));
+                    if (result.size() == wanted) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+}
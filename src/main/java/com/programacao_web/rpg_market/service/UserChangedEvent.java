@@ -0,0 +1,28 @@
+package com.programacao_web.rpg_market.service;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Aviso de que usuários tiveram perfil, papel ou saldo alterados. Quem guarda cópias dos
+ * usuários (o cache de {@link ViewerService}) descarta os ids indicados; {@code userIds}
+ * vazio significa que qualquer usuário pode ter mudado.
+ */
+public record UserChangedEvent(Set<String> userIds) {
+
+    public static UserChangedEvent of(String userId) {
+        return new UserChangedEvent(Set.of(userId));
+    }
+
+    public static UserChangedEvent of(Collection<String> userIds) {
+        return new UserChangedEvent(Set.copyOf(userIds));
+    }
+
+    public static UserChangedEvent all() {
+        return new UserChangedEvent(Set.of());
+    }
+
+    public boolean isAll() {
+        return userIds.isEmpty();
+    }
+}
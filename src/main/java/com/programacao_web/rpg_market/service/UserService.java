@@ -2,6 +2,7 @@ package com.programacao_web.rpg_market.service;
 
 import com.programacao_web.rpg_market.model.Transaction;
 import com.programacao_web.rpg_market.model.User;
+import com.programacao_web.rpg_market.model.UserRef;
 import com.programacao_web.rpg_market.model.UserRole;
 import com.programacao_web.rpg_market.repository.TransactionRepository;
 import com.programacao_web.rpg_market.repository.UserRepository;
@@ -15,7 +16,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -60,6 +64,15 @@ public class UserService {
     
     @Transactional
     public void addExperience(User user, int exp) {
+        gainExperience(user, exp);
+        userRepository.save(user);
+    }
+    
+    /**
+     * Aplica a experiência e o bônus de subida de nível apenas em memória
+     * (usado pela liquidação em lote, que grava os usuários de uma vez)
+     */
+    public static void gainExperience(User user, int exp) {
         int currentExp = user.getExperience();
         int newExp = currentExp + exp;
         user.setExperience(newExp);
@@ -72,17 +85,53 @@ public class UserService {
             BigDecimal goldBonus = new BigDecimal(100);
             user.setGoldCoins(user.getGoldCoins().add(goldBonus));
         }
-        
-        userRepository.save(user);
     }
     
     // Métodos faltantes
     public List<Transaction> getUserPurchases(User user) {
-        return transactionRepository.findByBuyer(user);
+        return transactionRepository.findByBuyerId(user.getId());
     }
     
     public List<Transaction> getUserSales(User user) {
-        return transactionRepository.findBySeller(user);
+        return transactionRepository.findBySellerId(user.getId());
+    }
+
+    /**
+     * Resolve a referência embutida no usuário completo, para quando a página precisa de
+     * mais que o nome (nível, classe, saldo)
+     */
+    public Optional<User> resolve(UserRef ref) {
+        return ref != null && ref.getId() != null ? userRepository.findById(ref.getId()) : Optional.empty();
+    }
+
+    /**
+     * Busca vários usuários numa consulta só, mantendo a ordem dos ids recebidos
+     */
+    public List<User> findAllInOrder(List<String> ids) {
+        Map<String, User> byId = new HashMap<>();
+        userRepository.findAllById(ids).forEach(user -> byId.put(user.getId(), user));
+        List<User> users = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            User user = byId.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Vendedores com mais vendas concluídas
+     */
+    public List<User> getTopSellers(int limit) {
+        return findAllInOrder(transactionRepository.findTopSellerIds(limit));
+    }
+
+    /**
+     * Compradores com mais compras concluídas
+     */
+    public List<User> getTopBuyers(int limit) {
+        return findAllInOrder(transactionRepository.findTopBuyerIds(limit));
     }
     
     /**
@@ -0,0 +1,110 @@
+package com.programacao_web.rpg_market.service;
+
+import com.programacao_web.rpg_market.dto.Viewer;
+import com.programacao_web.rpg_market.model.User;
+import com.programacao_web.rpg_market.repository.UserRepository;
+import com.programacao_web.rpg_market.service.CustomUserDetailsService.CustomUserDetails;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monta o {@link Viewer} de cada requisição a partir do usuário autenticado.
+ *
+ * O principal ({@link CustomUserDetails}) traz o id, mas classe, papel e nível podem mudar
+ * depois do login, então o viewer vem de um cache curto por id, relido do banco quando
+ * expira e descartado a cada {@link UserChangedEvent} (perfil salvo, saldo movimentado).
+ * O usuário lido fica guardado junto, para as telas que só o exibem ({@link #userOf}).
+ */
+@Service
+public class ViewerService {
+
+    private record Entry(Viewer viewer, User user, long loadedAt) {
+    }
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.viewer.cache-ttl-ms:30000}")
+    private long ttlMillis;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // Incrementada a cada invalidação; uma leitura que começou antes dela não é guardada
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * O viewer da autenticação atual, ou {@link Viewer#ANONYMOUS} para visitantes
+     */
+    public Viewer viewerOf(Authentication auth) {
+        if (auth == null || !auth.isAuthenticated() || !(auth.getPrincipal() instanceof UserDetails details)) {
+            return Viewer.ANONYMOUS;
+        }
+        if (details instanceof CustomUserDetails custom && custom.getId() != null) {
+            return viewerById(custom.getId());
+        }
+        long loadedGeneration = generation.get();
+        return userRepository.findByUsername(details.getUsername())
+                             .map(user -> remember(user, loadedGeneration).viewer())
+                             .orElse(Viewer.ANONYMOUS);
+    }
+
+    public Viewer viewerById(String userId) {
+        Entry entry = entry(userId);
+        return entry != null ? entry.viewer() : Viewer.ANONYMOUS;
+    }
+
+    /**
+     * O usuário do viewer como foi lido para o cache, para telas e consultas que só leem
+     * (perfil, inventário, endereços, revisão do checkout). Não deve ser alterado nem
+     * gravado: quem movimenta ouro ou grava o usuário inteiro busca o estado atual no banco.
+     */
+    public Optional<User> userOf(Viewer viewer) {
+        if (viewer.getId() == null) {
+            return Optional.empty();
+        }
+        Entry entry = entry(viewer.getId());
+        return entry != null ? Optional.of(entry.user()) : Optional.empty();
+    }
+
+    private Entry entry(String userId) {
+        Entry cached = entries.get(userId);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt() < ttlMillis) {
+            return cached;
+        }
+        long loadedGeneration = generation.get();
+        Optional<User> user = userRepository.findById(userId);
+        if (user.isEmpty()) {
+            entries.remove(userId);
+            return null;
+        }
+        return remember(user.get(), loadedGeneration);
+    }
+
+    private Entry remember(User user, long loadedGeneration) {
+        Entry entry = new Entry(Viewer.of(user), user, System.currentTimeMillis());
+        if (user.getId() != null && generation.get() == loadedGeneration) {
+            entries.put(user.getId(), entry);
+        }
+        return entry;
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        generation.incrementAndGet();
+        if (event.isAll()) {
+            entries.clear();
+        } else {
+            event.userIds().forEach(entries::remove);
+        }
+    }
+}
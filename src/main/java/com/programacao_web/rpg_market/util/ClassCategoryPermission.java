@@ -77,6 +77,28 @@ public class ClassCategoryPermission {
         return getAllowedCategories(characterClass, userRole).contains(category);
     }
 
+    /**
+     * Classe no formato das chaves do mapa ("Guerreiro", "Clérigo"), como foi digitada no
+     * cadastro mas sem espaços nas pontas e com só a inicial maiúscula
+     */
+    public static String normalizeClass(String characterClass) {
+        if (characterClass == null) return null;
+        String trimmed = characterClass.trim();
+        if (trimmed.isEmpty()) return trimmed;
+        return trimmed.substring(0, 1).toUpperCase() + trimmed.substring(1).toLowerCase();
+    }
+
+    /**
+     * Máscara de bits das categorias, um bit por ordinal de {@link ProductCategory}
+     */
+    public static long toMask(Collection<ProductCategory> categories) {
+        long mask = 0;
+        for (ProductCategory category : categories) {
+            mask |= 1L << category.ordinal();
+        }
+        return mask;
+    }
+
     /**
      * Verifica se o usuário tem permissões administrativas (MESTRE ou ADMIN)
      */
@@ -0,0 +1,193 @@
+package com.programacao_web.rpg_market.util;
+
+import java.util.*;
+
+/**
+ * Roda de temporizadores hierárquica (estilo kernel Linux / Kafka).
+ *
+ * Cada nível tem {@code 2^bits} posições; uma posição do nível {@code n} cobre
+ * {@code 2^(bits*n)} ticks. Agendar e cancelar são O(1), e avançar um tick só toca a
+ * posição corrente do nível 0 e, nas viradas, uma posição dos níveis superiores, que
+ * é redistribuída para baixo. Prazos além do último nível ficam numa lista de espera
+ * redistribuída a cada volta completa da roda.
+ *
+ * A classe é thread-safe: todos os métodos públicos são sincronizados e executam em
+ * tempo constante, exceto {@link #advance(long)}, que processa os ticks atrasados.
+ */
+public class HierarchicalTimerWheel<K> {
+
+    private final long tickMillis;
+    private final int bits;
+    private final int mask;
+    private final int levels;
+
+    private final Set<Entry<K>>[][] wheels;
+    private final Set<Entry<K>> overflow = new LinkedHashSet<>();
+    private final List<Entry<K>> due = new ArrayList<>();
+    private final Map<K, Entry<K>> entries = new HashMap<>();
+
+    private long currentTick;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HierarchicalTimerWheel(long tickMillis, int bits, int levels, long startMillis) {
+        if (tickMillis <= 0 || bits <= 0 || levels <= 0 || bits * levels >= 63) {
+            throw new IllegalArgumentException("Configuração inválida da roda de temporizadores");
+        }
+        this.tickMillis = tickMillis;
+        this.bits = bits;
+        this.mask = (1 << bits) - 1;
+        this.levels = levels;
+        this.wheels = new Set[levels][1 << bits];
+        for (int level = 0; level < levels; level++) {
+            for (int slot = 0; slot <= mask; slot++) {
+                wheels[level][slot] = new LinkedHashSet<>();
+            }
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Agenda (ou reagenda) a chave para expirar no instante informado
+     */
+    public synchronized void schedule(K key, long deadlineMillis) {
+        cancel(key);
+        Entry<K> entry = new Entry<>(key, deadlineMillis, deadlineMillis / tickMillis);
+        entries.put(key, entry);
+        place(entry);
+    }
+
+    /**
+     * Cancela o temporizador da chave, se existir
+     */
+    public synchronized boolean cancel(K key) {
+        Entry<K> entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        if (entry.bucket != null) {
+            entry.bucket.remove(entry);
+        } else {
+            due.remove(entry);
+        }
+        return true;
+    }
+
+    /**
+     * Avança a roda até o instante informado e devolve os temporizadores expirados,
+     * em ordem de prazo dentro de cada tick.
+     */
+    public synchronized List<Expiration<K>> advance(long nowMillis) {
+        List<Expiration<K>> expired = new ArrayList<>();
+        drainDue(expired);
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            tick(expired);
+        }
+        return expired;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    private void tick(List<Expiration<K>> expired) {
+        currentTick++;
+
+        if ((currentTick & ((1L << (bits * levels)) - 1)) == 0 && !overflow.isEmpty()) {
+            List<Entry<K>> waiting = new ArrayList<>(overflow);
+            overflow.clear();
+            waiting.forEach(this::place);
+        }
+
+        // Redistribui, do nível mais alto para o mais baixo, as posições cuja janela começa agora
+        for (int level = levels - 1; level >= 1; level--) {
+            if ((currentTick & ((1L << (bits * level)) - 1)) == 0) {
+                Set<Entry<K>> bucket = wheels[level][(int) ((currentTick >>> (bits * level)) & mask)];
+                if (!bucket.isEmpty()) {
+                    List<Entry<K>> cascading = new ArrayList<>(bucket);
+                    bucket.clear();
+                    cascading.forEach(this::place);
+                }
+            }
+        }
+
+        Set<Entry<K>> bucket = wheels[0][(int) (currentTick & mask)];
+        if (!bucket.isEmpty()) {
+            List<Entry<K>> firing = new ArrayList<>(bucket);
+            bucket.clear();
+            firing.sort(Comparator.comparingLong(e -> e.deadlineMillis));
+            for (Entry<K> entry : firing) {
+                entries.remove(entry.key);
+                expired.add(new Expiration<>(entry.key, entry.deadlineMillis));
+            }
+        }
+        drainDue(expired);
+    }
+
+    /**
+     * Coloca a entrada no menor nível cujos dígitos superiores coincidem com o tick atual
+     */
+    private void place(Entry<K> entry) {
+        if (entry.deadlineTick <= currentTick) {
+            entry.bucket = null;
+            due.add(entry);
+            return;
+        }
+        for (int level = 0; level < levels; level++) {
+            int shift = bits * (level + 1);
+            if ((entry.deadlineTick >>> shift) == (currentTick >>> shift)) {
+                Set<Entry<K>> bucket = wheels[level][(int) ((entry.deadlineTick >>> (bits * level)) & mask)];
+                entry.bucket = bucket;
+                bucket.add(entry);
+                return;
+            }
+        }
+        entry.bucket = overflow;
+        overflow.add(entry);
+    }
+
+    private void drainDue(List<Expiration<K>> expired) {
+        if (due.isEmpty()) {
+            return;
+        }
+        due.sort(Comparator.comparingLong(e -> e.deadlineMillis));
+        for (Entry<K> entry : due) {
+            entries.remove(entry.key);
+            expired.add(new Expiration<>(entry.key, entry.deadlineMillis));
+        }
+        due.clear();
+    }
+
+    /**
+     * Temporizador expirado: a chave e o prazo originalmente agendado
+     */
+    public static class Expiration<K> {
+        private final K key;
+        private final long deadlineMillis;
+
+        public Expiration(K key, long deadlineMillis) {
+            this.key = key;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        public K getKey() { return key; }
+        public long getDeadlineMillis() { return deadlineMillis; }
+    }
+
+    private static class Entry<K> {
+        final K key;
+        final long deadlineMillis;
+        final long deadlineTick;
+        Set<Entry<K>> bucket;
+
+        Entry(K key, long deadlineMillis, long deadlineTick) {
+            this.key = key;
+            this.deadlineMillis = deadlineMillis;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
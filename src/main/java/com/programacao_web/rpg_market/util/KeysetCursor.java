@@ -0,0 +1,51 @@
+package com.programacao_web.rpg_market.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+
+/**
+ * Token de continuação da paginação por chave: a posição do último item entregue
+ * (valor da data de ordenação e id) codificada em Base64 para o cliente só devolvê-la.
+ *
+ * O token leva o nome da ordenação; um cursor de vendas diretas não é aceito na listagem
+ * de leilões, que ordena por outro campo.
+ */
+public final class KeysetCursor {
+
+    /**
+     * Posição decodificada: continuar depois de ({@code value}, {@code id})
+     */
+    public record Position(LocalDateTime value, String id) {
+    }
+
+    private KeysetCursor() {
+    }
+
+    public static String encode(String sortKey, LocalDateTime value, String id) {
+        long millis = value.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        String raw = sortKey + ":" + millis + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException se o token estiver corrompido ou for de outra ordenação
+     */
+    public static Position decode(String sortKey, String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 3);
+            if (parts.length != 3 || !parts[0].equals(sortKey) || parts[2].isEmpty()) {
+                throw new IllegalArgumentException("Cursor de listagem inválido");
+            }
+            LocalDateTime value = LocalDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(parts[1])),
+                                                          ZoneId.systemDefault());
+            return new Position(value, parts[2]);
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException e erros de Base64 também caem aqui
+            throw new IllegalArgumentException("Cursor de listagem inválido");
+        }
+    }
+}
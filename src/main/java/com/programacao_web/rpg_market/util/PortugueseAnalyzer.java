@@ -0,0 +1,109 @@
+package com.programacao_web.rpg_market.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Quebra um texto em termos de busca: minúsculas, sem acentos, sem palavras vazias e com
+ * um radical leve do português (plural e vogal final).
+ *
+ * O radical é propositalmente simples: "poção", "pocao" e "poções" viram o mesmo termo,
+ * mas não tenta separar derivações ("encantado" e "encantamento" continuam diferentes).
+ * O mesmo tratamento é aplicado ao texto indexado e à consulta, então basta ser consistente.
+ */
+public final class PortugueseAnalyzer {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+        "a", "o", "as", "os", "um", "uma", "uns", "umas", "de", "da", "do", "das", "dos",
+        "e", "em", "no", "na", "nos", "nas", "ao", "aos", "com", "para", "por", "pra",
+        "que", "se", "ou", "the", "of");
+
+    private static final int MIN_STEM = 3;
+
+    private PortugueseAnalyzer() {
+    }
+
+    /**
+     * Termos do texto na ordem em que aparecem, com repetições (a frequência conta no ranking)
+     */
+    public static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return terms;
+        }
+
+        String folded = fold(text);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean letterOrDigit = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (letterOrDigit && start < 0) {
+                start = i;
+            } else if (!letterOrDigit && start >= 0) {
+                String token = folded.substring(start, i);
+                if (!STOP_WORDS.contains(token)) {
+                    terms.add(stem(token));
+                }
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Minúsculas e sem diacríticos: "Poções" vira "pocoes"
+     */
+    public static String fold(String text) {
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Radical leve: tira o plural e depois uma vogal temática final
+     */
+    static String stem(String token) {
+        if (token.length() <= MIN_STEM || !Character.isLetter(token.charAt(token.length() - 1))) {
+            return token;
+        }
+        String word = singular(token);
+        char last = word.charAt(word.length() - 1);
+        if (word.length() > MIN_STEM && (last == 'a' || last == 'e' || last == 'o')) {
+            word = word.substring(0, word.length() - 1);
+        }
+        return word;
+    }
+
+    private static String singular(String word) {
+        if (word.endsWith("oes") || word.endsWith("aes")) {
+            return word.substring(0, word.length() - 3) + "ao";   // poções, pães
+        }
+        if (word.endsWith("ais")) {
+            return word.substring(0, word.length() - 3) + "al";   // animais
+        }
+        if (word.endsWith("eis")) {
+            return word.substring(0, word.length() - 3) + "el";   // anéis
+        }
+        if (word.endsWith("ois")) {
+            return word.substring(0, word.length() - 3) + "ol";   // anzóis
+        }
+        if (word.endsWith("ns")) {
+            return word.substring(0, word.length() - 2) + "m";    // itens
+        }
+        if (word.endsWith("res") || word.endsWith("zes") || word.endsWith("ses")) {
+            return word.substring(0, word.length() - 2);          // colares, cruzes
+        }
+        if (word.endsWith("s") && !word.endsWith("ss") && !word.endsWith("us") && !word.endsWith("is")) {
+            return word.substring(0, word.length() - 1);          // espadas
+        }
+        return word;
+    }
+}
@@ -0,0 +1,56 @@
+package com.programacao_web.rpg_market.util;
+
+import org.bson.Document;
+import org.bson.types.Decimal128;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Comparações numéricas sobre o preço gravado.
+ *
+ * O Spring Data grava BigDecimal como texto, então {@code price >= "100"} compara strings
+ * ("90.00" fica acima de "100.00"). As faixas de preço convertem o campo para decimal
+ * dentro de um {@code $expr}; valores que não convertem ficam de fora.
+ */
+public final class StoredPrice {
+
+    private StoredPrice() {
+    }
+
+    /**
+     * O preço como decimal, ou null quando ausente ou inválido
+     */
+    public static Document numeric() {
+        return new Document("$convert", new Document("input", "$price")
+            .append("to", "decimal")
+            .append("onError", null)
+            .append("onNull", null));
+    }
+
+    public static Decimal128 decimal(BigDecimal value) {
+        return new Decimal128(value);
+    }
+
+    /**
+     * Expressão para {@code $expr} com a faixa [min, max]; limites nulos ou não positivos
+     * são ignorados, como nos formulários. Null quando não há limite algum.
+     */
+    public static Document rangeExpr(BigDecimal minPrice, BigDecimal maxPrice) {
+        List<Document> bounds = new ArrayList<>(2);
+        if (minPrice != null && minPrice.compareTo(BigDecimal.ZERO) > 0) {
+            bounds.add(new Document("$gte", List.of(numeric(), decimal(minPrice))));
+        }
+        if (maxPrice != null && maxPrice.compareTo(BigDecimal.ZERO) > 0) {
+            // $lte também é verdadeiro para null; exige um preço válido
+            bounds.add(new Document("$lte", List.of(numeric(), decimal(maxPrice))));
+            bounds.add(new Document("$ne", Arrays.asList(numeric(), null)));
+        }
+        if (bounds.isEmpty()) {
+            return null;
+        }
+        return bounds.size() == 1 ? bounds.get(0) : new Document("$and", bounds);
+    }
+}
@@ -0,0 +1,60 @@
+package com.programacao_web.rpg_market.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Balde de fichas sem travas, no formato de agendamento virtual (GCRA).
+ *
+ * Em vez de guardar fichas e o horário da última recarga, guarda um único instante: o
+ * momento em que o balde estaria cheio de novo. Cada pedido empurra esse instante um
+ * intervalo para a frente; o pedido é recusado se isso deixaria o balde mais de
+ * {@code burst} fichas no negativo. Como é um só {@code long}, a atualização é um
+ * compare-and-set, e o tempo até a próxima ficha sai da mesma conta.
+ *
+ * O relógio é recebido em nanossegundos para que o chamador use {@link System#nanoTime()}.
+ */
+public class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    /**
+     * @param ratePerSecond fichas recarregadas por segundo
+     * @param burst         fichas disponíveis de uma vez com o balde cheio
+     */
+    public TokenBucket(double ratePerSecond, int burst, long nowNanos) {
+        if (ratePerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Configuração inválida do balde de fichas");
+        }
+        this.intervalNanos = Math.max(1L, (long) (1_000_000_000L / ratePerSecond));
+        this.burstNanos = intervalNanos * burst;
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Tenta consumir uma ficha. Devolve 0 se conseguiu, ou quantos nanossegundos faltam
+     * para a próxima ficha.
+     */
+    public long tryConsume(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long base = Math.max(current, nowNanos);
+            long next = base + intervalNanos;
+            long debt = next - nowNanos;
+            if (debt > burstNanos) {
+                return debt - burstNanos;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Indica se o balde está cheio, ou seja, se pode ser descartado sem mudar o comportamento
+     */
+    public boolean isFull(long nowNanos) {
+        return fullAt.get() <= nowNanos;
+    }
+}
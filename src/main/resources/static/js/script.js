@@ -17,6 +17,9 @@ document.addEventListener('DOMContentLoaded', function() {
     
     // Inicializar dropdowns do usuário
     initUserDropdowns();
+
+    // Autocompletar da busca no cabeçalho
+    setupSearchSuggestions();
       // Funções específicas para determinadas páginas
     if (document.getElementById('countdown')) {
         updateAuctionCountdown();
@@ -187,6 +190,42 @@ document.addEventListener('DOMContentLoaded', function() {
     initUserDropdowns();
 });
 
+/**
+ * Preenche o datalist da busca com as sugestões do servidor enquanto o usuário digita
+ */
+function setupSearchSuggestions() {
+    const input = document.querySelector('.search-input[data-suggest-url]');
+    const list = document.getElementById('search-suggestions');
+    if (!input || !list) {
+        return;
+    }
+
+    let timer = null;
+    let lastQuery = '';
+    input.addEventListener('input', function() {
+        clearTimeout(timer);
+        const query = input.value.trim();
+        if (query.length < 2 || query === lastQuery) {
+            return;
+        }
+        timer = setTimeout(function() {
+            lastQuery = query;
+            fetch(input.dataset.suggestUrl + '?q=' + encodeURIComponent(query), { headers: { 'Accept': 'application/json' } })
+                .then(response => response.ok ? response.json() : [])
+                .then(suggestions => {
+                    list.innerHTML = '';
+                    suggestions.forEach(suggestion => {
+                        const option = document.createElement('option');
+                        option.value = suggestion.text;
+                        option.label = suggestion.kind === 'categoria' ? 'Categoria' : '';
+                        list.appendChild(option);
+                    });
+                })
+                .catch(() => { /* sem sugestões, a busca normal continua funcionando */ });
+        }, 120);
+    });
+}
+
 /**
  * Atualiza o contador regressivo para o término do leilão
  */
@@ -0,0 +1,214 @@
+package com.programacao_web.rpg_market.config;
+
+import com.mongodb.DBRef;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import com.programacao_web.rpg_market.model.ItemRarity;
+import com.programacao_web.rpg_market.model.ProductCategory;
+
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Conferência dos planos das consultas quentes num mongod real: o catálogo é aplicado pelo
+ * mesmo código da inicialização, as coleções recebem dados com a forma dos gravados pela
+ * aplicação e o plano vencedor de cada {@link MongoIndexCatalog#HOT_QUERIES} não pode ter
+ * COLLSCAN nem SORT em memória.
+ */
+class MongoIndexCatalogTest {
+
+    private static final String DATABASE = "rpg_market_planos";
+
+    private static final long HOUR = 3_600_000L;
+
+    private static TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private static MongoClient client;
+    private static MongoDatabase database;
+
+    @BeforeAll
+    static void subirBancoComCatalogoEDados() throws Exception {
+        mongod = Mongod.instance().start(Version.Main.V7_0);
+        ServerAddress address = mongod.current().getServerAddress();
+        client = MongoClients.create("mongodb://" + address.getHost() + ":" + address.getPort());
+        database = client.getDatabase(DATABASE);
+
+        MongoConfig.MongoIndexesConfig indexes = new MongoConfig.MongoIndexesConfig();
+        ReflectionTestUtils.setField(indexes, "mongoTemplate", new MongoTemplate(client, DATABASE));
+        indexes.run();
+
+        seed();
+    }
+
+    @AfterAll
+    static void derrubarBanco() {
+        if (client != null) {
+            client.close();
+        }
+        if (mongod != null) {
+            mongod.close();
+        }
+    }
+
+    @Test
+    void catalogoCriaTodosOsIndices() {
+        for (String collection : MongoIndexCatalog.INDEXES.stream()
+                                                          .map(MongoIndexCatalog.IndexSpec::collection)
+                                                          .collect(Collectors.toSet())) {
+            List<String> existing = new ArrayList<>();
+            for (Document index : database.getCollection(collection).listIndexes()) {
+                existing.add(index.getString("name"));
+            }
+            for (MongoIndexCatalog.IndexSpec spec : MongoIndexCatalog.INDEXES) {
+                if (spec.collection().equals(collection)) {
+                    assertTrue(existing.contains(spec.name()), collection + "." + spec.name() + " não foi criado");
+                }
+            }
+        }
+    }
+
+    @Test
+    void consultasQuentesSemCollscanNemSortEmMemoria() {
+        Map<String, Set<String>> problems = new TreeMap<>();
+        for (MongoIndexCatalog.HotQuery query : MongoIndexCatalog.HOT_QUERIES) {
+            Set<String> stages = MongoConfig.MongoIndexesConfig.winningPlanStages(database, query);
+            if (stages.contains("COLLSCAN") || stages.contains("SORT") || !stages.contains("IXSCAN")) {
+                problems.put(query.name() + " em " + query.collection(), stages);
+            }
+        }
+        assertEquals(Map.of(), problems, "Consultas quentes sem índice adequado");
+    }
+
+    /**
+     * Dados suficientes para o planejador comparar os índices candidatos, com os nomes de
+     * campo e os valores gravados pela aplicação
+     */
+    private static void seed() {
+        Date now = new Date();
+        ProductCategory[] categories = ProductCategory.values();
+        ItemRarity[] rarities = ItemRarity.values();
+
+        List<ObjectId> userIds = new ArrayList<>();
+        List<Document> users = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            ObjectId id = new ObjectId();
+            userIds.add(id);
+            users.add(new Document("_id", id)
+                .append("username", "aventureiro" + i)
+                .append("email", "aventureiro" + i + "@rpg.market")
+                .append("balance", "1000.00"));
+        }
+        database.getCollection("users").insertMany(users);
+
+        List<String> productIds = new ArrayList<>();
+        List<Document> products = new ArrayList<>();
+        for (int i = 0; i < 4000; i++) {
+            ObjectId id = new ObjectId();
+            productIds.add(id.toHexString());
+            boolean auction = i % 2 == 0;
+            String status = switch (i % 8) {
+                case 0, 2, 4 -> "AUCTION_ACTIVE";
+                case 6 -> "AUCTION_ENDED";
+                case 7 -> "SOLD";
+                default -> "AVAILABLE";
+            };
+            Document product = new Document("_id", id)
+                .append("name", "Item " + i)
+                .append("type", auction ? "AUCTION" : "DIRECT_SALE")
+                .append("status", status)
+                .append("category", categories[i % categories.length].name())
+                .append("rarity", rarities[i % rarities.length].name())
+                .append("price", String.valueOf(10 + i % 500))
+                .append("seller", new DBRef("users", userIds.get(i % userIds.size())))
+                .append("created_at", new Date(now.getTime() - i * HOUR));
+            if (auction) {
+                product.append("auction_end_date", new Date(now.getTime() + (i % 96 - 24) * HOUR));
+            }
+            if ("AUCTION_ENDED".equals(status) && i % 48 == 6) {
+                product.append("settlement_batch", new ObjectId().toHexString());
+            }
+            products.add(product);
+        }
+        database.getCollection("products").insertMany(products);
+
+        List<Document> bids = new ArrayList<>();
+        List<Document> proxyBids = new ArrayList<>();
+        for (int i = 0; i < 8000; i++) {
+            String bidderId = userIds.get(i % userIds.size()).toHexString();
+            String productId = productIds.get((i * 2) % productIds.size());
+            bids.add(new Document("product", new Document("id", productId))
+                .append("bidder", new Document("id", bidderId))
+                .append("amount", String.valueOf(10 + i))
+                .append("bid_time", new Date(now.getTime() - i * 60_000L)));
+            if (i < userIds.size()) {
+                proxyBids.add(new Document("product_id", productId)
+                    .append("bidder_id", bidderId)
+                    .append("max_amount", String.valueOf(500 + i)));
+            }
+        }
+        database.getCollection("bids").insertMany(bids);
+        database.getCollection("proxy_bids").insertMany(proxyBids);
+
+        List<Document> transactions = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            transactions.add(new Document("buyer", new Document("id", userIds.get(i % userIds.size()).toHexString()))
+                .append("seller", new Document("id", userIds.get((i + 1) % userIds.size()).toHexString()))
+                .append("product", new Document("id", productIds.get(i)))
+                .append("amount", String.valueOf(10 + i))
+                .append("status", i % 10 == 0 ? "PENDING" : "COMPLETED")
+                .append("created_at", new Date(now.getTime() - i * HOUR)));
+        }
+        database.getCollection("transactions").insertMany(transactions);
+
+        List<Document> addresses = new ArrayList<>();
+        List<Document> savedSearches = new ArrayList<>();
+        List<Document> notifications = new ArrayList<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            String userId = userIds.get(i).toHexString();
+            for (int a = 0; a < 3; a++) {
+                addresses.add(new Document("user_id", userId)
+                    .append("is_default", a == 0)
+                    .append("street", "Rua da Taverna, " + a));
+            }
+            for (int s = 0; s < 4; s++) {
+                ObjectId searchId = new ObjectId();
+                savedSearches.add(new Document("_id", searchId)
+                    .append("user_id", userId)
+                    .append("name", "Busca " + s)
+                    .append("created_at", new Date(now.getTime() - s * HOUR)));
+                for (int n = 0; n < 5; n++) {
+                    notifications.add(new Document("user_id", userId)
+                        .append("saved_search_id", searchId.toHexString())
+                        .append("product_id", productIds.get((i * 20 + s * 5 + n) % productIds.size()))
+                        .append("read", n % 2 == 0)
+                        .append("created_at", new Date(now.getTime() - n * HOUR)));
+                }
+            }
+        }
+        database.getCollection("delivery_addresses").insertMany(addresses);
+        database.getCollection("saved_searches").insertMany(savedSearches);
+        database.getCollection("search_notifications").insertMany(notifications);
+    }
+}
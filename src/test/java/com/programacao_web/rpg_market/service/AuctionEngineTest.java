@@ -0,0 +1,121 @@
+package com.programacao_web.rpg_market.service;
+
+import com.programacao_web.rpg_market.model.User;
+import com.programacao_web.rpg_market.service.AuctionEngine.ProxyEntry;
+import com.programacao_web.rpg_market.service.AuctionEngine.ProxyOutcome;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Resolução dos lances automáticos: preço atual 100 e incremento 1 em todos os casos
+ */
+class AuctionEngineTest {
+
+    private static final BigDecimal PRICE = new BigDecimal("100");
+    private static final BigDecimal INCREMENT = BigDecimal.ONE;
+    private static final LocalDateTime EARLIER = LocalDateTime.of(2024, 1, 1, 10, 0);
+    private static final LocalDateTime LATER = EARLIER.plusMinutes(5);
+
+    private final User alice = user("alice");
+    private final User bruno = user("bruno");
+
+    @Test
+    void semLancesAutomaticosNadaMuda() {
+        assertNull(AuctionEngine.resolveProxies(List.of(), null, PRICE, INCREMENT));
+    }
+
+    @Test
+    void unicoLanceAutomaticoPagaOLanceMinimo() {
+        ProxyOutcome outcome = resolve(List.of(proxy(alice, "150", EARLIER)), null, PRICE);
+
+        assertWins(alice, "101", outcome);
+    }
+
+    @Test
+    void cobreOLiderManualComUmIncremento() {
+        ProxyOutcome outcome = resolve(List.of(proxy(alice, "150", EARLIER)), "manual", new BigDecimal("120"));
+
+        assertWins(alice, "121", outcome);
+    }
+
+    @Test
+    void maiorMaximoPagaOSegundoMaisUmIncremento() {
+        ProxyOutcome outcome = resolve(List.of(proxy(bruno, "130", EARLIER), proxy(alice, "150", LATER)), null, PRICE);
+
+        assertWins(alice, "131", outcome);
+    }
+
+    @Test
+    void empateVenceOLanceAutomaticoMaisAntigo() {
+        ProxyOutcome outcome = resolve(List.of(proxy(bruno, "150", LATER), proxy(alice, "150", EARLIER)), null, PRICE);
+
+        // O segundo colocado aceita 150: o vencedor paga o próprio máximo
+        assertWins(alice, "150", outcome);
+    }
+
+    @Test
+    void liderNaoSobeSemDesafiante() {
+        ProxyOutcome outcome = resolve(List.of(proxy(alice, "150", EARLIER), proxy(bruno, "110", LATER)),
+                                       alice.getId(), new BigDecimal("120"));
+
+        assertNull(outcome);
+    }
+
+    @Test
+    void liderSobeAteCobrirODesafiante() {
+        ProxyOutcome outcome = resolve(List.of(proxy(alice, "150", EARLIER), proxy(bruno, "140", LATER)),
+                                       alice.getId(), new BigDecimal("120"));
+
+        assertWins(alice, "141", outcome);
+    }
+
+    @Test
+    void novoMaximoMaiorTomaALideranca() {
+        ProxyOutcome outcome = resolve(List.of(proxy(alice, "130", EARLIER), proxy(bruno, "200", LATER)),
+                                       alice.getId(), new BigDecimal("120"));
+
+        assertWins(bruno, "131", outcome);
+    }
+
+    @Test
+    void maximoAbaixoDoLanceMinimoNaoCobre() {
+        ProxyOutcome outcome = resolve(List.of(proxy(alice, "100.50", EARLIER)), "manual", PRICE);
+
+        assertNull(outcome);
+    }
+
+    @Test
+    void lanceLimitadoAoProprioMaximo() {
+        ProxyOutcome outcome = resolve(List.of(proxy(alice, "130", EARLIER)), "manual", new BigDecimal("129"));
+
+        assertWins(alice, "130", outcome);
+    }
+
+    private static ProxyOutcome resolve(List<ProxyEntry> proxies, String leaderId, BigDecimal currentPrice) {
+        return AuctionEngine.resolveProxies(proxies, leaderId, currentPrice, INCREMENT);
+    }
+
+    private static void assertWins(User expected, String amount, ProxyOutcome outcome) {
+        assertNotNull(outcome);
+        assertEquals(expected.getId(), outcome.bidder().getId());
+        assertEquals(0, new BigDecimal(amount).compareTo(outcome.amount()),
+                     "esperado " + amount + ", obtido " + outcome.amount());
+    }
+
+    private static ProxyEntry proxy(User bidder, String maxAmount, LocalDateTime createdAt) {
+        return new ProxyEntry(bidder, new BigDecimal(maxAmount), createdAt);
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setId(username + "-id");
+        user.setUsername(username);
+        return user;
+    }
+}
@@ -0,0 +1,138 @@
+package com.programacao_web.rpg_market.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Roda pequena (ticks de 10 ms, 4 posições por nível, 3 níveis = 64 ticks) para que as
+ * viradas de nível e a lista de espera aconteçam em poucos passos
+ */
+class HierarchicalTimerWheelTest {
+
+    private static final long TICK = 10;
+
+    private final HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(TICK, 2, 3, 0);
+
+    @Test
+    void expiraNoTickDoPrazo() {
+        wheel.schedule("a", 25);
+
+        assertTrue(wheel.advance(10).isEmpty());
+        assertTrue(wheel.advance(19).isEmpty());
+        assertEquals(List.of("a"), keys(wheel.advance(20)));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void desceEntreNiveisSemExpirarAntes() {
+        // Tick 37: começa no nível 2 e desce para os níveis 1 e 0 nas viradas
+        wheel.schedule("nivel2", 370);
+        // Tick 9: nível 1
+        wheel.schedule("nivel1", 95);
+
+        assertEquals(95 / TICK, tickOfExpiration("nivel1"));
+        assertEquals(370 / TICK, tickOfExpiration("nivel2"));
+    }
+
+    @Test
+    void prazoAlemDoUltimoNivelPassaPelaListaDeEspera() {
+        // 200 ticks: além dos 64 ticks que os três níveis cobrem
+        wheel.schedule("longe", 2000);
+
+        assertEquals(200, tickOfExpiration("longe"));
+    }
+
+    @Test
+    void expiraNaOrdemDoPrazoDentroDoMesmoTick() {
+        wheel.schedule("depois", 38);
+        wheel.schedule("antes", 31);
+
+        List<HierarchicalTimerWheel.Expiration<String>> expired = wheel.advance(40);
+
+        assertEquals(List.of("antes", "depois"), keys(expired));
+        assertEquals(31, expired.get(0).getDeadlineMillis());
+    }
+
+    @Test
+    void cancelarRemoveOTemporizador() {
+        wheel.schedule("a", 370);
+        wheel.schedule("b", 370);
+
+        assertTrue(wheel.cancel("a"));
+        assertFalse(wheel.cancel("a"));
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("b"), keys(wheel.advance(1000)));
+    }
+
+    @Test
+    void cancelarAntesDeDescerDeNivel() {
+        wheel.schedule("a", 370);
+        // A entrada ainda está no nível 2; o cancelamento precisa achá-la lá
+        wheel.advance(100);
+
+        assertTrue(wheel.cancel("a"));
+        assertTrue(wheel.advance(1000).isEmpty());
+    }
+
+    @Test
+    void reagendarSubstituiOPrazoAnterior() {
+        wheel.schedule("a", 50);
+        wheel.schedule("a", 120);
+
+        assertTrue(wheel.advance(100).isEmpty());
+        assertEquals(List.of("a"), keys(wheel.advance(120)));
+        assertTrue(wheel.advance(200).isEmpty());
+    }
+
+    @Test
+    void prazoJaVencidoExpiraNoProximoAvanco() {
+        HierarchicalTimerWheel<String> started = new HierarchicalTimerWheel<>(TICK, 2, 3, 1000);
+        started.schedule("atrasado", 500);
+        started.schedule("agora", 1000);
+
+        List<HierarchicalTimerWheel.Expiration<String>> expired = started.advance(1000);
+
+        assertEquals(List.of("atrasado", "agora"), keys(expired));
+        assertEquals(0, started.size());
+    }
+
+    @Test
+    void cancelarPrazoJaVencidoAntesDoAvanco() {
+        HierarchicalTimerWheel<String> started = new HierarchicalTimerWheel<>(TICK, 2, 3, 1000);
+        started.schedule("atrasado", 500);
+
+        assertTrue(started.cancel("atrasado"));
+        assertTrue(started.advance(1000).isEmpty());
+    }
+
+    @Test
+    void configuracaoInvalida() {
+        assertThrows(IllegalArgumentException.class, () -> new HierarchicalTimerWheel<String>(0, 2, 3, 0));
+        assertThrows(IllegalArgumentException.class, () -> new HierarchicalTimerWheel<String>(TICK, 0, 3, 0));
+        assertThrows(IllegalArgumentException.class, () -> new HierarchicalTimerWheel<String>(TICK, 32, 2, 0));
+    }
+
+    /**
+     * Avança um tick por vez e devolve o tick em que a chave expirou
+     */
+    private long tickOfExpiration(String key) {
+        for (long tick = 1; tick <= 1000; tick++) {
+            for (HierarchicalTimerWheel.Expiration<String> expiration : wheel.advance(tick * TICK)) {
+                if (expiration.getKey().equals(key)) {
+                    return tick;
+                }
+            }
+        }
+        return fail("A chave " + key + " não expirou");
+    }
+
+    private static List<String> keys(List<HierarchicalTimerWheel.Expiration<String>> expired) {
+        List<String> keys = new ArrayList<>();
+        expired.forEach(expiration -> keys.add(expiration.getKey()));
+        return keys;
+    }
+}
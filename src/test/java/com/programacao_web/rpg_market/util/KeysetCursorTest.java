@@ -0,0 +1,79 @@
+package com.programacao_web.rpg_market.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 5, 17, 14, 30, 15, 123_456_789);
+    private static final String ID = "6650a1f2c3d4e5f6a7b8c9d0";
+
+    @Test
+    void idaEVoltaPreservaPosicaoAteOMilissegundo() {
+        String token = KeysetCursor.encode("created_at", CREATED, ID);
+
+        KeysetCursor.Position position = KeysetCursor.decode("created_at", token);
+
+        assertEquals(CREATED.truncatedTo(ChronoUnit.MILLIS), position.value());
+        assertEquals(ID, position.id());
+    }
+
+    @Test
+    void tokenSeguroParaURL() {
+        String token = KeysetCursor.encode("auction_end_date", CREATED, ID);
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+    }
+
+    @Test
+    void idComDoisPontosSobreviveAIdaEVolta() {
+        String token = KeysetCursor.encode("created_at", CREATED, "legado:42");
+
+        assertEquals("legado:42", KeysetCursor.decode("created_at", token).id());
+    }
+
+    @Test
+    void cursorDeOutraOrdenacaoERecusado() {
+        String token = KeysetCursor.encode("created_at", CREATED, ID);
+
+        assertInvalid("auction_end_date", token);
+    }
+
+    @Test
+    void tokenAlteradoERecusado() {
+        String token = KeysetCursor.encode("created_at", CREATED, ID);
+
+        // Troca um caractere no meio: a ordenação ou o número deixam de conferir
+        char[] chars = token.toCharArray();
+        chars[2] = chars[2] == 'A' ? 'B' : 'A';
+        assertInvalid("created_at", new String(chars));
+        // Truncado: Base64 inválido ou partes faltando
+        assertInvalid("created_at", token.substring(0, token.length() - 1));
+        assertInvalid("created_at", token.substring(0, 8));
+    }
+
+    @Test
+    void tokenMalFormadoERecusado() {
+        assertInvalid("created_at", "!!!não é base64!!!");
+        assertInvalid("created_at", "");
+        assertInvalid("created_at", encodeRaw("created_at:ontem:" + ID));
+        assertInvalid("created_at", encodeRaw("created_at:1715956215123"));
+        assertInvalid("created_at", encodeRaw("created_at:1715956215123:"));
+    }
+
+    private static void assertInvalid(String sortKey, String token) {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                                                       () -> KeysetCursor.decode(sortKey, token));
+        assertEquals("Cursor de listagem inválido", error.getMessage());
+    }
+
+    private static String encodeRaw(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,74 @@
+package com.programacao_web.rpg_market.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PortugueseAnalyzerTest {
+
+    @Test
+    void foldTiraAcentosEMaiusculas() {
+        assertEquals("pocoes", PortugueseAnalyzer.fold("Poções"));
+        assertEquals("aneis de anzol", PortugueseAnalyzer.fold("ANÉIS de Anzol"));
+    }
+
+    @Test
+    void pocaoComESemAcentoENoPluralViramOMesmoTermo() {
+        String stem = PortugueseAnalyzer.stem(PortugueseAnalyzer.fold("poção"));
+
+        assertEquals(stem, PortugueseAnalyzer.stem("pocao"));
+        assertEquals(stem, PortugueseAnalyzer.stem(PortugueseAnalyzer.fold("poções")));
+    }
+
+    @Test
+    void pluraisIrregularesVoltamAoSingular() {
+        assertSameStem("pães", "pão");
+        assertSameStem("animais", "animal");
+        assertSameStem("anéis", "anel");
+        assertSameStem("anzóis", "anzol");
+        assertSameStem("itens", "item");
+        assertSameStem("colares", "colar");
+        assertSameStem("cruzes", "cruz");
+        assertSameStem("espadas", "espada");
+    }
+
+    @Test
+    void singularTrocaAsTerminacoesDoPlural() {
+        assertEquals("anel", PortugueseAnalyzer.stem("aneis"));
+        assertEquals("item", PortugueseAnalyzer.stem("itens"));
+        assertEquals("cruz", PortugueseAnalyzer.stem("cruzes"));
+        assertEquals("espad", PortugueseAnalyzer.stem("espadas"));
+    }
+
+    @Test
+    void naoSeparaDerivacoes() {
+        assertNotEquals(PortugueseAnalyzer.stem("encantado"), PortugueseAnalyzer.stem("encantamento"));
+    }
+
+    @Test
+    void palavrasCurtasENumerosFicamComoEstao() {
+        assertEquals("pao", PortugueseAnalyzer.stem("pao"));
+        assertEquals("arco2", PortugueseAnalyzer.stem("arco2"));
+        assertEquals("virus", PortugueseAnalyzer.stem("virus"));
+        assertEquals("class", PortugueseAnalyzer.stem("class"));
+    }
+
+    @Test
+    void analyzeTiraPalavrasVaziasEMantemRepeticoes() {
+        assertEquals(List.of("poca", "cur", "poca"),
+                     PortugueseAnalyzer.analyze("As Poções de Cura, e a poção!"));
+    }
+
+    @Test
+    void analyzeDeTextoVazio() {
+        assertTrue(PortugueseAnalyzer.analyze(null).isEmpty());
+        assertTrue(PortugueseAnalyzer.analyze("  ").isEmpty());
+        assertTrue(PortugueseAnalyzer.analyze("de da do").isEmpty());
+    }
+
+    private static void assertSameStem(String plural, String singular) {
+        assertEquals(PortugueseAnalyzer.analyze(singular), PortugueseAnalyzer.analyze(plural), plural);
+    }
+}
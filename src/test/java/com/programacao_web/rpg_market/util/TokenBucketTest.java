@@ -0,0 +1,91 @@
+package com.programacao_web.rpg_market.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Balde de 2 fichas por segundo (uma a cada 500 ms) com rajada de 5, num relógio manual
+ */
+class TokenBucketTest {
+
+    private static final long MS = 1_000_000L;
+    private static final long START = 42_000 * MS;
+
+    private final TokenBucket bucket = new TokenBucket(2, 5, START);
+
+    @Test
+    void rajadaConsumidaDeUmaVez() {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryConsume(START), "ficha " + (i + 1));
+        }
+        // Sexta ficha: falta um intervalo inteiro
+        assertEquals(500 * MS, bucket.tryConsume(START));
+    }
+
+    @Test
+    void recusaNaoConsomeFicha() {
+        drain(START);
+
+        assertEquals(500 * MS, bucket.tryConsume(START));
+        assertEquals(500 * MS, bucket.tryConsume(START));
+        assertEquals(0, bucket.tryConsume(START + 500 * MS));
+    }
+
+    @Test
+    void esperaInformadaDescontaOTempoPassado() {
+        drain(START);
+
+        assertEquals(300 * MS, bucket.tryConsume(START + 200 * MS));
+    }
+
+    @Test
+    void recargaDeUmaFichaPorIntervalo() {
+        drain(START);
+
+        assertEquals(0, bucket.tryConsume(START + 500 * MS));
+        assertEquals(500 * MS, bucket.tryConsume(START + 500 * MS));
+        // Dois intervalos depois, duas fichas
+        assertEquals(0, bucket.tryConsume(START + 1500 * MS));
+        assertEquals(0, bucket.tryConsume(START + 1500 * MS));
+        assertTrue(bucket.tryConsume(START + 1500 * MS) > 0);
+    }
+
+    @Test
+    void ritmoConstanteNuncaERecusado() {
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, bucket.tryConsume(START + i * 500 * MS), "pedido " + i);
+        }
+    }
+
+    @Test
+    void ociosidadeNaoAcumulaAlemDaRajada() {
+        drain(START);
+        long later = START + 60_000 * MS;
+
+        assertTrue(bucket.isFull(later));
+        drain(later);
+        assertEquals(500 * MS, bucket.tryConsume(later));
+    }
+
+    @Test
+    void cheioSoDepoisDeRecarregarTudo() {
+        assertTrue(bucket.isFull(START));
+
+        drain(START);
+        assertFalse(bucket.isFull(START + 2000 * MS));
+        assertTrue(bucket.isFull(START + 2500 * MS));
+    }
+
+    @Test
+    void configuracaoInvalida() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 5, START));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(2, 0, START));
+    }
+
+    private void drain(long now) {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryConsume(now));
+        }
+    }
+}